@@ -0,0 +1,54 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * JMH benchmark of a single put/take round trip through a Buffer with a
+ * subscribed property change listener. Run with the gc profiler to verify
+ * that the hot path does not allocate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BufferAllocationBenchmark {
+
+	@Param({ "BLOCKING_QUEUE", "RING_BUFFER" })
+	public String strategy;
+
+	private Buffer buffer;
+	private final Item item = new Item();
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		if ("RING_BUFFER".equals(strategy)) {
+			buffer = new Buffer(100, capacity -> new RingBufferStrategy(capacity, WaitStrategyType.PARK.create()));
+		} else {
+			buffer = new Buffer(100);
+		}
+		buffer.addPropertyChangeListener(evt -> {
+			// Listener on, so the notification path is part of what is measured.
+		});
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		buffer.getOccupancyGauge().shutdown();
+	}
+
+	@Benchmark
+	public Item putThenTake() throws InterruptedException {
+		buffer.put(item);
+		return buffer.take();
+	}
+}
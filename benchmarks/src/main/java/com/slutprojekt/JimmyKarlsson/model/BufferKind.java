@@ -0,0 +1,51 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.List;
+
+/**
+ * Every buffer implementation the project offers, so benchmarks can be
+ * parameterized over all of them. When a new buffer implementation is added,
+ * add it here as well.
+ */
+public enum BufferKind {
+	BLOCKING_QUEUE, RING_BUSY_SPIN, RING_YIELD, RING_PARK, RING_BLOCKING, STRIPED_YIELD, STRIPED_BLOCKING, PRIORITY;
+
+	/**
+	 * Creates an empty buffer of this kind.
+	 * 
+	 * @param capacity the capacity of the buffer
+	 * @return a new buffer
+	 */
+	public Buffer create(int capacity) {
+		switch (this) {
+		case BLOCKING_QUEUE:
+			return new Buffer(capacity);
+		case RING_BUSY_SPIN:
+			return ring(capacity, WaitStrategyType.BUSY_SPIN);
+		case RING_YIELD:
+			return ring(capacity, WaitStrategyType.YIELD);
+		case RING_PARK:
+			return ring(capacity, WaitStrategyType.PARK);
+		case RING_BLOCKING:
+			return ring(capacity, WaitStrategyType.BLOCKING);
+		case STRIPED_YIELD:
+			return striped(capacity, WaitStrategyType.YIELD);
+		case STRIPED_BLOCKING:
+			return striped(capacity, WaitStrategyType.BLOCKING);
+		case PRIORITY:
+			// A single class, so all items share the capacity and only the
+			// scheduling overhead is measured.
+			return new Buffer(List.of(new PriorityClass("default", 1, capacity)));
+		default:
+			throw new IllegalStateException("Unknown buffer kind: " + this);
+		}
+	}
+
+	private static Buffer ring(int capacity, WaitStrategyType waitStrategy) {
+		return new Buffer(capacity, size -> new RingBufferStrategy(size, waitStrategy.create()));
+	}
+
+	private static Buffer striped(int capacity, WaitStrategyType waitStrategy) {
+		return new Buffer(capacity, size -> new StripedBufferStrategy(size, waitStrategy.create()));
+	}
+}
@@ -0,0 +1,187 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Control;
+
+/**
+ * Throughput and latency of handing items through a Buffer, for every buffer
+ * kind, a range of capacities, and with or without a subscribed listener.
+ * <p>
+ * The blocking groups run producers calling put against consumers calling
+ * take, one, two and four of each, so the wait strategies decide how a thread
+ * waits for room or for an item. Once measurement stops, a helper thread keeps
+ * taking and offering items, so a producer or consumer still blocked after the
+ * other side has stopped can finish its call. The spinning group retries
+ * non-blocking offer/poll instead, one of each, for comparison. Sample-time
+ * mode reports latency percentiles.
+ */
+@State(Scope.Group)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BufferThroughputBenchmark {
+
+	@Param({ "BLOCKING_QUEUE", "RING_BUSY_SPIN", "RING_YIELD", "RING_PARK", "RING_BLOCKING", "STRIPED_YIELD",
+			"STRIPED_BLOCKING", "PRIORITY" })
+	public String kind;
+
+	@Param({ "16", "1024" })
+	public int capacity;
+
+	@Param({ "false", "true" })
+	public boolean listener;
+
+	private Buffer buffer;
+	private final Item item = new Item();
+	private volatile Control control; // Captured on the first call of each iteration.
+	private volatile boolean iterationDone;
+	private Thread unblocker;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		buffer = BufferKind.valueOf(kind).create(capacity);
+		if (listener) {
+			buffer.addPropertyChangeListener(evt -> {
+				// Subscribed only so that the notification path is active.
+			});
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void startUnblocker() {
+		control = null;
+		iterationDone = false;
+		unblocker = new Thread(this::unblock, "benchmark-unblocker");
+		unblocker.setDaemon(true);
+		unblocker.start();
+	}
+
+	@TearDown(Level.Iteration)
+	public void stopUnblocker() throws InterruptedException {
+		iterationDone = true;
+		unblocker.join();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		buffer.getOccupancyGauge().shutdown();
+	}
+
+	@Benchmark
+	@Group("blocking1x1")
+	@GroupThreads(1)
+	public void put1x1(Control control) throws InterruptedException {
+		blockingPut(control);
+	}
+
+	@Benchmark
+	@Group("blocking1x1")
+	@GroupThreads(1)
+	public Item take1x1(Control control) throws InterruptedException {
+		return blockingTake(control);
+	}
+
+	@Benchmark
+	@Group("blocking2x2")
+	@GroupThreads(2)
+	public void put2x2(Control control) throws InterruptedException {
+		blockingPut(control);
+	}
+
+	@Benchmark
+	@Group("blocking2x2")
+	@GroupThreads(2)
+	public Item take2x2(Control control) throws InterruptedException {
+		return blockingTake(control);
+	}
+
+	@Benchmark
+	@Group("blocking4x4")
+	@GroupThreads(4)
+	public void put4x4(Control control) throws InterruptedException {
+		blockingPut(control);
+	}
+
+	@Benchmark
+	@Group("blocking4x4")
+	@GroupThreads(4)
+	public Item take4x4(Control control) throws InterruptedException {
+		return blockingTake(control);
+	}
+
+	@Benchmark
+	@Group("spinning")
+	@GroupThreads(1)
+	public boolean offer(Control control) {
+		while (!buffer.offer(item)) {
+			if (control.stopMeasurement) {
+				return false;
+			}
+			Thread.onSpinWait();
+		}
+		return true;
+	}
+
+	@Benchmark
+	@Group("spinning")
+	@GroupThreads(1)
+	public Item poll(Control control) {
+		Item taken;
+		while ((taken = buffer.poll()) == null) {
+			if (control.stopMeasurement) {
+				return null;
+			}
+			Thread.onSpinWait();
+		}
+		return taken;
+	}
+
+	// Private helper methods
+
+	private void blockingPut(Control control) throws InterruptedException {
+		capture(control);
+		buffer.put(item);
+	}
+
+	private Item blockingTake(Control control) throws InterruptedException {
+		capture(control);
+		return buffer.take();
+	}
+
+	private void capture(Control control) {
+		if (this.control == null) {
+			this.control = control;
+		}
+	}
+
+	// Waits for measurement to stop, then takes and offers items until the
+	// iteration is torn down, which frees every thread blocked in put or take.
+	private void unblock() {
+		while (!iterationDone) {
+			Control current = control;
+			if (current != null && current.stopMeasurement) {
+				buffer.poll();
+				buffer.offer(item);
+			}
+			Thread.yield();
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.slutprojekt.JimmyKarlsson.model.metrics.LatencyHistogram;
+
+/**
+ * Tail latency of items when all consumers share the buffer, compared with
+ * every dispatch policy. As in the application, consumer speeds differ by a
+ * factor of ten, scaled down from 1 to 10 seconds per item to 0.1 to 1 ms.
+ * Every measurement runs a fresh load balancer for a fixed time with producers
+ * at a fixed share of the consumers' combined rate, and reports the waiting
+ * time of items, from the put into the shared buffer until a consumer takes
+ * them, as auxiliary counters in microseconds. The measured time itself is
+ * only the fixed run time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class DispatchLatencyBenchmark {
+
+	private static final Duration RUN_TIME = Duration.ofSeconds(2);
+	private static final int CONSUMERS = 8;
+	private static final Duration FASTEST = Duration.ofNanos(100_000);
+	private static final Duration SLOWEST = Duration.ofNanos(1_000_000);
+
+	// SHARED is the model without dispatch; the others are DispatchPolicyType names.
+	@Param({ "SHARED", "ROUND_ROBIN", "LEAST_LOADED", "POWER_OF_TWO_CHOICES", "DELAY_WEIGHTED" })
+	public String policy;
+
+	// Offered load as a share of the consumers' combined rate.
+	@Param({ "0.5", "0.8" })
+	public double load;
+
+	@Param({ "4" })
+	public int queueCapacity;
+
+	private LoadBalancer loadBalancer;
+
+	/**
+	 * Latency percentiles of one measurement. With a single invocation per
+	 * iteration, JMH reports these values as they are.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Latency {
+		public long p50Micros;
+		public long p99Micros;
+		public long p999Micros;
+		public long maxMicros;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			p50Micros = p99Micros = p999Micros = maxMicros = 0;
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void startLoadBalancer() {
+		loadBalancer = new LoadBalancer(1024);
+		if (!"SHARED".equals(policy)) {
+			loadBalancer.enableDispatch(DispatchPolicyType.valueOf(policy), queueCapacity);
+		}
+		double consumerRate = 0;
+		for (int i = 0; i < CONSUMERS; i++) {
+			long intervalNanos = FASTEST.toNanos() + (SLOWEST.toNanos() - FASTEST.toNanos()) * i / (CONSUMERS - 1);
+			loadBalancer.addConsumer(Rate.every(Duration.ofNanos(intervalNanos)));
+			consumerRate += 1e9 / intervalNanos;
+		}
+		loadBalancer.addProducer(Rate.perSecond(consumerRate * load), new Item());
+	}
+
+	@TearDown(Level.Iteration)
+	public void stopLoadBalancer() {
+		loadBalancer.shutdown();
+	}
+
+	@Benchmark
+	public void run(Latency latency) throws InterruptedException {
+		Thread.sleep(RUN_TIME.toMillis());
+		LatencyHistogram histogram = loadBalancer.getDispatcher() == null ? loadBalancer.getBuffer().getDwellHistogram()
+				: loadBalancer.getDispatcher().getLatencyHistogram();
+		long[] percentiles = histogram.getValuesAtPercentiles(50, 99, 99.9);
+		latency.p50Micros = TimeUnit.NANOSECONDS.toMicros(percentiles[0]);
+		latency.p99Micros = TimeUnit.NANOSECONDS.toMicros(percentiles[1]);
+		latency.p999Micros = TimeUnit.NANOSECONDS.toMicros(percentiles[2]);
+		latency.maxMicros = TimeUnit.NANOSECONDS.toMicros(histogram.getMax());
+	}
+}
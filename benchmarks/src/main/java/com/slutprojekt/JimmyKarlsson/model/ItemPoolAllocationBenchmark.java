@@ -0,0 +1,47 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * JMH benchmark of the steady-state production cycle: acquire an item from
+ * the pool, put it, take it and release it again. Run with the gc profiler to
+ * verify that pooled production does not allocate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ItemPoolAllocationBenchmark {
+
+	private Buffer buffer;
+	private ItemPool itemPool;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		buffer = new Buffer(100);
+		itemPool = new ItemPool(100);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		buffer.getOccupancyGauge().shutdown();
+	}
+
+	@Benchmark
+	public long produceThenConsume() throws InterruptedException {
+		buffer.put(itemPool.acquire(42));
+		Item item = buffer.take();
+		long id = item.getId();
+		itemPool.release(item);
+		return id;
+	}
+}
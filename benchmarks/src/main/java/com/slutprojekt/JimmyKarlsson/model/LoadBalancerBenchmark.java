@@ -0,0 +1,68 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of LoadBalancer.applyState, i.e. of loading a saved state into a
+ * running load balancer, for topologies of different sizes on platform and
+ * virtual threads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoadBalancerBenchmark {
+
+	// Long enough that no producer or consumer wakes up during a measurement.
+	private static final int DELAY_SECONDS = 3600;
+
+	@Param({ "10", "100", "1000" })
+	public int actors;
+
+	@Param({ "PLATFORM_THREADS", "VIRTUAL_THREADS", "TIMING_WHEEL" })
+	public String executionMode;
+
+	private LoadBalancerState state;
+	private LoadBalancer loadBalancer;
+
+	@Setup(Level.Trial)
+	public void createState() {
+		state = new LoadBalancerState(Collections.nCopies(actors, DELAY_SECONDS),
+				Collections.nCopies(actors, DELAY_SECONDS), 100, 50);
+	}
+
+	// Every measurement replaces a running topology of the same size.
+	@Setup(Level.Invocation)
+	public void startLoadBalancer() {
+		loadBalancer = new LoadBalancer(100, ExecutionMode.valueOf(executionMode));
+		loadBalancer.applyState(state);
+	}
+
+	@TearDown(Level.Invocation)
+	public void stopLoadBalancer() {
+		loadBalancer.shutdown();
+	}
+
+	@Benchmark
+	public LoadBalancer applyState() {
+		loadBalancer.applyState(state);
+		return loadBalancer;
+	}
+}
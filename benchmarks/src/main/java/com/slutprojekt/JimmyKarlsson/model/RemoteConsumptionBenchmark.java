@@ -0,0 +1,83 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of consuming from a Buffer locally against consuming it through a
+ * BufferServer over loopback TCP. A feeder thread keeps the buffer full, so
+ * the benchmark measures the consuming side only: a plain take() for local,
+ * and the frames, credits and selector round trips for remote. Vary the
+ * remote consumer's window to see how much of the round trip it hides.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RemoteConsumptionBenchmark {
+
+	@Param({ "local", "remote" })
+	public String mode;
+
+	@Param({ "1024" })
+	public int window;
+
+	private Buffer buffer;
+	private BufferServer server;
+	private RemoteConsumer consumer;
+	private Thread feeder;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		buffer = new Buffer(4096);
+		feeder = new Thread(() -> {
+			Item item = new Item();
+			try {
+				while (true) {
+					buffer.put(item);
+				}
+			} catch (InterruptedException e) {
+				// Done feeding.
+			}
+		}, "feeder");
+		feeder.setDaemon(true);
+		feeder.start();
+		if (mode.equals("remote")) {
+			server = new BufferServer(buffer, new InetSocketAddress("127.0.0.1", 0));
+			consumer = new RemoteConsumer(server.getAddress(), window, null);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException, InterruptedException {
+		if (consumer != null) {
+			consumer.close();
+			server.close();
+		}
+		feeder.interrupt();
+		feeder.join();
+		buffer.getOccupancyGauge().shutdown();
+	}
+
+	@Benchmark
+	public Item take() throws InterruptedException, IOException {
+		return consumer == null ? buffer.take() : consumer.take();
+	}
+}
@@ -0,0 +1,40 @@
+package com.slutprojekt.JimmyKarlsson.utils;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * JMH benchmark of publishing a log event and draining it again. Run with the
+ * gc profiler to verify that steady-state logging does not allocate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LogEventRingAllocationBenchmark {
+
+	private LogEventRing ring;
+	private LogEventRing.Handler handler;
+	private long sum;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		ring = new LogEventRing(1024);
+		handler = (type, first, second, third, value) -> sum += type + first + second + third;
+	}
+
+	@Benchmark
+	public long publishThenDrain() {
+		ring.publish(0, 12, 1, 0, 0);
+		ring.publish(2, 0, 0, 0, 42.5);
+		ring.drain(handler);
+		return sum;
+	}
+}
@@ -0,0 +1,63 @@
+package com.slutprojekt.JimmyKarlsson.utils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.slutprojekt.JimmyKarlsson.model.LoadBalancer;
+import com.slutprojekt.JimmyKarlsson.model.metrics.RollingStatistics;
+
+/**
+ * Overhead of a single LoggerSingleton buffer sample, rebuilt from the public
+ * classes it is made of: reading the buffer size, recording it in every
+ * rolling window, and computing the ten-second average on every
+ * ten-thousandth sample. Handing that average to the log writer is a single
+ * ring publish, measured by LogEventRingAllocationBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggerSingletonBenchmark {
+
+	// The same interval and windows as LoggerSingleton.
+	private static final Duration SAMPLE_INTERVAL = Duration.ofMillis(1);
+	private static final int AVERAGE_WINDOW = 1;
+	private static final long SAMPLES_PER_AVERAGE = Duration.ofSeconds(10).dividedBy(SAMPLE_INTERVAL);
+
+	private LoadBalancer loadBalancer;
+	private RollingStatistics statistics;
+
+	@Setup
+	public void setUp() {
+		loadBalancer = new LoadBalancer(100);
+		statistics = new RollingStatistics(SAMPLE_INTERVAL);
+	}
+
+	@TearDown
+	public void tearDown() {
+		loadBalancer.shutdown();
+	}
+
+	@Benchmark
+	public double sampleBuffer() {
+		statistics.record(loadBalancer.getCurrentSize());
+		if (statistics.getSampleCount() % SAMPLES_PER_AVERAGE == 0) {
+			return statistics.snapshot(AVERAGE_WINDOW).mean();
+		}
+		return 0;
+	}
+}
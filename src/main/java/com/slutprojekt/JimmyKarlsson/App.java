@@ -1,6 +1,13 @@
 package com.slutprojekt.JimmyKarlsson;
 
+import java.util.List;
+
 import com.slutprojekt.JimmyKarlsson.controller.Facade;
+import com.slutprojekt.JimmyKarlsson.model.ExecutionMode;
+import com.slutprojekt.JimmyKarlsson.model.ItemPool;
+import com.slutprojekt.JimmyKarlsson.model.Pipeline;
+import com.slutprojekt.JimmyKarlsson.model.StageSettings;
+import com.slutprojekt.JimmyKarlsson.model.interfaces.ItemProcessor;
 
 /**
  * This is the main class of the application which acts as the entry point for
@@ -10,18 +17,28 @@ import com.slutprojekt.JimmyKarlsson.controller.Facade;
  */
 public class App {
 
+	private static final int BUFFER_CAPACITY = 100; // Capacity of the buffer, or of every pipeline stage.
+
 	/**
-	 * Main method which boots up the application. Here you can pass command-line
-	 * arguments if needed in the future. Currently, the program does not use
-	 * command-line arguments.
+	 * Main method which boots up the application. Without arguments the producers
+	 * feed consumers through a single buffer; with {@code --pipeline} they feed
+	 * an ingest, transform and persist pipeline instead, and the GUI shows every
+	 * stage.
 	 * 
-	 * @param args Command line arguments passed to the program (not currently
-	 *             used).
+	 * @param args Command line arguments passed to the program: nothing, or
+	 *             {@code --pipeline}.
 	 */
 	public static void main(String[] args) {
-		// Initialize the facade with a configuration parameter (e.g., 100).
-		// If the initial configuration needs to change, modify this value.
-		Facade facade = new Facade(100); // Consider extracting '100' as a constant if it's a significant figure.
+		Facade facade;
+		if (args.length == 0) {
+			facade = new Facade(BUFFER_CAPACITY);
+		} else if (args.length == 1 && args[0].equals("--pipeline")) {
+			facade = new Facade(createPipeline());
+		} else {
+			System.err.println("Usage: App [--pipeline]");
+			System.exit(2);
+			return;
+		}
 
 		// Calls the method to display the Graphical User Interface (GUI).
 		// To change the way the GUI is displayed or to initialize it with specific
@@ -29,4 +46,16 @@ public class App {
 		// you might want to modify the showGUI method within the Facade class.
 		facade.showGUI();
 	}
+
+	// Private helper methods
+
+	// Three stages that pass items on unchanged, so the GUI shows how
+	// backpressure spreads through them as the producers and workers change.
+	private static Pipeline createPipeline() {
+		List<StageSettings> stages = List.of(
+				new StageSettings("ingest", BUFFER_CAPACITY, 2, ItemProcessor.IDENTITY),
+				new StageSettings("transform", BUFFER_CAPACITY, 2, ItemProcessor.IDENTITY),
+				new StageSettings("persist", BUFFER_CAPACITY, 1, ItemProcessor.IDENTITY));
+		return new Pipeline(stages, ExecutionMode.PLATFORM_THREADS, new ItemPool(stages.size() * BUFFER_CAPACITY));
+	}
 }
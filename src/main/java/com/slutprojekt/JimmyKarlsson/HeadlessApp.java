@@ -0,0 +1,251 @@
+package com.slutprojekt.JimmyKarlsson;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import com.slutprojekt.JimmyKarlsson.model.Durability;
+import com.slutprojekt.JimmyKarlsson.model.ExecutionMode;
+import com.slutprojekt.JimmyKarlsson.model.LoadBalancerState;
+import com.slutprojekt.JimmyKarlsson.model.Rate;
+import com.slutprojekt.JimmyKarlsson.model.StateFile;
+import com.slutprojekt.JimmyKarlsson.model.interfaces.ProgressListener;
+import com.slutprojekt.JimmyKarlsson.simulation.DiscreteEventSimulation;
+import com.slutprojekt.JimmyKarlsson.simulation.RealTimeSimulation;
+import com.slutprojekt.JimmyKarlsson.simulation.SimulationConfig;
+import com.slutprojekt.JimmyKarlsson.simulation.SimulationReport;
+import com.slutprojekt.JimmyKarlsson.simulation.interfaces.SimulationEngine;
+
+/**
+ * Command-line entry point that runs the load balancer without a GUI, for
+ * batch nodes and CI. It runs a configurable topology for a fixed duration and
+ * writes throughput and occupancy statistics to stdout or to a file. No AWT or
+ * Swing classes are loaded.
+ */
+public class HeadlessApp {
+
+	private static final String USAGE = String.join(System.lineSeparator(),
+			"Usage: HeadlessApp [options]",
+			"  --capacity N            buffer capacity (default 100)",
+			"  --producers N           number of producers (default 10)",
+			"  --producer-delay D|A-B  seconds between items per producer (default 1-10)",
+			"  --producer-rate R       items per second per producer, e.g. 5000 (overrides the delay)",
+			"  --consumers N           number of consumers (default 5)",
+			"  --consumer-delay D|A-B  seconds between items per consumer (default 1-10)",
+			"  --consumer-rate R       items per second per consumer (overrides the delay)",
+			"  --duration S            run duration in seconds (default 60)",
+			"  --sample-interval MS    occupancy sample interval in milliseconds (default 1000, at most the duration)",
+			"  --state FILE            take producers, consumers and buffer from a saved .dat state",
+			"  --virtual-threads       run producers and consumers on virtual threads",
+			"  --timing-wheel          drive producers and consumers from a timing wheel on a small pool",
+			"  --discrete-event        run in simulated time instead of real time (delays must be at least 1)",
+			"  --journal DIR           journal the buffer to DIR, resuming from the items a previous run left there",
+			"  --durability D          how long puts wait for the journal: ASYNC, WRITE or FSYNC (default WRITE)",
+			"  --output FILE           write the report to FILE instead of stdout",
+			"  --samples FILE          also write the occupancy time series to FILE as CSV",
+			"  --help                  print this message and exit");
+
+	/**
+	 * Main method which parses the options, runs the simulation and writes the
+	 * report.
+	 * 
+	 * @param args Command line options, see {@link #USAGE}.
+	 */
+	public static void main(String[] args) {
+		System.setProperty("java.awt.headless", "true"); // Fail fast if anything tries to open a window.
+		if (List.of(args).contains("--help")) {
+			System.out.println(USAGE);
+			return;
+		}
+		try {
+			Options options = Options.parse(args);
+			SimulationEngine engine = options.discreteEvent ? new DiscreteEventSimulation()
+					: new RealTimeSimulation(options.executionMode, options.journalDirectory, options.durability);
+			SimulationReport report = engine.run(options.config);
+			writeReport(report, options);
+		} catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println(USAGE);
+			System.exit(2);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			System.exit(1);
+		} catch (FileNotFoundException e) {
+			System.err.println("Failed to write report: " + e.getMessage());
+			System.exit(1);
+		} catch (UncheckedIOException e) {
+			System.err.println("Failed to open the journal: " + e.getCause().getMessage());
+			System.exit(1);
+		}
+		System.exit(0); // Producers and consumers may still be winding down.
+	}
+
+	// Writes the summary and, if requested, the CSV time series.
+	private static void writeReport(SimulationReport report, Options options) throws FileNotFoundException {
+		if (options.outputFile == null) {
+			report.writeTo(System.out);
+		} else {
+			try (PrintStream out = new PrintStream(options.outputFile)) {
+				report.writeTo(out);
+			}
+		}
+		if (options.samplesFile != null) {
+			try (PrintStream out = new PrintStream(options.samplesFile)) {
+				report.writeSamplesCsv(out);
+			}
+		}
+	}
+
+	// Parsed command-line options.
+	private static final class Options {
+		private SimulationConfig config;
+		private ExecutionMode executionMode = ExecutionMode.PLATFORM_THREADS;
+		private boolean discreteEvent;
+		private Path journalDirectory;
+		private Durability durability = Durability.WRITE;
+		private String outputFile;
+		private String samplesFile;
+
+		private static Options parse(String[] args) {
+			Options options = new Options();
+			int capacity = 100, producers = 10, consumers = 5;
+			int[] producerDelay = { 1, 10 }, consumerDelay = { 1, 10 };
+			long durationSeconds = 60, sampleIntervalMillis = 1000;
+			Rate producerRate = null, consumerRate = null;
+			LoadBalancerState state = null;
+
+			for (int i = 0; i < args.length; i++) {
+				String option = args[i];
+				if ("--virtual-threads".equals(option)) {
+					options.executionMode = ExecutionMode.VIRTUAL_THREADS;
+					continue;
+				}
+				if ("--timing-wheel".equals(option)) {
+					options.executionMode = ExecutionMode.TIMING_WHEEL;
+					continue;
+				}
+				if ("--discrete-event".equals(option)) {
+					options.discreteEvent = true;
+					continue;
+				}
+				if (i + 1 >= args.length) {
+					throw new IllegalArgumentException("Missing value for " + option);
+				}
+				String value = args[++i];
+				switch (option) {
+				case "--capacity" -> capacity = parsePositive(option, value);
+				case "--producers" -> producers = parseNonNegative(option, value);
+				case "--producer-delay" -> producerDelay = parseRange(option, value);
+				case "--consumers" -> consumers = parseNonNegative(option, value);
+				case "--consumer-delay" -> consumerDelay = parseRange(option, value);
+				case "--producer-rate" -> producerRate = parseRate(option, value);
+				case "--consumer-rate" -> consumerRate = parseRate(option, value);
+				case "--duration" -> durationSeconds = parsePositive(option, value);
+				case "--sample-interval" -> sampleIntervalMillis = parsePositive(option, value);
+				case "--state" -> state = readState(value);
+				case "--output" -> options.outputFile = value;
+				case "--samples" -> options.samplesFile = value;
+				case "--journal" -> options.journalDirectory = parsePath(option, value);
+				case "--durability" -> options.durability = parseDurability(option, value);
+				default -> throw new IllegalArgumentException("Unknown option " + option);
+				}
+			}
+
+			if (options.discreteEvent && options.journalDirectory != null) {
+				throw new IllegalArgumentException("--journal cannot be used with --discrete-event, which only simulates the buffer.");
+			}
+			Duration duration = Duration.ofSeconds(durationSeconds);
+			Duration sampleInterval = Duration.ofMillis(sampleIntervalMillis);
+			if (state != null) {
+				options.config = new SimulationConfig(state.producerRates(), state.consumerRates(),
+						state.bufferCapacity(), state.currentBufferSize(), duration, sampleInterval);
+				return options;
+			}
+			List<Rate> producerRates = producerRate != null ? Collections.nCopies(producers, producerRate)
+					: SimulationConfig.randomRates(producers, producerDelay[0], producerDelay[1]);
+			List<Rate> consumerRates = consumerRate != null ? Collections.nCopies(consumers, consumerRate)
+					: SimulationConfig.randomRates(consumers, consumerDelay[0], consumerDelay[1]);
+			options.config = new SimulationConfig(producerRates, consumerRates, capacity, 0, duration,
+					sampleInterval);
+			return options;
+		}
+
+		// Reads a state file written by the GUI's Save button, in either format.
+		private static LoadBalancerState readState(String filePath) {
+			try {
+				return StateFile.read(Path.of(filePath), ProgressListener.NONE);
+			} catch (IOException | InvalidPathException e) {
+				throw new IllegalArgumentException("Failed to load state from " + filePath + ": " + e.getMessage());
+			}
+		}
+
+		private static int parseNonNegative(String option, String value) {
+			try {
+				int parsed = Integer.parseInt(value);
+				if (parsed < 0) {
+					throw new IllegalArgumentException(option + " cannot be negative");
+				}
+				return parsed;
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid number for " + option + ": " + value);
+			}
+		}
+
+		private static int parsePositive(String option, String value) {
+			int parsed = parseNonNegative(option, value);
+			if (parsed == 0) {
+				throw new IllegalArgumentException(option + " must be greater than zero");
+			}
+			return parsed;
+		}
+
+		// Accepts a positive, possibly fractional, number of items per second.
+		private static Rate parseRate(String option, String value) {
+			try {
+				return Rate.perSecond(Double.parseDouble(value));
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Invalid number for " + option + ": " + value);
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException(option + " must be greater than zero");
+			}
+		}
+
+		private static Path parsePath(String option, String value) {
+			try {
+				return Path.of(value);
+			} catch (InvalidPathException e) {
+				throw new IllegalArgumentException("Invalid path for " + option + ": " + value);
+			}
+		}
+
+		private static Durability parseDurability(String option, String value) {
+			try {
+				return Durability.valueOf(value.toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Invalid value for " + option + ": " + value);
+			}
+		}
+
+		// Accepts either a single delay "D" or an inclusive range "A-B".
+		private static int[] parseRange(String option, String value) {
+			int dash = value.indexOf('-');
+			if (dash < 0) {
+				int delay = parseNonNegative(option, value);
+				return new int[] { delay, delay };
+			}
+			int min = parseNonNegative(option, value.substring(0, dash));
+			int max = parseNonNegative(option, value.substring(dash + 1));
+			if (max < min) {
+				throw new IllegalArgumentException("Invalid range for " + option + ": " + value);
+			}
+			return new int[] { min, max };
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package com.slutprojekt.JimmyKarlsson.controller;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.slutprojekt.JimmyKarlsson.model.LoadBalancer;
+import com.slutprojekt.JimmyKarlsson.model.metrics.TimeSeries;
+
+/**
+ * Samples the load balancer into a TimeSeries for the live chart: buffer
+ * occupancy, the number of producers, and the throughput in items consumed
+ * over the last second. Runs on its own thread at the series' sample
+ * interval, once started.
+ */
+public class ChartSampler {
+
+	/** Index of the occupancy series. */
+	public static final int OCCUPANCY = 0;
+	/** Index of the producer count series. */
+	public static final int PRODUCERS = 1;
+	/** Index of the throughput series, in items per second. */
+	public static final int THROUGHPUT = 2;
+	/** The series sampled, in index order. */
+	public static final String[] SERIES_NAMES = { "Occupancy", "Producers", "Items/s" };
+
+	/** Millisecond resolution, with two hours of history. */
+	public static final Duration DEFAULT_SAMPLE_INTERVAL = Duration.ofMillis(1);
+	public static final Duration DEFAULT_HISTORY = Duration.ofHours(2);
+
+	private final LoadBalancer loadBalancer;
+	private final TimeSeries series;
+	private final int[] values = new int[SERIES_NAMES.length]; // Reused for every sample.
+	// Items taken so far at each of the samples of the last second, so the
+	// throughput is measured over a whole second rather than a single sample.
+	private final long[] takenHistory;
+	private ScheduledExecutorService scheduler;
+
+	/**
+	 * Constructs a sampler with the default resolution and history.
+	 *
+	 * @param loadBalancer the load balancer to sample
+	 */
+	public ChartSampler(LoadBalancer loadBalancer) {
+		this(loadBalancer, new TimeSeries(SERIES_NAMES.length, DEFAULT_SAMPLE_INTERVAL, DEFAULT_HISTORY));
+	}
+
+	/**
+	 * Constructs a sampler recording into the given series.
+	 *
+	 * @param loadBalancer the load balancer to sample
+	 * @param series       where samples are recorded, with one series per name
+	 *                     in {@link #SERIES_NAMES}
+	 */
+	public ChartSampler(LoadBalancer loadBalancer, TimeSeries series) {
+		this.loadBalancer = loadBalancer;
+		this.series = series;
+		long perSecond = Duration.ofSeconds(1).toNanos() / series.getSampleInterval().toNanos();
+		this.takenHistory = new long[(int) Math.max(1, perSecond)];
+	}
+
+	public TimeSeries getSeries() {
+		return series;
+	}
+
+	/**
+	 * Starts sampling at the series' sample interval.
+	 */
+	public synchronized void start() {
+		if (scheduler != null) {
+			return;
+		}
+		scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "chart-sampler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long interval = series.getSampleInterval().toNanos();
+		scheduler.scheduleAtFixedRate(this::sample, 0, interval, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Stops sampling. The recorded samples are kept.
+	 */
+	public synchronized void stop() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	/**
+	 * Records one sample of every series. Package-private so tests can sample
+	 * without the scheduler.
+	 */
+	void sample() {
+		try {
+			long index = series.getSampleCount();
+			int slot = (int) (index % takenHistory.length);
+			long taken = loadBalancer.getBuffer().getTotalTaken();
+			long takenSecondAgo = index >= takenHistory.length ? takenHistory[slot] : 0;
+			takenHistory[slot] = taken;
+
+			values[OCCUPANCY] = loadBalancer.getCurrentSize();
+			values[PRODUCERS] = loadBalancer.getProducerCount();
+			values[THROUGHPUT] = (int) Math.min(Integer.MAX_VALUE, taken - takenSecondAgo);
+			series.record(values);
+		} catch (RuntimeException e) {
+			// An exception would silently cancel the scheduled sampling.
+			e.printStackTrace();
+		}
+	}
+}
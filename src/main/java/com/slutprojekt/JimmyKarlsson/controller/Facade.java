@@ -3,20 +3,24 @@ package com.slutprojekt.JimmyKarlsson.controller;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.swing.SwingUtilities;
 
 import com.slutprojekt.JimmyKarlsson.model.Item;
 import com.slutprojekt.JimmyKarlsson.model.LoadBalancer;
 import com.slutprojekt.JimmyKarlsson.model.LoadBalancerState;
+import com.slutprojekt.JimmyKarlsson.model.Pipeline;
+import com.slutprojekt.JimmyKarlsson.model.StateFile;
+import com.slutprojekt.JimmyKarlsson.model.interfaces.ProgressListener;
 import com.slutprojekt.JimmyKarlsson.utils.Utilities;
 import com.slutprojekt.JimmyKarlsson.utils.LoggerSingleton;
+import com.slutprojekt.JimmyKarlsson.view.RefreshPipeline;
 import com.slutprojekt.JimmyKarlsson.view.SwingGUI;
 
 /**
@@ -27,10 +31,21 @@ import com.slutprojekt.JimmyKarlsson.view.SwingGUI;
 public class Facade implements PropertyChangeListener {
 
 	private LoadBalancer loadBalancer;
+	private final Pipeline pipeline; // Stages fed by the load balancer, or null if it has its own consumers.
 	private final LoggerSingleton loggerSingleton;
 	private final SwingGUI swingGUI;
 	private final PropertyChangeSupport support;
+	private final ProductionRegulator regulator;
+	private final ChartSampler chartSampler; // Samples the load balancer for the live chart.
+	// Latest buffer size from the model, shown on the next GUI frame.
+	private final RefreshPipeline.IntSlot bufferSizeSlot;
 	private final String LOG_PROPERTY = "log";
+	// Runs saves and loads one at a time, off the Event Dispatch Thread.
+	private final ExecutorService stateExecutor = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "state-io");
+		thread.setDaemon(true);
+		return thread;
+	});
 
 	/**
 	 * Constructor for Facade.
@@ -38,24 +53,51 @@ public class Facade implements PropertyChangeListener {
 	 * @param bufferCapacity The initial capacity of the LoadBalancer's buffer.
 	 */
 	public Facade(int bufferCapacity) {
-		this.loadBalancer = new LoadBalancer(bufferCapacity);
+		this(new LoadBalancer(bufferCapacity), null);
+	}
+
+	/**
+	 * Constructor for a Facade whose producers feed a multi-stage pipeline. The
+	 * workers of the first stage take the place of the consumers, and the GUI
+	 * shows the occupancy and throughput of every stage.
+	 *
+	 * @param pipeline The pipeline, which is started by the facade.
+	 */
+	public Facade(Pipeline pipeline) {
+		this(pipeline.createIngest(), pipeline);
+	}
+
+	private Facade(LoadBalancer loadBalancer, Pipeline pipeline) {
+		this.loadBalancer = loadBalancer;
+		this.pipeline = pipeline;
+		this.chartSampler = new ChartSampler(loadBalancer);
 		this.swingGUI = new SwingGUI(this);
+		this.bufferSizeSlot = swingGUI.getRefreshPipeline().newIntSlot(this::updateGUIForBufferSize);
 		this.loggerSingleton = LoggerSingleton.getInstance(loadBalancer);
 		this.loggerSingleton.addPropertyChangeListener(swingGUI);
 		loadBalancer.getBuffer().addPropertyChangeListener(this);
-		loadBalancer.initializeConsumers();
+		if (pipeline == null) {
+			loadBalancer.initializeConsumers();
+		} else {
+			pipeline.start();
+		}
 		support = new PropertyChangeSupport(this);
 		support.addPropertyChangeListener(swingGUI);
+		regulator = new ProductionRegulator(loadBalancer, RegulatorSettings.DEFAULT,
+				() -> Utilities.getRandomIntBetween(1, 10));
+		regulator.addPropertyChangeListener(this::onProducerCountRegulated);
+		chartSampler.start();
 	}
 
+	// Only keeps the latest buffer size; the GUI picks it up on its next frame,
+	// so a burst of changes costs the event dispatch thread a single update.
 	@Override
 	public void propertyChange(PropertyChangeEvent evt) {
-		runOnEDT(() -> updateGUIBasedOnPropertyChange(evt));
+		bufferSizeSlot.set((int) evt.getNewValue());
 	}
 
-	// Updates the GUI when a property change event occurs.
-	private void updateGUIBasedOnPropertyChange(PropertyChangeEvent evt) {
-		int bufferSize = (int) evt.getNewValue();
+	// Updates the GUI with the latest buffer size, once per frame at most.
+	private void updateGUIForBufferSize(int bufferSize) {
 		int bufferCapacity = loadBalancer.getBuffer().getCapacity();
 		swingGUI.updateProgressBar(bufferSize, bufferCapacity);
 		possiblyLogBufferWarnings(bufferSize, bufferCapacity);
@@ -88,6 +130,21 @@ public class Facade implements PropertyChangeListener {
 		});
 	}
 
+	// Switches between manual producer control and the automatic regulator.
+	public void setRegulatorMode(RegulatorMode mode) {
+		regulator.setMode(mode);
+	}
+
+	// Updates the GUI and the log after the regulator has scaled the producers.
+	private void onProducerCountRegulated(PropertyChangeEvent evt) {
+		int oldCount = (int) evt.getOldValue();
+		int newCount = (int) evt.getNewValue();
+		runOnEDT(() -> {
+			swingGUI.setNumberOfProducers(newCount);
+			logProducerChanges(Math.max(0, newCount - oldCount), Math.max(0, oldCount - newCount));
+		});
+	}
+
 	// Logs changes in the number of producers to the logger.
 	private void logProducerChanges(int added, int removed) {
 		int producerCount = loadBalancer.getProducerCount();
@@ -100,40 +157,72 @@ public class Facade implements PropertyChangeListener {
 		runOnEDT(() -> swingGUI.show());
 	}
 
-	// Saves the current state of the load balancer to a file.
-	public void saveStateToFile(String filePath) {
-		LoadBalancerState state = loadBalancer.extractState();
-		writeObjectToFile(filePath, state, "Failed to save state to file");
+	/**
+	 * Saves the current state of the load balancer to a file in the background.
+	 * The Load and Save buttons show the progress and are disabled until the
+	 * save has finished.
+	 *
+	 * @param filePath the file to write
+	 * @return completes once the file has been written, or exceptionally if it
+	 *         could not be
+	 */
+	public CompletableFuture<Void> saveStateToFile(String filePath) {
+		runOnEDT(() -> swingGUI.showStateProgress(true, 0));
+		return CompletableFuture.runAsync(() -> {
+			LoadBalancerState state = loadBalancer.extractState();
+			try {
+				StateFile.write(state, Path.of(filePath), progressOnGUI(true));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}, stateExecutor).whenComplete((result, e) -> finishStateTask(e, "Failed to save state to file",
+				"State saved to " + filePath));
 	}
 
-	// Helper method for writing objects to files.
-	private void writeObjectToFile(String filePath, Serializable object, String errorMessage) {
-		try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(filePath))) {
-			oos.writeObject(object);
-		} catch (IOException e) {
-			e.printStackTrace();
-			System.err.println(errorMessage);
-		}
+	/**
+	 * Loads the state of the load balancer from a file in the background. Both
+	 * the current format and files saved by earlier versions are read. When
+	 * feeding a pipeline, the consumers in the file are left out, as the first
+	 * stage's workers take their place.
+	 *
+	 * @param filePath the file to read
+	 * @return completes once the state has been applied, or exceptionally if it
+	 *         could not be read
+	 */
+	public CompletableFuture<Void> loadStateFromFile(String filePath) {
+		runOnEDT(() -> swingGUI.showStateProgress(false, 0));
+		return CompletableFuture.runAsync(() -> {
+			LoadBalancerState state;
+			try {
+				state = StateFile.read(Path.of(filePath), progressOnGUI(false));
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			loadBalancer.applyState(pipeline == null ? state : state.withoutConsumers());
+			runOnEDT(this::updateGUIAfterStateLoad);
+		}, stateExecutor).whenComplete((result, e) -> finishStateTask(e, "Failed to load state from file",
+				"State loaded from " + filePath));
 	}
 
-	// Loads the state of the load balancer from a file.
-	public void loadStateFromFile(String filePath) {
-		LoadBalancerState state = readObjectFromFile(filePath, "Failed to load state from file");
-		if (state != null) {
-			loadBalancer.applyState(state);
-			runOnEDT(this::updateGUIAfterStateLoad);
-		}
+	// Forwards progress to the Load and Save buttons, on the EDT.
+	private ProgressListener progressOnGUI(boolean saving) {
+		return (done, total) -> {
+			int percent = total == 0 ? 100 : (int) (done * 100 / total);
+			runOnEDT(() -> swingGUI.showStateProgress(saving, percent));
+		};
 	}
 
-	// Helper method for reading objects from files.
-	private LoadBalancerState readObjectFromFile(String filePath, String errorMessage) {
-		try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(filePath))) {
-			return (LoadBalancerState) ois.readObject();
-		} catch (IOException | ClassNotFoundException e) {
-			e.printStackTrace();
+	// Re-enables the Load and Save buttons and reports how a save or load went.
+	private void finishStateTask(Throwable failure, String errorMessage, String successMessage) {
+		if (failure != null) {
+			failure.printStackTrace();
 			System.err.println(errorMessage);
-			return null;
 		}
+		String message = failure == null ? successMessage : errorMessage;
+		runOnEDT(() -> {
+			swingGUI.clearStateProgress();
+			support.firePropertyChange(LOG_PROPERTY, null, message);
+		});
 	}
 
 	// Updates the GUI after the state of the load balancer has been loaded from a
@@ -152,6 +241,21 @@ public class Facade implements PropertyChangeListener {
 		SwingUtilities.invokeLater(task);
 	}
 
+	// Getter for accessing the production regulator outside of this class.
+	public ProductionRegulator getRegulator() {
+		return regulator;
+	}
+
+	// Getter for the sampler feeding the live chart.
+	public ChartSampler getChartSampler() {
+		return chartSampler;
+	}
+
+	// Getter for the pipeline fed by the load balancer, null if there is none.
+	public Pipeline getPipeline() {
+		return pipeline;
+	}
+
 	// Getter for accessing the load balancer outside of this class.
 	public LoadBalancer getLoadBalancer() {
 		return loadBalancer;
@@ -0,0 +1,176 @@
+package com.slutprojekt.JimmyKarlsson.controller;
+
+import java.beans.PropertyChangeListener;
+import java.beans.PropertyChangeSupport;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import com.slutprojekt.JimmyKarlsson.model.Item;
+import com.slutprojekt.JimmyKarlsson.model.LoadBalancer;
+
+/**
+ * A closed-loop controller that holds the buffer fill of a LoadBalancer at a
+ * setpoint by adding and removing producers. It runs a PID loop on the
+ * sampled buffer occupancy. The integral term is kept in producer units and
+ * is only integrated while the output is not saturated (anti-windup), the
+ * derivative acts on the measurement rather than the error so setpoint
+ * changes do not cause a kick, and scaling actions are limited in both size
+ * and frequency. In manual mode the loop is stopped and the operator is in
+ * charge.
+ */
+public class ProductionRegulator {
+
+	private final LoadBalancer loadBalancer; // The load balancer whose producers are regulated.
+	private final IntSupplier delaySupplier; // Picks the delay of every producer that is added.
+	private final PropertyChangeSupport support = new PropertyChangeSupport(this);
+	private volatile RegulatorSettings settings;
+	private volatile RegulatorMode mode = RegulatorMode.MANUAL;
+	private ScheduledExecutorService scheduler; // Runs the loop while in automatic mode.
+
+	// Controller state, only touched by the loop.
+	private double integral; // Integral term, in producers.
+	private double lastFill = Double.NaN; // Fill at the previous sample.
+	private long lastSampleNanos;
+	private long lastActionNanos;
+	private boolean acted; // Whether any action has been taken since the loop started.
+
+	/**
+	 * Constructs a ProductionRegulator in manual mode.
+	 *
+	 * @param loadBalancer  the load balancer to regulate
+	 * @param settings      the setpoint, gains and limits to use
+	 * @param delaySupplier supplies the delay in seconds for each added producer
+	 */
+	public ProductionRegulator(LoadBalancer loadBalancer, RegulatorSettings settings, IntSupplier delaySupplier) {
+		this.loadBalancer = loadBalancer;
+		this.settings = settings;
+		this.delaySupplier = delaySupplier;
+	}
+
+	/**
+	 * Switches between manual and automatic mode. Switching to automatic starts
+	 * the loop from the current number of producers, so there is no jump in
+	 * output (bumpless transfer).
+	 *
+	 * @param newMode the mode to switch to
+	 */
+	public synchronized void setMode(RegulatorMode newMode) {
+		if (newMode == mode) {
+			return;
+		}
+		mode = newMode;
+		if (newMode == RegulatorMode.AUTOMATIC) {
+			reset(loadBalancer.getProducerCount());
+			scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "production-regulator");
+				thread.setDaemon(true);
+				return thread;
+			});
+			long interval = settings.sampleInterval().toNanos();
+			scheduler.scheduleAtFixedRate(this::regulate, interval, interval, TimeUnit.NANOSECONDS);
+		} else {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
+	public RegulatorMode getMode() {
+		return mode;
+	}
+
+	public RegulatorSettings getSettings() {
+		return settings;
+	}
+
+	// Takes effect from the next sample on.
+	public void setSettings(RegulatorSettings settings) {
+		this.settings = settings;
+	}
+
+	// Listener management methods
+
+	public void addPropertyChangeListener(PropertyChangeListener listener) {
+		support.addPropertyChangeListener(listener);
+	}
+
+	public void removePropertyChangeListener(PropertyChangeListener listener) {
+		support.removePropertyChangeListener(listener);
+	}
+
+	/**
+	 * Runs one iteration of the loop: samples the buffer and scales producers.
+	 * Fires a "producerCount" property change after every scaling action.
+	 */
+	private void regulate() {
+		try {
+			int producers = loadBalancer.getProducerCount();
+			int adjustment = computeAdjustment(loadBalancer.getCurrentSize(), loadBalancer.getCapacity(), producers,
+					System.nanoTime());
+			for (int i = 0; i < adjustment; i++) {
+				loadBalancer.addProducer(delaySupplier.getAsInt(), new Item());
+			}
+			for (int i = 0; i > adjustment; i--) {
+				loadBalancer.removeProducer();
+			}
+			if (adjustment != 0) {
+				support.firePropertyChange("producerCount", producers, loadBalancer.getProducerCount());
+			}
+		} catch (RuntimeException e) {
+			// An exception would silently cancel the scheduled loop.
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Resets the controller state so that its output starts at the given number
+	 * of producers.
+	 *
+	 * @param producers the current number of producers
+	 */
+	void reset(int producers) {
+		integral = producers;
+		lastFill = Double.NaN;
+		acted = false;
+	}
+
+	/**
+	 * Computes how many producers to add (positive) or remove (negative) for one
+	 * sample. Package-private so the control law can be tested without threads.
+	 *
+	 * @param size      the current buffer size
+	 * @param capacity  the buffer capacity
+	 * @param producers the current number of producers
+	 * @param now       the sample time in nanoseconds
+	 * @return the number of producers to add or remove
+	 */
+	int computeAdjustment(int size, int capacity, int producers, long now) {
+		RegulatorSettings current = settings;
+		double fill = (double) size / capacity;
+		double error = current.setpoint() - fill;
+		double dt = Double.isNaN(lastFill) ? current.sampleInterval().toNanos() / 1e9
+				: (now - lastSampleNanos) / 1e9;
+		double derivative = Double.isNaN(lastFill) || dt <= 0 ? 0 : (fill - lastFill) / dt;
+		lastFill = fill;
+		lastSampleNanos = now;
+
+		double candidateIntegral = integral + current.integralGain() * error * dt;
+		double output = current.proportionalGain() * error + candidateIntegral
+				- current.derivativeGain() * derivative;
+		double saturated = Math.max(current.minProducers(), Math.min(current.maxProducers(), output));
+		// Anti-windup: only integrate while unsaturated, or when the error pulls the
+		// output back towards the allowed range.
+		if (output == saturated || Math.signum(error) != Math.signum(output - saturated)) {
+			integral = Math.max(current.minProducers(), Math.min(current.maxProducers(), candidateIntegral));
+		}
+
+		int adjustment = (int) Math.round(saturated) - producers;
+		if (adjustment == 0 || (acted && now - lastActionNanos < current.minActionInterval().toNanos())) {
+			return 0; // Nothing to do, or rate limited.
+		}
+		acted = true;
+		lastActionNanos = now;
+		return Math.max(-current.maxStep(), Math.min(current.maxStep(), adjustment));
+	}
+}
@@ -0,0 +1,12 @@
+package com.slutprojekt.JimmyKarlsson.controller;
+
+/**
+ * Whether the number of producers is controlled by the operator or by the
+ * ProductionRegulator.
+ */
+public enum RegulatorMode {
+	/** Producers are only added and removed through the GUI buttons. */
+	MANUAL,
+	/** The regulator adds and removes producers to hold the buffer setpoint. */
+	AUTOMATIC
+}
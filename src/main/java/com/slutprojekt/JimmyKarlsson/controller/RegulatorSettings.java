@@ -0,0 +1,56 @@
+package com.slutprojekt.JimmyKarlsson.controller;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Immutable record holding the tuning of the ProductionRegulator. The gains
+ * map an error in buffer fill (a fraction between 0 and 1) to a number of
+ * producers.
+ */
+public record RegulatorSettings(double setpoint, // Target buffer fill, as a fraction of capacity.
+		double proportionalGain, // Producers per unit of fill error.
+		double integralGain, // Producers per unit of fill error per second.
+		double derivativeGain, // Producers per unit of fill change per second.
+		Duration sampleInterval, // How often the buffer is sampled and the loop runs.
+		int maxStep, // Maximum number of producers added or removed in one action.
+		Duration minActionInterval, // Minimum time between two scaling actions.
+		int minProducers, // Lower bound on the number of producers.
+		int maxProducers // Upper bound on the number of producers.
+) {
+
+	/**
+	 * Settings that hold the buffer in the middle of the band the GUI colours
+	 * green (45-55%).
+	 */
+	public static final RegulatorSettings DEFAULT = new RegulatorSettings(0.50, 20.0, 2.0, 0.0, Duration.ofSeconds(1),
+			2, Duration.ofSeconds(2), 0, 200);
+
+	public RegulatorSettings {
+		Objects.requireNonNull(sampleInterval);
+		Objects.requireNonNull(minActionInterval);
+		if (setpoint < 0 || setpoint > 1) {
+			throw new IllegalArgumentException("Setpoint must be between 0 and 1.");
+		}
+		if (proportionalGain < 0 || integralGain < 0 || derivativeGain < 0) {
+			throw new IllegalArgumentException("Gains cannot be negative.");
+		}
+		if (sampleInterval.isNegative() || sampleInterval.isZero() || minActionInterval.isNegative()) {
+			throw new IllegalArgumentException("Sample interval must be positive and action interval non-negative.");
+		}
+		if (maxStep < 1 || minProducers < 0 || maxProducers < minProducers) {
+			throw new IllegalArgumentException("Invalid step size or producer bounds.");
+		}
+	}
+
+	/**
+	 * Returns a copy of these settings with a different setpoint.
+	 * 
+	 * @param newSetpoint the target buffer fill, between 0 and 1
+	 * @return new settings
+	 */
+	public RegulatorSettings withSetpoint(double newSetpoint) {
+		return new RegulatorSettings(newSetpoint, proportionalGain, integralGain, derivativeGain, sampleInterval,
+				maxStep, minActionInterval, minProducers, maxProducers);
+	}
+}
@@ -0,0 +1,216 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives producers and consumers of one Buffer without giving each of them a
+ * thread. Every actor's next put or take is a timer in a hierarchical
+ * {@link TimingWheel}; a single ticker thread advances the wheel and hands due
+ * actors to a small worker pool, where each performs a short, non-blocking
+ * step. An actor that finds the buffer full or empty waits in a FIFO queue
+ * until the other side frees a slot or puts an item, instead of polling, and
+ * the ticker also wakes waiters for changes made outside the scheduler. The
+ * thread count is therefore the worker pool plus one, whatever the number of
+ * actors.
+ *
+ * Pacing is deadline-based, the same as with dedicated threads: a step
+ * performs every operation that has fallen due, so rates above one item per
+ * tick are kept on average.
+ */
+public class ActorScheduler {
+
+	/** The default tick of the timing wheel. */
+	public static final Duration DEFAULT_TICK = Duration.ofMillis(1);
+
+	// Most operations a step performs before handing the worker to other actors.
+	private static final int MAX_OPERATIONS_PER_STEP = 1024;
+
+	private final Buffer buffer;
+	private final Executor workers;
+	private final long tickNanos;
+	private final long startNanos = System.nanoTime();
+	private final TimingWheel wheel = new TimingWheel(0); // Owned by the ticker thread.
+	private final AtomicReference<Actor> pending = new AtomicReference<>(); // Stack of actors to add to the wheel.
+	private final Queue<Actor> waitingForSpace = new ConcurrentLinkedQueue<>(); // Producers on a full buffer.
+	private final Queue<Actor> waitingForItems = new ConcurrentLinkedQueue<>(); // Consumers on an empty buffer.
+	private final Thread ticker;
+	private volatile boolean shutdown = false;
+
+	/**
+	 * Constructs an ActorScheduler with the default tick and starts its ticker
+	 * thread.
+	 *
+	 * @param buffer  the buffer the scheduled actors use
+	 * @param workers the pool that runs actor steps
+	 */
+	public ActorScheduler(Buffer buffer, Executor workers) {
+		this(buffer, workers, DEFAULT_TICK);
+	}
+
+	/**
+	 * Constructs an ActorScheduler and starts its ticker thread.
+	 *
+	 * @param buffer  the buffer the scheduled actors use
+	 * @param workers the pool that runs actor steps
+	 * @param tick    the resolution of the timing wheel
+	 */
+	public ActorScheduler(Buffer buffer, Executor workers, Duration tick) {
+		if (tick.isNegative() || tick.isZero()) {
+			throw new IllegalArgumentException("Tick must be positive.");
+		}
+		this.buffer = buffer;
+		this.workers = workers;
+		this.tickNanos = tick.toNanos();
+		this.ticker = Thread.ofPlatform().name("timing-wheel").daemon().start(this::runTicker);
+	}
+
+	/**
+	 * Starts driving a producer. It produces its first item right away.
+	 *
+	 * @param producer the producer to drive
+	 */
+	public void start(Producer producer) {
+		producer.markStarted();
+		schedule(new Actor(producer, null, producer.getRate()), System.nanoTime());
+	}
+
+	/**
+	 * Starts driving a consumer. It consumes its first item right away.
+	 *
+	 * @param consumer the consumer to drive
+	 */
+	public void start(Consumer consumer) {
+		consumer.markStarted();
+		schedule(new Actor(null, consumer, consumer.getRate()), System.nanoTime());
+	}
+
+	/**
+	 * Stops the ticker thread. Actors that are shut down are dropped the next
+	 * time they are due, so this only needs to be called when the scheduler
+	 * itself is no longer used.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		LockSupport.unpark(ticker);
+	}
+
+	// Hands an actor to the ticker thread, to be run when its deadline is due.
+	private void schedule(Actor actor, long deadlineNanos) {
+		actor.deadlineNanos = deadlineNanos;
+		Actor head;
+		do {
+			head = pending.get();
+			actor.nextPending = head;
+		} while (!pending.compareAndSet(head, actor));
+	}
+
+	private void runTicker() {
+		while (!shutdown) {
+			for (Actor actor = pending.getAndSet(null); actor != null;) {
+				Actor next = actor.nextPending;
+				actor.nextPending = null;
+				wheel.add(actor, toTick(actor.deadlineNanos));
+				actor = next;
+			}
+			wakeForExternalChanges();
+			long elapsed = System.nanoTime() - startNanos;
+			wheel.advanceTo(elapsed / tickNanos, workers);
+			LockSupport.parkNanos(this, tickNanos - elapsed % tickNanos);
+		}
+	}
+
+	// Rounds up, so an actor never runs before its deadline.
+	private long toTick(long deadlineNanos) {
+		long sinceStart = deadlineNanos - startNanos;
+		return sinceStart <= 0 ? 0 : (sinceStart + tickNanos - 1) / tickNanos;
+	}
+
+	// Parks an actor until the other side makes progress, without losing a wakeup.
+	private void await(Actor actor) {
+		if (actor.producer != null) {
+			waitingForSpace.add(actor);
+			if (buffer.getCurrentSize() < buffer.getCapacity()) {
+				wakeOne(waitingForSpace); // A slot was freed between the failed offer and now.
+			}
+		} else {
+			waitingForItems.add(actor);
+			if (buffer.getCurrentSize() > 0) {
+				wakeOne(waitingForItems);
+			}
+		}
+	}
+
+	// Items can also be taken or added outside the scheduler, for example by
+	// clearing the buffer, so once per tick waiters are woken for whatever
+	// space or items are available.
+	private void wakeForExternalChanges() {
+		int size = buffer.getCurrentSize();
+		int free = buffer.getCapacity() - size;
+		while (free-- > 0 && wakeOne(waitingForSpace)) {
+			// Each woken producer retries its offer.
+		}
+		while (size-- > 0 && wakeOne(waitingForItems)) {
+			// Each woken consumer retries its poll.
+		}
+	}
+
+	// Skips actors that were shut down while waiting, so a wakeup is never wasted on them.
+	private boolean wakeOne(Queue<Actor> waiting) {
+		Actor actor;
+		while ((actor = waiting.poll()) != null) {
+			if (!actor.isShutdown()) {
+				workers.execute(actor);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// A producer or consumer as seen by the scheduler. Runs on one worker at a time.
+	private final class Actor extends TimingWheel.Timer {
+		private final Producer producer;
+		private final Consumer consumer;
+		private final long intervalNanos;
+		private long deadlineNanos;
+		private Actor nextPending;
+
+		private Actor(Producer producer, Consumer consumer, Rate rate) {
+			this.producer = producer;
+			this.consumer = consumer;
+			this.intervalNanos = rate.intervalNanos();
+		}
+
+		private boolean isShutdown() {
+			return producer != null ? producer.isShutdown() : consumer.isShutdown();
+		}
+
+		@Override
+		public void run() {
+			if (isShutdown()) {
+				return; // Dropped from the scheduler.
+			}
+			long now = System.nanoTime();
+			long deadline = Math.max(deadlineNanos, now - Pacer.MAX_LAG_NANOS);
+			for (int operations = 0; deadline <= now; operations++) {
+				if (operations == MAX_OPERATIONS_PER_STEP) {
+					deadlineNanos = deadline;
+					workers.execute(this); // Let other actors run before continuing.
+					return;
+				}
+				if (producer != null ? !producer.tryProduce() : !consumer.tryConsume()) {
+					deadlineNanos = deadline;
+					await(this);
+					return;
+				}
+				wakeOne(producer != null ? waitingForItems : waitingForSpace);
+				deadline += intervalNanos;
+			}
+			schedule(this, deadline);
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Immutable record describing how producers and consumers group items into
+ * batches. A batch is handed to or taken from the Buffer as soon as it holds
+ * batchSize items, or once linger has passed since the batch was started,
+ * whichever comes first. This way the synchronization cost and the size
+ * notification are paid once per batch rather than once per item.
+ */
+public record BatchSettings(int batchSize, // Maximum number of items handed over in one go.
+		Duration linger // Maximum time to wait for a batch to fill up before handing it over anyway.
+) {
+
+	/**
+	 * Settings that disable batching: every item is handed over on its own.
+	 */
+	public static final BatchSettings NONE = new BatchSettings(1, Duration.ZERO);
+
+	public BatchSettings {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be at least 1.");
+		}
+		Objects.requireNonNull(linger);
+		if (linger.isNegative()) {
+			throw new IllegalArgumentException("Linger time cannot be negative.");
+		}
+	}
+
+	/**
+	 * Tells whether these settings actually group items together.
+	 * 
+	 * @return true if more than one item may be handed over at a time
+	 */
+	public boolean isBatching() {
+		return batchSize > 1;
+	}
+}
@@ -0,0 +1,192 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.slutprojekt.JimmyKarlsson.model.interfaces.BufferStrategy;
+
+/**
+ * The default BufferStrategy, a circular array behind a single lock with
+ * not-empty and not-full conditions, the same design as ArrayBlockingQueue.
+ * All operations go through the one lock, which keeps the implementation
+ * simple and is perfectly adequate for a moderate number of producers and
+ * consumers. Batch puts and drains take the lock once for the whole batch.
+ */
+public class BlockingQueueBufferStrategy implements BufferStrategy {
+
+	private final Item[] items; // The queue that holds the items, circular.
+	private int takeIndex; // Where the next item is taken from.
+	private int putIndex; // Where the next item is put.
+	private int count; // Number of items held.
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+
+	/**
+	 * Constructs a BlockingQueueBufferStrategy with the specified capacity.
+	 *
+	 * @param capacity the fixed size of the queue
+	 */
+	public BlockingQueueBufferStrategy(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be greater than zero.");
+		}
+		this.items = new Item[capacity];
+	}
+
+	@Override
+	public void put(Item item) throws InterruptedException {
+		checkNotNull(item);
+		lock.lockInterruptibly();
+		try {
+			while (count == items.length) {
+				notFull.await();
+			}
+			enqueue(item);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Item take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (count == 0) {
+				notEmpty.await();
+			}
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean offer(Item item) {
+		checkNotNull(item);
+		lock.lock();
+		try {
+			if (count == items.length) {
+				return false;
+			}
+			enqueue(item);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int offerAll(List<Item> batch, int from) {
+		for (int i = from; i < batch.size(); i++) {
+			checkNotNull(batch.get(i));
+		}
+		lock.lock();
+		try {
+			int added = Math.max(0, Math.min(batch.size() - from, items.length - count));
+			for (int i = 0; i < added; i++) {
+				enqueue(batch.get(from + i));
+			}
+			return added;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Item poll() {
+		lock.lock();
+		try {
+			return count == 0 ? null : dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Item poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long remaining = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (count == 0) {
+				if (remaining <= 0) {
+					return null;
+				}
+				remaining = notEmpty.awaitNanos(remaining);
+			}
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super Item> target, int maxItems) {
+		lock.lock();
+		try {
+			int drained = Math.max(0, Math.min(maxItems, count));
+			for (int i = 0; i < drained; i++) {
+				target.add(dequeue());
+			}
+			return drained;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		lock.lock();
+		try {
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int capacity() {
+		return items.length;
+	}
+
+	@Override
+	public void clear() {
+		lock.lock();
+		try {
+			while (count > 0) {
+				dequeue();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Private helper methods
+
+	private static void checkNotNull(Item item) {
+		if (item == null) {
+			throw new NullPointerException();
+		}
+	}
+
+	// Must hold the lock, and there must be room.
+	private void enqueue(Item item) {
+		items[putIndex] = item;
+		putIndex = (putIndex + 1) % items.length;
+		count++;
+		notEmpty.signal();
+	}
+
+	// Must hold the lock, and there must be an item.
+	private Item dequeue() {
+		Item item = items[takeIndex];
+		items[takeIndex] = null;
+		takeIndex = (takeIndex + 1) % items.length;
+		count--;
+		notFull.signal();
+		return item;
+	}
+}
@@ -2,8 +2,18 @@ package com.slutprojekt.JimmyKarlsson.model;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+import com.slutprojekt.JimmyKarlsson.model.interfaces.BufferStrategy;
+import com.slutprojekt.JimmyKarlsson.model.metrics.LatencyHistogram;
 
 /**
  * The Buffer class provides a thread-safe mechanism for storing and
@@ -12,34 +22,138 @@ import java.util.concurrent.BlockingQueue;
  * changes in its capacity and content size, ensuring safe and efficient
  * multi-threaded operations. The Buffer is designed to operate in any context
  * where a fixed-size queue for items is required and the observation of content
- * changes is necessary.
+ * changes is necessary. How the items are actually stored is delegated to a
+ * pluggable BufferStrategy.
  */
 public class Buffer {
 
-	// The queue that holds the items. It is thread-safe which ensures that
-	// put and take operations can happen concurrently without data corruption.
-	private BlockingQueue<Item> itemsQueue;
+	// Marker item offered to a strategy to wake a thread blocked in it after a
+	// resize. Never handed out by the buffer.
+	private static final Item RESIZED = new Item();
+
+	private static final Generation[] NO_GENERATIONS = new Generation[0];
+
+	// The generation that items are put into. Its strategy is thread-safe which
+	// ensures that put and take operations can happen concurrently without data
+	// corruption.
+	private volatile Generation current;
+
+	// Generations replaced by a resize that still hold items, oldest first.
+	// Consumers drain these before the current one, so items stay in order.
+	// Replaced as a whole under generationLock, read without locking.
+	private volatile Generation[] retired = NO_GENERATIONS;
+	private final Object generationLock = new Object();
+
+	// Creates a new, empty strategy of the requested capacity. Used on
+	// construction and whenever the capacity changes.
+	private final IntFunction<BufferStrategy> strategyFactory;
+
+	// Allocation-free occupancy counter. Producer and consumer threads only
+	// update it; subscribers are notified from the gauge's own publisher thread.
+	private final OccupancyGauge occupancyGauge;
+
+	// Running totals of items that have passed through the buffer, used for
+	// throughput reporting. Striped, so they add no contention of their own.
+	private final LongAdder putCount = new LongAdder();
+	private final LongAdder takeCount = new LongAdder();
+
+	// Time items spend in the buffer, from being handed to put until take
+	// returns them.
+	private final LatencyHistogram dwellHistogram;
+
+	// Whether put stamps items with the time they enter this buffer. A dispatch
+	// queue keeps the time they entered the shared buffer instead.
+	private final boolean stampsEnqueueTime;
+
+	// The priority classes of a priority buffer, and the dwell times per class.
+	// Both are empty for any other buffer.
+	private final List<PriorityClass> priorityClasses;
+	private final LatencyHistogram[] classDwellHistograms;
+
+	// Records puts and takes for crash recovery, null unless one is attached.
+	private volatile BufferJournal journal;
 
 	// This support class handles the observation mechanism, allowing external
 	// entities
 	// to subscribe and get notifications when the buffer's state changes.
+	// Events are bridged from the occupancy gauge, so they are fired on the
+	// publisher thread and coalesced per gauge tick rather than per item.
 	private final PropertyChangeSupport propertyChangeSupport;
+	private OccupancyGauge.Subscription propertyChangeBridge; // Created with the first listener.
+	private int lastFiredSize; // Publisher-thread only.
 
 	/**
-	 * Constructs a Buffer with the specified capacity.
+	 * Constructs a Buffer with the specified capacity, backed by an
+	 * ArrayBlockingQueue.
 	 *
 	 * @param capacity the fixed size of the buffer
 	 */
 	public Buffer(int capacity) {
-		// Initialize the queue with the given capacity.
-		this.itemsQueue = new ArrayBlockingQueue<>(capacity);
+		this(capacity, BlockingQueueBufferStrategy::new);
+	}
+
+	/**
+	 * Constructs a Buffer with the specified capacity, backed by strategies
+	 * created by the given factory.
+	 *
+	 * @param capacity        the fixed size of the buffer
+	 * @param strategyFactory creates an empty strategy for a given capacity
+	 */
+	public Buffer(int capacity, IntFunction<BufferStrategy> strategyFactory) {
+		this(capacity, strategyFactory, List.of(), new LatencyHistogram(), true);
+	}
+
+	/**
+	 * Constructs a priority Buffer with one queue per priority class, whose
+	 * capacity is the total of the class capacities. Consumers take items from
+	 * the classes in proportion to their weights, and occupancy and dwell times
+	 * are also tracked per class.
+	 *
+	 * @param priorityClasses the classes, indexed by Item.getPriorityClass()
+	 */
+	public Buffer(List<PriorityClass> priorityClasses) {
+		this(priorityClasses.stream().mapToInt(PriorityClass::capacity).sum(),
+				PriorityBufferStrategy.factory(priorityClasses), priorityClasses, new LatencyHistogram(), true);
+	}
+
+	/**
+	 * Creates the queue of a single consumer, fed by a Dispatcher. Items keep the
+	 * time they were put into the shared buffer, so the dwell times recorded by
+	 * this queue, into the given histogram, run from that put until the consumer
+	 * takes the item.
+	 *
+	 * @param capacity         the fixed size of the queue
+	 * @param latencyHistogram where dwell times are recorded, possibly shared
+	 *                         with other queues
+	 * @return a new dispatch queue
+	 */
+	static Buffer dispatchQueue(int capacity, LatencyHistogram latencyHistogram) {
+		return new Buffer(capacity, BlockingQueueBufferStrategy::new, List.of(), latencyHistogram, false);
+	}
+
+	private Buffer(int capacity, IntFunction<BufferStrategy> strategyFactory, List<PriorityClass> priorityClasses,
+			LatencyHistogram dwellHistogram, boolean stampsEnqueueTime) {
+		this.dwellHistogram = dwellHistogram;
+		this.stampsEnqueueTime = stampsEnqueueTime;
+		this.priorityClasses = List.copyOf(priorityClasses);
+		this.classDwellHistograms = new LatencyHistogram[priorityClasses.size()];
+		for (int i = 0; i < classDwellHistograms.length; i++) {
+			classDwellHistograms[i] = new LatencyHistogram();
+		}
+		this.strategyFactory = strategyFactory;
+		this.current = new Generation(strategyFactory.apply(capacity));
+		this.occupancyGauge = new OccupancyGauge(this::getCapacity);
 		this.propertyChangeSupport = new PropertyChangeSupport(this);
 	}
 
 	// Listener management methods
 
-	public void addPropertyChangeListener(PropertyChangeListener listener) {
+	public synchronized void addPropertyChangeListener(PropertyChangeListener listener) {
 		propertyChangeSupport.addPropertyChangeListener(listener);
+		if (propertyChangeBridge == null) {
+			lastFiredSize = occupancyGauge.get();
+			propertyChangeBridge = occupancyGauge.subscribeOnChange((size, capacity) -> fireSizeChange(size), 1);
+		}
 	}
 
 	public void removePropertyChangeListener(PropertyChangeListener listener) {
@@ -49,59 +163,670 @@ public class Buffer {
 	// Buffer operation methods
 
 	public void put(Item item) throws InterruptedException {
-		int oldSize = getCurrentSize(); // Store the current size for later comparison.
-		itemsQueue.put(item); // Add the item, waiting if necessary for space to become available.
-		fireSizeChange(oldSize, getCurrentSize()); // Notify listeners if there's a size change.
+		stampEnqueued(item);
+		BufferJournal journal = this.journal;
+		try {
+			if (journal != null) {
+				journal.awaitDurable(journal.logPut(item)); // Recorded before any consumer can take it.
+			}
+			putInto(item); // Add the item, waiting if necessary for space to become available.
+		} catch (InterruptedException e) {
+			cancelJournaled(journal, item);
+			throw e;
+		}
+		occupancyGauge.increment(); // Listeners pick the change up from the gauge.
+		putCount.increment();
 	}
 
 	public Item take() throws InterruptedException {
-		int oldSize = getCurrentSize(); // Store the current size for later comparison.
-		Item item = itemsQueue.take(); // Remove and return the head item, waiting if necessary.
-		fireSizeChange(oldSize, getCurrentSize()); // Notify listeners if there's a size change.
+		Item item = takeFrom(); // Remove and return the head item, waiting if necessary.
+		recordDequeued(item, System.nanoTime());
+		logTaken(item);
+		occupancyGauge.decrement(); // Listeners pick the change up from the gauge.
+		takeCount.increment();
 		return item;
 	}
 
+	public boolean offer(Item item) {
+		stampEnqueued(item);
+		BufferJournal journal = this.journal;
+		if (journal != null) {
+			try {
+				journal.awaitDurable(journal.logPut(item));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt(); // Offer does not throw it, so keep the status.
+				journal.logTake(item);
+				return false;
+			}
+		}
+		if (!offerInto(item)) { // Add the item only if there is space right now.
+			cancelJournaled(journal, item);
+			return false;
+		}
+		occupancyGauge.increment();
+		putCount.increment();
+		return true;
+	}
+
+	public Item poll() {
+		Item item = pollUnacknowledged(); // Remove the head item only if there is one right now.
+		if (item != null) {
+			logTaken(item);
+		}
+		return item;
+	}
+
+	// Batch operation methods
+
+	/**
+	 * Adds all items, waiting as necessary for space to become available, and
+	 * updates the occupancy gauge once for the whole batch. As many items as
+	 * there is room for are handed to the strategy at once, so the batch pays
+	 * for synchronization once rather than per item while the buffer has room.
+	 *
+	 * @param items the items to add, in order
+	 * @return the number of items added, which is all of them unless the thread
+	 *         was interrupted while waiting; the items after those were not
+	 *         added, and the interrupt status is set again
+	 * @throws InterruptedException if interrupted before any item was added
+	 */
+	public int putAll(Collection<Item> items) throws InterruptedException {
+		List<Item> batch = items instanceof List<Item> list ? list : new ArrayList<>(items);
+		BufferJournal journal = this.journal;
+		int added = 0;
+		try {
+			if (journal != null) {
+				long ticket = 0;
+				for (Item item : batch) {
+					ticket = journal.logPut(item);
+				}
+				journal.awaitDurable(ticket); // The whole batch shares one commit.
+			}
+			for (Item item : batch) {
+				stampEnqueued(item);
+			}
+			while (added < batch.size()) {
+				added += offerAllInto(batch, added);
+				if (added < batch.size()) {
+					putInto(batch.get(added)); // Full: wait for space for the next one.
+					added++;
+				}
+			}
+		} catch (InterruptedException e) {
+			if (journal != null) {
+				for (int i = added; i < batch.size(); i++) {
+					journal.logTake(batch.get(i)); // Never made it into the buffer.
+				}
+			}
+			if (added == 0) {
+				throw e;
+			}
+			Thread.currentThread().interrupt(); // Reported through the count instead.
+		} finally {
+			occupancyGauge.add(added); // One gauge update per batch.
+			putCount.add(added);
+		}
+		return added;
+	}
+
+	/**
+	 * Removes up to maxItems items, returning as soon as that many have been
+	 * collected or the timeout has elapsed, and updates the occupancy gauge once
+	 * for the whole batch.
+	 *
+	 * @param maxItems the maximum number of items to remove
+	 * @param timeout  the maximum time to wait for the batch to fill up
+	 * @return the removed items, oldest first; empty if none arrived in time.
+	 *         If the thread is interrupted while waiting after some items were
+	 *         collected, those are returned and the interrupt status is set
+	 *         again, as they have already left the buffer
+	 * @throws InterruptedException if interrupted before any item was collected
+	 */
+	public List<Item> drainTo(int maxItems, Duration timeout) throws InterruptedException {
+		List<Item> items = new ArrayList<>(Math.min(maxItems, getCapacity()));
+		long deadline = System.nanoTime() + timeout.toNanos();
+		try {
+			while (true) {
+				Generation generation = current; // Read first, so nothing retired after it is skipped.
+				Item item;
+				while (items.size() < maxItems && (item = pollRetired()) != null) {
+					items.add(item); // Items from before a resize come first.
+				}
+				int drainedFrom = items.size();
+				generation.strategy.drainTo(items, maxItems - items.size()); // Take whatever is ready.
+				for (int i = items.size() - 1; i >= drainedFrom; i--) {
+					if (items.get(i) == RESIZED) {
+						items.remove(i);
+						passOnMarkers(generation, 1);
+					}
+				}
+				long remaining = deadline - System.nanoTime();
+				if (items.size() >= maxItems || remaining <= 0) {
+					return items;
+				}
+				generation.takers.incrementAndGet(); // Waiting below, so a resize must wake this thread.
+				try {
+					if (generation.retired) {
+						continue;
+					}
+					item = generation.strategy.poll(remaining, TimeUnit.NANOSECONDS); // Wait for more.
+				} catch (InterruptedException e) {
+					if (items.isEmpty()) {
+						throw e;
+					}
+					Thread.currentThread().interrupt();
+					return items;
+				} finally {
+					generation.takers.decrementAndGet();
+				}
+				if (item == RESIZED) {
+					generation.markers.decrementAndGet();
+				} else if (item != null) {
+					items.add(item);
+				}
+			}
+		} finally {
+			long now = System.nanoTime();
+			for (Item item : items) {
+				recordDequeued(item, now);
+				logTaken(item);
+			}
+			occupancyGauge.add(-items.size()); // One gauge update per batch.
+			takeCount.add(items.size());
+		}
+	}
+
 	// Buffer property methods
 
 	public int getCapacity() {
-		// The total capacity is the sum of the remaining capacity and the current size.
-		return itemsQueue.remainingCapacity() + getCurrentSize();
+		return current.strategy.capacity();
 	}
 
 	public int getCurrentSize() {
-		// The current size is the number of items present in the queue.
-		return itemsQueue.size();
+		// The current size is the number of items present in the strategies,
+		// including those not yet drained from before a resize.
+		int size = current.size();
+		for (Generation generation : retired) {
+			size += generation.size();
+		}
+		return size;
+	}
+
+	// Total number of items put into the buffer since it was created.
+	public long getTotalPut() {
+		return putCount.sum();
+	}
+
+	// Total number of items taken from the buffer since it was created.
+	public long getTotalTaken() {
+		return takeCount.sum();
+	}
+
+	public LatencyHistogram getDwellHistogram() {
+		return dwellHistogram;
+	}
+
+	public OccupancyGauge getOccupancyGauge() {
+		return occupancyGauge;
+	}
+
+	// Priority class methods
+
+	public List<PriorityClass> getPriorityClasses() {
+		return priorityClasses;
+	}
+
+	/**
+	 * Gets the number of items of one priority class, including those not yet
+	 * drained from before a resize.
+	 *
+	 * @param priorityClass the index of the class
+	 * @return the number of items of that class, or 0 if this is not a priority
+	 *         buffer
+	 */
+	public int getCurrentSize(int priorityClass) {
+		int size = classSize(current, priorityClass);
+		for (Generation generation : retired) {
+			size += classSize(generation, priorityClass);
+		}
+		return size;
+	}
+
+	/**
+	 * Gets the capacity of one priority class, which follows the total capacity
+	 * in proportion when the buffer is resized.
+	 *
+	 * @param priorityClass the index of the class
+	 * @return the capacity of that class, or 0 if this is not a priority buffer
+	 */
+	public int getCapacity(int priorityClass) {
+		return current.strategy instanceof PriorityBufferStrategy strategy ? strategy.capacity(priorityClass) : 0;
+	}
+
+	/**
+	 * Gets the dwell times of the items of one priority class.
+	 *
+	 * @param priorityClass the index of the class
+	 * @return the dwell times of that class
+	 */
+	public LatencyHistogram getDwellHistogram(int priorityClass) {
+		return classDwellHistograms[priorityClass];
 	}
 
 	// Special operations
 
-	public synchronized void setCapacityAndFill(int newCapacity, int itemsToFill) {
+	/**
+	 * Changes the capacity while producers and consumers keep running. The
+	 * current strategy is retired rather than copied, so there is no pause and
+	 * no item is lost or reordered: new puts go to a strategy of the new
+	 * capacity right away, and consumers drain the retired one first.
+	 * Consumers blocked on the retired strategy are woken to move over.
+	 * Producers blocked on it finish their put there as consumers free its
+	 * slots, so their items keep their place in line, and move over with their
+	 * next put. When shrinking, the buffer as a whole gets back within the new
+	 * capacity as the retired items are consumed.
+	 *
+	 * @param newCapacity the new capacity
+	 */
+	public void resize(int newCapacity) {
+		if (newCapacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be greater than zero.");
+		}
+		synchronized (generationLock) {
+			if (current.strategy.capacity() != newCapacity) {
+				replaceCurrent(strategyFactory.apply(newCapacity));
+			}
+		}
+	}
+
+	public void setCapacityAndFill(int newCapacity, int itemsToFill) {
 		// Validate input to prevent misuse of the method.
 		if (newCapacity < itemsToFill) {
 			throw new IllegalArgumentException("New capacity cannot be less than the number of items to fill.");
 		}
 
-		int oldSize = getCurrentSize(); // Capture the current size for notification purposes.
-		BlockingQueue<Item> newBuffer = new ArrayBlockingQueue<>(newCapacity);
-		itemsQueue.drainTo(newBuffer, itemsToFill); // Drain the required number of items to the new buffer.
+		synchronized (generationLock) {
+			BufferStrategy newStrategy = strategyFactory.apply(newCapacity);
+			BufferJournal journal = this.journal;
+			if (journal != null) {
+				journal.logClear(); // The new contents are journaled afresh below.
+			}
+
+			// Move the required number of items over to the new strategy, oldest first.
+			Item item;
+			while (newStrategy.size() < itemsToFill && (item = pollFrom()) != null) {
+				newStrategy.offer(item);
+				if (journal != null) {
+					journal.logPut(item);
+				}
+			}
+
+			// Add new items to the buffer until it reaches the specified number.
+			while (newStrategy.size() < itemsToFill) {
+				Item filler = new Item(); // Potentially replace with actual item creation logic.
+				filler.markEnqueued(System.nanoTime());
+				newStrategy.offer(filler);
+				if (journal != null) {
+					journal.logPut(filler);
+				}
+			}
+
+			// Replace the current strategy with the new one and discard whatever is
+			// left in the old ones. They stay retired until any put still in
+			// progress on them has finished, so items from such puts are not lost.
+			replaceCurrent(newStrategy);
+			for (Generation generation : retired) {
+				generation.strategy.clear();
+				generation.markers.set(0);
+			}
+		}
+		occupancyGauge.set(getCurrentSize()); // Resynchronize the gauge with the new contents.
+	}
+
+	/**
+	 * Removes every item without recording it as taken, to hand it on to another
+	 * buffer. Items keep the time they were enqueued, so their dwell time goes
+	 * on.
+	 *
+	 * @return the removed items, oldest first
+	 */
+	List<Item> removeAll() {
+		List<Item> items = new ArrayList<>();
+		Item item;
+		while ((item = pollFrom()) != null) {
+			logTaken(item);
+			items.add(item);
+		}
+		occupancyGauge.add(-items.size());
+		return items;
+	}
 
-		// Add new items to the buffer until it reaches the specified number.
-		while (newBuffer.size() < itemsToFill) {
-			newBuffer.add(new Item()); // Potentially replace with actual item creation logic.
+	/**
+	 * Removes the head item, if there is one, for a consumer that acknowledges
+	 * it later, such as a remote one. The item leaves the buffer at once but
+	 * stays in the journal until {@link #acknowledge(Item)}, so a crash in
+	 * between recovers it.
+	 *
+	 * @return the head item, or null if the buffer is empty
+	 */
+	Item pollUnacknowledged() {
+		Item item = pollFrom();
+		if (item != null) {
+			recordDequeued(item, System.nanoTime());
+			occupancyGauge.decrement();
+			takeCount.increment();
 		}
+		return item;
+	}
 
-		itemsQueue = newBuffer; // Replace the current buffer with the new buffer.
-		fireSizeChange(oldSize, getCurrentSize()); // Notify if the resize resulted in a size change.
+	/**
+	 * Records in the journal that an item from {@link #pollUnacknowledged()}
+	 * has been processed.
+	 *
+	 * @param item the item
+	 */
+	void acknowledge(Item item) {
+		logTaken(item);
+	}
+
+	/**
+	 * Puts an item from {@link #pollUnacknowledged()} that was never
+	 * acknowledged back, if there is room. Its journal record still stands, so
+	 * it is not journaled again.
+	 *
+	 * @param item the item
+	 * @return true if the item was put back, false if the buffer is full
+	 */
+	boolean putBack(Item item) {
+		stampEnqueued(item);
+		if (!offerInto(item)) {
+			return false;
+		}
+		occupancyGauge.increment();
+		putCount.increment();
+		return true;
 	}
 
 	public void clear() {
-		itemsQueue.clear(); // Clears all items from the queue.
+		synchronized (generationLock) {
+			BufferJournal journal = this.journal;
+			if (journal != null) {
+				journal.logClear();
+			}
+			current.strategy.clear(); // Clears all items from the strategies.
+			current.markers.set(0);
+			for (Generation generation : retired) {
+				generation.strategy.clear();
+				generation.markers.set(0);
+			}
+		}
+		occupancyGauge.set(getCurrentSize());
+	}
+
+	/**
+	 * Starts journaling puts and takes, after putting back the items recovered
+	 * by the journal, oldest first. The capacity is raised if they would not
+	 * fit. Attach the journal before producers and consumers start, so every
+	 * item in the buffer is journaled.
+	 *
+	 * @param journal the journal, freshly opened
+	 * @throws IllegalStateException if a recovered item does not fit, e.g.
+	 *                               because its priority class is full
+	 */
+	public void attachJournal(BufferJournal journal) {
+		List<Item> recovered = journal.getRecoveredItems();
+		synchronized (generationLock) {
+			if (this.journal != null) {
+				throw new IllegalStateException("A journal is already attached.");
+			}
+			int needed = getCurrentSize() + recovered.size();
+			if (needed > getCapacity()) {
+				resize(needed);
+			}
+			for (Item item : recovered) {
+				stampEnqueued(item);
+				if (!offerInto(item)) {
+					throw new IllegalStateException("Recovered item does not fit in the buffer.");
+				}
+			}
+			this.journal = journal;
+		}
+		occupancyGauge.add(recovered.size());
+		putCount.add(recovered.size());
+	}
+
+	public BufferJournal getJournal() {
+		return journal;
 	}
 
 	// Private helper methods
 
-	private void fireSizeChange(int oldSize, int newSize) {
+	// Retires the current generation in favour of one using the given strategy.
+	// Must hold generationLock.
+	private void replaceCurrent(BufferStrategy strategy) {
+		Generation old = current;
+		old.retired = true;
+		retired = append(retired, old); // Visible to consumers before the swap below.
+		current = new Generation(strategy);
+		wakeTakers(old); // Consumers blocked on it move over.
+	}
+
+	private void putInto(Item item) throws InterruptedException {
+		while (true) {
+			Generation generation = current;
+			generation.putters.increment(); // Keeps a retired generation from being dropped under us.
+			try {
+				if (generation.retired) {
+					continue; // Resized in the meantime; use the new generation.
+				}
+				if (!generation.strategy.offer(item)) {
+					generation.strategy.put(item); // Full: wait for space in this generation.
+				}
+				return;
+			} finally {
+				generation.putters.decrement();
+			}
+		}
+	}
+
+	private boolean offerInto(Item item) {
+		while (true) {
+			Generation generation = current;
+			generation.putters.increment();
+			try {
+				if (!generation.retired) {
+					return generation.strategy.offer(item);
+				}
+			} finally {
+				generation.putters.decrement();
+			}
+		}
+	}
+
+	private int offerAllInto(List<Item> items, int from) {
+		while (true) {
+			Generation generation = current;
+			generation.putters.increment();
+			try {
+				if (!generation.retired) {
+					return generation.strategy.offerAll(items, from);
+				}
+			} finally {
+				generation.putters.decrement();
+			}
+		}
+	}
+
+	private Item takeFrom() throws InterruptedException {
+		while (true) {
+			Generation generation = current; // Read first, so nothing retired after it is skipped.
+			Item item = pollRetired();
+			if (item != null) {
+				return item;
+			}
+			item = generation.strategy.poll();
+			if (item == RESIZED) {
+				passOnMarkers(generation, 1);
+				continue;
+			}
+			if (item != null) {
+				return item;
+			}
+			// Empty: register as blocked so that a resize can wake this thread.
+			generation.takers.incrementAndGet();
+			try {
+				if (generation.retired) {
+					continue; // Resized in the meantime; look again.
+				}
+				item = generation.strategy.take();
+			} finally {
+				generation.takers.decrementAndGet();
+			}
+			if (item != RESIZED) {
+				return item;
+			}
+			generation.markers.decrementAndGet(); // Woken by a resize; look again.
+		}
+	}
+
+	private Item pollFrom() {
+		while (true) {
+			Generation generation = current;
+			Item item = pollRetired();
+			if (item != null) {
+				return item;
+			}
+			item = generation.strategy.poll();
+			if (item != RESIZED) {
+				return item;
+			}
+			passOnMarkers(generation, 1);
+		}
+	}
+
+	// Takes the oldest item left from before a resize. A retired generation is
+	// dropped once it is empty and no put into it is still in progress; until
+	// then such a put is about to complete, as there is space, so it is waited
+	// for rather than letting a newer item overtake it. Markers met on the way
+	// are put back, behind the items, for the consumers still blocked in it,
+	// and those are all woken once more as it is dropped: the resize could not
+	// wake them if it was full then.
+	private Item pollRetired() {
+		for (Generation generation : retired) {
+			int markers = 0;
+			while (true) {
+				Item item = generation.strategy.poll();
+				if (item == RESIZED) {
+					generation.markers.decrementAndGet();
+					markers++;
+				} else if (item != null) {
+					passOnMarkers(generation, markers);
+					return item;
+				} else if (generation.putters.sum() > 0) {
+					Thread.onSpinWait();
+				} else if (generation.strategy.size() == 0) {
+					break; // Empty for good.
+				}
+			}
+			wakeTakers(generation);
+			synchronized (generationLock) {
+				retired = without(retired, generation);
+			}
+		}
+		return null;
+	}
+
+	private static void wakeTakers(Generation generation) {
+		for (int i = generation.takers.get(); i > 0 && generation.strategy.offer(RESIZED); i--) {
+			generation.markers.incrementAndGet();
+		}
+	}
+
+	// Called with markers polled by a thread that was not blocked. They may have
+	// been meant for one that is, so they are offered again.
+	private static void passOnMarkers(Generation generation, int markers) {
+		for (; markers > 0 && generation.takers.get() > 0 && generation.strategy.offer(RESIZED); markers--) {
+			generation.markers.incrementAndGet();
+		}
+	}
+
+	private static Generation[] append(Generation[] generations, Generation generation) {
+		Generation[] appended = Arrays.copyOf(generations, generations.length + 1);
+		appended[generations.length] = generation;
+		return appended;
+	}
+
+	private static Generation[] without(Generation[] generations, Generation generation) {
+		for (int i = 0; i < generations.length; i++) {
+			if (generations[i] == generation) {
+				Generation[] remaining = new Generation[generations.length - 1];
+				System.arraycopy(generations, 0, remaining, 0, i);
+				System.arraycopy(generations, i + 1, remaining, i, remaining.length - i);
+				return remaining;
+			}
+		}
+		return generations;
+	}
+
+	// Records that a taken item has left the buffer.
+	private void logTaken(Item item) {
+		BufferJournal journal = this.journal;
+		if (journal != null) {
+			journal.logTake(item);
+		}
+	}
+
+	// Records that a journaled put did not go through.
+	private static void cancelJournaled(BufferJournal journal, Item item) {
+		if (journal != null) {
+			journal.logTake(item);
+		}
+	}
+
+	private void stampEnqueued(Item item) {
+		if (stampsEnqueueTime) {
+			item.markEnqueued(System.nanoTime());
+		}
+	}
+
+	private void recordDequeued(Item item, long now) {
+		item.markDequeued(now);
+		long dwell = now - item.getEnqueuedAtNanos();
+		dwellHistogram.record(dwell);
+		if (classDwellHistograms.length > 0) {
+			classDwellHistograms[PriorityBufferStrategy.classIndex(item, classDwellHistograms.length)].record(dwell);
+		}
+	}
+
+	private static int classSize(Generation generation, int priorityClass) {
+		return generation.strategy instanceof PriorityBufferStrategy strategy ? strategy.size(priorityClass) : 0;
+	}
+
+	// Runs on the occupancy gauge's publisher thread.
+	private void fireSizeChange(int newSize) {
 		// Notify all subscribed listeners about the size change.
+		int oldSize = lastFiredSize;
+		lastFiredSize = newSize;
 		propertyChangeSupport.firePropertyChange("bufferSize", oldSize, newSize);
 	}
+
+	// A strategy together with the threads using it and the wake-up markers it
+	// holds. Only the blocking slow path and resizes touch the taker and marker
+	// counters; the putter count is striped, so it adds no contention.
+	private static final class Generation {
+		private final BufferStrategy strategy;
+		private final LongAdder putters = new LongAdder(); // Threads in put or offer.
+		private final AtomicInteger takers = new AtomicInteger(); // Threads blocked in take.
+		private final AtomicInteger markers = new AtomicInteger(); // RESIZED markers in the strategy.
+		private volatile boolean retired; // Replaced by a resize; drained by consumers.
+
+		private Generation(BufferStrategy strategy) {
+			this.strategy = strategy;
+		}
+
+		// Number of real items, not counting markers.
+		private int size() {
+			return Math.max(0, strategy.size() - markers.get());
+		}
+	}
 }
@@ -0,0 +1,547 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead journal of the contents of a Buffer, so they can be rebuilt
+ * exactly after a crash. Every put is recorded with the item's payload and
+ * priority class before the item enters the buffer, and every take after it
+ * has left, so the items put but not taken are the buffer's contents. Items
+ * taken just before a crash may be recovered again, i.e. delivery is at least
+ * once.
+ *
+ * Records are appended to an in-memory batch, and a single writer thread
+ * writes each batch to the current segment file as one frame, guarded by a
+ * CRC-32C, while callers fill the next batch. How long a put waits for its
+ * record depends on the {@link Durability}; either way the write and fsync of
+ * a batch are shared by every record in it (group commit). A frame torn by a
+ * crash fails its checksum and is ignored on recovery.
+ *
+ * When a segment grows beyond its size limit, the writer starts a new one and
+ * writes a checkpoint holding the items live at that point, after which the
+ * older segments and checkpoints are deleted. Opening a journal recovers the
+ * latest checkpoint and replays the segments after it, then checkpoints the
+ * result, so the log never grows beyond about one segment plus the
+ * checkpoint.
+ */
+public class BufferJournal implements AutoCloseable {
+
+	/** The default size after which a segment is closed and a checkpoint taken. */
+	public static final long DEFAULT_SEGMENT_BYTES = 16 * 1024 * 1024;
+
+	// Longest time between two fsyncs while callers do not wait for them.
+	private static final long SYNC_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+	private static final int BATCH_BYTES = 256 * 1024; // Capacity of each of the two batch buffers.
+	// Type, sequence, payload and class.
+	private static final int MAX_RECORD_BYTES = 1 + 2 * Varints.MAX_LONG_BYTES + Varints.MAX_INT_BYTES;
+	private static final int FRAME_HEADER_BYTES = 8; // Length and CRC-32C of a batch.
+	private static final byte PUT = 1;
+	private static final byte TAKE = 2;
+	private static final byte CLEAR = 3;
+	private static final String SEGMENT_PREFIX = "segment-";
+	private static final String SEGMENT_SUFFIX = ".log";
+	private static final String CHECKPOINT_PREFIX = "checkpoint-";
+	private static final String CHECKPOINT_SUFFIX = ".ckpt";
+
+	private final Path directory;
+	private final Durability durability;
+	private final long segmentBytes;
+	private final List<Item> recoveredItems;
+
+	// Callers append records to the pending batch under the lock, and the
+	// writer swaps it for the empty one before writing it out.
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition hasRecords = lock.newCondition(); // The writer waits for records.
+	private final Condition hasSpace = lock.newCondition(); // Callers wait for an empty batch.
+	private final Condition committed = lock.newCondition(); // Callers wait for their records.
+	private ByteBuffer pending = ByteBuffer.allocate(BATCH_BYTES);
+	private long lastSequence; // Last sequence given to a put.
+	private long appended; // Records appended so far.
+	private long written; // Records handed to the operating system.
+	private long synced; // Records forced to disk.
+	private IOException failure; // Why the writer stopped, if it did.
+	private boolean closed;
+
+	// Owned by the writer thread once it has started.
+	private ByteBuffer writing = ByteBuffer.allocate(BATCH_BYTES);
+	private final Map<Long, long[]> live; // Sequence to payload and class, of the items not taken.
+	private long replayedSequence; // Highest sequence of a put applied to the live items.
+	private final CRC32C checksum = new CRC32C();
+	private int segmentNumber;
+	private FileChannel segment;
+	private long lastSyncNanos = System.nanoTime();
+	private final Thread writer;
+
+	/**
+	 * Opens the journal in a directory with the default segment size,
+	 * recovering the items it holds.
+	 *
+	 * @param directory  where segments and checkpoints are kept, created if
+	 *                   missing
+	 * @param durability how long puts wait for their records
+	 * @throws IOException if the directory could not be read or written
+	 */
+	public BufferJournal(Path directory, Durability durability) throws IOException {
+		this(directory, durability, DEFAULT_SEGMENT_BYTES);
+	}
+
+	/**
+	 * Opens the journal in a directory, recovering the items it holds.
+	 *
+	 * @param directory    where segments and checkpoints are kept, created if
+	 *                     missing
+	 * @param durability   how long puts wait for their records
+	 * @param segmentBytes the size after which a segment is closed and a
+	 *                     checkpoint taken
+	 * @throws IOException if the directory could not be read or written
+	 */
+	public BufferJournal(Path directory, Durability durability, long segmentBytes) throws IOException {
+		if (segmentBytes < 1) {
+			throw new IllegalArgumentException("Segment size must be positive.");
+		}
+		this.directory = directory;
+		this.durability = durability;
+		this.segmentBytes = segmentBytes;
+		Files.createDirectories(directory);
+
+		TreeMap<Integer, Path> checkpoints = list(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX);
+		TreeMap<Integer, Path> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+		this.live = new LinkedHashMap<>();
+		int replayFrom = 0;
+		for (Map.Entry<Integer, Path> checkpoint : checkpoints.descendingMap().entrySet()) {
+			if (readCheckpoint(checkpoint.getValue())) {
+				replayFrom = checkpoint.getKey(); // The latest checkpoint that is intact.
+				break;
+			}
+		}
+		for (Path file : segments.tailMap(replayFrom).values()) {
+			replay(ByteBuffer.wrap(Files.readAllBytes(file)));
+		}
+		this.recoveredItems = toItems(live);
+		this.lastSequence = Math.max(lastSequence, replayedSequence);
+
+		// Start afresh after everything found, and make that the new starting point.
+		int last = Math.max(replayFrom, segments.isEmpty() ? 0 : segments.lastKey());
+		this.segmentNumber = last + 1;
+		this.segment = openSegment(segmentNumber);
+		checkpoint();
+		this.writer = Thread.ofPlatform().name("buffer-journal").daemon().start(this::runWriter);
+	}
+
+	/**
+	 * Gets the items that were in the buffer when the journal was last used, in
+	 * the order they were put. Attach the journal to a Buffer to put them back.
+	 *
+	 * @return the recovered items
+	 */
+	public List<Item> getRecoveredItems() {
+		return recoveredItems;
+	}
+
+	public Durability getDurability() {
+		return durability;
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Records that an item is about to be put, giving it a journal sequence.
+	 * Waits only if the batch being filled is full.
+	 *
+	 * @param item the item
+	 * @return a ticket to pass to {@link #awaitDurable(long)}
+	 * @throws UncheckedIOException if the journal can no longer be written
+	 */
+	long logPut(Item item) {
+		lock.lock();
+		try {
+			if (!awaitSpace()) {
+				return 0;
+			}
+			long sequence = ++lastSequence;
+			item.setJournalSequence(sequence);
+			pending.put(PUT);
+			Varints.put(pending, sequence);
+			Varints.put(pending, Varints.zigZag(item.getPayload()));
+			Varints.put(pending, item.getPriorityClass());
+			return appendedRecord();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Records that an item has been taken, or that its put did not go through.
+	 * Never waits for the record to be written.
+	 *
+	 * @param item the item
+	 */
+	void logTake(Item item) {
+		long sequence = item.getJournalSequence();
+		if (sequence == 0) {
+			return; // Was never journaled.
+		}
+		lock.lock();
+		try {
+			if (awaitSpace()) {
+				pending.put(TAKE);
+				Varints.put(pending, sequence);
+				appendedRecord();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Records that the buffer has been emptied.
+	 *
+	 * @return a ticket to pass to {@link #awaitDurable(long)}
+	 */
+	long logClear() {
+		lock.lock();
+		try {
+			if (!awaitSpace()) {
+				return 0;
+			}
+			pending.put(CLEAR);
+			return appendedRecord();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits until a record is as durable as the durability level requires.
+	 *
+	 * @param ticket the ticket returned when the record was appended
+	 * @throws InterruptedException if interrupted while waiting
+	 * @throws UncheckedIOException if the journal can no longer be written
+	 */
+	void awaitDurable(long ticket) throws InterruptedException {
+		if (durability == Durability.ASYNC) {
+			return;
+		}
+		lock.lockInterruptibly();
+		try {
+			while ((durability == Durability.FSYNC ? synced : written) < ticket && !closed) {
+				checkFailure();
+				committed.await();
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Writes out every record appended so far and stops the writer thread.
+	 * Records appended after this are discarded.
+	 *
+	 * @throws IOException if the last records could not be written
+	 */
+	@Override
+	public void close() throws IOException {
+		lock.lock();
+		try {
+			closed = true;
+			hasRecords.signal();
+		} finally {
+			lock.unlock();
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		lock.lock();
+		try {
+			checkFailure();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Private helper methods
+
+	// Waits for room for one record in the pending batch. Must hold the lock.
+	// Returns false if the journal has been closed.
+	private boolean awaitSpace() {
+		while (!closed && pending.remaining() < MAX_RECORD_BYTES) {
+			checkFailure();
+			hasSpace.awaitUninterruptibly();
+		}
+		checkFailure();
+		return !closed;
+	}
+
+	// Must hold the lock.
+	private long appendedRecord() {
+		hasRecords.signal();
+		return ++appended;
+	}
+
+	// Must hold the lock.
+	private void checkFailure() {
+		if (failure != null) {
+			throw new UncheckedIOException("Buffer journal failed", failure);
+		}
+	}
+
+	private void runWriter() {
+		try {
+			while (true) {
+				long batchEnd;
+				lock.lock();
+				try {
+					while (pending.position() == 0 && !closed) {
+						hasRecords.awaitUninterruptibly();
+					}
+					if (pending.position() == 0) {
+						break; // Closed, and everything has been written.
+					}
+					ByteBuffer full = pending;
+					pending = writing;
+					writing = full;
+					batchEnd = appended;
+					hasSpace.signalAll();
+				} finally {
+					lock.unlock();
+				}
+				writeBatch(batchEnd);
+			}
+			segment.force(false);
+			segment.close();
+		} catch (IOException e) {
+			lock.lock();
+			try {
+				failure = e;
+				committed.signalAll();
+				hasSpace.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	// Writes the batch swapped out of pending as one frame, and applies it to the
+	// live items. Runs on the writer thread.
+	private void writeBatch(long batchEnd) throws IOException {
+		writing.flip();
+		checksum.reset();
+		checksum.update(writing.array(), 0, writing.limit());
+		ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES).putInt(writing.limit())
+				.putInt((int) checksum.getValue()).flip();
+		ByteBuffer[] frame = { header, writing };
+		while (writing.hasRemaining()) {
+			segment.write(frame);
+		}
+
+		// Force when callers wait for it, when nothing else is queued behind this
+		// batch, and at least once per interval under constant load.
+		boolean idle;
+		lock.lock();
+		try {
+			written = batchEnd;
+			idle = pending.position() == 0;
+			committed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		long now = System.nanoTime();
+		if (durability == Durability.FSYNC || idle || now - lastSyncNanos >= SYNC_INTERVAL_NANOS) {
+			segment.force(false);
+			lastSyncNanos = now;
+			lock.lock();
+			try {
+				synced = batchEnd;
+				committed.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		writing.rewind();
+		apply(writing);
+		writing.clear();
+		if (segment.size() >= segmentBytes) {
+			segment.force(false);
+			segment.close();
+			segmentNumber++;
+			segment = openSegment(segmentNumber);
+			checkpoint();
+		}
+	}
+
+	// Writes the live items as the starting point for the current segment, and
+	// deletes whatever came before it.
+	private void checkpoint() throws IOException {
+		int entryBytes = 2 * Varints.MAX_LONG_BYTES + Varints.MAX_INT_BYTES; // Sequence, payload and class.
+		ByteBuffer data = ByteBuffer.allocate(2 * Varints.MAX_LONG_BYTES + live.size() * entryBytes + 4);
+		Varints.put(data, lastSequenceForCheckpoint());
+		Varints.put(data, live.size());
+		for (Map.Entry<Long, long[]> entry : live.entrySet()) {
+			Varints.put(data, entry.getKey());
+			Varints.put(data, entry.getValue()[0]);
+			Varints.put(data, entry.getValue()[1]);
+		}
+		CRC32C crc = new CRC32C();
+		crc.update(data.array(), 0, data.position());
+		data.putInt((int) crc.getValue()).flip();
+
+		Path file = directory.resolve(name(CHECKPOINT_PREFIX, segmentNumber, CHECKPOINT_SUFFIX));
+		Path temporary = directory.resolve(file.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (data.hasRemaining()) {
+				channel.write(data);
+			}
+			channel.force(false);
+		}
+		try {
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+		for (Path old : list(CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX).headMap(segmentNumber).values()) {
+			Files.delete(old);
+		}
+		for (Path old : list(SEGMENT_PREFIX, SEGMENT_SUFFIX).headMap(segmentNumber).values()) {
+			Files.delete(old);
+		}
+	}
+
+	private long lastSequenceForCheckpoint() {
+		lock.lock();
+		try {
+			return lastSequence;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	// Loads a checkpoint into the live items. Returns false if it is damaged,
+	// e.g. because a crash interrupted its rename.
+	private boolean readCheckpoint(Path file) throws IOException {
+		ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+		int size = data.limit();
+		if (size < 4) {
+			return false;
+		}
+		CRC32C crc = new CRC32C();
+		crc.update(data.array(), 0, size - 4);
+		if ((int) crc.getValue() != data.getInt(size - 4)) {
+			return false;
+		}
+		data.limit(size - 4);
+		try {
+			lastSequence = Varints.get(data);
+			long count = Varints.get(data);
+			for (long i = 0; i < count; i++) {
+				live.put(Varints.get(data), new long[] { Varints.get(data), Varints.get(data) });
+			}
+			return true;
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			live.clear();
+			return false;
+		}
+	}
+
+	// Applies every intact frame of a segment to the live items. Replay stops at
+	// the first torn or damaged frame, which can only be the last one written.
+	private void replay(ByteBuffer data) {
+		CRC32C crc = new CRC32C();
+		while (data.remaining() >= FRAME_HEADER_BYTES) {
+			int length = data.getInt();
+			int expected = data.getInt();
+			if (length < 0 || length > data.remaining()) {
+				return;
+			}
+			ByteBuffer records = data.slice(data.position(), length);
+			crc.reset();
+			crc.update(records.duplicate());
+			if ((int) crc.getValue() != expected) {
+				return;
+			}
+			apply(records);
+			data.position(data.position() + length);
+		}
+	}
+
+	// Applies the records of one frame to the live items.
+	private void apply(ByteBuffer records) {
+		while (records.hasRemaining()) {
+			byte type = records.get();
+			if (type == PUT) {
+				long sequence = Varints.get(records);
+				live.put(sequence, new long[] { Varints.get(records), Varints.get(records) });
+				replayedSequence = Math.max(replayedSequence, sequence);
+			} else if (type == TAKE) {
+				live.remove(Varints.get(records));
+			} else if (type == CLEAR) {
+				live.clear();
+			} else {
+				throw new IllegalStateException("Unknown journal record type " + type);
+			}
+		}
+	}
+
+	private FileChannel openSegment(int number) throws IOException {
+		return FileChannel.open(directory.resolve(name(SEGMENT_PREFIX, number, SEGMENT_SUFFIX)),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	// Journal files by number, ignoring anything else in the directory.
+	private TreeMap<Integer, Path> list(String prefix, String suffix) throws IOException {
+		TreeMap<Integer, Path> files = new TreeMap<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+			for (Path file : stream) {
+				String name = file.getFileName().toString();
+				try {
+					files.put(Integer.parseInt(name.substring(prefix.length(), name.length() - suffix.length())),
+							file);
+				} catch (NumberFormatException e) {
+					// Not one of ours.
+				}
+			}
+		}
+		return files;
+	}
+
+	private static String name(String prefix, int number, String suffix) {
+		return String.format("%s%010d%s", prefix, number, suffix);
+	}
+
+	private static List<Item> toItems(Map<Long, long[]> live) {
+		List<Item> items = new ArrayList<>(live.size());
+		for (Map.Entry<Long, long[]> entry : live.entrySet()) {
+			Item item = new Item(Varints.unZigZag(entry.getValue()[0]), (int) entry.getValue()[1]);
+			item.setJournalSequence(entry.getKey());
+			items.add(item);
+		}
+		return Collections.unmodifiableList(items);
+	}
+}
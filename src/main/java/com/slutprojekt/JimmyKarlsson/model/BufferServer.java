@@ -0,0 +1,364 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Serves the items of a Buffer to RemoteConsumers on other processes or nodes,
+ * over the protocol described in {@link RemoteProtocol}. A single thread runs a
+ * non-blocking selector over every connection, so the number of remote
+ * consumers does not cost threads.
+ *
+ * Items are taken from the buffer only when a consumer has credit for them,
+ * and are sent in frames of up to {@link RemoteProtocol#MAX_BATCH} items, as
+ * many as the consumer's credit allows. Items stay in flight until the
+ * consumer acknowledges them by returning credit, and are then released to
+ * the item pool they came from. If it disconnects first,
+ * they are put back into the buffer, or, if it is full, sent to the next
+ * consumer with credit before anything else. With a journaled buffer, items
+ * are journaled as taken only once acknowledged, so a crash recovers those in
+ * flight.
+ *
+ * While some consumer has credit but the buffer is empty, the selector wakes
+ * up every millisecond to look for new items; otherwise it sleeps until a
+ * consumer sends something.
+ */
+public class BufferServer implements AutoCloseable {
+
+	private static final long POLL_MILLIS = 1; // How often an empty buffer is checked while consumers wait.
+
+	private final Buffer buffer;
+	private final ItemPool itemPool; // Where acknowledged items are released.
+	private final Selector selector;
+	private final ServerSocketChannel serverChannel;
+	private final List<Connection> connections = new ArrayList<>(); // Selector thread only.
+	private final Deque<Item> orphans = new ArrayDeque<>(); // In flight on a lost connection; selector thread only.
+	private final Thread selectorThread;
+	private volatile boolean closed;
+
+	private final AtomicInteger connectionCount = new AtomicInteger();
+	private final LongAdder itemsSent = new LongAdder();
+	private final LongAdder itemsAcknowledged = new LongAdder();
+	private final LongAdder itemsReturned = new LongAdder(); // Put back after a consumer disconnected.
+	private final LongAdder itemsDropped = new LongAdder(); // In flight at close, with no room in the buffer.
+
+	/**
+	 * Starts serving the given buffer, leaving acknowledged items to the garbage
+	 * collector.
+	 *
+	 * @param buffer  the buffer to take items from
+	 * @param address where to listen; port 0 picks a free port
+	 * @throws IOException if the server socket cannot be opened
+	 */
+	public BufferServer(Buffer buffer, InetSocketAddress address) throws IOException {
+		this(buffer, address, ItemPool.unpooled());
+	}
+
+	/**
+	 * Starts serving the given buffer, releasing items to a pool once remote
+	 * consumers have acknowledged them.
+	 *
+	 * @param buffer   the buffer to take items from
+	 * @param address  where to listen; port 0 picks a free port
+	 * @param itemPool the pool the buffer's producers acquire items from
+	 * @throws IOException if the server socket cannot be opened
+	 */
+	public BufferServer(Buffer buffer, InetSocketAddress address, ItemPool itemPool) throws IOException {
+		this.buffer = buffer;
+		this.itemPool = itemPool;
+		this.selector = Selector.open();
+		this.serverChannel = ServerSocketChannel.open();
+		try {
+			serverChannel.bind(address);
+			serverChannel.configureBlocking(false);
+			serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+		} catch (IOException e) {
+			serverChannel.close();
+			selector.close();
+			throw e;
+		}
+		this.selectorThread = new Thread(this::run, "buffer-server");
+		selectorThread.setDaemon(true);
+		selectorThread.start();
+	}
+
+	/**
+	 * Gets the address the server listens on, with the actual port if it was
+	 * started on port 0.
+	 *
+	 * @return the local address
+	 * @throws IOException if the address cannot be read
+	 */
+	public InetSocketAddress getAddress() throws IOException {
+		return (InetSocketAddress) serverChannel.getLocalAddress();
+	}
+
+	/**
+	 * Stops serving and disconnects every consumer. Items in flight are put back
+	 * into the buffer as far as it has room. The rest are counted as dropped
+	 * and reported; a journal still holds them, so the next run recovers them.
+	 */
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		selector.wakeup();
+		try {
+			selectorThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Accessor methods
+
+	public int getConnectionCount() {
+		return connectionCount.get();
+	}
+
+	public long getItemsSent() {
+		return itemsSent.sum();
+	}
+
+	public long getItemsAcknowledged() {
+		return itemsAcknowledged.sum();
+	}
+
+	public long getItemsReturned() {
+		return itemsReturned.sum();
+	}
+
+	public long getItemsDropped() {
+		return itemsDropped.sum();
+	}
+
+	// Private helper methods, all run on the selector thread
+
+	private void run() {
+		try {
+			while (!closed) {
+				selector.select(anyConnectionWaiting() ? POLL_MILLIS : 0);
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					handle(key);
+				}
+				for (int i = connections.size() - 1; i >= 0; i--) {
+					sendItems(connections.get(i)); // May disconnect, which only removes this one.
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace(); // The selector itself failed, so no one can be served.
+		} finally {
+			while (!connections.isEmpty()) {
+				disconnect(connections.get(connections.size() - 1));
+			}
+			returnOrphans();
+			if (!orphans.isEmpty()) {
+				itemsDropped.add(orphans.size());
+				System.err.println("BufferServer: " + orphans.size() + " items in flight did not fit back into the buffer.");
+				orphans.clear();
+			}
+			try {
+				serverChannel.close();
+				selector.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private boolean anyConnectionWaiting() {
+		for (Connection connection : connections) {
+			if (connection.credits > 0 && !connection.output.hasRemaining()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void handle(SelectionKey key) throws IOException {
+		if (!key.isValid()) {
+			return;
+		}
+		if (key.isAcceptable()) {
+			accept();
+			return;
+		}
+		Connection connection = (Connection) key.attachment();
+		try {
+			if (key.isReadable()) {
+				connection.read();
+			}
+			if (key.isValid() && key.isWritable()) {
+				connection.flush();
+			}
+		} catch (IOException e) {
+			disconnect(connection); // The consumer went away or broke the protocol.
+		}
+	}
+
+	private void accept() throws IOException {
+		SocketChannel channel = serverChannel.accept();
+		if (channel == null) {
+			return;
+		}
+		channel.configureBlocking(false);
+		channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+		Connection connection = new Connection(channel);
+		connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+		connections.add(connection);
+		connectionCount.incrementAndGet();
+	}
+
+	// Fills one frame with as many items as the connection has credit for, if
+	// the previous frame has been written out, and starts writing it.
+	private void sendItems(Connection connection) {
+		if (connection.credits == 0 || connection.output.hasRemaining() || !connection.key.isValid()) {
+			return;
+		}
+		ByteBuffer output = connection.output;
+		output.clear();
+		output.position(RemoteProtocol.LENGTH_BYTES + RemoteProtocol.ITEMS_HEADER_BYTES);
+		int limit = Math.min(connection.credits, RemoteProtocol.MAX_BATCH);
+		int count = 0;
+		while (count < limit) {
+			Item item = orphans.pollFirst();
+			if (item == null) {
+				item = buffer.pollUnacknowledged(); // Journaled as taken once acknowledged.
+				if (item == null) {
+					break;
+				}
+			}
+			RemoteProtocol.putItem(output, item);
+			connection.inFlight.addLast(item);
+			count++;
+		}
+		if (count == 0) {
+			output.limit(0); // Nothing to write.
+			return;
+		}
+		output.putInt(0, output.position() - RemoteProtocol.LENGTH_BYTES);
+		output.put(RemoteProtocol.LENGTH_BYTES, RemoteProtocol.ITEMS);
+		output.putInt(RemoteProtocol.LENGTH_BYTES + 1, count);
+		output.flip();
+		connection.credits -= count;
+		itemsSent.add(count);
+		try {
+			connection.flush();
+		} catch (IOException e) {
+			disconnect(connection);
+		}
+	}
+
+	private void disconnect(Connection connection) {
+		if (!connections.remove(connection)) {
+			return;
+		}
+		connectionCount.decrementAndGet();
+		connection.key.cancel();
+		try {
+			connection.channel.close();
+		} catch (IOException e) {
+			// Closing anyway.
+		}
+		// Never acknowledged, so another consumer gets them. The oldest go first.
+		for (Iterator<Item> items = connection.inFlight.descendingIterator(); items.hasNext();) {
+			orphans.addFirst(items.next());
+		}
+		itemsReturned.add(connection.inFlight.size());
+		connection.inFlight.clear();
+		if (connections.isEmpty()) {
+			returnOrphans();
+		}
+	}
+
+	// Puts items that were in flight back into the buffer, as long as it has
+	// room. The rest wait for the next consumer.
+	private void returnOrphans() {
+		Item item;
+		while ((item = orphans.peekFirst()) != null && buffer.putBack(item)) {
+			orphans.pollFirst();
+		}
+	}
+
+	// The state of one consumer's connection.
+	private final class Connection {
+		private final SocketChannel channel;
+		private SelectionKey key;
+		private final ByteBuffer input = ByteBuffer.allocate(1024);
+		// The frame being written, drained while nothing is pending.
+		private final ByteBuffer output = ByteBuffer.allocateDirect(RemoteProtocol.LENGTH_BYTES
+				+ RemoteProtocol.MAX_FRAME_BYTES).limit(0);
+		private final Deque<Item> inFlight = new ArrayDeque<>(); // Sent but not acknowledged, oldest first.
+		private boolean greeted; // HELLO received.
+		private int credits; // Items that may still be sent.
+
+		private Connection(SocketChannel channel) {
+			this.channel = channel;
+		}
+
+		private void read() throws IOException {
+			if (channel.read(input) < 0) {
+				throw new IOException("Consumer disconnected");
+			}
+			input.flip();
+			int length;
+			while ((length = RemoteProtocol.completeConsumerFrameLength(input)) >= 0) {
+				input.getInt(); // The length.
+				int end = input.position() + length;
+				handleFrame(input.get(), length);
+				input.position(end);
+			}
+			input.compact();
+		}
+
+		private void handleFrame(byte type, int length) throws IOException {
+			if (type == RemoteProtocol.HELLO && !greeted && length == RemoteProtocol.HELLO_BYTES) {
+				if (input.getInt() != RemoteProtocol.MAGIC || input.get() != RemoteProtocol.VERSION) {
+					throw new IOException("Not a remote consumer, or of another version");
+				}
+				int window = input.getInt();
+				if (window < 1 || window > RemoteProtocol.MAX_WINDOW) {
+					throw new IOException("Bad window " + window);
+				}
+				credits = window;
+				greeted = true;
+			} else if (type == RemoteProtocol.CREDIT && greeted && length == RemoteProtocol.CREDIT_BYTES) {
+				int count = input.getInt();
+				if (count < 1 || count > inFlight.size()) {
+					throw new IOException("Credit for items never sent");
+				}
+				for (int i = 0; i < count; i++) {
+					Item item = inFlight.pollFirst();
+					buffer.acknowledge(item);
+					itemPool.release(item); // Processed, so the consumer is done with it.
+				}
+				credits += count;
+				itemsAcknowledged.add(count);
+			} else {
+				throw new IOException("Unexpected frame of type " + type);
+			}
+		}
+
+		// Writes as much of the pending frame as the socket takes, and asks to be
+		// told when it can take more.
+		private void flush() throws IOException {
+			channel.write(output);
+			key.interestOps(output.hasRemaining() ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+		}
+	}
+}
@@ -1,6 +1,7 @@
 package com.slutprojekt.JimmyKarlsson.model;
 
-import java.util.concurrent.TimeUnit;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * The Consumer class is designed to consume items from a shared buffer. It
@@ -11,8 +12,15 @@ import java.util.concurrent.TimeUnit;
 public class Consumer implements Runnable {
 
 	private final Buffer buffer; // Shared buffer from which items are consumed.
-	private final int delayInSeconds; // Time delay in seconds between consuming items.
+	private final Rate rate; // How often this consumer consumes an item.
+	private final BatchSettings batchSettings; // How many items are taken at once, and how long to wait for them.
+	private final ItemPool itemPool; // Where consumed items are returned.
 	private volatile boolean shutdown = false; // Flag to signal the consumer to stop running.
+	private final LongAdder itemsConsumed = new LongAdder(); // Items this consumer has taken from the buffer.
+	private volatile long startedAtNanos; // When run() was entered, for rate calculations.
+	private Item processingItem; // Taken but not yet released, when driven by an ActorScheduler.
+	private Thread runner; // The thread in run(), so that wake() can reach it. Guarded by this.
+	private boolean woken; // Interrupted by wake(). Guarded by this.
 
 	/**
 	 * Constructs a new Consumer that will take items from the specified buffer.
@@ -21,21 +29,104 @@ public class Consumer implements Runnable {
 	 * @param buffer         The shared buffer from which items will be consumed.
 	 */
 	public Consumer(int delayInSeconds, Buffer buffer) {
+		this(Rate.everySeconds(delayInSeconds), buffer, BatchSettings.NONE, ItemPool.unpooled());
+	}
+
+	/**
+	 * Constructs a new Consumer that takes items from the specified buffer in
+	 * batches.
+	 *
+	 * @param delayInSeconds The delay in seconds between each item consumption.
+	 * @param buffer         The shared buffer from which items will be consumed.
+	 * @param batchSettings  The batch size and linger time to use.
+	 */
+	public Consumer(int delayInSeconds, Buffer buffer, BatchSettings batchSettings) {
+		this(Rate.everySeconds(delayInSeconds), buffer, batchSettings, ItemPool.unpooled());
+	}
+
+	/**
+	 * Constructs a new Consumer that consumes items at the given rate and
+	 * returns every item to a pool once it has been processed.
+	 *
+	 * @param rate          How often to consume an item.
+	 * @param buffer        The shared buffer from which items will be consumed.
+	 * @param batchSettings The batch size and linger time to use.
+	 * @param itemPool      The pool to release processed items to.
+	 */
+	public Consumer(Rate rate, Buffer buffer, BatchSettings batchSettings, ItemPool itemPool) {
 		this.buffer = buffer;
-		this.delayInSeconds = delayInSeconds;
+		this.rate = rate;
+		this.batchSettings = batchSettings;
+		this.itemPool = itemPool;
 	}
 
 	/**
 	 * The main running method for the Consumer thread. Continuously attempts to
-	 * consume items from the buffer at a specified delay interval until the
-	 * shutdown signal is received.
+	 * consume items from the buffer at the specified rate until the shutdown
+	 * signal is received. Time spent blocked in take counts towards the
+	 * interval, so the rate does not drift.
 	 */
 	@Override
 	public void run() {
+		synchronized (this) {
+			runner = Thread.currentThread();
+		}
+		try {
+			startedAtNanos = System.nanoTime();
+			Pacer pacer = new Pacer(rate);
+			pacer.start();
+			if (batchSettings.isBatching()) {
+				runBatched(pacer);
+			} else {
+				runSingle(pacer);
+			}
+		} finally {
+			synchronized (this) {
+				runner = null;
+				if (woken) {
+					Thread.interrupted(); // Meant for this consumer, not the next task on the thread.
+				}
+			}
+		}
+	}
+
+	private void runSingle(Pacer pacer) {
+		while (!shutdown) {
+			try {
+				Item item = buffer.take(); // Consume an item from the buffer.
+				itemsConsumed.increment();
+				try {
+					pacer.awaitNext(1); // Process the item until the next deadline.
+				} finally {
+					itemPool.release(item); // Processing is done, so the item can be reused.
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt(); // Ensures the thread maintains its interrupted status.
+				handleInterruptedException(e); // Custom handler for the interruption.
+			}
+		}
+	}
+
+	/**
+	 * Batch-mode variant of the main loop. Takes up to a full batch at once,
+	 * waiting at most the linger time for it to fill, and then spends one
+	 * interval per consumed item so the consumption rate stays the same as in
+	 * single-item mode.
+	 */
+	private void runBatched(Pacer pacer) {
 		while (!shutdown) {
 			try {
-				buffer.take(); // Consume an item from the buffer.
-				TimeUnit.SECONDS.sleep(delayInSeconds); // Pause the thread for the delay period.
+				List<Item> batch = buffer.drainTo(batchSettings.batchSize(), batchSettings.linger());
+				if (!batch.isEmpty()) {
+					itemsConsumed.add(batch.size());
+					try {
+						pacer.awaitNext(batch.size()); // Process the batch.
+					} finally {
+						for (Item item : batch) {
+							itemPool.release(item);
+						}
+					}
+				}
 			} catch (InterruptedException e) {
 				Thread.currentThread().interrupt(); // Ensures the thread maintains its interrupted status.
 				handleInterruptedException(e); // Custom handler for the interruption.
@@ -43,6 +134,35 @@ public class Consumer implements Runnable {
 		}
 	}
 
+	/**
+	 * Marks the consumer as started when it is driven by an ActorScheduler
+	 * instead of running on its own thread.
+	 */
+	void markStarted() {
+		startedAtNanos = System.nanoTime();
+	}
+
+	/**
+	 * Performs a single consumption attempt without blocking, for an
+	 * ActorScheduler. The previously taken item counts as processed once the
+	 * next attempt is due, and is released to the pool then.
+	 *
+	 * @return true if an item was taken from the buffer, false if it was empty
+	 */
+	boolean tryConsume() {
+		if (processingItem != null) {
+			itemPool.release(processingItem);
+			processingItem = null;
+		}
+		Item item = buffer.poll();
+		if (item == null) {
+			return false;
+		}
+		itemsConsumed.increment();
+		processingItem = item;
+		return true;
+	}
+
 	/**
 	 * Triggers the shutdown of the consumer thread, stopping it from consuming any
 	 * more items.
@@ -51,6 +171,17 @@ public class Consumer implements Runnable {
 		this.shutdown = true;
 	}
 
+	/**
+	 * Interrupts the thread running this consumer, if any, so that a consumer
+	 * that has been shut down stops waiting for an item that may never come.
+	 */
+	synchronized void wake() {
+		if (runner != null) {
+			woken = true;
+			runner.interrupt();
+		}
+	}
+
 	/**
 	 * Handles what should occur when an InterruptedException is thrown during the
 	 * consumer's operation.
@@ -68,6 +199,33 @@ public class Consumer implements Runnable {
 	}
 
 	public int getDelay() {
-		return delayInSeconds;
+		return rate.toWholeSeconds();
+	}
+
+	public Rate getRate() {
+		return rate;
+	}
+
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	public BatchSettings getBatchSettings() {
+		return batchSettings;
+	}
+
+	public long getItemsConsumed() {
+		return itemsConsumed.sum();
+	}
+
+	/**
+	 * Gets the average consumption rate since this consumer started running.
+	 *
+	 * @return items per second, or 0 if the consumer has not started yet
+	 */
+	public double getRatePerSecond() {
+		long started = startedAtNanos;
+		long elapsed = System.nanoTime() - started;
+		return started == 0 || elapsed <= 0 ? 0.0 : itemsConsumed.sum() * 1e9 / elapsed;
 	}
 }
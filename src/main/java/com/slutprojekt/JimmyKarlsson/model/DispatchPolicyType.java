@@ -0,0 +1,122 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.slutprojekt.JimmyKarlsson.model.interfaces.DispatchPolicy;
+
+/**
+ * The available dispatch policies of a Dispatcher. Each constant creates a
+ * fresh DispatchPolicy instance, so policies holding state (such as the
+ * round-robin cursor) are never shared between dispatchers.
+ */
+public enum DispatchPolicyType {
+	/** Hands items to the consumers in turn, whatever their queue depths. */
+	ROUND_ROBIN,
+	/** Hands each item to the consumer with the fewest items queued. */
+	LEAST_LOADED,
+	/**
+	 * Picks two consumers at random and hands the item to the one with fewer
+	 * items queued. Nearly as good as least-loaded, without looking at every
+	 * queue.
+	 */
+	POWER_OF_TWO_CHOICES,
+	/**
+	 * Hands each item to the consumer expected to finish it first, i.e. with the
+	 * smallest queue depth times consumption interval, so slow consumers get
+	 * proportionally fewer items.
+	 */
+	DELAY_WEIGHTED;
+
+	/**
+	 * Creates a new DispatchPolicy of this type.
+	 * 
+	 * @return a new dispatch policy instance
+	 */
+	public DispatchPolicy create() {
+		switch (this) {
+		case ROUND_ROBIN:
+			return new RoundRobinPolicy();
+		case LEAST_LOADED:
+			return new LeastLoadedPolicy();
+		case POWER_OF_TWO_CHOICES:
+			return new PowerOfTwoChoicesPolicy();
+		case DELAY_WEIGHTED:
+			return new DelayWeightedPolicy();
+		default:
+			throw new IllegalStateException("Unknown dispatch policy: " + this);
+		}
+	}
+
+	private static int depth(Consumer consumer) {
+		return consumer.getBuffer().getCurrentSize();
+	}
+
+	private static final class RoundRobinPolicy implements DispatchPolicy {
+		private int next;
+
+		@Override
+		public int select(List<Consumer> consumers) {
+			next = (next + 1) % consumers.size();
+			return next;
+		}
+	}
+
+	private static final class LeastLoadedPolicy implements DispatchPolicy {
+		private int start; // Rotated, so ties do not always go to the first consumer.
+
+		@Override
+		public int select(List<Consumer> consumers) {
+			int n = consumers.size();
+			start = (start + 1) % n;
+			int best = start;
+			int bestDepth = depth(consumers.get(best));
+			for (int i = 1; i < n && bestDepth > 0; i++) {
+				int index = (start + i) % n;
+				int depth = depth(consumers.get(index));
+				if (depth < bestDepth) {
+					best = index;
+					bestDepth = depth;
+				}
+			}
+			return best;
+		}
+	}
+
+	private static final class PowerOfTwoChoicesPolicy implements DispatchPolicy {
+		@Override
+		public int select(List<Consumer> consumers) {
+			int n = consumers.size();
+			if (n == 1) {
+				return 0;
+			}
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			int first = random.nextInt(n);
+			int second = (first + 1 + random.nextInt(n - 1)) % n; // Always a different consumer.
+			return depth(consumers.get(second)) < depth(consumers.get(first)) ? second : first;
+		}
+	}
+
+	private static final class DelayWeightedPolicy implements DispatchPolicy {
+		private int start; // Rotated, so ties do not always go to the first consumer.
+
+		@Override
+		public int select(List<Consumer> consumers) {
+			int n = consumers.size();
+			start = (start + 1) % n;
+			int best = -1;
+			double bestDelay = Double.MAX_VALUE;
+			for (int i = 0; i < n; i++) {
+				int index = (start + i) % n;
+				Consumer consumer = consumers.get(index);
+				// The new item waits for the queued ones, then takes one interval itself.
+				double delay = (depth(consumer) + 1.0) * consumer.getRate().intervalNanos();
+				if (delay < bestDelay) {
+					best = index;
+					bestDelay = delay;
+				}
+			}
+			return best;
+		}
+	}
+}
@@ -0,0 +1,254 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.slutprojekt.JimmyKarlsson.model.interfaces.DispatchPolicy;
+import com.slutprojekt.JimmyKarlsson.model.metrics.LatencyHistogram;
+
+/**
+ * Balances the items of a shared Buffer over consumers. Instead of every
+ * consumer taking from the shared buffer, each one takes from its own small
+ * bounded queue, and a single dispatcher thread moves items from the shared
+ * buffer into those queues, choosing a consumer per item with a
+ * DispatchPolicy. A slow consumer then only holds up the few items in its own
+ * queue, and a policy that looks at queue depths or rates keeps items away from
+ * it.
+ *
+ * If the queue of the chosen consumer is full, the item goes to the next
+ * consumer with room; if all of them are full, the dispatcher waits, and
+ * producers are held back by the shared buffer as usual. The latency histogram
+ * is shared by all queues and runs from the put into the shared buffer until a
+ * consumer takes the item, so it is directly comparable to the dwell time of a
+ * shared buffer without dispatch.
+ */
+public class Dispatcher implements Runnable {
+
+	// How long the dispatcher waits before retrying when no queue has room.
+	private static final long BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+	// Longest wait for items, so shut-down consumers are noticed while idle.
+	private static final Duration IDLE_TIMEOUT = Duration.ofMillis(10);
+
+	private final Buffer buffer;
+	private final DispatchPolicy policy;
+	private final int queueCapacity;
+	// Only grows, except when the dispatcher thread removes shut-down consumers.
+	private final List<Consumer> consumers = new CopyOnWriteArrayList<>();
+	// Items taken back from the queues of shut-down consumers, dispatched before
+	// anything new. Dispatcher thread only.
+	private final Deque<Item> reassigned = new ArrayDeque<>();
+	private final LatencyHistogram latencyHistogram = new LatencyHistogram();
+	private final LongAdder itemsDispatched = new LongAdder();
+	private final Thread thread;
+	private volatile boolean shutdown = false;
+
+	/**
+	 * Constructs a Dispatcher and starts its thread.
+	 *
+	 * @param buffer        the shared buffer to take items from
+	 * @param policy        chooses the consumer for every item
+	 * @param queueCapacity the capacity of every consumer's queue
+	 */
+	public Dispatcher(Buffer buffer, DispatchPolicy policy, int queueCapacity) {
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("Queue capacity must be at least 1.");
+		}
+		this.buffer = buffer;
+		this.policy = policy;
+		this.queueCapacity = queueCapacity;
+		this.thread = Thread.ofPlatform().name("dispatcher").daemon().start(this);
+	}
+
+	/**
+	 * Creates an empty queue for a new consumer, which is then passed to
+	 * {@link #register(Consumer)} once the consumer has been created around it.
+	 *
+	 * @return a new queue of the configured capacity
+	 */
+	public Buffer createQueue() {
+		return Buffer.dispatchQueue(queueCapacity, latencyHistogram);
+	}
+
+	/**
+	 * Starts dispatching items to a consumer. Once the consumer is shut down it
+	 * gets no more items, and those still in its queue go to the remaining
+	 * consumers.
+	 *
+	 * @param consumer a consumer taking from a queue created by this dispatcher
+	 */
+	public void register(Consumer consumer) {
+		consumers.add(consumer);
+	}
+
+	/**
+	 * Stops the dispatcher thread. The items still queued for consumers, those
+	 * taken back from shut-down consumers and the one it was about to hand on
+	 * are put back into the shared buffer, oldest first, as far as it has room.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		thread.interrupt();
+	}
+
+	/**
+	 * Waits for the dispatcher thread to finish after a shutdown, having put the
+	 * items it still held back into the shared buffer.
+	 *
+	 * @param timeout how long to wait at most
+	 * @param unit    the unit of the timeout
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	void awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		thread.join(Math.max(1, unit.toMillis(timeout)));
+	}
+
+	/**
+	 * The main running method of the dispatcher thread. Items are taken from the
+	 * shared buffer one at a time, and only while there is a consumer to hand
+	 * them to, so the shared buffer still holds the backlog.
+	 */
+	@Override
+	public void run() {
+		try {
+			dispatchAll();
+		} finally {
+			for (Consumer consumer : consumers) {
+				List<Item> queued = consumer.getBuffer().removeAll();
+				for (int i = queued.size() - 1; i >= 0; i--) {
+					reassigned.addFirst(queued.get(i)); // Dispatched before anything still held.
+				}
+			}
+			Item item;
+			while ((item = reassigned.peekFirst()) != null && buffer.offer(item)) {
+				reassigned.pollFirst();
+			}
+			if (!reassigned.isEmpty()) {
+				System.err.println("Dispatcher: " + reassigned.size() + " items did not fit back into the buffer.");
+			}
+		}
+	}
+
+	private void dispatchAll() {
+		while (!shutdown) {
+			try {
+				if (!awaitConsumers()) {
+					return;
+				}
+				Item item = reassigned.pollFirst();
+				if (item == null) {
+					item = buffer.poll();
+				}
+				if (item == null) {
+					List<Item> waited = buffer.drainTo(1, IDLE_TIMEOUT); // Returns as soon as an item arrives.
+					if (waited.isEmpty()) {
+						continue;
+					}
+					item = waited.get(0);
+				}
+				dispatch(item);
+			} catch (InterruptedException e) {
+				return; // Interrupted by shutdown.
+			}
+		}
+	}
+
+	// Hands an item to the chosen consumer, or to the next one with room. An item
+	// still held when the dispatcher is shut down goes back with the others.
+	private void dispatch(Item item) throws InterruptedException {
+		boolean handedOn = false;
+		try {
+			while (!handedOn && awaitConsumers()) {
+				int chosen = policy.select(consumers);
+				int n = consumers.size();
+				for (int i = 0; i < n && !handedOn; i++) {
+					Consumer consumer = consumers.get((chosen + i) % n);
+					handedOn = !consumer.isShutdown() && consumer.getBuffer().offer(item);
+				}
+				if (!handedOn) {
+					backOff(); // Every queue is full.
+				}
+			}
+		} finally {
+			if (handedOn) {
+				itemsDispatched.increment();
+			} else {
+				reassigned.addFirst(item);
+			}
+		}
+	}
+
+	// Waits until there is at least one running consumer.
+	// Returns false if the dispatcher was shut down meanwhile.
+	private boolean awaitConsumers() throws InterruptedException {
+		removeShutDownConsumers();
+		while (consumers.isEmpty() && !shutdown) {
+			backOff();
+			removeShutDownConsumers();
+		}
+		return !shutdown;
+	}
+
+	// Only this thread removes consumers, so walking down by index is safe while
+	// others are added.
+	private void removeShutDownConsumers() {
+		for (int i = consumers.size() - 1; i >= 0; i--) {
+			Consumer consumer = consumers.get(i);
+			if (consumer.isShutdown()) {
+				consumers.remove(i);
+				release(consumer);
+			}
+		}
+	}
+
+	// The items still queued for a shut-down consumer go to the others, oldest
+	// first, ahead of newer items. A consumer waiting on its empty queue would
+	// wait forever, as nothing is dispatched to it any more, so it is woken.
+	private void release(Consumer consumer) {
+		List<Item> items = consumer.getBuffer().removeAll();
+		for (int i = items.size() - 1; i >= 0; i--) {
+			reassigned.addFirst(items.get(i));
+		}
+		consumer.wake();
+	}
+
+	private void backOff() throws InterruptedException {
+		LockSupport.parkNanos(this, BACKOFF_NANOS);
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+	}
+
+	// Accessor methods
+
+	public Buffer getBuffer() {
+		return buffer;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	public long getItemsDispatched() {
+		return itemsDispatched.sum();
+	}
+
+	/**
+	 * Gets the time items spent waiting, from being put into the shared buffer
+	 * until a consumer took them from its queue.
+	 *
+	 * @return the latency histogram shared by all queues
+	 */
+	public LatencyHistogram getLatencyHistogram() {
+		return latencyHistogram;
+	}
+}
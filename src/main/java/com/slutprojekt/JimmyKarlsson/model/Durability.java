@@ -0,0 +1,21 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+/**
+ * How long a put into a journaled Buffer waits for its journal record. Waiting
+ * longer survives more kinds of failure, and concurrent puts share each write
+ * and fsync, so the cost per item falls as the load rises.
+ */
+public enum Durability {
+	/**
+	 * Does not wait. Records reach the file within one group commit and disk at
+	 * least once a second, so a crash loses the most recent puts.
+	 */
+	ASYNC,
+	/**
+	 * Waits until the record has been written to the operating system, which
+	 * survives a crash of the JVM but not of the machine.
+	 */
+	WRITE,
+	/** Waits until the record has been forced to disk, which survives both. */
+	FSYNC
+}
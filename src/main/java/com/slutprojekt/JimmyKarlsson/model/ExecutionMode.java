@@ -0,0 +1,48 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The ways a LoadBalancer can run its producers and consumers. Producers and
+ * consumers spend nearly all their time sleeping or waiting on the buffer, so
+ * virtual threads let a single JVM host far more of them than platform
+ * threads, and a timing wheel lets it host them with a fixed thread count.
+ */
+public enum ExecutionMode {
+	/** One platform thread per task, from a cached thread pool. */
+	PLATFORM_THREADS,
+	/**
+	 * One virtual thread per task. Blocking in the buffer and sleeping between
+	 * items unmount the virtual thread from its carrier, as long as the buffer
+	 * strategy does not block inside synchronized code. Avoid the busy-spin wait
+	 * strategy in this mode, as spinning virtual threads hold on to their carrier.
+	 */
+	VIRTUAL_THREADS,
+	/**
+	 * No thread per task. An {@link ActorScheduler} drives every producer and
+	 * consumer from a timing wheel, running their steps on a fixed pool with one
+	 * daemon thread per available processor. Batch settings are not applied in
+	 * this mode.
+	 */
+	TIMING_WHEEL;
+
+	/**
+	 * Creates a new executor that runs tasks in this mode.
+	 * 
+	 * @return a new executor service
+	 */
+	public ExecutorService createExecutor() {
+		switch (this) {
+		case PLATFORM_THREADS:
+			return Executors.newCachedThreadPool();
+		case VIRTUAL_THREADS:
+			return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("load-balancer-", 0).factory());
+		case TIMING_WHEEL:
+			return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+					Thread.ofPlatform().name("load-balancer-worker-", 0).daemon().factory());
+		default:
+			throw new IllegalStateException("Unknown execution mode: " + this);
+		}
+	}
+}
@@ -3,10 +3,138 @@ package com.slutprojekt.JimmyKarlsson.model;
 /**
  * Represents an item within the producer-consumer context. As a POJO (Plain Old
  * Java Object), this class is designed to be a simple container of data without
- * business logic. It's currently a blank slate, meant to be extended with
- * fields and methods as needed for item-specific behavior and attributes.
+ * business logic. Every item carries an id, a creation timestamp and a small
+ * payload, and records when it entered and left the Buffer, so the time items
+ * spend waiting (dwell time) can be measured. Items are mutable so that an
+ * ItemPool can recycle them instead of allocating new ones.
+ *
+ * An item also belongs to a priority class, which only matters to a buffer
+ * with priority classes: 0 is the first class configured on it, and items of
+ * other buffers all share one queue whatever their class.
  */
 public class Item {
-	// Intentionally left empty to serve as a template for item attributes.
-	// Future fields and methods for item-specific logic can be added here.
+
+	private long id; // Unique per pass through the system, assigned on acquire.
+	private long timestamp; // System.currentTimeMillis() when the item was produced.
+	private long payload; // The data the item carries.
+	private int priorityClass; // Index of the priority class, 0 by default.
+	private volatile long enqueuedAtNanos; // System.nanoTime() when handed to the buffer.
+	private volatile long dequeuedAtNanos; // System.nanoTime() when taken from the buffer.
+	private long journalSequence; // Identifies the item in a BufferJournal, 0 if not journaled.
+
+	/**
+	 * Constructs an empty item.
+	 */
+	public Item() {
+	}
+
+	/**
+	 * Constructs an item carrying the given payload, typically used as the
+	 * template of a producer.
+	 * 
+	 * @param payload the payload to carry
+	 */
+	public Item(long payload) {
+		this.payload = payload;
+	}
+
+	/**
+	 * Constructs an item carrying the given payload in the given priority class,
+	 * typically used as the template of a producer.
+	 * 
+	 * @param payload       the payload to carry
+	 * @param priorityClass the index of the priority class
+	 */
+	public Item(long payload, int priorityClass) {
+		this.payload = payload;
+		this.priorityClass = priorityClass;
+	}
+
+	/**
+	 * (Re)initializes this item for a new pass through the system, in the
+	 * default priority class.
+	 * 
+	 * @param id        the id of the item
+	 * @param timestamp the production time in milliseconds since the epoch
+	 * @param payload   the payload to carry
+	 * @return this item
+	 */
+	public Item initialize(long id, long timestamp, long payload) {
+		return initialize(id, timestamp, payload, 0);
+	}
+
+	/**
+	 * (Re)initializes this item for a new pass through the system.
+	 * 
+	 * @param id            the id of the item
+	 * @param timestamp     the production time in milliseconds since the epoch
+	 * @param payload       the payload to carry
+	 * @param priorityClass the index of the priority class
+	 * @return this item
+	 */
+	public Item initialize(long id, long timestamp, long payload, int priorityClass) {
+		this.id = id;
+		this.timestamp = timestamp;
+		this.payload = payload;
+		this.priorityClass = priorityClass;
+		this.enqueuedAtNanos = 0;
+		this.dequeuedAtNanos = 0;
+		this.journalSequence = 0;
+		return this;
+	}
+
+	// Timestamp methods, called by the Buffer
+
+	void markEnqueued(long nanoTime) {
+		this.enqueuedAtNanos = nanoTime;
+	}
+
+	void markDequeued(long nanoTime) {
+		this.dequeuedAtNanos = nanoTime;
+	}
+
+	// Journal methods, called by the BufferJournal
+
+	void setJournalSequence(long journalSequence) {
+		this.journalSequence = journalSequence;
+	}
+
+	long getJournalSequence() {
+		return journalSequence;
+	}
+
+	// Accessor methods
+
+	public long getId() {
+		return id;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public long getPayload() {
+		return payload;
+	}
+
+	public int getPriorityClass() {
+		return priorityClass;
+	}
+
+	public long getEnqueuedAtNanos() {
+		return enqueuedAtNanos;
+	}
+
+	public long getDequeuedAtNanos() {
+		return dequeuedAtNanos;
+	}
+
+	/**
+	 * Gets the time this item spent in the buffer during its latest pass.
+	 * 
+	 * @return the dwell time in nanoseconds
+	 */
+	public long getDwellNanos() {
+		return dequeuedAtNanos - enqueuedAtNanos;
+	}
 }
@@ -0,0 +1,90 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded pool that recycles Items from consumers back to producers, so
+ * steady-state production allocates nothing. Items are held in a shared,
+ * lock-free ring, as they are released by consumer threads and acquired by
+ * producer threads, so per-thread caches would only strand them on the
+ * consumer side. When the ring is empty a new item is allocated, and when it
+ * is full a released item is simply left to the garbage collector.
+ */
+public class ItemPool {
+
+	private final RingBufferStrategy shared; // Null for an unpooled instance.
+	private final AtomicLong nextId = new AtomicLong(); // Source of item ids.
+	private final LongAdder allocations = new LongAdder(); // Items created because the pool was empty.
+
+	/**
+	 * Constructs an ItemPool holding at most the given number of items.
+	 *
+	 * @param capacity the capacity of the pool, or 0 to disable pooling
+	 */
+	public ItemPool(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("Capacity cannot be negative.");
+		}
+		this.shared = capacity == 0 ? null : new RingBufferStrategy(capacity, WaitStrategyType.PARK.create());
+	}
+
+	/**
+	 * Creates a pool that never recycles: every acquire allocates a new item.
+	 *
+	 * @return a new unpooled ItemPool
+	 */
+	public static ItemPool unpooled() {
+		return new ItemPool(0);
+	}
+
+	/**
+	 * Acquires an item, recycled if possible, and initializes it with a new id,
+	 * the current time and the given payload.
+	 *
+	 * @param payload the payload the item should carry
+	 * @return an initialized item
+	 */
+	public Item acquire(long payload) {
+		return acquire(payload, 0);
+	}
+
+	/**
+	 * Acquires an item, recycled if possible, and initializes it with a new id,
+	 * the current time, the given payload and the given priority class.
+	 *
+	 * @param payload       the payload the item should carry
+	 * @param priorityClass the index of the priority class of the item
+	 * @return an initialized item
+	 */
+	public Item acquire(long payload, int priorityClass) {
+		Item item = shared == null ? null : shared.poll();
+		if (item == null) {
+			item = new Item();
+			allocations.increment();
+		}
+		return item.initialize(nextId.incrementAndGet(), System.currentTimeMillis(), payload, priorityClass);
+	}
+
+	/**
+	 * Returns an item to the pool once it has been fully processed. The caller
+	 * must not use the item afterwards.
+	 *
+	 * @param item the item to recycle
+	 */
+	public void release(Item item) {
+		if (shared != null) {
+			shared.offer(item); // Dropped if the ring is full.
+		}
+	}
+
+	// Accessor methods
+
+	public long getAllocationCount() {
+		return allocations.sum();
+	}
+
+	public int getSharedCount() {
+		return shared == null ? 0 : shared.size();
+	}
+}
@@ -2,14 +2,20 @@ package com.slutprojekt.JimmyKarlsson.model;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import com.slutprojekt.JimmyKarlsson.model.interfaces.BufferSizeProvider;
+import com.slutprojekt.JimmyKarlsson.model.metrics.LatencyHistogram;
+import com.slutprojekt.JimmyKarlsson.model.metrics.LoadBalancerMetrics;
+import com.slutprojekt.JimmyKarlsson.model.metrics.PriorityClassMetrics;
 import com.slutprojekt.JimmyKarlsson.utils.Utilities;
 
 /**
@@ -19,16 +25,36 @@ import com.slutprojekt.JimmyKarlsson.utils.Utilities;
  */
 public class LoadBalancer implements BufferSizeProvider {
 
+	// Smallest shared capacity of the item pool, whatever the buffer capacity
+	private static final int MIN_POOL_CAPACITY = 1024;
+	// How long shutdown waits for tasks to finish before closing the journal.
+	private static final long JOURNAL_CLOSE_TIMEOUT_SECONDS = 5;
+	// Dwell-time percentiles in the metrics: median, p99 and p99.9.
+	private static final double[] REPORTED_PERCENTILES = { 50, 99, 99.9 };
+
 	// Thread-safe list to hold producer tasks
 	private final List<Runnable> producerTasks = new CopyOnWriteArrayList<>();
-	// List to hold consumer tasks
-	private final List<Runnable> consumerTasks = new ArrayList<>();
+	// Thread-safe list to hold consumer tasks, read concurrently by getMetrics
+	private final List<Runnable> consumerTasks = new CopyOnWriteArrayList<>();
 	// Support for property change events
 	private final PropertyChangeSupport propertyChangeSupport = new PropertyChangeSupport(this);
 	// Buffer used between producers and consumers
 	private final Buffer buffer;
+	// How producers and consumers are run
+	private final ExecutionMode executionMode;
 	// Executor that manages the threading for consumers and producers
-	private final ThreadPoolExecutor executor;
+	private final ExecutorService executor;
+	// Drives producers and consumers in timing-wheel mode, null otherwise
+	private final ActorScheduler scheduler;
+	// Recycles items from consumers back to producers
+	private final ItemPool itemPool;
+	// Batch settings applied to producers and consumers created from now on
+	private volatile BatchSettings batchSettings = BatchSettings.NONE;
+	// Feeds consumers created from now on through their own queues, null while
+	// consumers share the buffer
+	private volatile Dispatcher dispatcher;
+	// Serves the buffer to consumers in other processes, null until enabled
+	private volatile BufferServer remoteServer;
 
 	/**
 	 * Constructs a LoadBalancer with a specified buffer capacity.
@@ -37,8 +63,111 @@ public class LoadBalancer implements BufferSizeProvider {
 	 *                       balancer
 	 */
 	public LoadBalancer(int bufferCapacity) {
-		this.buffer = new Buffer(bufferCapacity);
-		this.executor = (ThreadPoolExecutor) Executors.newCachedThreadPool();
+		this(bufferCapacity, ExecutionMode.PLATFORM_THREADS);
+	}
+
+	/**
+	 * Constructs a LoadBalancer with a specified buffer capacity that runs its
+	 * producers and consumers in the given execution mode.
+	 *
+	 * @param bufferCapacity The capacity of the buffer to be used by this load
+	 *                       balancer
+	 * @param executionMode  Whether producers and consumers run on platform or
+	 *                       virtual threads
+	 */
+	public LoadBalancer(int bufferCapacity, ExecutionMode executionMode) {
+		this(new Buffer(bufferCapacity), executionMode);
+	}
+
+	/**
+	 * Constructs a LoadBalancer whose buffer is a lock-free ring buffer using the
+	 * given wait strategy.
+	 *
+	 * @param bufferCapacity The capacity of the buffer to be used by this load
+	 *                       balancer
+	 * @param waitStrategy   How producers and consumers wait while the buffer is
+	 *                       full or empty
+	 */
+	public LoadBalancer(int bufferCapacity, WaitStrategyType waitStrategy) {
+		this(bufferCapacity, waitStrategy, ExecutionMode.PLATFORM_THREADS);
+	}
+
+	/**
+	 * Constructs a LoadBalancer whose buffer is a lock-free ring buffer using the
+	 * given wait strategy, running its producers and consumers in the given
+	 * execution mode.
+	 *
+	 * @param bufferCapacity The capacity of the buffer to be used by this load
+	 *                       balancer
+	 * @param waitStrategy   How producers and consumers wait while the buffer is
+	 *                       full or empty
+	 * @param executionMode  Whether producers and consumers run on platform or
+	 *                       virtual threads
+	 */
+	public LoadBalancer(int bufferCapacity, WaitStrategyType waitStrategy, ExecutionMode executionMode) {
+		this(new Buffer(bufferCapacity, capacity -> new RingBufferStrategy(capacity, waitStrategy.create())),
+				executionMode);
+	}
+
+	/**
+	 * Constructs a LoadBalancer whose buffer is striped over the given number of
+	 * lock-free rings, so producers and consumers on different cores rarely
+	 * contend. Consumers steal from other stripes when their own is empty.
+	 *
+	 * @param bufferCapacity The total capacity of the buffer to be used by this
+	 *                       load balancer
+	 * @param stripes        The number of stripes, typically the core count
+	 * @param waitStrategy   How producers and consumers wait while the buffer is
+	 *                       full or empty
+	 * @param executionMode  Whether producers and consumers run on platform or
+	 *                       virtual threads
+	 */
+	public LoadBalancer(int bufferCapacity, int stripes, WaitStrategyType waitStrategy,
+			ExecutionMode executionMode) {
+		this(new Buffer(bufferCapacity,
+				capacity -> new StripedBufferStrategy(capacity, stripes, waitStrategy.create())), executionMode);
+	}
+
+	/**
+	 * Constructs a LoadBalancer whose buffer keeps one queue per priority class.
+	 * Consumers take items from the classes in proportion to their weights, and
+	 * producers pick a class through the priority class of their template item.
+	 *
+	 * @param priorityClasses The classes, indexed by Item.getPriorityClass()
+	 * @param executionMode   Whether producers and consumers run on platform or
+	 *                        virtual threads
+	 */
+	public LoadBalancer(List<PriorityClass> priorityClasses, ExecutionMode executionMode) {
+		this(new Buffer(priorityClasses), executionMode);
+	}
+
+	/**
+	 * Constructs a LoadBalancer around an existing buffer.
+	 *
+	 * @param buffer        The buffer shared by producers and consumers
+	 * @param executionMode Whether producers and consumers run on platform or
+	 *                      virtual threads
+	 */
+	public LoadBalancer(Buffer buffer, ExecutionMode executionMode) {
+		this(buffer, executionMode, new ItemPool(Math.max(MIN_POOL_CAPACITY, buffer.getCapacity())));
+	}
+
+	/**
+	 * Constructs a LoadBalancer around an existing buffer whose producers draw
+	 * items from the given pool, so that whoever finally consumes them can
+	 * recycle them into the same pool.
+	 *
+	 * @param buffer        The buffer shared by producers and consumers
+	 * @param executionMode Whether producers and consumers run on platform or
+	 *                      virtual threads
+	 * @param itemPool      The pool producers acquire items from
+	 */
+	public LoadBalancer(Buffer buffer, ExecutionMode executionMode, ItemPool itemPool) {
+		this.buffer = buffer;
+		this.executionMode = executionMode;
+		this.executor = executionMode.createExecutor();
+		this.scheduler = executionMode == ExecutionMode.TIMING_WHEEL ? new ActorScheduler(buffer, executor) : null;
+		this.itemPool = itemPool;
 	}
 
 	/**
@@ -47,9 +176,7 @@ public class LoadBalancer implements BufferSizeProvider {
 	public void initializeConsumers() {
 		int randomConsumerCount = Utilities.getRandomIntBetween(3, 15);
 		for (int i = 0; i < randomConsumerCount; i++) {
-			Consumer consumer = new Consumer(Utilities.getRandomIntBetween(1, 10), buffer);
-			consumerTasks.add(consumer);
-			executor.execute(consumer);
+			initializeSingleConsumer(Rate.everySeconds(Utilities.getRandomIntBetween(1, 10)));
 		}
 	}
 
@@ -76,9 +203,20 @@ public class LoadBalancer implements BufferSizeProvider {
 	 * @param item  The item that the producer will produce
 	 */
 	public void addProducer(int delay, Item item) {
-		Producer producer = new Producer(delay, buffer, item);
+		addProducer(Rate.everySeconds(delay), item);
+	}
+
+	/**
+	 * Adds a producer to the load balancer that produces items at the given
+	 * rate.
+	 *
+	 * @param rate How often the producer produces an item
+	 * @param item The item that the producer will produce
+	 */
+	public void addProducer(Rate rate, Item item) {
+		Producer producer = new Producer(rate, buffer, item, batchSettings, itemPool);
 		producerTasks.add(producer);
-		executor.execute(producer);
+		start(producer);
 	}
 
 	/**
@@ -103,13 +241,58 @@ public class LoadBalancer implements BufferSizeProvider {
 		shutdownTasks(consumerTasks);
 	}
 
+	/**
+	 * Shuts down all producers and consumers and stops the executor, interrupting
+	 * any task that is still sleeping or waiting on the buffer. Remote consumers,
+	 * if enabled, are disconnected.
+	 */
+	public void shutdown() {
+		shutdownProducers();
+		shutdownConsumers();
+		if (scheduler != null) {
+			scheduler.shutdown();
+		}
+		if (dispatcher != null) {
+			dispatcher.shutdown();
+		}
+		executor.shutdownNow();
+		if (remoteServer != null) {
+			try {
+				remoteServer.close(); // Items in flight go back into the buffer.
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		BufferJournal journal = buffer.getJournal();
+		if (journal != null) {
+			awaitTasks(); // Their last puts, cancellations and returns must reach the journal.
+			try {
+				journal.close(); // Write out what is still pending.
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	// Waits for the interrupted producers, consumers and dispatcher to finish.
+	private void awaitTasks() {
+		try {
+			executor.awaitTermination(JOURNAL_CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			if (dispatcher != null) {
+				dispatcher.awaitTermination(JOURNAL_CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt(); // Close the journal anyway.
+		}
+	}
+
 	/**
 	 * Extracts the current state of the LoadBalancer.
 	 *
 	 * @return the current state as a LoadBalancerState object
 	 */
 	public LoadBalancerState extractState() {
-		return new LoadBalancerState(getProducerIntervals(), getConsumerIntervals(), buffer.getCapacity(),
+		return LoadBalancerState.ofRates(getProducerRates(), getConsumerRates(), buffer.getCapacity(),
 				buffer.getCurrentSize());
 	}
 
@@ -125,21 +308,199 @@ public class LoadBalancer implements BufferSizeProvider {
 		buffer.clear();
 		buffer.setCapacityAndFill(state.bufferCapacity(), state.currentBufferSize());
 
-		state.producerDelays().forEach(delay -> addProducer(delay, new Item()));
-		state.consumerDelays().forEach(this::initializeSingleConsumer);
+		state.producerRates().forEach(rate -> addProducer(rate, new Item()));
+		state.consumerRates().forEach(this::initializeSingleConsumer);
 
 		propertyChangeSupport.firePropertyChange("producerCount", -1, getProducerCount());
 	}
 
 	/**
-	 * Initializes a single consumer with a specified delay.
+	 * Adds a consumer to the load balancer with a specified delay.
 	 *
 	 * @param delay The delay for the consumer
 	 */
-	private void initializeSingleConsumer(int delay) {
-		Consumer consumer = new Consumer(delay, buffer);
+	public void addConsumer(int delay) {
+		initializeSingleConsumer(Rate.everySeconds(delay));
+	}
+
+	/**
+	 * Adds a consumer to the load balancer that consumes items at the given
+	 * rate.
+	 *
+	 * @param rate How often the consumer consumes an item
+	 */
+	public void addConsumer(Rate rate) {
+		initializeSingleConsumer(rate);
+	}
+
+	/**
+	 * Initializes a single consumer with a specified rate.
+	 *
+	 * @param rate The rate of the consumer
+	 */
+	private void initializeSingleConsumer(Rate rate) {
+		Dispatcher dispatcher = this.dispatcher;
+		if (dispatcher == null) {
+			Consumer consumer = new Consumer(rate, buffer, batchSettings, itemPool);
+			consumerTasks.add(consumer);
+			start(consumer);
+			return;
+		}
+		Consumer consumer = new Consumer(rate, dispatcher.createQueue(), batchSettings, itemPool);
 		consumerTasks.add(consumer);
-		executor.execute(consumer);
+		dispatcher.register(consumer);
+		start(consumer);
+	}
+
+	// Runs a producer on its own thread, or hands it to the scheduler in timing-wheel mode.
+	private void start(Producer producer) {
+		if (scheduler != null) {
+			scheduler.start(producer);
+		} else {
+			executor.execute(producer);
+		}
+	}
+
+	// Runs a consumer on its own thread, or hands it to the scheduler in timing-wheel mode.
+	private void start(Consumer consumer) {
+		if (scheduler != null) {
+			scheduler.start(consumer);
+		} else {
+			executor.execute(consumer);
+		}
+	}
+
+	/**
+	 * Sets the batch settings used by producers and consumers that are created
+	 * after this call. Already running tasks keep their settings.
+	 *
+	 * @param batchSettings The batch size and linger time to use, or
+	 *                      {@link BatchSettings#NONE} for single-item mode
+	 */
+	public void setBatchSettings(BatchSettings batchSettings) {
+		this.batchSettings = batchSettings;
+	}
+
+	public BatchSettings getBatchSettings() {
+		return batchSettings;
+	}
+
+	/**
+	 * Starts balancing items over consumers instead of letting them all take
+	 * from the shared buffer. Consumers created after this call each get their
+	 * own bounded queue, fed by a dispatcher thread using the given policy;
+	 * already running consumers keep taking from the shared buffer.
+	 *
+	 * @param policy        How the dispatcher chooses a consumer for each item
+	 * @param queueCapacity The capacity of every consumer's queue
+	 * @throws IllegalStateException if dispatch is already enabled, or in
+	 *                               timing-wheel mode, where consumers are
+	 *                               scheduled on the shared buffer only
+	 */
+	public synchronized void enableDispatch(DispatchPolicyType policy, int queueCapacity) {
+		if (dispatcher != null) {
+			throw new IllegalStateException("Dispatch is already enabled.");
+		}
+		if (scheduler != null) {
+			throw new IllegalStateException("Dispatch is not supported in timing-wheel mode.");
+		}
+		dispatcher = new Dispatcher(buffer, policy.create(), queueCapacity);
+	}
+
+	/**
+	 * Gets the dispatcher feeding the consumers, for its latency histogram.
+	 *
+	 * @return the dispatcher, or null if consumers share the buffer
+	 */
+	public Dispatcher getDispatcher() {
+		return dispatcher;
+	}
+
+	/**
+	 * Makes the buffer's contents survive a crash by journaling them to the
+	 * given directory. Items left there by an earlier run are put back into the
+	 * buffer first. Call this before adding producers and consumers.
+	 *
+	 * @param directory  Where the journal keeps its files
+	 * @param durability How long producers wait for their puts to be journaled
+	 * @throws IOException           if the journal could not be opened
+	 * @throws IllegalStateException if a journal is already enabled
+	 */
+	public synchronized void enableJournal(Path directory, Durability durability) throws IOException {
+		if (buffer.getJournal() != null) {
+			throw new IllegalStateException("A journal is already enabled.");
+		}
+		BufferJournal journal = new BufferJournal(directory, durability);
+		try {
+			buffer.attachJournal(journal);
+		} catch (RuntimeException e) {
+			journal.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Lets consumers in other processes, typically on other nodes, take items
+	 * from the buffer over the network, alongside the local consumers. Remote
+	 * consumers connect with a RemoteConsumer.
+	 *
+	 * @param address Where to listen; port 0 picks a free port
+	 * @return the server, for its address and counters
+	 * @throws IOException           if the server socket could not be opened
+	 * @throws IllegalStateException if remote consumers are already enabled
+	 */
+	public synchronized BufferServer enableRemoteConsumers(InetSocketAddress address) throws IOException {
+		if (remoteServer != null) {
+			throw new IllegalStateException("Remote consumers are already enabled.");
+		}
+		remoteServer = new BufferServer(buffer, address, itemPool);
+		return remoteServer;
+	}
+
+	public BufferServer getRemoteServer() {
+		return remoteServer;
+	}
+
+	public ItemPool getItemPool() {
+		return itemPool;
+	}
+
+	/**
+	 * Takes a snapshot of the dwell-time distribution of items in the buffer and
+	 * of the rate of every running producer and consumer.
+	 *
+	 * @return the current metrics
+	 */
+	public LoadBalancerMetrics getMetrics() {
+		LatencyHistogram dwell = buffer.getDwellHistogram();
+		double[] producerRates = producerTasks.stream().filter(task -> task instanceof Producer)
+				.mapToDouble(task -> ((Producer) task).getRatePerSecond()).toArray();
+		double[] consumerRates = consumerTasks.stream().filter(task -> task instanceof Consumer)
+				.mapToDouble(task -> ((Consumer) task).getRatePerSecond()).toArray();
+		long[] percentiles = dwell.getValuesAtPercentiles(REPORTED_PERCENTILES);
+		return new LoadBalancerMetrics(buffer.getTotalPut(), buffer.getTotalTaken(), dwell.getCount(),
+				dwell.getMean(), percentiles[0], percentiles[1], percentiles[2], dwell.getMax(), producerRates,
+				consumerRates);
+	}
+
+	/**
+	 * Takes a snapshot of the occupancy and dwell-time distribution of every
+	 * priority class of the buffer.
+	 *
+	 * @return the metrics per class, in class order, or an empty list if the
+	 *         buffer has no priority classes
+	 */
+	public List<PriorityClassMetrics> getPriorityClassMetrics() {
+		List<PriorityClass> classes = buffer.getPriorityClasses();
+		List<PriorityClassMetrics> metrics = new ArrayList<>(classes.size());
+		for (int i = 0; i < classes.size(); i++) {
+			LatencyHistogram dwell = buffer.getDwellHistogram(i);
+			long[] percentiles = dwell.getValuesAtPercentiles(REPORTED_PERCENTILES);
+			metrics.add(new PriorityClassMetrics(classes.get(i).name(), buffer.getCurrentSize(i),
+					buffer.getCapacity(i), dwell.getCount(), dwell.getMean(), percentiles[0], percentiles[1],
+					percentiles[2], dwell.getMax()));
+		}
+		return metrics;
 	}
 
 	// Add a listener for property changes
@@ -157,10 +518,18 @@ public class LoadBalancer implements BufferSizeProvider {
 		return this.buffer;
 	}
 
+	public ExecutionMode getExecutionMode() {
+		return executionMode;
+	}
+
 	public int getProducerCount() {
 		return producerTasks.size();
 	}
 
+	public int getConsumerCount() {
+		return consumerTasks.size();
+	}
+
 	public List<Integer> getProducerIntervals() {
 		return producerTasks.stream().filter(task -> task instanceof Producer).map(task -> ((Producer) task).getDelay())
 				.collect(Collectors.toList());
@@ -171,6 +540,16 @@ public class LoadBalancer implements BufferSizeProvider {
 				.collect(Collectors.toList());
 	}
 
+	public List<Rate> getProducerRates() {
+		return producerTasks.stream().filter(task -> task instanceof Producer).map(task -> ((Producer) task).getRate())
+				.collect(Collectors.toList());
+	}
+
+	public List<Rate> getConsumerRates() {
+		return consumerTasks.stream().filter(task -> task instanceof Consumer).map(task -> ((Consumer) task).getRate())
+				.collect(Collectors.toList());
+	}
+
 	// BufferSizeProvider interface methods to get the current size and capacity of
 	// the buffer
 	@Override
@@ -1,6 +1,7 @@
 package com.slutprojekt.JimmyKarlsson.model;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -8,16 +9,89 @@ import java.util.List;
  * time. It is useful for monitoring and managing the flow of items between
  * producers and consumers by providing essential details about their operation.
  * This record is serializable, allowing it to be easily stored or transmitted.
+ *
+ * The exact intervals were added later as separate components, so states saved
+ * before they existed still load (with those components null) and older
+ * versions can still read the whole-second delays of newer states.
  */
 public record LoadBalancerState(List<Integer> producerDelays, // List of delays for producers, representing the time in
 																// seconds before a producer can produce the next item.
 		List<Integer> consumerDelays, // List of delays for consumers, representing the time in seconds before a
 										// consumer can consume the next item.
 		int bufferCapacity, // The maximum number of items the buffer can hold at any given time.
-		int currentBufferSize // The current count of items present in the buffer.
+		int currentBufferSize, // The current count of items present in the buffer.
+		List<Long> producerIntervalNanos, // Exact producer intervals in nanoseconds, or null in older states.
+		List<Long> consumerIntervalNanos // Exact consumer intervals in nanoseconds, or null in older states.
 ) implements Serializable {
 
 	// Serial Version UID for serialization. If any change is made to this record,
 	// consider altering the UID to maintain the integrity of serialized objects.
 	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constructs a state from whole-second delays only.
+	 */
+	public LoadBalancerState(List<Integer> producerDelays, List<Integer> consumerDelays, int bufferCapacity,
+			int currentBufferSize) {
+		this(producerDelays, consumerDelays, bufferCapacity, currentBufferSize, null, null);
+	}
+
+	/**
+	 * Creates a state from exact rates, filling in the whole-second delays as
+	 * well for readers that only know about those.
+	 *
+	 * @param producerRates     the rate of every producer
+	 * @param consumerRates     the rate of every consumer
+	 * @param bufferCapacity    the capacity of the buffer
+	 * @param currentBufferSize the number of items in the buffer
+	 * @return a new state
+	 */
+	public static LoadBalancerState ofRates(List<Rate> producerRates, List<Rate> consumerRates, int bufferCapacity,
+			int currentBufferSize) {
+		return new LoadBalancerState(producerRates.stream().map(Rate::toWholeSeconds).toList(),
+				consumerRates.stream().map(Rate::toWholeSeconds).toList(), bufferCapacity, currentBufferSize,
+				producerRates.stream().map(Rate::intervalNanos).toList(),
+				consumerRates.stream().map(Rate::intervalNanos).toList());
+	}
+
+	/**
+	 * Creates a copy of this state without any consumers, for a load balancer
+	 * whose items are taken by something else, such as the first stage of a
+	 * Pipeline.
+	 *
+	 * @return a new state with the same producers and buffer, and no consumers
+	 */
+	public LoadBalancerState withoutConsumers() {
+		return ofRates(producerRates(), List.of(), bufferCapacity, currentBufferSize);
+	}
+
+	/**
+	 * Gets the rate of every producer, exact if this state has intervals and
+	 * from the whole-second delays otherwise.
+	 *
+	 * @return the producer rates
+	 */
+	public List<Rate> producerRates() {
+		return toRates(producerDelays, producerIntervalNanos);
+	}
+
+	/**
+	 * Gets the rate of every consumer, exact if this state has intervals and
+	 * from the whole-second delays otherwise.
+	 *
+	 * @return the consumer rates
+	 */
+	public List<Rate> consumerRates() {
+		return toRates(consumerDelays, consumerIntervalNanos);
+	}
+
+	private static List<Rate> toRates(List<Integer> delays, List<Long> intervalNanos) {
+		List<Rate> rates = new ArrayList<>(delays.size());
+		if (intervalNanos != null && intervalNanos.size() == delays.size()) {
+			intervalNanos.forEach(interval -> rates.add(new Rate(interval)));
+		} else {
+			delays.forEach(delay -> rates.add(Rate.everySeconds(delay)));
+		}
+		return rates;
+	}
 }
@@ -0,0 +1,197 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+import com.slutprojekt.JimmyKarlsson.model.interfaces.OccupancyListener;
+
+/**
+ * An allocation-free occupancy gauge for a Buffer. Producer and consumer
+ * threads only ever touch a single atomic counter, while subscribers are
+ * notified from a dedicated publisher thread that samples the counter at a
+ * fixed tick. A subscriber either asks for a sample at a regular interval or
+ * for a notification whenever occupancy has moved by at least a given
+ * threshold since it was last notified.
+ */
+public class OccupancyGauge {
+
+	/**
+	 * The default resolution at which the publisher thread samples the gauge.
+	 */
+	public static final Duration DEFAULT_TICK = Duration.ofMillis(10);
+
+	private final AtomicInteger occupancy = new AtomicInteger(); // Items currently held.
+	private final IntSupplier capacitySupplier; // Provides the current capacity of the owning buffer.
+	private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+	private final long tickNanos; // Interval between two publisher runs.
+	private ScheduledExecutorService publisher; // Started lazily on the first subscription.
+
+	/**
+	 * Constructs an OccupancyGauge sampled at the default tick.
+	 *
+	 * @param capacitySupplier provides the capacity reported to subscribers
+	 */
+	public OccupancyGauge(IntSupplier capacitySupplier) {
+		this(capacitySupplier, DEFAULT_TICK);
+	}
+
+	/**
+	 * Constructs an OccupancyGauge sampled at the given tick.
+	 *
+	 * @param capacitySupplier provides the capacity reported to subscribers
+	 * @param tick             how often the publisher thread samples the gauge
+	 */
+	public OccupancyGauge(IntSupplier capacitySupplier, Duration tick) {
+		this.capacitySupplier = capacitySupplier;
+		this.tickNanos = tick.toNanos();
+	}
+
+	// Hot-path update methods, called from producer and consumer threads
+
+	public void increment() {
+		occupancy.incrementAndGet();
+	}
+
+	public void decrement() {
+		occupancy.decrementAndGet();
+	}
+
+	public void add(int delta) {
+		occupancy.addAndGet(delta);
+	}
+
+	public void set(int value) {
+		occupancy.set(value);
+	}
+
+	/**
+	 * Gets the current occupancy. This may exceed the capacity, for example
+	 * after the buffer has been shrunk below the number of items it holds, and
+	 * callers that need a value within the capacity, such as a progress bar,
+	 * clamp it themselves. Because the counter is updated right after the item
+	 * has moved, a racing take can briefly push it below zero, so it is never
+	 * reported as less than 0.
+	 *
+	 * @return the current number of items
+	 */
+	public int get() {
+		return Math.max(0, occupancy.get());
+	}
+
+	// Subscription methods
+
+	/**
+	 * Subscribes a listener that is sent the current occupancy at a regular
+	 * interval, whether it changed or not. The interval is rounded up to the
+	 * publisher tick.
+	 *
+	 * @param listener the listener to notify
+	 * @param interval how often to notify the listener
+	 * @return a handle that can be used to cancel the subscription
+	 */
+	public Subscription subscribeSampled(OccupancyListener listener, Duration interval) {
+		return register(new Subscription(listener, interval.toNanos(), 0));
+	}
+
+	/**
+	 * Subscribes a listener that is notified whenever occupancy differs from the
+	 * value it was last sent by at least the given threshold. Changes are
+	 * detected at the publisher tick, so bursts shorter than one tick are
+	 * coalesced.
+	 *
+	 * @param listener  the listener to notify
+	 * @param threshold the minimum change, in items, that triggers a notification
+	 * @return a handle that can be used to cancel the subscription
+	 */
+	public Subscription subscribeOnChange(OccupancyListener listener, int threshold) {
+		if (threshold < 1) {
+			throw new IllegalArgumentException("Threshold must be at least 1.");
+		}
+		return register(new Subscription(listener, 0, threshold));
+	}
+
+	/**
+	 * Stops the publisher thread. Existing subscriptions receive no further
+	 * notifications.
+	 */
+	public synchronized void shutdown() {
+		if (publisher != null) {
+			publisher.shutdownNow();
+			publisher = null;
+		}
+	}
+
+	// Private helper methods
+
+	private synchronized Subscription register(Subscription subscription) {
+		subscriptions.add(subscription);
+		if (publisher == null) {
+			publisher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "occupancy-publisher");
+				thread.setDaemon(true); // Never keep the application alive.
+				return thread;
+			});
+			publisher.scheduleAtFixedRate(this::publish, 0, tickNanos, TimeUnit.NANOSECONDS);
+		}
+		return subscription;
+	}
+
+	// Runs on the publisher thread only.
+	private void publish() {
+		int size = get();
+		int capacity = capacitySupplier.getAsInt();
+		long now = System.nanoTime();
+		for (Subscription subscription : subscriptions) {
+			try {
+				subscription.publish(size, capacity, now);
+			} catch (RuntimeException e) {
+				// A failing listener must not stop the publisher for everyone else.
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * A handle for a single subscription to an OccupancyGauge.
+	 */
+	public final class Subscription {
+		private final OccupancyListener listener;
+		private final long intervalNanos; // Non-zero for sampled subscriptions.
+		private final int threshold; // Non-zero for change-threshold subscriptions.
+		private long nextDue = Long.MIN_VALUE; // Publisher-thread only.
+		private int lastSize = Integer.MIN_VALUE; // Publisher-thread only.
+
+		private Subscription(OccupancyListener listener, long intervalNanos, int threshold) {
+			this.listener = listener;
+			this.intervalNanos = intervalNanos;
+			this.threshold = threshold;
+		}
+
+		private void publish(int size, int capacity, long now) {
+			if (intervalNanos > 0) {
+				if (nextDue != Long.MIN_VALUE && now - nextDue < 0) {
+					return;
+				}
+				nextDue = now + intervalNanos;
+			} else if (lastSize != Integer.MIN_VALUE && Math.abs(size - lastSize) < threshold) {
+				return;
+			}
+			lastSize = size;
+			listener.occupancyChanged(size, capacity);
+		}
+
+		/**
+		 * Cancels this subscription. The listener may still receive one
+		 * notification that was already in progress.
+		 */
+		public void cancel() {
+			subscriptions.remove(this);
+		}
+	}
+}
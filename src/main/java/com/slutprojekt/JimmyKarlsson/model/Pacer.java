@@ -0,0 +1,75 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadline-based pacing for producers and consumers. Each wait advances a
+ * deadline by a whole number of intervals and sleeps until it is reached, so
+ * time spent blocked in the buffer or oversleeping is absorbed instead of
+ * adding up. After a long stall the deadline is pulled forward so that at
+ * most {@link #MAX_LAG_NANOS} worth of missed items are caught up in a burst.
+ */
+public final class Pacer {
+
+	/**
+	 * How far the deadline may trail the clock before missed items are
+	 * forgotten.
+	 */
+	public static final long MAX_LAG_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final long intervalNanos;
+	private long deadline;
+
+	Pacer(Rate rate) {
+		this.intervalNanos = rate.intervalNanos();
+	}
+
+	/**
+	 * Starts the schedule at the current time.
+	 */
+	void start() {
+		deadline = System.nanoTime();
+	}
+
+	/**
+	 * Waits until the given number of items' worth of intervals have passed
+	 * since the previous deadline.
+	 *
+	 * @param items the number of items handled since the previous call
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	void awaitNext(int items) throws InterruptedException {
+		long now = System.nanoTime();
+		deadline = Math.max(deadline + intervalNanos * items, now - MAX_LAG_NANOS);
+		long remaining;
+		while ((remaining = deadline - now) > 0) {
+			TimeUnit.NANOSECONDS.sleep(remaining);
+			now = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Waits like {@link #awaitNext(int)}, but returns early once the given time
+	 * has come, if that is before the deadline. Waiting for zero more items
+	 * afterwards finishes the wait for the same deadline.
+	 *
+	 * @param items         the number of items handled since the previous call
+	 * @param notAfterNanos the System.nanoTime() at which to return at the latest
+	 * @return true if the deadline was reached, false if returned early
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	boolean awaitNext(int items, long notAfterNanos) throws InterruptedException {
+		long now = System.nanoTime();
+		deadline = Math.max(deadline + intervalNanos * items, now - MAX_LAG_NANOS);
+		long remaining;
+		while ((remaining = deadline - now) > 0) {
+			long untilLimit = notAfterNanos - now;
+			if (untilLimit <= 0) {
+				return false;
+			}
+			TimeUnit.NANOSECONDS.sleep(Math.min(remaining, untilLimit));
+			now = System.nanoTime();
+		}
+		return true;
+	}
+}
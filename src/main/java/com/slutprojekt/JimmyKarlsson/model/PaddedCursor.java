@@ -0,0 +1,39 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * A monotonically increasing sequence counter padded on both sides so that it
+ * occupies its own cache line. Used for the head and tail cursors of the ring
+ * buffer, where producers and consumers would otherwise invalidate each
+ * other's cache lines on every operation (false sharing).
+ */
+final class PaddedCursor extends CursorValue {
+	// Right-hand padding; the fields are never read.
+	long p11, p12, p13, p14, p15, p16, p17;
+
+	PaddedCursor(long initialValue) {
+		this.value = initialValue;
+	}
+}
+
+// Left-hand padding. Superclass fields are laid out before subclass fields,
+// which the JVM is not allowed to reorder across the class hierarchy.
+abstract class CursorLhsPadding {
+	long p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class CursorValue extends CursorLhsPadding {
+	private static final AtomicLongFieldUpdater<CursorValue> VALUE = AtomicLongFieldUpdater
+			.newUpdater(CursorValue.class, "value");
+
+	protected volatile long value;
+
+	long get() {
+		return value;
+	}
+
+	boolean compareAndSet(long expected, long newValue) {
+		return VALUE.compareAndSet(this, expected, newValue);
+	}
+}
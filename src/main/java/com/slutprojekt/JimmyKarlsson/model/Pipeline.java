@@ -0,0 +1,138 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import com.slutprojekt.JimmyKarlsson.model.metrics.StageMetrics;
+
+/**
+ * A chain of stages, such as ingest, transform and persist, each with its own
+ * buffer, worker pool and processing function. Items enter through the buffer
+ * of the first stage and leave after the last one, being released to the item
+ * pool.
+ *
+ * All buffers are bounded and workers wait for room in the next stage, so
+ * backpressure travels all the way up: when a stage falls behind, the stages
+ * before it fill up and stall one by one, until whoever feeds the pipeline
+ * waits as well. To feed it from producers, chain a LoadBalancer in front of
+ * it with {@link #createIngest()}, and leave that load balancer's own
+ * consumers uninitialized.
+ */
+public class Pipeline {
+
+	private final List<Stage> stages;
+	private final ExecutionMode executionMode;
+	private final ItemPool itemPool; // Where items go once they leave the last stage.
+	private ExecutorService executor; // Runs every worker; null until started.
+
+	/**
+	 * Constructs a pipeline whose workers run on platform threads and whose
+	 * items are not recycled.
+	 *
+	 * @param stages the settings of every stage, in the order items pass them
+	 */
+	public Pipeline(List<StageSettings> stages) {
+		this(stages, ExecutionMode.PLATFORM_THREADS, ItemPool.unpooled());
+	}
+
+	/**
+	 * Constructs a pipeline.
+	 *
+	 * @param stages        the settings of every stage, in the order items pass
+	 *                      them
+	 * @param executionMode whether workers run on platform or virtual threads;
+	 *                      workers block on the buffers, so the timing wheel is
+	 *                      not supported
+	 * @param itemPool      where items are released once they leave the last
+	 *                      stage, or are dropped or failed by a processor
+	 */
+	public Pipeline(List<StageSettings> stages, ExecutionMode executionMode, ItemPool itemPool) {
+		if (stages.isEmpty()) {
+			throw new IllegalArgumentException("A pipeline needs at least one stage.");
+		}
+		if (executionMode == ExecutionMode.TIMING_WHEEL) {
+			throw new IllegalArgumentException("Pipeline workers block, so they cannot run on a timing wheel.");
+		}
+		List<Stage> created = new ArrayList<>(stages.size());
+		for (StageSettings settings : stages) {
+			created.add(new Stage(settings));
+		}
+		this.stages = Collections.unmodifiableList(created);
+		this.executionMode = executionMode;
+		this.itemPool = itemPool;
+	}
+
+	/**
+	 * Starts the workers of every stage. Does nothing if already started.
+	 */
+	public synchronized void start() {
+		if (executor != null) {
+			return;
+		}
+		executor = executionMode.createExecutor();
+		for (int i = 0; i < stages.size(); i++) {
+			Stage stage = stages.get(i);
+			Stage next = i + 1 < stages.size() ? stages.get(i + 1) : null;
+			stage.markStarted();
+			for (int worker = 0; worker < stage.getWorkers(); worker++) {
+				executor.execute(stage.worker(next, itemPool));
+			}
+		}
+	}
+
+	/**
+	 * Stops every worker, interrupting those waiting on a buffer. Items still
+	 * in the buffers stay there, and so does an item a worker was processing or
+	 * handing on, if the buffer it belongs in has room; otherwise it is released
+	 * to the item pool.
+	 */
+	public synchronized void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+		}
+	}
+
+	/**
+	 * Creates a load balancer whose producers put items into the first stage,
+	 * running in the same execution mode as the pipeline. Its consumers must not
+	 * be initialized, as the first stage's workers take their place. Its
+	 * producers draw items from the pipeline's item pool, which the last stage
+	 * releases them to.
+	 *
+	 * @return the new load balancer
+	 */
+	public LoadBalancer createIngest() {
+		return new LoadBalancer(getInput(), executionMode, itemPool);
+	}
+
+	/**
+	 * Takes a snapshot of the metrics of every stage.
+	 *
+	 * @return the metrics per stage, in stage order
+	 */
+	public List<StageMetrics> getMetrics() {
+		List<StageMetrics> metrics = new ArrayList<>(stages.size());
+		for (Stage stage : stages) {
+			metrics.add(stage.getMetrics());
+		}
+		return metrics;
+	}
+
+	// Accessor methods
+
+	// The buffer of the first stage, where items enter the pipeline.
+	public Buffer getInput() {
+		return stages.get(0).getBuffer();
+	}
+
+	public List<Stage> getStages() {
+		return stages;
+	}
+
+	public ExecutionMode getExecutionMode() {
+		return executionMode;
+	}
+}
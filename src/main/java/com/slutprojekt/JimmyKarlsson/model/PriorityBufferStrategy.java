@@ -0,0 +1,329 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntFunction;
+
+import com.slutprojekt.JimmyKarlsson.model.interfaces.BufferStrategy;
+
+/**
+ * A BufferStrategy with one queue per priority class. Producers only wait for
+ * space in the queue of their item's class, so a burst of bulk items cannot
+ * crowd out interactive ones. Consumers take items by deficit round robin:
+ * the queues are visited in turn and each visit may take up to the class's
+ * weight in items, so while several classes have items waiting they are served
+ * in proportion to their weights, and a class with nothing waiting does not
+ * save up its turns. Items are kept in order within a class.
+ *
+ * Like the default strategy, all operations go through a single lock, which is
+ * cheap next to the scheduling decision it protects.
+ */
+public class PriorityBufferStrategy implements BufferStrategy {
+
+	private final PriorityClass[] classes;
+	private final ArrayDeque<Item>[] queues; // One per class, sized up front so offers never allocate.
+	private final int[] deficits; // Items each class may still take during its current visit.
+	private final int capacity; // Total over all classes.
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition[] notFull; // One per class.
+	private int size;
+	private int cursor; // The class currently being visited.
+
+	/**
+	 * Constructs a PriorityBufferStrategy with the given classes.
+	 *
+	 * @param classes the priority classes, indexed by Item.getPriorityClass()
+	 */
+	@SuppressWarnings("unchecked")
+	public PriorityBufferStrategy(List<PriorityClass> classes) {
+		if (classes.isEmpty()) {
+			throw new IllegalArgumentException("At least one priority class is required.");
+		}
+		this.classes = classes.toArray(new PriorityClass[0]);
+		this.queues = new ArrayDeque[this.classes.length];
+		this.deficits = new int[this.classes.length];
+		this.notFull = new Condition[this.classes.length];
+		int total = 0;
+		for (int i = 0; i < this.classes.length; i++) {
+			queues[i] = new ArrayDeque<>(this.classes[i].capacity());
+			notFull[i] = lock.newCondition();
+			total += this.classes[i].capacity();
+		}
+		this.capacity = total;
+		this.cursor = this.classes.length - 1; // So the first visit goes to the first class.
+	}
+
+	/**
+	 * Creates a strategy factory for a Buffer. When the buffer asks for a
+	 * different total capacity, for example on a resize, the class capacities
+	 * are scaled to it in proportion, keeping at least one slot per class.
+	 * Asking for fewer slots than there are classes throws an
+	 * IllegalArgumentException.
+	 *
+	 * @param classes the priority classes, indexed by Item.getPriorityClass()
+	 * @return a factory creating strategies of the requested total capacity
+	 */
+	public static IntFunction<BufferStrategy> factory(List<PriorityClass> classes) {
+		List<PriorityClass> copy = List.copyOf(classes);
+		return capacity -> new PriorityBufferStrategy(scaledTo(copy, capacity));
+	}
+
+	@Override
+	public void put(Item item) throws InterruptedException {
+		int index = classIndex(item);
+		lock.lockInterruptibly();
+		try {
+			while (queues[index].size() == classes[index].capacity()) {
+				notFull[index].await();
+			}
+			enqueue(index, item);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Item take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (size == 0) {
+				notEmpty.await();
+			}
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean offer(Item item) {
+		int index = classIndex(item);
+		lock.lock();
+		try {
+			if (queues[index].size() == classes[index].capacity()) {
+				return false;
+			}
+			enqueue(index, item);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int offerAll(List<Item> items, int from) {
+		lock.lock();
+		try {
+			int added = 0;
+			for (int i = from; i < items.size(); i++) {
+				Item item = items.get(i);
+				int index = classIndex(item);
+				if (queues[index].size() == classes[index].capacity()) {
+					break; // Later items wait too, so they stay in order.
+				}
+				enqueue(index, item);
+				added++;
+			}
+			return added;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Item poll() {
+		lock.lock();
+		try {
+			return size == 0 ? null : dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Item poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long remaining = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (size == 0) {
+				if (remaining <= 0) {
+					return null;
+				}
+				remaining = notEmpty.awaitNanos(remaining);
+			}
+			return dequeue();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super Item> target, int maxItems) {
+		lock.lock();
+		try {
+			int drained = 0;
+			while (drained < maxItems && size > 0) {
+				target.add(dequeue()); // Same order as repeated takes.
+				drained++;
+			}
+			return drained;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of items of one class.
+	 *
+	 * @param priorityClass the index of the class
+	 * @return the number of items of that class
+	 */
+	public int size(int priorityClass) {
+		lock.lock();
+		try {
+			return queues[priorityClass].size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * Gets the capacity of one class.
+	 *
+	 * @param priorityClass the index of the class
+	 * @return the capacity of that class
+	 */
+	public int capacity(int priorityClass) {
+		return classes[priorityClass].capacity();
+	}
+
+	@Override
+	public void clear() {
+		lock.lock();
+		try {
+			for (int i = 0; i < queues.length; i++) {
+				queues[i].clear();
+				deficits[i] = 0;
+				notFull[i].signalAll();
+			}
+			size = 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Maps an item to the index of its class. Classes beyond the configured ones
+	 * fall into the last class, the lowest priority by convention.
+	 *
+	 * @param item       the item
+	 * @param classCount the number of configured classes
+	 * @return the index of the class the item is queued in
+	 */
+	static int classIndex(Item item, int classCount) {
+		return Math.min(Math.max(item.getPriorityClass(), 0), classCount - 1);
+	}
+
+	// Private helper methods
+
+	private int classIndex(Item item) {
+		return classIndex(item, classes.length);
+	}
+
+	// Must hold the lock.
+	private void enqueue(int index, Item item) {
+		queues[index].addLast(item);
+		size++;
+		notEmpty.signal();
+	}
+
+	// Deficit round robin with a cost of one per item. Must hold the lock, and
+	// there must be at least one item.
+	private Item dequeue() {
+		while (deficits[cursor] == 0 || queues[cursor].isEmpty()) {
+			if (queues[cursor].isEmpty()) {
+				deficits[cursor] = 0; // An idle class does not save up its turns.
+			}
+			cursor = (cursor + 1) % queues.length;
+			if (!queues[cursor].isEmpty()) {
+				deficits[cursor] += classes[cursor].weight();
+			}
+		}
+		deficits[cursor]--;
+		Item item = queues[cursor].pollFirst();
+		size--;
+		notFull[cursor].signal();
+		return item;
+	}
+
+	// Splits a total capacity over the classes in proportion to their own
+	// capacities, by largest remainder so that the parts add up exactly. A class
+	// left without a slot gets one from the largest class.
+	private static List<PriorityClass> scaledTo(List<PriorityClass> classes, int total) {
+		if (total < classes.size()) {
+			throw new IllegalArgumentException(
+					"Capacity must be at least the number of priority classes, " + classes.size() + ".");
+		}
+		long configured = classes.stream().mapToLong(PriorityClass::capacity).sum();
+		if (configured == total) {
+			return classes;
+		}
+		int[] capacities = new int[classes.size()];
+		double[] remainders = new double[classes.size()];
+		int assigned = 0;
+		for (int i = 0; i < capacities.length; i++) {
+			double exact = (double) classes.get(i).capacity() * total / configured;
+			capacities[i] = (int) exact;
+			remainders[i] = exact - capacities[i];
+			assigned += capacities[i];
+		}
+		for (; assigned < total; assigned++) {
+			int largest = 0;
+			for (int i = 1; i < remainders.length; i++) {
+				if (remainders[i] > remainders[largest]) {
+					largest = i;
+				}
+			}
+			capacities[largest]++;
+			remainders[largest] = -1;
+		}
+		for (int i = 0; i < capacities.length; i++) {
+			if (capacities[i] == 0) {
+				int largest = 0;
+				for (int j = 1; j < capacities.length; j++) {
+					if (capacities[j] > capacities[largest]) {
+						largest = j;
+					}
+				}
+				capacities[largest]--; // At least two, as there are enough slots to go round.
+				capacities[i] = 1;
+			}
+		}
+		PriorityClass[] scaled = new PriorityClass[capacities.length];
+		for (int i = 0; i < scaled.length; i++) {
+			PriorityClass original = classes.get(i);
+			scaled[i] = new PriorityClass(original.name(), original.weight(), capacities[i]);
+		}
+		return List.of(scaled);
+	}
+}
@@ -0,0 +1,26 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.Objects;
+
+/**
+ * Immutable record describing one priority class of a priority buffer. Every
+ * class has its own queue holding at most capacity items, and when several
+ * classes have items waiting, consumers take them in proportion to their
+ * weights. Items pick their class by index, in the order the classes are given
+ * to the buffer.
+ */
+public record PriorityClass(String name, // Name used in reports.
+		int weight, // Share of the takes while several classes have items waiting.
+		int capacity // Maximum number of items of this class in the buffer at once.
+) {
+
+	public PriorityClass {
+		Objects.requireNonNull(name);
+		if (weight < 1) {
+			throw new IllegalArgumentException("Weight must be at least 1.");
+		}
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1.");
+		}
+	}
+}
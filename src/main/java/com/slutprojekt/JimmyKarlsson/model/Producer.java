@@ -1,6 +1,8 @@
 package com.slutprojekt.JimmyKarlsson.model;
 
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * The Producer class is responsible for producing items and putting them into a
@@ -11,9 +13,14 @@ import java.util.concurrent.TimeUnit;
 public class Producer implements Runnable {
 
 	private final Buffer buffer; // Shared buffer into which items are placed.
-	private final int delayInSeconds; // Time delay in seconds between producing items.
+	private final Rate rate; // How often this producer produces an item.
 	private final Item item; // Template item that this producer will produce and place into the buffer.
+	private final BatchSettings batchSettings; // How produced items are grouped before being put.
+	private final ItemPool itemPool; // Source of recycled items.
 	private volatile boolean shutdown = false; // Flag to signal the producer to stop running.
+	private final LongAdder itemsProduced = new LongAdder(); // Items this producer has put into the buffer.
+	private volatile long startedAtNanos; // When run() was entered, for rate calculations.
+	private Item pendingItem; // Produced but not yet accepted by the buffer, when driven by an ActorScheduler.
 
 	/**
 	 * Constructs a new Producer that will produce items and place them into the
@@ -25,9 +32,40 @@ public class Producer implements Runnable {
 	 * @param item           The template of the item to be produced.
 	 */
 	public Producer(int delayInSeconds, Buffer buffer, Item item) {
+		this(Rate.everySeconds(delayInSeconds), buffer, item, BatchSettings.NONE, ItemPool.unpooled());
+	}
+
+	/**
+	 * Constructs a new Producer that collects produced items into batches and
+	 * places each batch into the specified buffer in one operation.
+	 *
+	 * @param delayInSeconds The delay in seconds between producing each item.
+	 * @param buffer         The shared buffer into which produced items will be
+	 *                       placed.
+	 * @param item           The template of the item to be produced.
+	 * @param batchSettings  The batch size and linger time to use.
+	 */
+	public Producer(int delayInSeconds, Buffer buffer, Item item, BatchSettings batchSettings) {
+		this(Rate.everySeconds(delayInSeconds), buffer, item, batchSettings, ItemPool.unpooled());
+	}
+
+	/**
+	 * Constructs a new Producer that produces items at the given rate, taking
+	 * them from a pool instead of allocating them.
+	 *
+	 * @param rate          How often to produce an item.
+	 * @param buffer        The shared buffer into which produced items will be
+	 *                      placed.
+	 * @param item          The template of the item to be produced.
+	 * @param batchSettings The batch size and linger time to use.
+	 * @param itemPool      The pool to acquire items from.
+	 */
+	public Producer(Rate rate, Buffer buffer, Item item, BatchSettings batchSettings, ItemPool itemPool) {
 		this.buffer = buffer;
-		this.delayInSeconds = delayInSeconds;
+		this.rate = rate;
 		this.item = item;
+		this.batchSettings = batchSettings;
+		this.itemPool = itemPool;
 	}
 
 	/**
@@ -40,15 +78,24 @@ public class Producer implements Runnable {
 
 	/**
 	 * The main running method for the Producer thread. Continuously produces items
-	 * and places them into the buffer at a specified delay interval until the
-	 * shutdown signal is received.
+	 * and places them into the buffer at the specified rate until the shutdown
+	 * signal is received. Time spent blocked in put counts towards the interval,
+	 * so the rate does not drift.
 	 */
 	@Override
 	public void run() {
+		startedAtNanos = System.nanoTime();
+		Pacer pacer = new Pacer(rate);
+		pacer.start();
+		if (batchSettings.isBatching()) {
+			runBatched(pacer);
+			return;
+		}
 		while (!shutdown) {
 			try {
-				buffer.put(item); // Add a new item to the buffer.
-				TimeUnit.SECONDS.sleep(delayInSeconds); // Pause the thread for the delay period.
+				buffer.put(produceItem()); // Add a new item to the buffer.
+				itemsProduced.increment();
+				pacer.awaitNext(1); // Wait for the next deadline.
 			} catch (InterruptedException e) {
 				Thread.currentThread().interrupt(); // Ensures the thread maintains its interrupted status.
 				handleInterruptedException(e); // Custom handler for the interruption.
@@ -56,6 +103,93 @@ public class Producer implements Runnable {
 		}
 	}
 
+	/**
+	 * Marks the producer as started when it is driven by an ActorScheduler
+	 * instead of running on its own thread.
+	 */
+	void markStarted() {
+		startedAtNanos = System.nanoTime();
+	}
+
+	/**
+	 * Performs a single production attempt without blocking, for an
+	 * ActorScheduler. An item the buffer has no room for is kept and offered
+	 * again on the next attempt.
+	 *
+	 * @return true if an item was put into the buffer, false if it was full
+	 */
+	boolean tryProduce() {
+		if (pendingItem == null) {
+			pendingItem = produceItem();
+		}
+		if (!buffer.offer(pendingItem)) {
+			return false;
+		}
+		pendingItem = null;
+		itemsProduced.increment();
+		return true;
+	}
+
+	/**
+	 * Batch-mode variant of the main loop. Items are still produced one per
+	 * interval, but they are collected locally and put into the buffer together
+	 * once the batch is full or has lingered long enough, even if that is
+	 * before the next item is due. Items still pending when the producer is
+	 * shut down are put into the buffer if it has room right away, and
+	 * returned to the pool otherwise.
+	 */
+	private void runBatched(Pacer pacer) {
+		List<Item> batch = new ArrayList<>(batchSettings.batchSize());
+		long lingerNanos = batchSettings.linger().toNanos();
+		long batchStarted = 0;
+		while (!shutdown) {
+			try {
+				if (batch.isEmpty()) {
+					batchStarted = System.nanoTime();
+				}
+				batch.add(produceItem()); // Produce a new item into the pending batch.
+				if (batch.size() >= batchSettings.batchSize() || System.nanoTime() - batchStarted >= lingerNanos) {
+					putBatch(batch);
+				}
+				if (batch.isEmpty()) {
+					pacer.awaitNext(1); // Wait for the next deadline.
+				} else if (!pacer.awaitNext(1, batchStarted + lingerNanos)) {
+					putBatch(batch); // Lingered long enough before the next item was due.
+					pacer.awaitNext(0);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt(); // Ensures the thread maintains its interrupted status.
+				handleInterruptedException(e); // Custom handler for the interruption.
+			}
+		}
+		for (Item pending : batch) {
+			if (buffer.offer(pending)) {
+				itemsProduced.increment();
+			} else {
+				itemPool.release(pending);
+			}
+		}
+	}
+
+	// Hands the batch over at once. Whatever an interrupt kept out of the
+	// buffer stays in the batch, so it is neither lost nor put twice.
+	private void putBatch(List<Item> batch) throws InterruptedException {
+		int added = buffer.putAll(batch);
+		itemsProduced.add(added);
+		batch.subList(0, added).clear();
+	}
+
+	/**
+	 * Produces an item carrying the template's payload and priority class. Every
+	 * put gets its own instance, acquired from the pool, so that ids and
+	 * timestamps are not shared between items in the buffer.
+	 *
+	 * @return a freshly initialized item
+	 */
+	private Item produceItem() {
+		return itemPool.acquire(item.getPayload(), item.getPriorityClass());
+	}
+
 	/**
 	 * Handles what should occur when an InterruptedException is thrown during the
 	 * producer's operation.
@@ -73,10 +207,37 @@ public class Producer implements Runnable {
 	}
 
 	public int getDelay() {
-		return delayInSeconds;
+		return rate.toWholeSeconds();
+	}
+
+	public Rate getRate() {
+		return rate;
+	}
+
+	public boolean isShutdown() {
+		return shutdown;
 	}
 
 	public Item getItem() {
 		return item;
 	}
+
+	public BatchSettings getBatchSettings() {
+		return batchSettings;
+	}
+
+	public long getItemsProduced() {
+		return itemsProduced.sum();
+	}
+
+	/**
+	 * Gets the average production rate since this producer started running.
+	 *
+	 * @return items per second, or 0 if the producer has not started yet
+	 */
+	public double getRatePerSecond() {
+		long started = startedAtNanos;
+		long elapsed = System.nanoTime() - started;
+		return started == 0 || elapsed <= 0 ? 0.0 : itemsProduced.sum() * 1e9 / elapsed;
+	}
 }
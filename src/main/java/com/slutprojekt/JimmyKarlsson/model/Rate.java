@@ -0,0 +1,82 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Immutable record describing how often a producer or consumer handles an
+ * item, with nanosecond resolution. It can be given as an interval or as a
+ * number of items per second; an interval of zero means as fast as the buffer
+ * allows.
+ */
+public record Rate(long intervalNanos // Time in nanoseconds between two items.
+) {
+
+	public Rate {
+		if (intervalNanos < 0) {
+			throw new IllegalArgumentException("Interval cannot be negative.");
+		}
+	}
+
+	/**
+	 * Creates a rate of the given number of items per second.
+	 *
+	 * @param itemsPerSecond the target throughput, must be positive
+	 * @return a new rate
+	 */
+	public static Rate perSecond(double itemsPerSecond) {
+		if (!(itemsPerSecond > 0) || Double.isInfinite(itemsPerSecond)) {
+			throw new IllegalArgumentException("Items per second must be positive.");
+		}
+		return new Rate(Math.round(TimeUnit.SECONDS.toNanos(1) / itemsPerSecond));
+	}
+
+	/**
+	 * Creates a rate of one item per the given interval.
+	 *
+	 * @param interval the time between two items
+	 * @return a new rate
+	 */
+	public static Rate every(Duration interval) {
+		return new Rate(interval.toNanos());
+	}
+
+	/**
+	 * Creates a rate of one item per the given number of seconds, the unit the
+	 * GUI and saved states use.
+	 *
+	 * @param seconds the delay in seconds between two items
+	 * @return a new rate
+	 */
+	public static Rate everySeconds(int seconds) {
+		return new Rate(TimeUnit.SECONDS.toNanos(seconds));
+	}
+
+	public Duration interval() {
+		return Duration.ofNanos(intervalNanos);
+	}
+
+	/**
+	 * Gets the target throughput of this rate.
+	 *
+	 * @return items per second, or positive infinity for a zero interval
+	 */
+	public double itemsPerSecond() {
+		return intervalNanos == 0 ? Double.POSITIVE_INFINITY : (double) TimeUnit.SECONDS.toNanos(1) / intervalNanos;
+	}
+
+	/**
+	 * Gets the interval rounded to whole seconds, for places that only know
+	 * about second delays. Sub-second intervals round up to one second so
+	 * they never turn into an unthrottled zero delay.
+	 *
+	 * @return the interval in whole seconds
+	 */
+	public int toWholeSeconds() {
+		if (intervalNanos == 0) {
+			return 0;
+		}
+		long seconds = Math.round((double) intervalNanos / TimeUnit.SECONDS.toNanos(1));
+		return (int) Math.min(Integer.MAX_VALUE, Math.max(1, seconds));
+	}
+}
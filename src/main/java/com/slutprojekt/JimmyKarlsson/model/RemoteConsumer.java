@@ -0,0 +1,233 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Consumes items from a Buffer served by a BufferServer in another process,
+ * typically on another node. Items arrive in batches, never more than the
+ * window at a time, and are acknowledged in batches too: an item counts as
+ * processed once the consumer comes back for more after taking a whole frame,
+ * or after taking half the window.
+ *
+ * Either call {@link #take()} from a single thread and {@link #close()} when
+ * done, or run the consumer on a thread of its own, which passes every item to
+ * a handler until shut down.
+ * Run {@link #main(String[])} to consume from another JVM.
+ */
+public class RemoteConsumer implements Runnable, AutoCloseable {
+
+	/** Items in flight by default, enough to cover a round trip at high rates. */
+	public static final int DEFAULT_WINDOW = 1024;
+
+	private final SocketChannel channel;
+	private final int window;
+	private final java.util.function.Consumer<Item> handler; // For run(), may be null.
+	private final ByteBuffer input = ByteBuffer.allocateDirect(RemoteProtocol.LENGTH_BYTES
+			+ RemoteProtocol.MAX_FRAME_BYTES).limit(0);
+	private final ByteBuffer output = ByteBuffer.allocate(RemoteProtocol.HELLO_BYTES + RemoteProtocol.LENGTH_BYTES);
+	private int frameItemsLeft; // Items of the current frame not yet taken.
+	private int unacknowledged; // Items taken but not yet acknowledged.
+	private final LongAdder itemsConsumed = new LongAdder();
+	private volatile long startedAtNanos;
+	private volatile boolean shutdown;
+
+	/**
+	 * Connects to a server with the default window, to consume with
+	 * {@link #take()}.
+	 *
+	 * @param server the address of the BufferServer
+	 * @throws IOException if the connection fails
+	 */
+	public RemoteConsumer(InetSocketAddress server) throws IOException {
+		this(server, DEFAULT_WINDOW, null);
+	}
+
+	/**
+	 * Connects to a server.
+	 *
+	 * @param server  the address of the BufferServer
+	 * @param window  the most items in flight at once
+	 * @param handler processes every item when the consumer is run, or null to
+	 *                consume with {@link #take()} only
+	 * @throws IOException if the connection fails
+	 */
+	public RemoteConsumer(InetSocketAddress server, int window, java.util.function.Consumer<Item> handler)
+			throws IOException {
+		if (window < 1 || window > RemoteProtocol.MAX_WINDOW) {
+			throw new IllegalArgumentException("Window must be between 1 and " + RemoteProtocol.MAX_WINDOW + ".");
+		}
+		this.window = window;
+		this.handler = handler;
+		this.channel = SocketChannel.open(server);
+		try {
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			output.clear();
+			RemoteProtocol.putHello(output, window);
+			write();
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		startedAtNanos = System.nanoTime();
+	}
+
+	/**
+	 * Takes the next item, waiting for one to arrive. Items taken by earlier
+	 * calls count as processed and are acknowledged once the frame they came in
+	 * has been taken in full, or once half the window has been taken, whichever
+	 * comes first. The item returned is never acknowledged before the next call.
+	 *
+	 * @return the item
+	 * @throws IOException if the connection fails or is closed
+	 */
+	public Item take() throws IOException {
+		if (unacknowledged >= Math.max(1, window / 2)) {
+			acknowledge(); // Keep the server sending while a long frame is taken.
+		}
+		while (frameItemsLeft == 0) {
+			acknowledge(); // Everything taken so far, before waiting for more.
+			readFrame();
+		}
+		Item item = RemoteProtocol.getItem(input);
+		frameItemsLeft--;
+		unacknowledged++;
+		itemsConsumed.increment();
+		return item;
+	}
+
+	/**
+	 * Passes every item to the handler until shut down or disconnected.
+	 */
+	@Override
+	public void run() {
+		try {
+			while (!shutdown) {
+				handler.accept(take());
+			}
+		} catch (IOException e) {
+			if (!shutdown) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Stops consuming and closes the connection, from any thread. Items taken
+	 * but not yet acknowledged are handed to another consumer by the server.
+	 */
+	public void shutdown() {
+		shutdown = true;
+		try {
+			channel.close();
+		} catch (IOException e) {
+			// Closing anyway.
+		}
+	}
+
+	/**
+	 * Acknowledges every item taken so far and closes the connection. Call it
+	 * from the thread that takes items; use {@link #shutdown()} otherwise.
+	 */
+	@Override
+	public void close() {
+		try {
+			if (channel.isOpen()) {
+				acknowledge();
+			}
+		} catch (IOException e) {
+			// The server puts them back instead.
+		}
+		shutdown();
+	}
+
+	// Accessor methods
+
+	public int getWindow() {
+		return window;
+	}
+
+	public long getItemsConsumed() {
+		return itemsConsumed.sum();
+	}
+
+	/**
+	 * Gets the average consumption rate since the consumer connected.
+	 *
+	 * @return items per second
+	 */
+	public double getRatePerSecond() {
+		long elapsed = System.nanoTime() - startedAtNanos;
+		return elapsed <= 0 ? 0.0 : itemsConsumed.sum() * 1e9 / elapsed;
+	}
+
+	// Private helper methods
+
+	private void acknowledge() throws IOException {
+		if (unacknowledged > 0) {
+			output.clear();
+			RemoteProtocol.putCredit(output, unacknowledged);
+			write();
+			unacknowledged = 0;
+		}
+	}
+
+	private void write() throws IOException {
+		output.flip();
+		while (output.hasRemaining()) {
+			channel.write(output);
+		}
+	}
+
+	// Reads until a whole ITEMS frame is at the start of the input, and moves
+	// past its header.
+	private void readFrame() throws IOException {
+		int length;
+		while ((length = RemoteProtocol.completeFrameLength(input)) < 0) {
+			input.compact();
+			int read = channel.read(input);
+			input.flip();
+			if (read < 0) {
+				throw new EOFException("Server closed the connection");
+			}
+		}
+		input.getInt(); // The length.
+		if (length < RemoteProtocol.ITEMS_HEADER_BYTES || input.get() != RemoteProtocol.ITEMS) {
+			throw new IOException("Unexpected frame from server");
+		}
+		frameItemsLeft = input.getInt();
+		if (frameItemsLeft < 1 || frameItemsLeft > RemoteProtocol.MAX_BATCH) {
+			throw new IOException("Bad item count " + frameItemsLeft);
+		}
+	}
+
+	/**
+	 * Consumes from a BufferServer for a while and prints the number of items
+	 * consumed and the rate, for running consumers in other JVMs.
+	 *
+	 * @param args host, port, seconds to run, and optionally the window
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 3) {
+			System.err.println("Usage: RemoteConsumer host port seconds [window]");
+			System.exit(2);
+		}
+		InetSocketAddress server = new InetSocketAddress(args[0], Integer.parseInt(args[1]));
+		int window = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_WINDOW;
+		RemoteConsumer consumer = new RemoteConsumer(server, window, item -> {
+			// Taking the item is all the work there is.
+		});
+		Thread thread = new Thread(consumer, "remote-consumer");
+		thread.start();
+		thread.join(Long.parseLong(args[2]) * 1000);
+		consumer.shutdown();
+		thread.join();
+		System.out.printf("consumed %d items, %.0f items/s%n", consumer.getItemsConsumed(),
+				consumer.getRatePerSecond());
+	}
+}
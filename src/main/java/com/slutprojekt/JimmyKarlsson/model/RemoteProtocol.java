@@ -0,0 +1,118 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * The wire format between a BufferServer and its RemoteConsumers. Every frame
+ * is an int length, counting the bytes after it, followed by a type byte and
+ * the body:
+ *
+ * <pre>
+ * HELLO   consumer to server  int magic, byte version, int window
+ * CREDIT  consumer to server  int count
+ * ITEMS   server to consumer  int count, then per item: varint id,
+ *                             varint timestamp, zigzag varint payload,
+ *                             varint priority class
+ * </pre>
+ *
+ * Flow control is credit based. A consumer opens with a window, the number of
+ * items it is willing to have in flight, and the server never sends more than
+ * that until the consumer returns credit. Every credit both acknowledges the
+ * oldest item in flight as processed and allows one more to be sent, so items
+ * sent to a consumer that disconnects before acknowledging them can be handed
+ * to another consumer.
+ */
+final class RemoteProtocol {
+
+	static final int MAGIC = 0x4A4B4243; // "JKBC"
+	static final byte VERSION = 1;
+
+	static final byte HELLO = 1;
+	static final byte CREDIT = 2;
+	static final byte ITEMS = 3;
+
+	static final int LENGTH_BYTES = 4;
+	static final int HELLO_BYTES = 1 + 4 + 1 + 4; // Type included.
+	static final int CREDIT_BYTES = 1 + 4;
+	static final int ITEMS_HEADER_BYTES = 1 + 4;
+	static final int MAX_ITEM_BYTES = 3 * Varints.MAX_LONG_BYTES + Varints.MAX_INT_BYTES;
+	/** The most items sent in one frame. */
+	static final int MAX_BATCH = 256;
+	static final int MAX_FRAME_BYTES = ITEMS_HEADER_BYTES + MAX_BATCH * MAX_ITEM_BYTES;
+	/** The largest window a consumer may ask for. */
+	static final int MAX_WINDOW = 1 << 16;
+
+	private RemoteProtocol() {
+	}
+
+	static void putHello(ByteBuffer data, int window) {
+		data.putInt(HELLO_BYTES).put(HELLO).putInt(MAGIC).put(VERSION).putInt(window);
+	}
+
+	static void putCredit(ByteBuffer data, int count) {
+		data.putInt(CREDIT_BYTES).put(CREDIT).putInt(count);
+	}
+
+	static void putItem(ByteBuffer data, Item item) {
+		Varints.put(data, item.getId());
+		Varints.put(data, item.getTimestamp());
+		Varints.put(data, Varints.zigZag(item.getPayload()));
+		Varints.put(data, item.getPriorityClass());
+	}
+
+	static Item getItem(ByteBuffer data) throws IOException {
+		try {
+			long id = Varints.get(data);
+			long timestamp = Varints.get(data);
+			long payload = Varints.unZigZag(Varints.get(data));
+			int priorityClass = (int) Varints.get(data);
+			return new Item().initialize(id, timestamp, payload, priorityClass);
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			throw new IOException("Malformed item", e);
+		}
+	}
+
+	/**
+	 * Finds the length of the frame at the start of the data, if it has arrived
+	 * in full.
+	 *
+	 * @param data the bytes received so far, ready to be read
+	 * @return the length of the frame after its length field, or -1 if the
+	 *         frame is not complete yet
+	 * @throws IOException if the length is out of range
+	 */
+	static int completeFrameLength(ByteBuffer data) throws IOException {
+		if (data.remaining() < LENGTH_BYTES) {
+			return -1;
+		}
+		int length = data.getInt(data.position());
+		if (length < 1 || length > MAX_FRAME_BYTES) {
+			throw new IOException("Bad frame length " + length);
+		}
+		return data.remaining() - LENGTH_BYTES >= length ? length : -1;
+	}
+
+	/**
+	 * Finds the length of the frame from a consumer at the start of the data,
+	 * if it has arrived in full. Consumers only send HELLO and CREDIT frames,
+	 * so any other length is rejected as soon as it arrives, which keeps the
+	 * server's input buffer small.
+	 *
+	 * @param data the bytes received so far, ready to be read
+	 * @return the length of the frame after its length field, or -1 if the
+	 *         frame is not complete yet
+	 * @throws IOException if the length is neither that of HELLO nor of CREDIT
+	 */
+	static int completeConsumerFrameLength(ByteBuffer data) throws IOException {
+		if (data.remaining() < LENGTH_BYTES) {
+			return -1;
+		}
+		int length = data.getInt(data.position());
+		if (length != HELLO_BYTES && length != CREDIT_BYTES) {
+			throw new IOException("Bad frame length " + length);
+		}
+		return data.remaining() - LENGTH_BYTES >= length ? length : -1;
+	}
+}
@@ -0,0 +1,204 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.slutprojekt.JimmyKarlsson.model.interfaces.BufferStrategy;
+import com.slutprojekt.JimmyKarlsson.model.interfaces.WaitStrategy;
+
+/**
+ * A bounded, lock-free, multi-producer/multi-consumer ring buffer. Every slot
+ * carries a sequence number that tells producers when it is free and consumers
+ * when it holds a published item, so threads only ever contend on a single
+ * compare-and-set of the head or tail cursor. Both cursors are padded to their
+ * own cache line. When the ring is full or empty, the configured WaitStrategy
+ * decides how the calling thread waits.
+ */
+public class RingBufferStrategy implements BufferStrategy {
+
+	private final int capacity; // Number of slots in the ring.
+	private final AtomicReferenceArray<Item> slots; // The items themselves.
+	// Per-slot sequence numbers: 2p while the slot is free for position p and
+	// 2p + 1 once the item for position p is published. Doubling keeps the two
+	// states apart even with a single slot, where "published for p" and "free
+	// for p + 1" would otherwise be the same number.
+	private final AtomicLongArray sequences;
+	private final PaddedCursor head = new PaddedCursor(0); // Next position to take from.
+	private final PaddedCursor tail = new PaddedCursor(0); // Next position to put into.
+	private final WaitStrategy waitStrategy; // How to wait when full or empty.
+
+	/**
+	 * Constructs a RingBufferStrategy with the specified capacity.
+	 *
+	 * @param capacity     the fixed number of items the ring can hold
+	 * @param waitStrategy the strategy used while the ring is full or empty
+	 */
+	public RingBufferStrategy(int capacity, WaitStrategy waitStrategy) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be greater than zero.");
+		}
+		this.capacity = capacity;
+		this.slots = new AtomicReferenceArray<>(capacity);
+		this.sequences = new AtomicLongArray(capacity);
+		this.waitStrategy = Objects.requireNonNull(waitStrategy);
+		// Slot i is free for the producer that claims position i.
+		for (int i = 0; i < capacity; i++) {
+			sequences.set(i, 2L * i);
+		}
+	}
+
+	@Override
+	public void put(Item item) throws InterruptedException {
+		int attempts = 0;
+		while (!offer(item)) {
+			waitStrategy.idle(attempts++);
+		}
+	}
+
+	@Override
+	public Item take() throws InterruptedException {
+		int attempts = 0;
+		Item item;
+		while ((item = poll()) == null) {
+			waitStrategy.idle(attempts++);
+		}
+		return item;
+	}
+
+	@Override
+	public boolean offer(Item item) {
+		Objects.requireNonNull(item);
+		long position = tail.get();
+		while (true) {
+			int index = indexOf(position);
+			long difference = sequences.get(index) - 2 * position;
+			if (difference == 0) {
+				// The slot is free; try to claim it.
+				if (tail.compareAndSet(position, position + 1)) {
+					slots.lazySet(index, item);
+					sequences.lazySet(index, 2 * position + 1); // Publish to consumers.
+					waitStrategy.signalAll();
+					return true;
+				}
+				position = tail.get();
+			} else if (difference < 0) {
+				return false; // The slot still holds an item from the previous lap: full.
+			} else {
+				position = tail.get(); // Another producer claimed it first.
+			}
+		}
+	}
+
+	/**
+	 * Claims a run of free slots with a single compare-and-set of the tail, so
+	 * a batch costs one contended operation however many items it holds.
+	 */
+	@Override
+	public int offerAll(List<Item> items, int from) {
+		int wanted = items.size() - from;
+		if (wanted <= 0) {
+			return 0;
+		}
+		while (true) {
+			long position = tail.get();
+			int free = 0;
+			while (free < wanted && sequences.get(indexOf(position + free)) == 2 * (position + free)) {
+				free++; // Count the free slots from the tail on.
+			}
+			if (free == 0) {
+				if (sequences.get(indexOf(position)) - 2 * position < 0) {
+					return 0; // Full.
+				}
+				continue; // Another producer claimed it first.
+			}
+			if (tail.compareAndSet(position, position + free)) {
+				for (int i = 0; i < free; i++) {
+					int index = indexOf(position + i);
+					slots.lazySet(index, items.get(from + i));
+					sequences.lazySet(index, 2 * (position + i) + 1); // Publish to consumers.
+				}
+				waitStrategy.signalAll();
+				return free;
+			}
+		}
+	}
+
+	@Override
+	public Item poll() {
+		long position = head.get();
+		while (true) {
+			int index = indexOf(position);
+			long difference = sequences.get(index) - (2 * position + 1);
+			if (difference == 0) {
+				// The slot holds a published item; try to claim it.
+				if (head.compareAndSet(position, position + 1)) {
+					Item item = slots.get(index);
+					slots.lazySet(index, null);
+					sequences.lazySet(index, 2 * (position + capacity)); // Free it for the next lap.
+					waitStrategy.signalAll();
+					return item;
+				}
+				position = head.get();
+			} else if (difference < 0) {
+				return null; // Nothing published at this position yet: empty.
+			} else {
+				position = head.get(); // Another consumer claimed it first.
+			}
+		}
+	}
+
+	@Override
+	public Item poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		int attempts = 0;
+		Item item;
+		while ((item = poll()) == null) {
+			if (System.nanoTime() - deadline >= 0) {
+				return null;
+			}
+			waitStrategy.idle(attempts++);
+		}
+		return item;
+	}
+
+	@Override
+	public int drainTo(Collection<? super Item> target, int maxItems) {
+		int drained = 0;
+		Item item;
+		while (drained < maxItems && (item = poll()) != null) {
+			target.add(item);
+			drained++;
+		}
+		return drained;
+	}
+
+	@Override
+	public int size() {
+		// Read head before tail so the difference can never be negative.
+		long headPosition = head.get();
+		long tailPosition = tail.get();
+		return (int) Math.min(tailPosition - headPosition, capacity);
+	}
+
+	@Override
+	public int capacity() {
+		return capacity;
+	}
+
+	@Override
+	public void clear() {
+		while (poll() != null) {
+			// Drain until empty.
+		}
+	}
+
+	// Private helper methods
+
+	private int indexOf(long position) {
+		return (int) (position % capacity);
+	}
+}
@@ -0,0 +1,205 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.slutprojekt.JimmyKarlsson.model.interfaces.BufferSizeProvider;
+import com.slutprojekt.JimmyKarlsson.model.metrics.StageMetrics;
+
+/**
+ * One stage of a Pipeline: a buffer of its own and the workers that take items
+ * from it, process them, and put them into the buffer of the next stage. A
+ * worker that finds the next buffer full waits for room, so a slow stage fills
+ * the buffers before it one after the other until the producers feeding the
+ * pipeline wait too. An item the processor throws on is counted as failed
+ * and released, and the worker carries on with the next one; such failures
+ * are reported at most once a second, so a processor that throws on every item
+ * does not flood standard error.
+ *
+ * Created and started by a Pipeline.
+ */
+public class Stage implements BufferSizeProvider {
+
+	private static final long FAILURE_REPORT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	private final StageSettings settings;
+	private final Buffer buffer; // Items waiting for this stage.
+	private final LongAdder itemsProcessed = new LongAdder(); // Handed on, or finished in the last stage.
+	private final LongAdder itemsDropped = new LongAdder(); // Dropped by the processor.
+	private final LongAdder itemsFailed = new LongAdder(); // The processor threw on them.
+	private final LongAdder blockedNanos = new LongAdder(); // Time spent waiting for room downstream.
+	private final AtomicInteger blockedWorkers = new AtomicInteger(); // Waiting for room downstream right now.
+	private final AtomicLong lastFailureReportNanos = new AtomicLong(); // When a failure was last reported.
+	private final AtomicLong failuresReported = new AtomicLong(); // Failures counted by the last report.
+	private volatile long startedAtNanos; // When the workers were started, for rate calculations.
+
+	/**
+	 * Constructs a stage with an empty buffer.
+	 *
+	 * @param settings the settings of the stage
+	 */
+	Stage(StageSettings settings) {
+		this.settings = settings;
+		this.buffer = new Buffer(settings.bufferCapacity());
+	}
+
+	/**
+	 * Creates the loop run by every worker of this stage.
+	 *
+	 * @param next     the stage items are handed to, or null for the last stage
+	 * @param itemPool where items are released once they leave the pipeline
+	 * @return the worker loop, which runs until interrupted
+	 */
+	Runnable worker(Stage next, ItemPool itemPool) {
+		return () -> {
+			while (!Thread.currentThread().isInterrupted()) {
+				try {
+					Item item = buffer.take();
+					Item result;
+					try {
+						result = settings.processor().process(item);
+					} catch (InterruptedException e) {
+						keepOrRelease(item, buffer, itemPool); // Not processed, so it goes back.
+						throw e;
+					} catch (RuntimeException e) {
+						// A failing item must not end the worker and shrink the stage.
+						itemsFailed.increment();
+						itemPool.release(item);
+						reportFailure(e);
+						continue;
+					}
+					if (result == null) {
+						itemsDropped.increment();
+						itemPool.release(item);
+						continue;
+					}
+					if (next == null) {
+						itemPool.release(result); // Done with the last stage.
+					} else {
+						handOn(result, next, itemPool);
+					}
+					itemsProcessed.increment();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt(); // Ends the loop.
+				}
+			}
+		};
+	}
+
+	void markStarted() {
+		startedAtNanos = System.nanoTime();
+	}
+
+	/**
+	 * Takes a snapshot of the metrics of this stage.
+	 *
+	 * @return the current metrics
+	 */
+	public StageMetrics getMetrics() {
+		return new StageMetrics(getName(), getCurrentSize(), getCapacity(), getWorkers(), buffer.getTotalPut(),
+				getItemsProcessed(), itemsDropped.sum(), itemsFailed.sum(), getRatePerSecond(), getBlockedWorkers(),
+				blockedNanos.sum(), buffer.getDwellHistogram().getValueAtPercentile(99));
+	}
+
+	// Private helper methods
+
+	// Hands an item to the next stage, waiting for room if its buffer is full.
+	// Only waits that actually happen are timed.
+	private void handOn(Item item, Stage next, ItemPool itemPool) throws InterruptedException {
+		if (next.buffer.offer(item)) {
+			return;
+		}
+		blockedWorkers.incrementAndGet();
+		long start = System.nanoTime();
+		try {
+			next.buffer.put(item);
+		} catch (InterruptedException e) {
+			keepOrRelease(item, next.buffer, itemPool);
+			throw e;
+		} finally {
+			blockedNanos.add(System.nanoTime() - start);
+			blockedWorkers.decrementAndGet();
+		}
+	}
+
+	// Prints the failure, unless another was printed less than a second ago,
+	// together with how many failures went unreported since then.
+	private void reportFailure(RuntimeException e) {
+		long now = System.nanoTime();
+		long last = lastFailureReportNanos.get();
+		if (last != 0 && now - last < FAILURE_REPORT_INTERVAL_NANOS
+				|| !lastFailureReportNanos.compareAndSet(last, now)) {
+			return;
+		}
+		long failed = itemsFailed.sum();
+		long unreported = failed - failuresReported.getAndSet(failed) - 1;
+		if (unreported > 0) {
+			System.err.println("Stage " + getName() + ": " + unreported + " more processor failures since the last report.");
+		}
+		e.printStackTrace();
+	}
+
+	// Leaves an item a worker held when it was interrupted in the buffer it
+	// belongs in, or releases it if that buffer has no room.
+	private static void keepOrRelease(Item item, Buffer buffer, ItemPool itemPool) {
+		if (!buffer.offer(item)) {
+			itemPool.release(item);
+		}
+	}
+
+	// Accessor methods
+
+	public String getName() {
+		return settings.name();
+	}
+
+	public int getWorkers() {
+		return settings.workers();
+	}
+
+	public Buffer getBuffer() {
+		return buffer;
+	}
+
+	public long getItemsProcessed() {
+		return itemsProcessed.sum();
+	}
+
+	public int getBlockedWorkers() {
+		return blockedWorkers.get();
+	}
+
+	/**
+	 * Gets the average processing rate since the stage started.
+	 *
+	 * @return items per second, or 0 if the stage has not started yet
+	 */
+	public double getRatePerSecond() {
+		long started = startedAtNanos;
+		long elapsed = System.nanoTime() - started;
+		return started == 0 || elapsed <= 0 ? 0.0 : itemsProcessed.sum() * 1e9 / elapsed;
+	}
+
+	// BufferSizeProvider interface methods, describing the stage's buffer
+
+	@Override
+	public int getCurrentSize() {
+		return buffer.getCurrentSize();
+	}
+
+	@Override
+	public int getCapacity() {
+		return buffer.getCapacity();
+	}
+
+	// The stage is fed by the workers of the stage before it, or by the
+	// producers of the load balancer chained in front of the pipeline, neither of
+	// which the stage knows the intervals of.
+	@Override
+	public List<Integer> getProducerIntervals() {
+		return List.of();
+	}
+}
@@ -0,0 +1,28 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.Objects;
+
+import com.slutprojekt.JimmyKarlsson.model.interfaces.ItemProcessor;
+
+/**
+ * Immutable record describing one stage of a Pipeline: the buffer items wait
+ * in before the stage, how many workers take them from it, and what the
+ * workers do with every item before handing it to the next stage.
+ */
+public record StageSettings(String name, // Name used in reports and the GUI.
+		int bufferCapacity, // Maximum number of items waiting for the stage.
+		int workers, // Number of threads processing items in the stage.
+		ItemProcessor processor // The work done on every item.
+) {
+
+	public StageSettings {
+		Objects.requireNonNull(name);
+		Objects.requireNonNull(processor);
+		if (bufferCapacity < 1) {
+			throw new IllegalArgumentException("Buffer capacity must be at least 1.");
+		}
+		if (workers < 1) {
+			throw new IllegalArgumentException("Workers must be at least 1.");
+		}
+	}
+}
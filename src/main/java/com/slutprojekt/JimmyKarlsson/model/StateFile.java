@@ -0,0 +1,204 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import com.slutprojekt.JimmyKarlsson.model.interfaces.ProgressListener;
+
+/**
+ * Reads and writes LoadBalancerState files. States are written in a compact,
+ * versioned binary format, and files written with Java serialization by
+ * earlier versions are recognized by their stream header and still read.
+ *
+ * Version 1 of the format is laid out as follows, where every number is an
+ * unsigned varint (seven bits per byte, least significant group first):
+ * <ul>
+ * <li>the magic bytes "LBST" and a version byte</li>
+ * <li>a header with the producer count, consumer count, buffer capacity and
+ * current buffer size</li>
+ * <li>the interval in nanoseconds of every producer, then of every
+ * consumer</li>
+ * <li>a CRC-32C of everything before it, as four big-endian bytes</li>
+ * </ul>
+ *
+ * Files are written through a FileChannel to a temporary file that then
+ * replaces the target, so a failed save never leaves a half-written state
+ * behind, and read through a memory mapping. Both are blocking, and meant to
+ * be run off the Event Dispatch Thread.
+ */
+public final class StateFile {
+
+	/** The version of the format written by this class. */
+	public static final int VERSION = 1;
+
+	private static final int MAGIC = 0x4C425354; // "LBST"
+	private static final short LEGACY_MAGIC = (short) 0xACED; // Java serialization stream header.
+	private static final int HEADER_BYTES = 5; // Magic and version.
+	private static final int CHECKSUM_BYTES = 4;
+	private static final int CHUNK_BYTES = 64 * 1024; // Written at a time, between progress callbacks.
+	private static final int PROGRESS_INTERVAL = 16 * 1024; // Intervals read between progress callbacks.
+
+	private StateFile() {
+	}
+
+	/**
+	 * Writes a state in the current format, replacing the file if it exists.
+	 *
+	 * @param state    the state to write
+	 * @param path     the file to write
+	 * @param progress notified with the number of bytes written so far
+	 * @throws IOException if the file could not be written
+	 */
+	public static void write(LoadBalancerState state, Path path, ProgressListener progress) throws IOException {
+		ByteBuffer data = encode(state);
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			int total = data.limit();
+			while (data.hasRemaining()) {
+				data.limit(Math.min(total, data.position() + CHUNK_BYTES));
+				while (data.hasRemaining()) {
+					channel.write(data);
+				}
+				data.limit(total);
+				progress.progressed(data.position(), total);
+			}
+			channel.force(false);
+		} catch (IOException e) {
+			Files.deleteIfExists(temporary);
+			throw e;
+		}
+		try {
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Reads a state in the current format or as written by Java serialization.
+	 *
+	 * @param path     the file to read
+	 * @param progress notified with the number of bytes read so far
+	 * @return the state
+	 * @throws IOException if the file could not be read, is corrupt, or has an
+	 *                     unsupported version
+	 */
+	public static LoadBalancerState read(Path path, ProgressListener progress) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("State file is too large: " + size + " bytes");
+			}
+			MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (size >= 2 && data.getShort(0) == LEGACY_MAGIC) {
+				LoadBalancerState state = readLegacy(path);
+				progress.progressed(size, size);
+				return state;
+			}
+			return decode(data, progress);
+		}
+	}
+
+	// Encodes a state, including its checksum, into a buffer ready to be written.
+	static ByteBuffer encode(LoadBalancerState state) {
+		List<Rate> producerRates = state.producerRates();
+		List<Rate> consumerRates = state.consumerRates();
+		int varints = 4 + producerRates.size() + consumerRates.size();
+		ByteBuffer data = ByteBuffer.allocate(HEADER_BYTES + varints * Varints.MAX_LONG_BYTES + CHECKSUM_BYTES);
+		data.putInt(MAGIC).put((byte) VERSION);
+		Varints.put(data, producerRates.size());
+		Varints.put(data, consumerRates.size());
+		Varints.put(data, state.bufferCapacity());
+		Varints.put(data, state.currentBufferSize());
+		for (Rate rate : producerRates) {
+			Varints.put(data, rate.intervalNanos());
+		}
+		for (Rate rate : consumerRates) {
+			Varints.put(data, rate.intervalNanos());
+		}
+		CRC32C checksum = new CRC32C();
+		checksum.update(data.array(), 0, data.position());
+		data.putInt((int) checksum.getValue());
+		return data.flip();
+	}
+
+	// Decodes a whole file in the current format, checksum first.
+	static LoadBalancerState decode(ByteBuffer data, ProgressListener progress) throws IOException {
+		int size = data.limit();
+		if (size < HEADER_BYTES + CHECKSUM_BYTES || data.getInt(0) != MAGIC) {
+			throw new IOException("Not a state file");
+		}
+		int version = Byte.toUnsignedInt(data.get(4));
+		if (version != VERSION) {
+			throw new IOException("Unsupported state file version " + version);
+		}
+		CRC32C checksum = new CRC32C();
+		checksum.update(data.slice(0, size - CHECKSUM_BYTES));
+		if ((int) checksum.getValue() != data.getInt(size - CHECKSUM_BYTES)) {
+			throw new IOException("State file is corrupt: checksum mismatch");
+		}
+
+		ByteBuffer body = data.slice(HEADER_BYTES, size - HEADER_BYTES - CHECKSUM_BYTES);
+		try {
+			int producerCount = toCount(Varints.get(body), body);
+			int consumerCount = toCount(Varints.get(body), body);
+			int bufferCapacity = Math.toIntExact(Varints.get(body));
+			int currentBufferSize = Math.toIntExact(Varints.get(body));
+			List<Rate> producerRates = getRates(body, producerCount, progress, size);
+			List<Rate> consumerRates = getRates(body, consumerCount, progress, size);
+			if (body.hasRemaining()) {
+				throw new IOException("State file is corrupt: unexpected trailing data");
+			}
+			progress.progressed(size, size);
+			return LoadBalancerState.ofRates(producerRates, consumerRates, bufferCapacity, currentBufferSize);
+		} catch (BufferUnderflowException e) {
+			throw new IOException("State file is corrupt: truncated", e);
+		} catch (ArithmeticException | IllegalArgumentException e) {
+			throw new IOException("State file is corrupt: " + e.getMessage(), e);
+		}
+	}
+
+	// Private helper methods
+
+	private static LoadBalancerState readLegacy(Path path) throws IOException {
+		try (InputStream in = Files.newInputStream(path); ObjectInputStream ois = new ObjectInputStream(in)) {
+			return (LoadBalancerState) ois.readObject();
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException("Not a state file: " + e.getMessage(), e);
+		}
+	}
+
+	private static List<Rate> getRates(ByteBuffer body, int count, ProgressListener progress, int size) {
+		List<Rate> rates = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			rates.add(new Rate(Varints.get(body)));
+			if ((i + 1) % PROGRESS_INTERVAL == 0) {
+				progress.progressed(HEADER_BYTES + body.position(), size);
+			}
+		}
+		return rates;
+	}
+
+	// Every entry takes at least one byte, so a count larger than the bytes
+	// left can only come from a corrupt file, and must not be allocated for.
+	private static int toCount(long count, ByteBuffer body) throws IOException {
+		if (count > body.remaining()) {
+			throw new IOException("State file is corrupt: count " + count + " exceeds file size");
+		}
+		return (int) count;
+	}
+}
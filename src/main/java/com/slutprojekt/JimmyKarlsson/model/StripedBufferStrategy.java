@@ -0,0 +1,181 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import com.slutprojekt.JimmyKarlsson.model.interfaces.BufferStrategy;
+import com.slutprojekt.JimmyKarlsson.model.interfaces.WaitStrategy;
+
+/**
+ * A BufferStrategy that spreads its capacity over several independent
+ * lock-free rings, one per core by default, so producers and consumers on
+ * different cores rarely touch the same cursors. Every thread has a home
+ * stripe derived from its id. Producers put into their home stripe and only
+ * move on to the others when it is full; consumers take from their home stripe
+ * and steal from the others when it is empty. The strategy is therefore only
+ * full when every stripe is full and only empty when every stripe is empty,
+ * and size and capacity are the totals over all stripes, just like a single
+ * queue.
+ *
+ * Items are kept in order within a stripe but not across stripes, so a
+ * consumer may receive an item before an older one put by another thread.
+ */
+public class StripedBufferStrategy implements BufferStrategy {
+
+	/** The default number of stripes: one per available core. */
+	public static final int DEFAULT_STRIPES = Runtime.getRuntime().availableProcessors();
+
+	private final RingBufferStrategy[] stripes;
+	private final int capacity; // Total over all stripes.
+	private final WaitStrategy waitStrategy; // Shared by all stripes, so progress on any of them wakes waiters.
+
+	/**
+	 * Constructs a StripedBufferStrategy with the default number of stripes.
+	 *
+	 * @param capacity     the total number of items the stripes can hold
+	 * @param waitStrategy the strategy used while every stripe is full or empty
+	 */
+	public StripedBufferStrategy(int capacity, WaitStrategy waitStrategy) {
+		this(capacity, DEFAULT_STRIPES, waitStrategy);
+	}
+
+	/**
+	 * Constructs a StripedBufferStrategy. The capacity is split as evenly as
+	 * possible, and there are never more stripes than slots.
+	 *
+	 * @param capacity     the total number of items the stripes can hold
+	 * @param stripes      the number of stripes
+	 * @param waitStrategy the strategy used while every stripe is full or empty
+	 */
+	public StripedBufferStrategy(int capacity, int stripes, WaitStrategy waitStrategy) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be greater than zero.");
+		}
+		if (stripes <= 0) {
+			throw new IllegalArgumentException("Stripe count must be greater than zero.");
+		}
+		this.capacity = capacity;
+		this.waitStrategy = Objects.requireNonNull(waitStrategy);
+		this.stripes = new RingBufferStrategy[Math.min(stripes, capacity)];
+		int base = capacity / this.stripes.length, extra = capacity % this.stripes.length;
+		for (int i = 0; i < this.stripes.length; i++) {
+			this.stripes[i] = new RingBufferStrategy(base + (i < extra ? 1 : 0), waitStrategy);
+		}
+	}
+
+	@Override
+	public void put(Item item) throws InterruptedException {
+		int attempts = 0;
+		while (!offer(item)) {
+			waitStrategy.idle(attempts++);
+		}
+	}
+
+	@Override
+	public Item take() throws InterruptedException {
+		int attempts = 0;
+		Item item;
+		while ((item = poll()) == null) {
+			waitStrategy.idle(attempts++);
+		}
+		return item;
+	}
+
+	@Override
+	public boolean offer(Item item) {
+		int home = homeStripe();
+		for (int i = 0; i < stripes.length; i++) {
+			if (stripes[(home + i) % stripes.length].offer(item)) {
+				return true;
+			}
+		}
+		return false; // Every stripe is full.
+	}
+
+	@Override
+	public int offerAll(List<Item> items, int from) {
+		int home = homeStripe();
+		int added = 0;
+		for (int i = 0; i < stripes.length && from + added < items.size(); i++) {
+			added += stripes[(home + i) % stripes.length].offerAll(items, from + added);
+		}
+		return added;
+	}
+
+	@Override
+	public Item poll() {
+		int home = homeStripe();
+		for (int i = 0; i < stripes.length; i++) {
+			Item item = stripes[(home + i) % stripes.length].poll(); // Home first, then steal.
+			if (item != null) {
+				return item;
+			}
+		}
+		return null; // Every stripe is empty.
+	}
+
+	@Override
+	public Item poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		int attempts = 0;
+		Item item;
+		while ((item = poll()) == null) {
+			if (System.nanoTime() - deadline >= 0) {
+				return null;
+			}
+			waitStrategy.idle(attempts++);
+		}
+		return item;
+	}
+
+	@Override
+	public int drainTo(Collection<? super Item> target, int maxItems) {
+		int home = homeStripe();
+		int drained = 0;
+		for (int i = 0; i < stripes.length && drained < maxItems; i++) {
+			drained += stripes[(home + i) % stripes.length].drainTo(target, maxItems - drained);
+		}
+		return drained;
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (RingBufferStrategy stripe : stripes) {
+			size += stripe.size();
+		}
+		return size;
+	}
+
+	@Override
+	public int capacity() {
+		return capacity;
+	}
+
+	@Override
+	public void clear() {
+		for (RingBufferStrategy stripe : stripes) {
+			stripe.clear();
+		}
+	}
+
+	/**
+	 * Gets the number of stripes, which may be lower than requested for small
+	 * capacities.
+	 *
+	 * @return the number of stripes
+	 */
+	public int getStripeCount() {
+		return stripes.length;
+	}
+
+	// Private helper methods
+
+	// Threads created one after another get consecutive ids, so they spread
+	// evenly over the stripes.
+	private int homeStripe() {
+		return (int) (Thread.currentThread().threadId() % stripes.length);
+	}
+}
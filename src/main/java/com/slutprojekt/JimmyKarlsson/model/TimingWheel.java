@@ -0,0 +1,135 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.concurrent.Executor;
+
+/**
+ * A hierarchical timing wheel in the style of the classic kernel timer wheel.
+ * Each of the {@link #LEVELS} levels has {@link #SLOTS} slots, and a slot on
+ * level k covers 64^k ticks. A timer goes into the lowest level whose range
+ * covers its deadline and is moved down a level whenever the wheel below it
+ * completes a revolution, so adding a timer and advancing one tick are both
+ * O(1) amortized, whatever the number of timers.
+ *
+ * Not thread-safe: a single thread owns the wheel and hands expired timers to
+ * an executor.
+ */
+final class TimingWheel {
+
+	private static final int SLOT_BITS = 6;
+	static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+	static final int LEVELS = 4; // 64^4 ticks, about 4.6 hours at a 1 ms tick.
+	private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+	/**
+	 * An entry in the wheel. Timers are linked intrusively, so scheduling
+	 * allocates nothing, and a timer must be in at most one wheel at a time.
+	 */
+	abstract static class Timer implements Runnable {
+		private long deadlineTick;
+		private Timer next;
+
+		long getDeadlineTick() {
+			return deadlineTick;
+		}
+	}
+
+	private final Timer[][] slots = new Timer[LEVELS][SLOTS];
+	private long currentTick; // The next tick to be processed.
+	private int size;
+
+	/**
+	 * Constructs an empty wheel whose first processed tick is the given one.
+	 *
+	 * @param startTick the first tick
+	 */
+	TimingWheel(long startTick) {
+		this.currentTick = startTick;
+	}
+
+	/**
+	 * Adds a timer that expires at the given tick. Deadlines that have already
+	 * passed expire on the next processed tick.
+	 *
+	 * @param timer        the timer to add
+	 * @param deadlineTick the tick it expires at
+	 */
+	void add(Timer timer, long deadlineTick) {
+		timer.deadlineTick = deadlineTick;
+		insert(timer);
+		size++;
+	}
+
+	/**
+	 * Processes every tick up to and including the given one, handing each
+	 * timer to the executor on the tick it expires.
+	 *
+	 * @param tick     the last tick to process
+	 * @param executor where expired timers are run
+	 */
+	void advanceTo(long tick, Executor executor) {
+		if (size == 0) {
+			currentTick = Math.max(currentTick, tick + 1); // Nothing to cascade or fire.
+			return;
+		}
+		for (; currentTick <= tick; currentTick++) {
+			cascade();
+			Timer timer = detach(0, (int) (currentTick & SLOT_MASK));
+			while (timer != null) {
+				Timer next = timer.next;
+				timer.next = null;
+				if (timer.deadlineTick <= currentTick) {
+					size--;
+					executor.execute(timer);
+				} else {
+					insert(timer); // Parked in a higher level because of its clamped deadline.
+				}
+				timer = next;
+			}
+		}
+	}
+
+	int size() {
+		return size;
+	}
+
+	long getCurrentTick() {
+		return currentTick;
+	}
+
+	// Moves timers down from every level whose lower levels just wrapped around.
+	private void cascade() {
+		int top = 0;
+		while (top + 1 < LEVELS && (currentTick & ((1L << (SLOT_BITS * (top + 1))) - 1)) == 0) {
+			top++;
+		}
+		for (int level = top; level >= 1; level--) {
+			Timer timer = detach(level, (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK));
+			while (timer != null) {
+				Timer next = timer.next;
+				timer.next = null;
+				insert(timer);
+				timer = next;
+			}
+		}
+	}
+
+	private void insert(Timer timer) {
+		long deadline = Math.max(timer.deadlineTick, currentTick);
+		long delta = Math.min(deadline - currentTick, MAX_DELTA);
+		int level = 0;
+		while (delta >= (1L << (SLOT_BITS * (level + 1)))) {
+			level++;
+		}
+		long placement = currentTick + delta; // Equals the deadline unless it is out of range.
+		int slot = (int) ((placement >>> (SLOT_BITS * level)) & SLOT_MASK);
+		timer.next = slots[level][slot];
+		slots[level][slot] = timer;
+	}
+
+	private Timer detach(int level, int slot) {
+		Timer head = slots[level][slot];
+		slots[level][slot] = null;
+		return head;
+	}
+}
@@ -0,0 +1,77 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Variable-length encoding of numbers, shared by the state file, the buffer
+ * journal and the remote consumer protocol. A varint holds seven bits per
+ * byte, least significant group first, with the high bit set on every byte
+ * but the last, so small numbers take a single byte. Numbers that may be
+ * negative are zig-zag encoded first, which keeps small negative numbers short
+ * as well.
+ */
+final class Varints {
+
+	/** The most bytes a varint of a long takes. */
+	static final int MAX_LONG_BYTES = 10;
+	/** The most bytes a varint of an int takes. */
+	static final int MAX_INT_BYTES = 5;
+
+	private Varints() {
+	}
+
+	/**
+	 * Writes a value as a varint at the buffer's position.
+	 *
+	 * @param data  The buffer to write to, which must have room for the varint
+	 * @param value The value, treated as unsigned
+	 */
+	static void put(ByteBuffer data, long value) {
+		while ((value & ~0x7FL) != 0) {
+			data.put((byte) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		data.put((byte) value);
+	}
+
+	/**
+	 * Reads a varint at the buffer's position.
+	 *
+	 * @param data The buffer to read from
+	 * @return the value
+	 * @throws IllegalArgumentException if the varint is longer than a long can
+	 *                                  be
+	 */
+	static long get(ByteBuffer data) {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			byte b = data.get();
+			value |= (long) (b & 0x7F) << shift;
+			if (b >= 0) {
+				return value;
+			}
+		}
+		throw new IllegalArgumentException("varint is too long");
+	}
+
+	/**
+	 * Maps a signed value to an unsigned one that is small when the value is
+	 * close to zero: 0, -1, 1, -2 become 0, 1, 2, 3.
+	 *
+	 * @param value The signed value
+	 * @return the zig-zag encoded value
+	 */
+	static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * Reverses {@link #zigZag(long)}.
+	 *
+	 * @param value The zig-zag encoded value
+	 * @return the signed value
+	 */
+	static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
@@ -0,0 +1,144 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.slutprojekt.JimmyKarlsson.model.interfaces.WaitStrategy;
+
+/**
+ * The available wait strategies for the lock-free ring buffer. Each constant
+ * creates a fresh WaitStrategy instance, so strategies holding state (such as
+ * the blocking one) are never shared between buffers.
+ */
+public enum WaitStrategyType {
+	/** Spins on the CPU. Lowest latency, burns a full core per waiting thread. */
+	BUSY_SPIN,
+	/** Spins briefly, then yields the CPU to other runnable threads. */
+	YIELD,
+	/** Spins briefly, then parks the thread for a short, fixed period. */
+	PARK,
+	/** Spins briefly, then blocks on a condition until signalled. */
+	BLOCKING;
+
+	// Number of attempts spent spinning before the backing-off strategies kick in.
+	private static final int SPIN_TRIES = 100;
+	// Park period used by PARK, and the upper bound on a BLOCKING wait.
+	private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+	private static final long MAX_BLOCK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	/**
+	 * Creates a new WaitStrategy of this type.
+	 * 
+	 * @return a new wait strategy instance
+	 */
+	public WaitStrategy create() {
+		switch (this) {
+		case BUSY_SPIN:
+			return new BusySpinWaitStrategy();
+		case YIELD:
+			return new YieldingWaitStrategy();
+		case PARK:
+			return new ParkingWaitStrategy();
+		case BLOCKING:
+			return new BlockingWaitStrategy();
+		default:
+			throw new IllegalStateException("Unknown wait strategy: " + this);
+		}
+	}
+
+	// Throws if the current thread has been interrupted, clearing the flag like
+	// the blocking JDK queues do.
+	private static void checkInterrupted() throws InterruptedException {
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+	}
+
+	private static final class BusySpinWaitStrategy implements WaitStrategy {
+		@Override
+		public void idle(int attempts) throws InterruptedException {
+			checkInterrupted();
+			Thread.onSpinWait();
+		}
+
+		@Override
+		public void signalAll() {
+			// Spinning threads notice progress on their own.
+		}
+	}
+
+	private static final class YieldingWaitStrategy implements WaitStrategy {
+		@Override
+		public void idle(int attempts) throws InterruptedException {
+			checkInterrupted();
+			if (attempts < SPIN_TRIES) {
+				Thread.onSpinWait();
+			} else {
+				Thread.yield();
+			}
+		}
+
+		@Override
+		public void signalAll() {
+			// Yielding threads notice progress on their own.
+		}
+	}
+
+	private static final class ParkingWaitStrategy implements WaitStrategy {
+		@Override
+		public void idle(int attempts) throws InterruptedException {
+			checkInterrupted();
+			if (attempts < SPIN_TRIES) {
+				Thread.onSpinWait();
+			} else {
+				LockSupport.parkNanos(PARK_NANOS);
+			}
+		}
+
+		@Override
+		public void signalAll() {
+			// Parked threads wake up on their own after PARK_NANOS.
+		}
+	}
+
+	private static final class BlockingWaitStrategy implements WaitStrategy {
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition progress = lock.newCondition();
+		// Only touched under the lock, but read without it to keep signalAll cheap
+		// when nobody is waiting.
+		private volatile int waiters;
+
+		@Override
+		public void idle(int attempts) throws InterruptedException {
+			checkInterrupted();
+			if (attempts < SPIN_TRIES) {
+				Thread.onSpinWait();
+				return;
+			}
+			lock.lockInterruptibly();
+			try {
+				waiters++;
+				// The wait is bounded because a signal can slip in between the failed
+				// attempt and the registration above; the caller simply retries.
+				progress.awaitNanos(MAX_BLOCK_NANOS);
+			} finally {
+				waiters--;
+				lock.unlock();
+			}
+		}
+
+		@Override
+		public void signalAll() {
+			if (waiters > 0) {
+				lock.lock();
+				try {
+					progress.signalAll();
+				} finally {
+					lock.unlock();
+				}
+			}
+		}
+	}
+}
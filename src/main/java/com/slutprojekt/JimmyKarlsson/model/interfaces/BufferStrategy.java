@@ -0,0 +1,99 @@
+package com.slutprojekt.JimmyKarlsson.model.interfaces;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.slutprojekt.JimmyKarlsson.model.Item;
+
+/**
+ * Interface defining the storage strategy behind a Buffer. Implementations
+ * decide how items are held and how producer and consumer threads are
+ * coordinated, while the Buffer itself keeps the observation and resizing
+ * logic. This allows the underlying queue to be swapped without touching
+ * producers, consumers or the load balancer.
+ */
+public interface BufferStrategy {
+	/**
+	 * Inserts an item, waiting if necessary for space to become available.
+	 * 
+	 * @param item the item to insert
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	void put(Item item) throws InterruptedException;
+
+	/**
+	 * Removes and returns the oldest item, waiting if necessary until one becomes
+	 * available.
+	 * 
+	 * @return the removed item
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	Item take() throws InterruptedException;
+
+	/**
+	 * Inserts an item if space is immediately available.
+	 * 
+	 * @param item the item to insert
+	 * @return true if the item was inserted, false if the strategy is full
+	 */
+	boolean offer(Item item);
+
+	/**
+	 * Inserts as many of the given items, in order, as there is space for
+	 * right now, synchronizing once for the whole run rather than once per
+	 * item. Stops at the first item that does not fit.
+	 * 
+	 * @param items the items to insert
+	 * @param from  the index of the first item to insert
+	 * @return the number of items inserted, starting at from
+	 */
+	int offerAll(List<Item> items, int from);
+
+	/**
+	 * Removes and returns the oldest item if one is immediately available.
+	 * 
+	 * @return the removed item, or null if the strategy is empty
+	 */
+	Item poll();
+
+	/**
+	 * Removes and returns the oldest item, waiting up to the given time for one to
+	 * become available.
+	 * 
+	 * @param timeout how long to wait before giving up
+	 * @param unit    the unit of the timeout argument
+	 * @return the removed item, or null if the timeout elapsed first
+	 * @throws InterruptedException if interrupted while waiting
+	 */
+	Item poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+	/**
+	 * Removes at most the given number of immediately available items and adds
+	 * them to the given collection, oldest first.
+	 * 
+	 * @param target   the collection to transfer items into
+	 * @param maxItems the maximum number of items to transfer
+	 * @return the number of items transferred
+	 */
+	int drainTo(Collection<? super Item> target, int maxItems);
+
+	/**
+	 * Gets the current number of items held.
+	 * 
+	 * @return the current size
+	 */
+	int size();
+
+	/**
+	 * Retrieves the maximum number of items that can be held.
+	 * 
+	 * @return the capacity
+	 */
+	int capacity();
+
+	/**
+	 * Removes all items.
+	 */
+	void clear();
+}
@@ -0,0 +1,22 @@
+package com.slutprojekt.JimmyKarlsson.model.interfaces;
+
+import java.util.List;
+
+import com.slutprojekt.JimmyKarlsson.model.Consumer;
+
+/**
+ * Interface defining which consumer a Dispatcher hands the next item to. Each
+ * consumer has its own bounded queue, available through Consumer.getBuffer(),
+ * so a policy can weigh queue depths against consumer rates. Policies are only
+ * called from the dispatcher thread and need not be thread-safe.
+ */
+public interface DispatchPolicy {
+	/**
+	 * Chooses the consumer for the next item. The dispatcher falls back to other
+	 * consumers if the queue of the chosen one turns out to be full.
+	 * 
+	 * @param consumers the running consumers, never empty
+	 * @return the index of the chosen consumer
+	 */
+	int select(List<Consumer> consumers);
+}
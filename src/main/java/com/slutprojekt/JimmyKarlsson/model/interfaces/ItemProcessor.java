@@ -0,0 +1,25 @@
+package com.slutprojekt.JimmyKarlsson.model.interfaces;
+
+import com.slutprojekt.JimmyKarlsson.model.Item;
+
+/**
+ * The work one stage of a Pipeline does on every item. Called concurrently by
+ * all workers of the stage, so implementations must be thread-safe.
+ */
+@FunctionalInterface
+public interface ItemProcessor {
+
+	/** A processor that passes every item on unchanged. */
+	ItemProcessor IDENTITY = item -> item;
+
+	/**
+	 * Processes one item.
+	 *
+	 * @param item the item taken from the stage's buffer
+	 * @return the item to hand to the next stage, which may be the same one, or
+	 *         null to drop it
+	 * @throws InterruptedException if interrupted while processing, which stops
+	 *                              the worker
+	 */
+	Item process(Item item) throws InterruptedException;
+}
@@ -0,0 +1,18 @@
+package com.slutprojekt.JimmyKarlsson.model.interfaces;
+
+/**
+ * Listener notified about the occupancy of a buffer. Notifications are always
+ * delivered on the gauge's publisher thread, never on a producer or consumer
+ * thread, so implementations may take their time without slowing down the
+ * buffer itself.
+ */
+@FunctionalInterface
+public interface OccupancyListener {
+	/**
+	 * Called with the latest observed occupancy.
+	 * 
+	 * @param size     the current number of items in the buffer
+	 * @param capacity the maximum number of items the buffer can hold
+	 */
+	void occupancyChanged(int size, int capacity);
+}
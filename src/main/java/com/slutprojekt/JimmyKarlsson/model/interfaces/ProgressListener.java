@@ -0,0 +1,24 @@
+package com.slutprojekt.JimmyKarlsson.model.interfaces;
+
+/**
+ * Listener notified about the progress of a long-running operation, such as
+ * saving or loading a state file. Notifications are delivered on the thread
+ * doing the work, so implementations that update a user interface must hand
+ * the update over to its own thread.
+ */
+@FunctionalInterface
+public interface ProgressListener {
+
+	/** A listener that ignores all progress. */
+	ProgressListener NONE = (done, total) -> {
+	};
+
+	/**
+	 * Called whenever a step of the operation has completed, and once more when
+	 * it is done.
+	 * 
+	 * @param done  the amount of work done so far, e.g. in bytes
+	 * @param total the total amount of work, in the same unit
+	 */
+	void progressed(long done, long total);
+}
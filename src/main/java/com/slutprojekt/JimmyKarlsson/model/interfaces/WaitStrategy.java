@@ -0,0 +1,23 @@
+package com.slutprojekt.JimmyKarlsson.model.interfaces;
+
+/**
+ * Interface defining how a thread waits when a lock-free buffer cannot make
+ * progress, either because it is full (producers) or empty (consumers).
+ * Implementations trade CPU usage against hand-off latency.
+ */
+public interface WaitStrategy {
+	/**
+	 * Called each time an attempt to put or take did not succeed. The number of
+	 * consecutive failed attempts lets implementations back off progressively.
+	 * 
+	 * @param attempts the number of consecutive failed attempts so far
+	 * @throws InterruptedException if the waiting thread has been interrupted
+	 */
+	void idle(int attempts) throws InterruptedException;
+
+	/**
+	 * Called after a successful put or take so that waiting threads, if any, can
+	 * retry.
+	 */
+	void signalAll();
+}
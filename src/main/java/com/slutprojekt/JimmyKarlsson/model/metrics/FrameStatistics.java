@@ -0,0 +1,17 @@
+package com.slutprojekt.JimmyKarlsson.model.metrics;
+
+/**
+ * Immutable snapshot of how the GUI's refresh frames have performed since
+ * measuring started or the statistics were last reset. Frame times cover the
+ * work done in a frame; the queue depth is the number of tasks waiting on the
+ * event dispatch thread, sampled at the start of every frame.
+ */
+public record FrameStatistics(long frames, // Frames measured.
+		double meanFrameNanos, // Mean time spent in a frame.
+		long p99FrameNanos, // 99th percentile of the time spent in a frame.
+		long maxFrameNanos, // Longest time spent in a frame.
+		long maxFrameIntervalNanos, // Longest time from the start of one frame to the next.
+		double meanQueueDepth, // Mean number of tasks waiting on the event dispatch thread.
+		long maxQueueDepth // Most tasks seen waiting on the event dispatch thread.
+) {
+}
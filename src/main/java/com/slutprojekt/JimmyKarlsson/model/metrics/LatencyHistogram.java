@@ -0,0 +1,162 @@
+package com.slutprojekt.JimmyKarlsson.model.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free, log-bucketed latency histogram in the style of HdrHistogram.
+ * Values below 128 get a bucket each; above that, every power of two is split
+ * into 128 linear sub-buckets, so any recorded value is reported with a
+ * relative error below 1%. Recording is a single atomic increment plus two
+ * striped updates and never allocates, so it can sit on the buffer hot path.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // 128
+	// Magnitudes 7..62 of a non-negative long each get SUB_BUCKETS buckets, on
+	// top of the first SUB_BUCKETS exact ones.
+	private static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Records a single value. Negative values are recorded as zero.
+	 *
+	 * @param value the value to record, typically nanoseconds
+	 */
+	public void record(long value) {
+		long clamped = Math.max(0, value);
+		buckets.incrementAndGet(indexOf(clamped));
+		count.increment();
+		sum.add(clamped);
+		max.accumulate(clamped);
+	}
+
+	/**
+	 * Clears all recorded values. Values recorded concurrently may or may not
+	 * survive the reset.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			buckets.set(i, 0);
+		}
+		count.reset();
+		sum.reset();
+		max.reset();
+	}
+
+	// Statistics methods
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public double getMean() {
+		long n = count.sum();
+		return n == 0 ? 0.0 : (double) sum.sum() / n;
+	}
+
+	/**
+	 * Gets the value below which the given percentage of recorded values fall.
+	 * The buckets are read in place, so the lookup does not allocate.
+	 *
+	 * @param percentile the percentile, between 0 and 100
+	 * @return the value at the percentile, or 0 if nothing has been recorded
+	 */
+	public long getValueAtPercentile(double percentile) {
+		long total = bucketTotal();
+		if (total == 0) {
+			return 0;
+		}
+		long rank = rankOf(percentile, total);
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			seen += buckets.get(i);
+			if (seen >= rank) {
+				return Math.min(highestValueIn(i), getMax());
+			}
+		}
+		return getMax(); // Reset while being read.
+	}
+
+	/**
+	 * Gets the values at several percentiles in a single pass over the buckets,
+	 * which is cheaper than looking them up one by one and, since every value
+	 * comes from the same pass, keeps them consistent with each other.
+	 *
+	 * @param percentiles the percentiles, between 0 and 100, in ascending order
+	 * @return the value at each percentile, or zeros if nothing has been
+	 *         recorded
+	 * @throws IllegalArgumentException if the percentiles are not in ascending
+	 *                                  order
+	 */
+	public long[] getValuesAtPercentiles(double... percentiles) {
+		for (int p = 1; p < percentiles.length; p++) {
+			if (percentiles[p] < percentiles[p - 1]) {
+				throw new IllegalArgumentException("Percentiles must be in ascending order.");
+			}
+		}
+		long[] values = new long[percentiles.length];
+		long total = bucketTotal();
+		if (total == 0) {
+			return values;
+		}
+		long max = getMax();
+		int p = 0;
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT && p < percentiles.length; i++) {
+			seen += buckets.get(i);
+			while (p < percentiles.length && seen >= rankOf(percentiles[p], total)) {
+				values[p++] = Math.min(highestValueIn(i), max);
+			}
+		}
+		while (p < percentiles.length) {
+			values[p++] = max; // Reset while being read.
+		}
+		return values;
+	}
+
+	// Private helper methods
+
+	// Counts the recorded values from the buckets themselves rather than from
+	// the count, so that the walk over them finds every rank it is given.
+	private long bucketTotal() {
+		long total = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			total += buckets.get(i);
+		}
+		return total;
+	}
+
+	private static long rankOf(double percentile, long total) {
+		return Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+	}
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(value); // At least SUB_BUCKET_BITS.
+		int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	static long highestValueIn(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int magnitude = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long subBucket = index % SUB_BUCKETS;
+		int shift = magnitude - SUB_BUCKET_BITS;
+		return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,28 @@
+package com.slutprojekt.JimmyKarlsson.model.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Immutable snapshot of the metrics of a LoadBalancer: how long items wait in
+ * the buffer (dwell time) and how fast every producer and consumer runs.
+ */
+public record LoadBalancerMetrics(long itemsProduced, // Items put into the buffer since it was created.
+		long itemsConsumed, // Items taken from the buffer since it was created.
+		long dwellCount, // Number of dwell times recorded.
+		double dwellMeanNanos, // Mean dwell time.
+		long dwellP50Nanos, // Median dwell time.
+		long dwellP99Nanos, // 99th percentile dwell time.
+		long dwellP999Nanos, // 99.9th percentile dwell time.
+		long dwellMaxNanos, // Longest dwell time.
+		double[] producerRates, // Items per second, per running producer.
+		double[] consumerRates // Items per second, per running consumer.
+) {
+
+	public double totalProducerRate() {
+		return Arrays.stream(producerRates).sum();
+	}
+
+	public double totalConsumerRate() {
+		return Arrays.stream(consumerRates).sum();
+	}
+}
@@ -0,0 +1,17 @@
+package com.slutprojekt.JimmyKarlsson.model.metrics;
+
+/**
+ * Immutable snapshot of the metrics of one priority class of a priority buffer:
+ * how many of its items are waiting and how long they waited.
+ */
+public record PriorityClassMetrics(String name, // Name of the class.
+		int occupancy, // Items of this class in the buffer.
+		int capacity, // Maximum number of items of this class in the buffer.
+		long dwellCount, // Number of dwell times recorded.
+		double dwellMeanNanos, // Mean dwell time.
+		long dwellP50Nanos, // Median dwell time.
+		long dwellP99Nanos, // 99th percentile dwell time.
+		long dwellP999Nanos, // 99.9th percentile dwell time.
+		long dwellMaxNanos // Longest dwell time.
+) {
+}
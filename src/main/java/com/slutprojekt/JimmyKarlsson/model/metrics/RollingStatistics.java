@@ -0,0 +1,202 @@
+package com.slutprojekt.JimmyKarlsson.model.metrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rolling statistics over a stream of non-negative int samples taken at a
+ * fixed interval, such as buffer occupancy. Samples are kept in a primitive
+ * ring covering the longest window, and every window maintains its running
+ * sum, a count per sample value, monotonic queues for its minimum and maximum,
+ * and an EWMA, so recording a sample takes constant time per window and does
+ * not allocate unless a sample exceeds every value seen before. Percentiles
+ * are found from the value counts when a snapshot is taken.
+ *
+ * Recording and snapshots are synchronized, so one thread can sample while
+ * others read.
+ */
+public class RollingStatistics {
+
+	/** One second, ten seconds, a minute and fifteen minutes. */
+	public static final List<Duration> DEFAULT_WINDOWS = List.of(Duration.ofSeconds(1), Duration.ofSeconds(10),
+			Duration.ofMinutes(1), Duration.ofMinutes(15));
+
+	private static final int INITIAL_VALUE_RANGE = 1024;
+
+	private final int[] samples; // Ring of the latest samples, as many as the longest window holds.
+	private final Window[] windows;
+	private long sampleCount; // Samples recorded so far, also the index of the next one.
+
+	/**
+	 * Constructs empty statistics over the default windows.
+	 *
+	 * @param sampleInterval the time between two samples
+	 */
+	public RollingStatistics(Duration sampleInterval) {
+		this(sampleInterval, DEFAULT_WINDOWS);
+	}
+
+	/**
+	 * Constructs empty statistics.
+	 *
+	 * @param sampleInterval the time between two samples
+	 * @param windows        the windows to keep statistics over, each holding
+	 *                       at least one sample
+	 */
+	public RollingStatistics(Duration sampleInterval, List<Duration> windows) {
+		if (sampleInterval.isNegative() || sampleInterval.isZero() || windows.isEmpty()) {
+			throw new IllegalArgumentException("Sample interval must be positive and windows must not be empty.");
+		}
+		this.windows = new Window[windows.size()];
+		int longest = 1;
+		for (int i = 0; i < windows.size(); i++) {
+			long length = Math.max(1, windows.get(i).toNanos() / sampleInterval.toNanos());
+			if (length > Integer.MAX_VALUE / 2) {
+				throw new IllegalArgumentException("Window " + windows.get(i) + " holds too many samples.");
+			}
+			double alpha = 1 - Math.exp(-(double) sampleInterval.toNanos() / windows.get(i).toNanos());
+			this.windows[i] = new Window(windows.get(i), (int) length, alpha);
+			longest = Math.max(longest, (int) length);
+		}
+		this.samples = new int[longest];
+	}
+
+	/**
+	 * Records the next sample. Negative samples are recorded as zero.
+	 *
+	 * @param value the sample
+	 */
+	public synchronized void record(int value) {
+		int sample = Math.max(0, value);
+		long index = sampleCount;
+		for (Window window : windows) {
+			window.add(index, sample);
+		}
+		samples[(int) (index % samples.length)] = sample; // After the longest window has read the sample it replaces.
+		sampleCount++;
+	}
+
+	public synchronized long getSampleCount() {
+		return sampleCount;
+	}
+
+	/**
+	 * Takes a snapshot of one window.
+	 *
+	 * @param window the index of the window, in the order given on construction
+	 * @return the statistics of that window
+	 */
+	public synchronized WindowStatistics snapshot(int window) {
+		return windows[window].snapshot();
+	}
+
+	/**
+	 * Takes a snapshot of every window.
+	 *
+	 * @return the statistics of every window, in the order given on construction
+	 */
+	public synchronized List<WindowStatistics> snapshot() {
+		List<WindowStatistics> snapshots = new ArrayList<>(windows.length);
+		for (Window window : windows) {
+			snapshots.add(window.snapshot());
+		}
+		return snapshots;
+	}
+
+	// The state of one rolling window. Only used while holding the lock.
+	private final class Window {
+		private final Duration duration;
+		private final int length; // Samples the window holds once full.
+		private final double alpha; // EWMA weight of a new sample.
+		private long sum;
+		private int[] valueCounts = new int[INITIAL_VALUE_RANGE]; // Samples in the window per value.
+		private final MonotonicQueue minimums;
+		private final MonotonicQueue maximums;
+		private double ewma;
+
+		private Window(Duration duration, int length, double alpha) {
+			this.duration = duration;
+			this.length = length;
+			this.alpha = alpha;
+			this.minimums = new MonotonicQueue(false); // Sized by the length, so created after it.
+			this.maximums = new MonotonicQueue(true);
+		}
+
+		private void add(long index, int sample) {
+			if (index >= length) {
+				int leaving = samples[(int) ((index - length) % samples.length)];
+				sum -= leaving;
+				valueCounts[leaving]--;
+			}
+			sum += sample;
+			if (sample >= valueCounts.length) {
+				valueCounts = Arrays.copyOf(valueCounts, Math.max(sample + 1, valueCounts.length * 2));
+			}
+			valueCounts[sample]++;
+			minimums.add(index, sample, index - length);
+			maximums.add(index, sample, index - length);
+			ewma = index == 0 ? sample : ewma + alpha * (sample - ewma);
+		}
+
+		private WindowStatistics snapshot() {
+			int count = (int) Math.min(sampleCount, length);
+			if (count == 0) {
+				return new WindowStatistics(duration, 0, 0, 0, 0, 0, 0, 0, 0);
+			}
+			return new WindowStatistics(duration, count, (double) sum / count, minimums.head(), maximums.head(),
+					percentile(count, 50), percentile(count, 95), percentile(count, 99), ewma);
+		}
+
+		// The smallest value with at least the given share of samples at or below it.
+		private int percentile(int count, double percentile) {
+			long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+			long seen = 0;
+			for (int value = 0; value < valueCounts.length; value++) {
+				seen += valueCounts[value];
+				if (seen >= rank) {
+					return value;
+				}
+			}
+			return valueCounts.length - 1;
+		}
+
+		// Indices of the samples that can still become the window's minimum (or
+		// maximum), oldest first, with their values increasing (or decreasing).
+		// Every sample is added and removed at most once, so constant amortized
+		// time per sample.
+		private final class MonotonicQueue {
+			private final boolean keepsMaximum;
+			private final long[] indices = new long[length + 1];
+			private long head; // Positions in indices, growing forever.
+			private long tail;
+
+			private MonotonicQueue(boolean keepsMaximum) {
+				this.keepsMaximum = keepsMaximum;
+			}
+
+			private void add(long index, int sample, long expiredUpTo) {
+				while (tail > head && indices[(int) (head % indices.length)] <= expiredUpTo) {
+					head++; // Left the window.
+				}
+				while (tail > head && !dominates(valueAt(tail - 1), sample)) {
+					tail--; // Can never be the extreme again, as the new sample outlives it.
+				}
+				indices[(int) (tail++ % indices.length)] = index;
+			}
+
+			private int head() {
+				return valueAt(head);
+			}
+
+			private int valueAt(long position) {
+				return samples[(int) (indices[(int) (position % indices.length)] % samples.length)];
+			}
+
+			private boolean dominates(int kept, int sample) {
+				return keepsMaximum ? kept > sample : kept < sample;
+			}
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package com.slutprojekt.JimmyKarlsson.model.metrics;
+
+/**
+ * Immutable snapshot of the metrics of one stage of a Pipeline: how full its
+ * buffer is, how many items it has processed, and how long its workers have
+ * waited for room in the next stage, which is where backpressure shows.
+ */
+public record StageMetrics(String name, // Name of the stage.
+		int currentSize, // Items waiting in the stage's buffer.
+		int capacity, // Capacity of the stage's buffer.
+		int workers, // Threads processing items in the stage.
+		long itemsReceived, // Items put into the stage's buffer since it was created.
+		long itemsProcessed, // Items processed and handed on since the stage started.
+		long itemsDropped, // Items the processor dropped since the stage started.
+		long itemsFailed, // Items the processor threw on since the stage started.
+		double ratePerSecond, // Items processed per second since the stage started.
+		int blockedWorkers, // Workers waiting for room in the next stage right now.
+		long blockedNanos, // Total time workers have waited for room in the next stage.
+		long dwellP99Nanos // 99th percentile of the time items waited in the stage's buffer.
+) {
+}
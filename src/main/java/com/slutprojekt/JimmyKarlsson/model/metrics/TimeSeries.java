@@ -0,0 +1,208 @@
+package com.slutprojekt.JimmyKarlsson.model.metrics;
+
+import java.time.Duration;
+
+/**
+ * Several int series sampled together at a fixed interval, kept for a fixed
+ * length of history in primitive rings. Memory for the raw samples is
+ * allocated in chunks as the history fills, so a long history costs nothing
+ * until it has been recorded.
+ *
+ * Every series also keeps the minimum and maximum of each block of 64, 4096
+ * and 262144 samples, updated as samples arrive. That lets
+ * {@link #downsample(int, long, long, int[], int[])} find the exact minimum
+ * and maximum of any range from a bounded number of blocks, so drawing a chart
+ * costs time in proportion to its width, not to the samples it spans.
+ *
+ * One thread records while others read. Readers only look at samples
+ * published before they read {@link #getSampleCount()}; samples overwritten
+ * while a reader looks at them show up as a momentary glitch, never an error.
+ */
+public class TimeSeries {
+
+	private static final int CHUNK_BITS = 16; // Raw samples are allocated 65536 at a time.
+	private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+	private static final int LEVEL_BITS = 6; // Every level aggregates 64 blocks of the one below.
+	private static final int LEVELS = 3; // Blocks of 64, 4096 and 262144 samples.
+	private static final int LARGEST_BLOCK = 1 << (LEVEL_BITS * LEVELS);
+	// The oldest samples are being overwritten, so readers keep this far away from them.
+	private static final int OVERWRITE_MARGIN = 1 << 12;
+
+	private final Duration sampleInterval;
+	private final int seriesCount;
+	private final int capacity; // Samples kept per series, a multiple of LARGEST_BLOCK.
+	private final int[][][] chunks; // Per series, the raw samples, chunk by chunk.
+	private final int[][][] blockMinimums; // Per series and level, the minimum of every block.
+	private final int[][][] blockMaximums;
+	private volatile long sampleCount; // Samples recorded so far, also the index of the next one.
+
+	/**
+	 * Constructs empty series.
+	 *
+	 * @param seriesCount    the number of series sampled together
+	 * @param sampleInterval the time between two samples
+	 * @param history        how long samples are kept, rounded up to a whole
+	 *                       number of the largest blocks
+	 */
+	public TimeSeries(int seriesCount, Duration sampleInterval, Duration history) {
+		if (seriesCount <= 0 || sampleInterval.isNegative() || sampleInterval.isZero() || history.isNegative()
+				|| history.isZero()) {
+			throw new IllegalArgumentException("Series count, sample interval and history must be positive.");
+		}
+		long samples = (history.toNanos() + sampleInterval.toNanos() - 1) / sampleInterval.toNanos();
+		long rounded = (samples + LARGEST_BLOCK - 1) / LARGEST_BLOCK * LARGEST_BLOCK;
+		if (rounded > Integer.MAX_VALUE / 2) {
+			throw new IllegalArgumentException("History holds too many samples.");
+		}
+		this.sampleInterval = sampleInterval;
+		this.seriesCount = seriesCount;
+		this.capacity = (int) rounded;
+		this.chunks = new int[seriesCount][capacity >> CHUNK_BITS][];
+		this.blockMinimums = new int[seriesCount][LEVELS][];
+		this.blockMaximums = new int[seriesCount][LEVELS][];
+		for (int series = 0; series < seriesCount; series++) {
+			for (int level = 0; level < LEVELS; level++) {
+				blockMinimums[series][level] = new int[capacity >> (LEVEL_BITS * (level + 1))];
+				blockMaximums[series][level] = new int[capacity >> (LEVEL_BITS * (level + 1))];
+			}
+		}
+	}
+
+	/**
+	 * Records the next sample of every series. Must only be called from one
+	 * thread at a time.
+	 *
+	 * @param values one value per series, in order
+	 */
+	public void record(int[] values) {
+		long index = sampleCount;
+		int slot = (int) (index % capacity);
+		for (int series = 0; series < seriesCount; series++) {
+			int value = values[series];
+			int[] chunk = chunks[series][slot >> CHUNK_BITS];
+			if (chunk == null) {
+				chunk = chunks[series][slot >> CHUNK_BITS] = new int[CHUNK_SIZE];
+			}
+			chunk[slot & (CHUNK_SIZE - 1)] = value;
+			for (int level = 0; level < LEVELS; level++) {
+				int bits = LEVEL_BITS * (level + 1);
+				int block = slot >> bits;
+				if ((slot & ((1 << bits) - 1)) == 0) {
+					blockMinimums[series][level][block] = value; // First sample of a new block.
+					blockMaximums[series][level][block] = value;
+				} else {
+					blockMinimums[series][level][block] = Math.min(blockMinimums[series][level][block], value);
+					blockMaximums[series][level][block] = Math.max(blockMaximums[series][level][block], value);
+				}
+			}
+		}
+		sampleCount = index + 1; // Publishes the sample.
+	}
+
+	public long getSampleCount() {
+		return sampleCount;
+	}
+
+	// The index of the oldest sample still kept.
+	public long getFirstSample() {
+		return Math.max(0, sampleCount - capacity);
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int getSeriesCount() {
+		return seriesCount;
+	}
+
+	public Duration getSampleInterval() {
+		return sampleInterval;
+	}
+
+	/**
+	 * Gets a single sample.
+	 *
+	 * @param series the index of the series
+	 * @param index  the index of the sample, which must still be kept
+	 * @return the sample
+	 */
+	public int get(int series, long index) {
+		int slot = (int) (index % capacity);
+		return chunks[series][slot >> CHUNK_BITS][slot & (CHUNK_SIZE - 1)];
+	}
+
+	/**
+	 * Splits a range of samples into equal columns and finds the minimum and
+	 * maximum of every column. Each column is assembled from at most 63 blocks
+	 * or samples per level at either end, however many samples it spans.
+	 *
+	 * @param series   the index of the series
+	 * @param from     the first sample of the range
+	 * @param to       the sample after the range
+	 * @param minimums receives the minimum of every column, or Integer.MAX_VALUE
+	 *                 for a column without samples
+	 * @param maximums receives the maximum of every column, or Integer.MIN_VALUE
+	 *                 for a column without samples; as many as there are
+	 *                 minimums
+	 * @return the number of columns with samples
+	 */
+	public int downsample(int series, long from, long to, int[] minimums, int[] maximums) {
+		long count = sampleCount;
+		long first = Math.max(from, Math.max(0, count - capacity + OVERWRITE_MARGIN)); // Not about to be overwritten.
+		long last = Math.min(to, count);
+		int columns = minimums.length;
+		double span = (double) (to - from) / columns;
+		int filled = 0;
+		for (int column = 0; column < columns; column++) {
+			long start = Math.max(first, from + (long) Math.ceil(column * span));
+			long end = Math.min(last, from + (long) Math.ceil((column + 1) * span));
+			if (start < end) {
+				fillColumn(series, start, end, minimums, maximums, column);
+				filled++;
+			} else if (column > 0 && start < last && minimums[column - 1] != Integer.MAX_VALUE) {
+				minimums[column] = minimums[column - 1]; // Narrower than a sample, so repeat the one before.
+				maximums[column] = maximums[column - 1];
+				filled++;
+			} else {
+				minimums[column] = Integer.MAX_VALUE;
+				maximums[column] = Integer.MIN_VALUE;
+			}
+		}
+		return filled;
+	}
+
+	// Private helper methods
+
+	// Finds the minimum and maximum of the samples in [start, end) from the
+	// largest aligned blocks that fit.
+	private void fillColumn(int series, long start, long end, int[] minimums, int[] maximums, int column) {
+		int min = Integer.MAX_VALUE;
+		int max = Integer.MIN_VALUE;
+		long index = start;
+		while (index < end) {
+			int level = LEVELS;
+			while (level > 0) {
+				int size = 1 << (LEVEL_BITS * level);
+				if (index % size == 0 && index + size <= end) {
+					break;
+				}
+				level--;
+			}
+			int slot = (int) (index % capacity);
+			if (level == 0) {
+				int value = get(series, index);
+				min = Math.min(min, value);
+				max = Math.max(max, value);
+				index++;
+			} else {
+				int block = slot >> (LEVEL_BITS * level);
+				min = Math.min(min, blockMinimums[series][level - 1][block]);
+				max = Math.max(max, blockMaximums[series][level - 1][block]);
+				index += 1 << (LEVEL_BITS * level);
+			}
+		}
+		minimums[column] = min;
+		maximums[column] = max;
+	}
+}
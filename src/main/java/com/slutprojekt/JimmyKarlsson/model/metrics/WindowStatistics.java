@@ -0,0 +1,20 @@
+package com.slutprojekt.JimmyKarlsson.model.metrics;
+
+import java.time.Duration;
+
+/**
+ * Immutable snapshot of the samples in one rolling window of a
+ * RollingStatistics. While the window is still filling up, the statistics
+ * cover the samples taken so far.
+ */
+public record WindowStatistics(Duration window, // Length of the window.
+		int count, // Samples in the window.
+		double mean, // Mean of the samples in the window.
+		int min, // Smallest sample in the window.
+		int max, // Largest sample in the window.
+		int p50, // Median of the samples in the window.
+		int p95, // 95th percentile of the samples in the window.
+		int p99, // 99th percentile of the samples in the window.
+		double ewma // Exponentially weighted moving average with the window as time constant.
+) {
+}
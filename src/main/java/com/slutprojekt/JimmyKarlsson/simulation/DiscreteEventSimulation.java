@@ -0,0 +1,200 @@
+package com.slutprojekt.JimmyKarlsson.simulation;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.slutprojekt.JimmyKarlsson.model.Pacer;
+import com.slutprojekt.JimmyKarlsson.model.Rate;
+import com.slutprojekt.JimmyKarlsson.simulation.interfaces.SimulationEngine;
+
+/**
+ * Runs a simulation in virtual time. Instead of sleeping, every producer and
+ * consumer schedules its next attempt as an event in a priority-queue
+ * calendar, and a virtual clock jumps straight from one event to the next.
+ * The model is the same as the real-time one: producers and consumers act on
+ * deadlines one interval apart, catching up on at most
+ * {@link Pacer#MAX_LAG_NANOS} of missed items after blocking, and either side
+ * blocks in FIFO order while the buffer is full or empty. A
+ * day of traffic therefore takes as long as it takes to process its events,
+ * typically seconds. Every producer and consumer needs an interval greater
+ * than zero, or virtual time would never advance.
+ */
+public class DiscreteEventSimulation implements SimulationEngine {
+
+	// Event kinds. At equal times, producers and consumers act before the
+	// occupancy is sampled, as in a real run where sampling starts once all
+	// threads are up.
+	private static final int ACTOR_READY = 0;
+	private static final int SAMPLE = 1;
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws IllegalArgumentException if a producer or consumer has a zero
+	 *                                  interval
+	 */
+	@Override
+	public SimulationReport run(SimulationConfig config) {
+		requirePositiveIntervals(config.producerRates());
+		requirePositiveIntervals(config.consumerRates());
+		return new Run(config).execute();
+	}
+
+	private static void requirePositiveIntervals(List<Rate> rates) {
+		for (Rate rate : rates) {
+			if (rate.intervalNanos() == 0) {
+				throw new IllegalArgumentException(
+						"Delays must be greater than zero in a discrete-event run, or virtual time stands still.");
+			}
+		}
+	}
+
+	// State of a single run. Kept separate so the engine itself is reusable.
+	private static final class Run {
+		private final SimulationConfig config;
+		private final long[] producerDelays; // In nanoseconds.
+		private final long[] consumerDelays; // In nanoseconds.
+		private final long[] producerDeadlines; // Time each producer's latest attempt was due.
+		private final long[] consumerDeadlines; // Time each consumer's latest attempt was due.
+		private final PriorityQueue<Event> calendar = new PriorityQueue<>();
+		private final ArrayDeque<Integer> blockedProducers = new ArrayDeque<>(); // Waiting on a full buffer.
+		private final ArrayDeque<Integer> blockedConsumers = new ArrayDeque<>(); // Waiting on an empty buffer.
+		private final int[] samples;
+		private long clock; // Current virtual time in nanoseconds.
+		private long sequence; // Tie-breaker keeping same-time events in scheduling order.
+		private int size; // Items currently in the buffer.
+		private long produced;
+		private long consumed;
+		private int nextSample;
+
+		private Run(SimulationConfig config) {
+			this.config = config;
+			this.producerDelays = toNanos(config.producerRates());
+			this.consumerDelays = toNanos(config.consumerRates());
+			this.producerDeadlines = new long[producerDelays.length];
+			this.consumerDeadlines = new long[consumerDelays.length];
+			this.samples = new int[config.sampleCount()];
+			this.size = config.initialBufferSize();
+		}
+
+		private SimulationReport execute() {
+			for (int i = 0; i < producerDelays.length; i++) {
+				schedule(0, ACTOR_READY, i, true);
+			}
+			for (int i = 0; i < consumerDelays.length; i++) {
+				schedule(0, ACTOR_READY, i, false);
+			}
+			if (samples.length > 0) {
+				schedule(0, SAMPLE, 0, false);
+			}
+
+			long end = config.duration().toNanos();
+			Event event;
+			while ((event = calendar.poll()) != null && event.time < end) {
+				clock = event.time;
+				if (event.kind == SAMPLE) {
+					sample();
+				} else if (event.producer) {
+					producerReady(event.actor);
+				} else {
+					consumerReady(event.actor);
+				}
+			}
+			return new SimulationReport(config, config.duration(), produced, consumed, samples);
+		}
+
+		// A producer wants to put an item.
+		private void producerReady(int producer) {
+			if (size >= config.bufferCapacity()) {
+				blockedProducers.add(producer); // Blocks until a consumer frees a slot.
+				return;
+			}
+			put(producer);
+			Integer waiting = blockedConsumers.poll();
+			if (waiting != null) {
+				take(waiting); // The item wakes the longest-waiting consumer right away.
+			}
+		}
+
+		// A consumer wants to take an item.
+		private void consumerReady(int consumer) {
+			if (size == 0) {
+				blockedConsumers.add(consumer); // Blocks until a producer puts an item.
+				return;
+			}
+			take(consumer);
+			Integer waiting = blockedProducers.poll();
+			if (waiting != null) {
+				put(waiting); // The free slot wakes the longest-waiting producer right away.
+			}
+		}
+
+		private void put(int producer) {
+			size++;
+			produced++;
+			schedule(nextDeadline(producerDeadlines, producer, producerDelays[producer]), ACTOR_READY, producer, true);
+		}
+
+		private void take(int consumer) {
+			size--;
+			consumed++;
+			schedule(nextDeadline(consumerDeadlines, consumer, consumerDelays[consumer]), ACTOR_READY, consumer,
+					false);
+		}
+
+		// Advances an actor's deadline the same way Pacer does and returns when it acts next.
+		private long nextDeadline(long[] deadlines, int actor, long interval) {
+			deadlines[actor] = Math.max(deadlines[actor] + interval, clock - Pacer.MAX_LAG_NANOS);
+			return Math.max(deadlines[actor], clock);
+		}
+
+		private void sample() {
+			samples[nextSample++] = size;
+			if (nextSample < samples.length) {
+				schedule(nextSample * config.sampleInterval().toNanos(), SAMPLE, 0, false);
+			}
+		}
+
+		private void schedule(long time, int kind, int actor, boolean producer) {
+			calendar.add(new Event(time, kind, actor, producer, sequence++));
+		}
+
+		private static long[] toNanos(List<Rate> rates) {
+			long[] nanos = new long[rates.size()];
+			for (int i = 0; i < nanos.length; i++) {
+				nanos[i] = rates.get(i).intervalNanos();
+			}
+			return nanos;
+		}
+	}
+
+	// An entry in the event calendar, ordered by time, then kind, then
+	// scheduling order.
+	private static final class Event implements Comparable<Event> {
+		private final long time;
+		private final int kind;
+		private final int actor;
+		private final boolean producer;
+		private final long sequence;
+
+		private Event(long time, int kind, int actor, boolean producer, long sequence) {
+			this.time = time;
+			this.kind = kind;
+			this.actor = actor;
+			this.producer = producer;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(Event other) {
+			if (time != other.time) {
+				return Long.compare(time, other.time);
+			}
+			if (kind != other.kind) {
+				return Integer.compare(kind, other.kind);
+			}
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+}
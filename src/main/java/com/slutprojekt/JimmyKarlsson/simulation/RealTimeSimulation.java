@@ -0,0 +1,146 @@
+package com.slutprojekt.JimmyKarlsson.simulation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.slutprojekt.JimmyKarlsson.model.Buffer;
+import com.slutprojekt.JimmyKarlsson.model.Durability;
+import com.slutprojekt.JimmyKarlsson.model.ExecutionMode;
+import com.slutprojekt.JimmyKarlsson.model.Item;
+import com.slutprojekt.JimmyKarlsson.model.LoadBalancer;
+import com.slutprojekt.JimmyKarlsson.model.OccupancyGauge;
+import com.slutprojekt.JimmyKarlsson.model.interfaces.OccupancyListener;
+import com.slutprojekt.JimmyKarlsson.simulation.interfaces.SimulationEngine;
+
+/**
+ * Runs a simulation in real time on an actual LoadBalancer, with real
+ * producer and consumer threads, but without any GUI. Occupancy is sampled
+ * through the buffer's occupancy gauge, so nothing in this engine loads AWT or
+ * Swing classes.
+ *
+ * With a journal, the buffer's contents survive from one run to the next: the
+ * items a previous run left behind are the starting contents, topped up to the
+ * config's initial buffer size.
+ */
+public class RealTimeSimulation implements SimulationEngine {
+
+	private final ExecutionMode executionMode; // How producers and consumers are run.
+	private final Path journalDirectory; // Where the buffer is journaled, or null for none.
+	private final Durability durability; // How long puts wait for the journal.
+
+	/**
+	 * Constructs a RealTimeSimulation that runs producers and consumers on
+	 * platform threads.
+	 */
+	public RealTimeSimulation() {
+		this(ExecutionMode.PLATFORM_THREADS);
+	}
+
+	/**
+	 * Constructs a RealTimeSimulation that runs producers and consumers in the
+	 * given execution mode.
+	 *
+	 * @param executionMode whether to use platform or virtual threads
+	 */
+	public RealTimeSimulation(ExecutionMode executionMode) {
+		this(executionMode, null, Durability.WRITE);
+	}
+
+	/**
+	 * Constructs a RealTimeSimulation that journals the buffer's contents, so
+	 * the next run with the same directory resumes from them.
+	 *
+	 * @param executionMode    whether to use platform or virtual threads
+	 * @param journalDirectory where the journal keeps its files, or null for
+	 *                         no journal
+	 * @param durability       how long producers wait for their puts to be
+	 *                         journaled
+	 */
+	public RealTimeSimulation(ExecutionMode executionMode, Path journalDirectory, Durability durability) {
+		this.executionMode = executionMode;
+		this.journalDirectory = journalDirectory;
+		this.durability = durability;
+	}
+
+	@Override
+	public SimulationReport run(SimulationConfig config) throws InterruptedException {
+		LoadBalancer loadBalancer = new LoadBalancer(config.bufferCapacity(), executionMode);
+		Buffer buffer = loadBalancer.getBuffer();
+		int[] samples = new int[config.sampleCount()];
+		CountDownLatch sampled = new CountDownLatch(1);
+
+		if (journalDirectory == null) {
+			loadBalancer.applyState(config.toState());
+		} else {
+			resumeFromJournal(loadBalancer, config);
+		}
+		long producedBefore = buffer.getTotalPut();
+		long consumedBefore = buffer.getTotalTaken();
+		long started = System.nanoTime();
+
+		// The listener runs on the gauge's publisher thread only, so the index
+		// needs no synchronization.
+		OccupancyGauge.Subscription subscription = buffer.getOccupancyGauge()
+				.subscribeSampled(new Sampler(samples, sampled), config.sampleInterval());
+		try {
+			sampled.await(config.duration().toNanos() + TimeUnit.SECONDS.toNanos(1), TimeUnit.NANOSECONDS);
+			// The last sample may come before the end when the interval does not
+			// divide the duration; run the rest of it anyway.
+			TimeUnit.NANOSECONDS.sleep(started + config.duration().toNanos() - System.nanoTime());
+		} finally {
+			subscription.cancel();
+			loadBalancer.shutdown();
+			buffer.getOccupancyGauge().shutdown();
+		}
+
+		Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+		return new SimulationReport(config, elapsed, buffer.getTotalPut() - producedBefore,
+				buffer.getTotalTaken() - consumedBefore, samples);
+	}
+
+	// Like applyState, but keeps the items the journal recovered instead of
+	// clearing the buffer first.
+	private void resumeFromJournal(LoadBalancer loadBalancer, SimulationConfig config) {
+		try {
+			loadBalancer.enableJournal(journalDirectory, durability);
+		} catch (IOException e) {
+			loadBalancer.shutdown();
+			throw new UncheckedIOException(e);
+		}
+		Buffer buffer = loadBalancer.getBuffer();
+		int recovered = buffer.getCurrentSize();
+		buffer.setCapacityAndFill(Math.max(config.bufferCapacity(), recovered),
+				Math.max(config.initialBufferSize(), recovered));
+		config.producerRates().forEach(rate -> loadBalancer.addProducer(rate, new Item()));
+		config.consumerRates().forEach(loadBalancer::addConsumer);
+	}
+
+	// Fills the sample array, one occupancy value per notification.
+	private static final class Sampler implements OccupancyListener {
+		private final int[] samples;
+		private final CountDownLatch done;
+		private int next;
+
+		private Sampler(int[] samples, CountDownLatch done) {
+			this.samples = samples;
+			this.done = done;
+			if (samples.length == 0) {
+				done.countDown();
+			}
+		}
+
+		@Override
+		public void occupancyChanged(int size, int capacity) {
+			if (next < samples.length) {
+				samples[next++] = size;
+				if (next == samples.length) {
+					done.countDown();
+				}
+			}
+		}
+	}
+}
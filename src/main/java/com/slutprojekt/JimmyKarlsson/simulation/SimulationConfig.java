@@ -0,0 +1,109 @@
+package com.slutprojekt.JimmyKarlsson.simulation;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import com.slutprojekt.JimmyKarlsson.model.LoadBalancerState;
+import com.slutprojekt.JimmyKarlsson.model.Rate;
+import com.slutprojekt.JimmyKarlsson.utils.Utilities;
+
+/**
+ * Immutable record describing a simulation run: the same topology a
+ * LoadBalancerState captures, plus how long to run and how often to sample
+ * buffer occupancy.
+ */
+public record SimulationConfig(List<Rate> producerRates, // Rate of items, per producer.
+		List<Rate> consumerRates, // Rate of items, per consumer.
+		int bufferCapacity, // The maximum number of items the buffer can hold.
+		int initialBufferSize, // Number of items in the buffer when the run starts.
+		Duration duration, // How long the simulated traffic runs.
+		Duration sampleInterval // How often buffer occupancy is sampled.
+) {
+
+	/**
+	 * The default sample interval, so that ten samples make up the ten-second
+	 * window whose average LoggerSingleton logs.
+	 */
+	public static final Duration DEFAULT_SAMPLE_INTERVAL = Duration.ofSeconds(1);
+
+	/**
+	 * The most occupancy samples a run may take, which keeps the sample array
+	 * of a report at a few megabytes; a day sampled every 100 ms fits.
+	 */
+	public static final int MAX_SAMPLES = 1_000_000;
+
+	public SimulationConfig {
+		producerRates = List.copyOf(producerRates);
+		consumerRates = List.copyOf(consumerRates);
+		Objects.requireNonNull(duration);
+		Objects.requireNonNull(sampleInterval);
+		if (bufferCapacity < 1) {
+			throw new IllegalArgumentException("Buffer capacity must be at least 1.");
+		}
+		if (initialBufferSize < 0 || initialBufferSize > bufferCapacity) {
+			throw new IllegalArgumentException("Initial buffer size must be between 0 and the capacity.");
+		}
+		if (duration.isNegative() || duration.isZero() || sampleInterval.isNegative() || sampleInterval.isZero()) {
+			throw new IllegalArgumentException("Duration and sample interval must be positive.");
+		}
+		if (sampleInterval.compareTo(duration) > 0) {
+			throw new IllegalArgumentException("Sample interval cannot be longer than the duration.");
+		}
+		if (duration.dividedBy(sampleInterval) > MAX_SAMPLES) {
+			throw new IllegalArgumentException(
+					"A run can take at most " + MAX_SAMPLES + " samples; use a longer sample interval.");
+		}
+	}
+
+	/**
+	 * Creates a config that runs the topology captured in a LoadBalancerState,
+	 * sampled at the default interval or once if the run is shorter than that.
+	 *
+	 * @param state    the saved load balancer state
+	 * @param duration how long to run
+	 * @return a new simulation config
+	 */
+	public static SimulationConfig fromState(LoadBalancerState state, Duration duration) {
+		return new SimulationConfig(state.producerRates(), state.consumerRates(), state.bufferCapacity(),
+				state.currentBufferSize(), duration,
+				DEFAULT_SAMPLE_INTERVAL.compareTo(duration) > 0 ? duration : DEFAULT_SAMPLE_INTERVAL);
+	}
+
+	/**
+	 * Creates a list of rates with delays drawn uniformly from the given range,
+	 * the same way the GUI picks a delay for every new producer.
+	 *
+	 * @param count    the number of rates to draw
+	 * @param minDelay the minimum delay in seconds (inclusive)
+	 * @param maxDelay the maximum delay in seconds (inclusive)
+	 * @return a list of random rates
+	 */
+	public static List<Rate> randomRates(int count, int minDelay, int maxDelay) {
+		List<Rate> rates = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			rates.add(Rate.everySeconds(Utilities.getRandomIntBetween(minDelay, maxDelay)));
+		}
+		return rates;
+	}
+
+	/**
+	 * Gets the number of occupancy samples taken during the run.
+	 *
+	 * @return the number of whole sample intervals in the duration, at most
+	 *         {@link #MAX_SAMPLES}
+	 */
+	public int sampleCount() {
+		return (int) duration.dividedBy(sampleInterval);
+	}
+
+	/**
+	 * Converts this config to the equivalent LoadBalancerState.
+	 *
+	 * @return the state a LoadBalancer should be started from
+	 */
+	public LoadBalancerState toState() {
+		return LoadBalancerState.ofRates(producerRates, consumerRates, bufferCapacity, initialBufferSize);
+	}
+}
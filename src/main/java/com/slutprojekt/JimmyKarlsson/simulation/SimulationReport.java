@@ -0,0 +1,104 @@
+package com.slutprojekt.JimmyKarlsson.simulation;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Immutable record holding the outcome of a simulation run: item totals and
+ * the occupancy time series sampled at the configured interval. Derived
+ * statistics are computed on demand.
+ */
+public record SimulationReport(SimulationConfig config, // The config the run was started from.
+		Duration elapsed, // Time covered by the run, wall-clock or simulated.
+		long itemsProduced, // Items put into the buffer during the run.
+		long itemsConsumed, // Items taken from the buffer during the run.
+		int[] occupancySamples // Buffer size at every sample interval, oldest first.
+) {
+
+	/**
+	 * The number of samples at the default interval that make up the ten-second
+	 * window LoggerSingleton averages over before logging.
+	 */
+	public static final int AVERAGE_WINDOW = 10;
+
+	public double producedPerSecond() {
+		return perSecond(itemsProduced);
+	}
+
+	public double consumedPerSecond() {
+		return perSecond(itemsConsumed);
+	}
+
+	public int minOccupancy() {
+		return Arrays.stream(occupancySamples).min().orElse(0);
+	}
+
+	public int maxOccupancy() {
+		return Arrays.stream(occupancySamples).max().orElse(0);
+	}
+
+	public double meanOccupancy() {
+		return Arrays.stream(occupancySamples).average().orElse(0.0);
+	}
+
+	/**
+	 * Computes the same averages LoggerSingleton logs: the mean of every
+	 * consecutive window of {@link #AVERAGE_WINDOW} samples, as a percentage of
+	 * the buffer capacity.
+	 *
+	 * @return one average percentage per complete window
+	 */
+	public double[] windowAveragePercentages() {
+		double[] averages = new double[occupancySamples.length / AVERAGE_WINDOW];
+		for (int window = 0; window < averages.length; window++) {
+			double sum = 0;
+			for (int i = window * AVERAGE_WINDOW; i < (window + 1) * AVERAGE_WINDOW; i++) {
+				sum += occupancySamples[i];
+			}
+			averages[window] = Math.min(sum / AVERAGE_WINDOW / config.bufferCapacity() * 100, 100.0);
+		}
+		return averages;
+	}
+
+	/**
+	 * Writes a human-readable summary, followed by the window averages in the
+	 * same format LoggerSingleton uses.
+	 *
+	 * @param out the stream to write to
+	 */
+	public void writeTo(PrintStream out) {
+		out.printf(Locale.ROOT, "Elapsed: %.3f s%n", elapsed.toNanos() / 1e9);
+		out.printf(Locale.ROOT, "Producers: %d, Consumers: %d, Buffer capacity: %d%n",
+				config.producerRates().size(), config.consumerRates().size(), config.bufferCapacity());
+		out.printf(Locale.ROOT, "Items produced: %d (%.3f/s)%n", itemsProduced, producedPerSecond());
+		out.printf(Locale.ROOT, "Items consumed: %d (%.3f/s)%n", itemsConsumed, consumedPerSecond());
+		out.printf(Locale.ROOT, "Occupancy: min %d, max %d, mean %.2f (%.2f%%) over %d samples%n", minOccupancy(),
+				maxOccupancy(), meanOccupancy(), meanOccupancy() / config.bufferCapacity() * 100,
+				occupancySamples.length);
+		for (double average : windowAveragePercentages()) {
+			out.printf(Locale.ROOT, "Avg Buffer: %.2f%%%n", average);
+		}
+	}
+
+	/**
+	 * Writes the occupancy time series as CSV with one row per sample.
+	 *
+	 * @param out the stream to write to
+	 */
+	public void writeSamplesCsv(PrintStream out) {
+		out.println("time_ms,occupancy");
+		long intervalMillis = config.sampleInterval().toMillis();
+		for (int i = 0; i < occupancySamples.length; i++) {
+			out.println((i * intervalMillis) + "," + occupancySamples[i]);
+		}
+	}
+
+	// Private helper methods
+
+	private double perSecond(long count) {
+		double seconds = elapsed.toNanos() / 1e9;
+		return seconds > 0 ? count / seconds : 0.0;
+	}
+}
@@ -0,0 +1,21 @@
+package com.slutprojekt.JimmyKarlsson.simulation.interfaces;
+
+import com.slutprojekt.JimmyKarlsson.simulation.SimulationConfig;
+import com.slutprojekt.JimmyKarlsson.simulation.SimulationReport;
+
+/**
+ * Interface defining an engine that runs a producer/consumer topology without
+ * a GUI and reports what happened. Engines may run in real time or in
+ * simulated time, but they all report the same statistics for the same
+ * config.
+ */
+public interface SimulationEngine {
+	/**
+	 * Runs the simulation described by the config to completion.
+	 * 
+	 * @param config the topology, duration and sampling interval to use
+	 * @return the totals and occupancy samples collected during the run
+	 * @throws InterruptedException if interrupted before the run completed
+	 */
+	SimulationReport run(SimulationConfig config) throws InterruptedException;
+}
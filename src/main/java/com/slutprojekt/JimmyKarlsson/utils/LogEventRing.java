@@ -0,0 +1,112 @@
+package com.slutprojekt.JimmyKarlsson.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Preallocated ring of structured log events, handed from any number of
+ * logging threads to a single thread that formats and writes them. An event
+ * is a type and a few primitive fields, copied into arrays allocated up
+ * front, so publishing one allocates nothing and never waits: when the ring
+ * is full the event is dropped and counted instead.
+ */
+final class LogEventRing {
+
+	/**
+	 * Receives drained events on the draining thread.
+	 */
+	@FunctionalInterface
+	interface Handler {
+		void onEvent(int type, long first, long second, long third, double value);
+	}
+
+	private final int mask;
+	private final int[] types;
+	private final long[] fields; // Three per slot.
+	private final double[] values;
+
+	// For every slot, one more than the sequence of the event it holds, so a
+	// slot is readable once its value is the next sequence plus one.
+	private final AtomicLongArray published;
+	private final AtomicLong claimed = new AtomicLong(); // Next sequence to hand out.
+	private volatile long consumed; // Next sequence to drain, written by the draining thread only.
+	private final LongAdder dropped = new LongAdder();
+
+	/**
+	 * Constructs an empty ring.
+	 *
+	 * @param capacity the number of events the ring holds, a power of two
+	 */
+	LogEventRing(int capacity) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("Capacity must be a power of two.");
+		}
+		this.mask = capacity - 1;
+		this.types = new int[capacity];
+		this.fields = new long[capacity * 3];
+		this.values = new double[capacity];
+		this.published = new AtomicLongArray(capacity);
+	}
+
+	/**
+	 * Publishes an event, unless the ring is full.
+	 *
+	 * @return true if published, false if dropped
+	 */
+	boolean publish(int type, long first, long second, long third, double value) {
+		long sequence;
+		do {
+			sequence = claimed.get();
+			if (sequence - consumed > mask) {
+				dropped.increment(); // The drainer is behind; losing a log line beats blocking.
+				return false;
+			}
+		} while (!claimed.compareAndSet(sequence, sequence + 1));
+
+		int slot = (int) sequence & mask;
+		types[slot] = type;
+		fields[slot * 3] = first;
+		fields[slot * 3 + 1] = second;
+		fields[slot * 3 + 2] = third;
+		values[slot] = value;
+		published.set(slot, sequence + 1); // Makes the fields above visible to the drainer.
+		return true;
+	}
+
+	/**
+	 * Hands every event published so far, in order, to the handler. Must only
+	 * be called from one thread at a time.
+	 *
+	 * @param handler receives the events
+	 * @return the number of events drained
+	 */
+	int drain(Handler handler) {
+		long sequence = consumed;
+		int count = 0;
+		while (true) {
+			int slot = (int) sequence & mask;
+			if (published.get(slot) != sequence + 1) {
+				break; // Not published yet, or never claimed.
+			}
+			handler.onEvent(types[slot], fields[slot * 3], fields[slot * 3 + 1], fields[slot * 3 + 2], values[slot]);
+			sequence++;
+			count++;
+			consumed = sequence; // Frees the slot for publishers.
+		}
+		return count;
+	}
+
+	boolean isEmpty() {
+		return claimed.get() == consumed;
+	}
+
+	int capacity() {
+		return mask + 1;
+	}
+
+	// Number of events dropped because the ring was full.
+	long getDroppedCount() {
+		return dropped.sum();
+	}
+}
@@ -2,34 +2,63 @@ package com.slutprojekt.JimmyKarlsson.utils;
 
 import java.beans.PropertyChangeListener;
 import java.beans.PropertyChangeSupport;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.slutprojekt.JimmyKarlsson.model.LoadBalancer;
 import com.slutprojekt.JimmyKarlsson.model.interfaces.BufferSizeProvider;
+import com.slutprojekt.JimmyKarlsson.model.metrics.RollingStatistics;
+import com.slutprojekt.JimmyKarlsson.model.metrics.WindowStatistics;
 
 /**
  * A singleton class responsible for logging buffer size samples and statistics
  * in a LoadBalancer environment. It provides mechanisms to track and log
  * changes in the buffer over time.
+ *
+ * Logging is asynchronous: callers publish a structured event into a
+ * preallocated ring and return at once, without allocating, and a background
+ * writer thread formats the events, writes them through log4j and notifies the
+ * listeners. If the writer falls behind far enough to fill the ring, further
+ * events are dropped and counted rather than blocking the caller.
  */
 public class LoggerSingleton {
 
 	private static final Logger logger = LogManager.getLogger(LoggerSingleton.class);
-	private static final int MAX_HISTORY_SIZE = 10; // Maximum number of buffer sizes to keep in history.
-	private static final int SAMPLE_THRESHOLD = 10; // Number of samples to collect before calculating the average.
+	private static final Duration SAMPLE_INTERVAL = Duration.ofMillis(1); // Time between buffer size samples.
+	private static final int AVERAGE_WINDOW = 1; // Index of the 10 s window, whose mean is logged.
+	// Number of samples between two logged averages, so each covers a fresh window.
+	private static final long SAMPLES_PER_AVERAGE = Duration.ofSeconds(10).dividedBy(SAMPLE_INTERVAL);
+	private static final int RING_CAPACITY = 1024; // Events that can wait for the writer.
+	private static final long WRITER_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100); // Longest writer park.
+	// Types of the events in the ring.
+	private static final int PRODUCER_INFO = 0; // Count, added and removed.
+	private static final int PRODUCER_INTERVALS = 1; // Key of the intervals captured when published.
+	private static final int AVERAGE_BUFFER = 2; // Percentage as the value.
 	private static LoggerSingleton instance;
 
 	private final ScheduledExecutorService scheduler; // Handles the scheduling of buffer sampling.
 	private final BufferSizeProvider bufferSizeProvider; // Provides buffer size and capacity data.
-	private final ConcurrentLinkedQueue<Integer> bufferSizeHistory; // Stores the history of buffer sizes.
+	private final RollingStatistics bufferSizeStatistics; // Occupancy over the default rolling windows.
 	private final PropertyChangeSupport logSupport; // Used for observer pattern implementation.
-	private int sampleCounter; // Counts the number of samples taken.
+	private final LogEventRing events; // Events waiting for the writer thread.
+	private final StringBuilder message = new StringBuilder(); // Reused by the writer thread.
+	private final LogEventRing.Handler eventWriter = this::writeEvent; // Created once, not per drain.
+	// Producer intervals as they were when logged, until the writer gets to them.
+	private final Map<Long, List<Integer>> intervalSnapshots = new ConcurrentHashMap<>();
+	private final AtomicLong nextSnapshotKey = new AtomicLong();
+	private final Thread writer; // Formats and writes the events.
+	private volatile boolean writerParked; // Set while the writer waits for events.
+	private volatile boolean running = true;
 
 	/**
 	 * Private constructor for LoggerSingleton.
@@ -39,9 +68,11 @@ public class LoggerSingleton {
 	 */
 	private LoggerSingleton(BufferSizeProvider bufferSizeProvider) {
 		this.bufferSizeProvider = bufferSizeProvider;
-		this.bufferSizeHistory = new ConcurrentLinkedQueue<>();
+		this.bufferSizeStatistics = new RollingStatistics(SAMPLE_INTERVAL);
 		this.logSupport = new PropertyChangeSupport(this);
 		this.scheduler = Executors.newScheduledThreadPool(1); // Initializes a single-threaded scheduler.
+		this.events = new LogEventRing(RING_CAPACITY);
+		this.writer = Thread.ofPlatform().name("log-writer").daemon().start(this::runWriter);
 		scheduleBufferSampling(); // Start the periodic buffer size sampling.
 	}
 
@@ -61,113 +92,166 @@ public class LoggerSingleton {
 	}
 
 	/**
-	 * Schedules the buffer size sampling task to run every second.
+	 * Schedules the buffer size sampling task to run every millisecond.
 	 */
 	private void scheduleBufferSampling() {
-		// Schedules the task to sample buffer size every second.
-		scheduler.scheduleAtFixedRate(this::sampleBuffer, 0, 1, TimeUnit.SECONDS);
+		scheduler.scheduleAtFixedRate(this::sampleBuffer, 0, SAMPLE_INTERVAL.toNanos(), TimeUnit.NANOSECONDS);
 	}
 
 	/**
-	 * Samples the current buffer size, updating history and logs if necessary.
+	 * Samples the current buffer size into the rolling statistics, and logs the
+	 * average of the last ten seconds every ten seconds.
 	 */
 	private void sampleBuffer() {
-		int currentBufferSize = bufferSizeProvider.getCurrentSize();
-		updateBufferSizeHistory(currentBufferSize);
-		if (shouldLogAverage()) {
+		bufferSizeStatistics.record(bufferSizeProvider.getCurrentSize());
+		if (bufferSizeStatistics.getSampleCount() % SAMPLES_PER_AVERAGE == 0) {
 			logAverageBuffer();
-			resetSampleCounter();
 		}
 	}
 
 	/**
-	 * Updates the history of buffer sizes and increments the sample counter.
-	 * 
-	 * @param bufferSize The new buffer size to be added to the history.
+	 * Calculates, formats, and logs the average buffer size as a percentage of
+	 * total capacity.
 	 */
-	private void updateBufferSizeHistory(int bufferSize) {
-		bufferSizeHistory.add(bufferSize);
-		if (bufferSizeHistory.size() > MAX_HISTORY_SIZE) {
-			bufferSizeHistory.poll(); // Remove the oldest buffer size.
-		}
-		sampleCounter++;
+	private void logAverageBuffer() {
+		double avgBuffer = bufferSizeStatistics.snapshot(AVERAGE_WINDOW).mean();
+		double avgBufferPercentage = calculateBufferPercentage(avgBuffer);
+		publish(AVERAGE_BUFFER, 0, 0, 0, avgBufferPercentage);
 	}
 
 	/**
-	 * Determines if the average buffer size should be logged based on the sample
-	 * threshold.
+	 * Gets the buffer size statistics over the last second, ten seconds, minute
+	 * and fifteen minutes, sampled every millisecond.
 	 * 
-	 * @return True if the sample counter has reached the threshold, false
-	 *         otherwise.
+	 * @return One snapshot per window, shortest first.
 	 */
-	private boolean shouldLogAverage() {
-		return sampleCounter >= SAMPLE_THRESHOLD;
+	public List<WindowStatistics> getBufferSizeStatistics() {
+		return bufferSizeStatistics.snapshot();
 	}
 
 	/**
-	 * Resets the sample counter to zero.
+	 * Calculates the buffer usage percentage based on the average buffer size.
+	 * 
+	 * @param averageBufferSize The average buffer size to calculate the percentage
+	 *                          from.
+	 * @return The buffer usage percentage.
 	 */
-	private void resetSampleCounter() {
-		sampleCounter = 0;
+	private double calculateBufferPercentage(double averageBufferSize) {
+		int bufferCapacity = bufferSizeProvider.getCapacity();
+		return Math.min((averageBufferSize / bufferCapacity) * 100, 100.0);
 	}
 
 	/**
-	 * Calculates, formats, and logs the average buffer size as a percentage of
-	 * total capacity.
+	 * Publishes an event for the writer thread, waking it if it is idle.
+	 * Allocates nothing and never blocks.
+	 * 
+	 * @param type   The type of the event.
+	 * @param first  The first field, if the type has one.
+	 * @param second The second field, if the type has one.
+	 * @param third  The third field, if the type has one.
+	 * @param value  The floating-point field, if the type has one.
+	 * @return whether the event was published, rather than dropped
 	 */
-	private synchronized void logAverageBuffer() {
-		double avgBuffer = calculateAverageBufferSize();
-		double avgBufferPercentage = calculateBufferPercentage(avgBuffer);
-		String logMessage = formatLogMessage(avgBufferPercentage);
-		logInformation(logMessage);
+	private boolean publish(int type, long first, long second, long third, double value) {
+		if (!running || !events.publish(type, first, second, third, value)) {
+			return false;
+		}
+		if (writerParked) {
+			LockSupport.unpark(writer);
+		}
+		return true;
 	}
 
 	/**
-	 * Calculates the average buffer size based on the recorded history.
-	 * 
-	 * @return The average buffer size.
+	 * Runs on the writer thread: writes events as they arrive until shut down,
+	 * then writes whatever is left.
 	 */
-	private double calculateAverageBufferSize() {
-		return bufferSizeHistory.stream().mapToInt(Integer::intValue).average().orElse(0.0);
+	private void runWriter() {
+		while (running) {
+			if (events.drain(eventWriter) == 0) {
+				writerParked = true;
+				if (events.isEmpty() && running) { // Check again, a publisher may have missed the flag.
+					LockSupport.parkNanos(this, WRITER_IDLE_NANOS);
+				}
+				writerParked = false;
+			}
+		}
+		events.drain(eventWriter);
 	}
 
 	/**
-	 * Calculates the buffer usage percentage based on the average buffer size.
-	 * 
-	 * @param averageBufferSize The average buffer size to calculate the percentage
-	 *                          from.
-	 * @return The buffer usage percentage.
+	 * Formats one event into the reused message and logs it.
 	 */
-	private double calculateBufferPercentage(double averageBufferSize) {
-		int bufferCapacity = bufferSizeProvider.getCapacity();
-		return Math.min((averageBufferSize / bufferCapacity) * 100, 100.0);
+	private void writeEvent(int type, long first, long second, long third, double value) {
+		message.setLength(0);
+		switch (type) {
+		case PRODUCER_INFO:
+			message.append("Total producers: ").append(first).append(", Added: ").append(second)
+					.append(", Removed: ").append(third);
+			break;
+		case PRODUCER_INTERVALS:
+			message.append(intervalSnapshots.remove(first));
+			break;
+		case AVERAGE_BUFFER:
+			message.append("Avg Buffer: ");
+			appendHundredths(Math.round(value * 100));
+			message.append('%');
+			break;
+		default:
+			throw new IllegalStateException("Unknown log event type: " + type);
+		}
+		logInformation(message);
 	}
 
 	/**
-	 * Formats the log message to include the average buffer usage percentage.
+	 * Appends a number of hundredths with two decimals, as %.2f would.
 	 * 
-	 * @param avgBufferPercentage The average buffer usage percentage.
-	 * @return The formatted log message.
+	 * @param hundredths The number to append, in hundredths.
 	 */
-	private String formatLogMessage(double avgBufferPercentage) {
-		return String.format("Avg Buffer: %.2f%%", avgBufferPercentage);
+	private void appendHundredths(long hundredths) {
+		if (hundredths < 0) {
+			message.append('-');
+			hundredths = -hundredths;
+		}
+		message.append(hundredths / 100).append('.');
+		if (hundredths % 100 < 10) {
+			message.append('0');
+		}
+		message.append(hundredths % 100);
 	}
 
 	/**
-	 * Logs information with INFO level and notifies listeners of a new log message.
+	 * Logs information with INFO level and notifies listeners of a new log
+	 * message. Runs on the writer thread.
 	 * 
 	 * @param message The message to log and notify about.
 	 */
-	private void logInformation(String message) {
+	private void logInformation(CharSequence message) {
 		logger.info(message);
-		fireLogChanged(message);
+		if (logSupport.hasListeners("log")) {
+			fireLogChanged(message.toString()); // Listeners get a String of their own.
+		}
+	}
+
+	/**
+	 * Gets the number of log events dropped because the writer thread fell
+	 * behind.
+	 * 
+	 * @return The number of dropped events.
+	 */
+	public long getDroppedEventCount() {
+		return events.getDroppedCount();
 	}
 
 	/**
-	 * Shuts down the scheduler service, stopping any further buffer sampling.
+	 * Shuts down the scheduler service, stopping any further buffer sampling,
+	 * and stops the writer thread once it has written the events already
+	 * published.
 	 */
 	public void shutdown() {
 		scheduler.shutdown();
+		running = false;
+		LockSupport.unpark(writer);
 	}
 
 	/**
@@ -197,15 +281,21 @@ public class LoggerSingleton {
 	 * @param removed The count of producers removed.
 	 */
 	public void logProducerInfo(int count, int added, int removed) {
-		String message = String.format("Total producers: %d, Added: %d, Removed: %d", count, added, removed);
-		logInformation(message);
+		publish(PRODUCER_INFO, count, added, removed, 0);
 	}
 
 	/**
-	 * Logs information about producer intervals.
+	 * Logs information about producer intervals. The intervals are copied on
+	 * the caller's thread, so the log shows them as they were when this was
+	 * called, however far behind the writer thread is. Unlike the other events,
+	 * this allocates, but it is only logged when producers are added or
+	 * removed.
 	 */
 	public void logProducerIntervals() {
-		String message = bufferSizeProvider.getProducerIntervals().toString();
-		logInformation(message);
+		long key = nextSnapshotKey.incrementAndGet();
+		intervalSnapshots.put(key, List.copyOf(bufferSizeProvider.getProducerIntervals()));
+		if (!publish(PRODUCER_INTERVALS, key, 0, 0, 0)) {
+			intervalSnapshots.remove(key); // Dropped, so the writer will never ask for it.
+		}
 	}
 }
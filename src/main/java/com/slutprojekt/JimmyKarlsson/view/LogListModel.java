@@ -0,0 +1,268 @@
+package com.slutprojekt.JimmyKarlsson.view;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import javax.swing.AbstractListModel;
+
+/**
+ * List model of the log, newest message first, over a bounded ring of
+ * messages. A JList only asks for the rows it shows, so the log can hold many
+ * thousands of messages at no cost to the display.
+ *
+ * Any thread may add messages; they wait in a lock-free queue until the event
+ * dispatch thread applies them all at once with {@link #flush()}, typically
+ * once per frame. Everything else must be called on the event dispatch thread.
+ *
+ * The filter keeps, for the current filter text and each shorter one typed
+ * before it, the messages that contain it. Typing another character narrows
+ * the current matches rather than the whole log, deleting one goes back to the
+ * matches kept for the shorter text, and new messages are only checked against
+ * the filter once.
+ */
+public class LogListModel extends AbstractListModel<String> {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The number of messages kept by default; older ones are dropped. */
+	public static final int DEFAULT_CAPACITY = 100_000;
+
+	private final Queue<String> pending = new ConcurrentLinkedQueue<>(); // Added but not yet flushed.
+	private final String[] messages; // Ring, indexed by sequence modulo its length.
+	private long nextSequence; // Sequence of the next message, also the number ever flushed.
+
+	// Matches of the current filter text on top, of the texts it extends below.
+	// Empty while nothing is filtered.
+	private final Deque<Matches> filters = new ArrayDeque<>();
+
+	/**
+	 * Constructs an empty log keeping the default number of messages.
+	 */
+	public LogListModel() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Constructs an empty log.
+	 *
+	 * @param capacity the number of messages kept
+	 */
+	public LogListModel(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be greater than zero.");
+		}
+		this.messages = new String[capacity];
+	}
+
+	/**
+	 * Queues a message to be shown on the next flush. Safe to call from any
+	 * thread, and never blocks.
+	 *
+	 * @param message the message
+	 */
+	public void add(String message) {
+		pending.add(message);
+	}
+
+	/**
+	 * Shows every queued message, dropping the oldest ones beyond the capacity,
+	 * and notifies the list once for the whole batch.
+	 *
+	 * @return the number of messages taken from the queue, which includes any
+	 *         that the filter hides or that are dropped at once because more
+	 *         arrived than the log holds
+	 */
+	public int flush() {
+		if (pending.isEmpty()) {
+			return 0;
+		}
+		int oldSize = getSize();
+		int added = 0;
+		String message;
+		while ((message = pending.poll()) != null) {
+			messages[(int) (nextSequence++ % messages.length)] = message;
+			added++;
+		}
+		Matches current = filters.peek();
+		int shown = Math.min(added, messages.length); // Messages beyond the capacity are never seen.
+		if (current != null) {
+			current.catchUp();
+			shown = current.size() - oldSize + current.dropped; // Dropped rows are counted separately below.
+		}
+
+		// The oldest rows are at the end of the list; newest rows go on top.
+		int dropped = current != null ? current.takeDropped() : oldSize + shown - getSize();
+		if (dropped > 0) {
+			fireIntervalRemoved(this, oldSize - dropped, oldSize - 1);
+		}
+		if (shown > 0) {
+			fireIntervalAdded(this, 0, shown - 1);
+		}
+		return added;
+	}
+
+	/**
+	 * Shows only the messages containing the given text, ignoring case.
+	 *
+	 * @param text the filter text, empty to show every message
+	 */
+	public void setFilter(String text) {
+		int oldSize = getSize();
+		String query = text.toLowerCase(Locale.ROOT);
+		while (!filters.isEmpty() && !query.contains(filters.peek().query)) {
+			filters.pop(); // Not a narrowing of this one.
+		}
+		Matches parent = filters.peek();
+		if (parent != null) {
+			parent.catchUp();
+			parent.takeDropped();
+		}
+		if (!query.isEmpty() && (parent == null || !parent.query.equals(query))) {
+			filters.push(new Matches(query, parent));
+		}
+
+		// Every row may have changed, so the list reloads them.
+		if (oldSize > 0) {
+			fireIntervalRemoved(this, 0, oldSize - 1);
+		}
+		if (getSize() > 0) {
+			fireIntervalAdded(this, 0, getSize() - 1);
+		}
+	}
+
+	public String getFilter() {
+		return filters.isEmpty() ? "" : filters.peek().query;
+	}
+
+	/**
+	 * Finds the next row containing the given text, ignoring case, searching
+	 * downwards from a row and wrapping around. Only the rows up to the match
+	 * are checked.
+	 *
+	 * @param text the text to find
+	 * @param from the row after which to start
+	 * @return the row found, or -1 if none contains the text
+	 */
+	public int indexOf(String text, int from) {
+		int size = getSize();
+		for (int i = 1; i <= size; i++) {
+			int row = Math.floorMod(from + i, size);
+			if (containsIgnoreCase(getElementAt(row), text)) {
+				return row;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Tells whether a message contains a text, ignoring case, without creating
+	 * any strings.
+	 *
+	 * @param message the message
+	 * @param text    the text to look for
+	 * @return true if the message contains the text
+	 */
+	public static boolean containsIgnoreCase(String message, String text) {
+		for (int i = 0; i + text.length() <= message.length(); i++) {
+			if (message.regionMatches(true, i, text, 0, text.length())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// ListModel methods
+
+	@Override
+	public int getSize() {
+		Matches current = filters.peek();
+		return current != null ? current.size() : (int) (nextSequence - oldestSequence());
+	}
+
+	@Override
+	public String getElementAt(int index) {
+		Matches current = filters.peek();
+		long sequence = current != null ? current.get(current.size() - 1 - index) : nextSequence - 1 - index;
+		return messages[(int) (sequence % messages.length)];
+	}
+
+	// Private helper methods
+
+	private long oldestSequence() {
+		return Math.max(0, nextSequence - messages.length);
+	}
+
+	// The sequences of the messages containing one filter text, oldest first.
+	private final class Matches {
+		private final String query;
+		private long[] sequences = new long[16];
+		private int start; // Index of the oldest match in sequences.
+		private int end;
+		private long checkedUpTo; // Sequences below this have been checked.
+		private int dropped; // Matches dropped since the list was last notified.
+
+		// Collects the matches among those of the parent, or among every message.
+		private Matches(String query, Matches parent) {
+			this.query = query;
+			if (parent == null) {
+				checkedUpTo = oldestSequence();
+			} else {
+				for (int i = 0; i < parent.size(); i++) {
+					long sequence = parent.get(i);
+					if (containsIgnoreCase(messages[(int) (sequence % messages.length)], query)) {
+						append(sequence);
+					}
+				}
+				checkedUpTo = parent.checkedUpTo;
+			}
+			catchUp();
+			dropped = 0;
+		}
+
+		private int size() {
+			return end - start;
+		}
+
+		private long get(int index) {
+			return sequences[start + index];
+		}
+
+		// Forgets dropped messages and checks the ones added since last time.
+		private void catchUp() {
+			long oldest = oldestSequence();
+			while (start < end && sequences[start] < oldest) {
+				start++;
+				dropped++;
+			}
+			for (long sequence = Math.max(checkedUpTo, oldest); sequence < nextSequence; sequence++) {
+				if (containsIgnoreCase(messages[(int) (sequence % messages.length)], query)) {
+					append(sequence);
+				}
+			}
+			checkedUpTo = nextSequence;
+		}
+
+		private int takeDropped() {
+			int count = dropped;
+			dropped = 0;
+			return count;
+		}
+
+		private void append(long sequence) {
+			if (end == sequences.length) {
+				if (start > sequences.length / 2) {
+					System.arraycopy(sequences, start, sequences, 0, end - start); // Reuse the dropped space.
+				} else {
+					sequences = Arrays.copyOfRange(sequences, start, sequences.length * 2);
+				}
+				end -= start;
+				start = 0;
+			}
+			sequences[end++] = sequence;
+		}
+	}
+}
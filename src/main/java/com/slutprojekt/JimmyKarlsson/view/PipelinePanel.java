@@ -0,0 +1,80 @@
+package com.slutprojekt.JimmyKarlsson.view;
+
+import java.awt.Dimension;
+import java.awt.GridLayout;
+import java.util.List;
+import java.util.Locale;
+
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JProgressBar;
+
+import com.slutprojekt.JimmyKarlsson.model.Pipeline;
+import com.slutprojekt.JimmyKarlsson.model.Stage;
+
+/**
+ * Shows every stage of a Pipeline on a row of its own: the occupancy of its
+ * buffer, its throughput over the last second, and how many of its workers
+ * wait for room in the next stage. Must be refreshed on the event dispatch
+ * thread, typically once per frame; throughput is only recomputed once a
+ * second.
+ */
+public class PipelinePanel extends JPanel {
+
+	private static final long serialVersionUID = 1L;
+	private static final long RATE_INTERVAL_NANOS = 1_000_000_000L;
+
+	private final List<Stage> stages;
+	private final JProgressBar[] occupancyBars;
+	private final JLabel[] rateLabels;
+	private final long[] lastProcessed; // Items processed per stage at the last rate update.
+	private long lastRateUpdate;
+
+	/**
+	 * Constructs a panel showing the stages of the given pipeline.
+	 *
+	 * @param pipeline the pipeline to show
+	 */
+	public PipelinePanel(Pipeline pipeline) {
+		super(new GridLayout(0, 3, 6, 2));
+		this.stages = pipeline.getStages();
+		this.occupancyBars = new JProgressBar[stages.size()];
+		this.rateLabels = new JLabel[stages.size()];
+		this.lastProcessed = new long[stages.size()];
+		setBorder(BorderFactory.createTitledBorder("Pipeline"));
+		for (int i = 0; i < stages.size(); i++) {
+			Stage stage = stages.get(i);
+			occupancyBars[i] = new JProgressBar(0, stage.getCapacity());
+			occupancyBars[i].setStringPainted(true);
+			occupancyBars[i].setPreferredSize(new Dimension(200, 20));
+			rateLabels[i] = new JLabel();
+			add(new JLabel(stage.getName() + " (" + stage.getWorkers() + " workers)"));
+			add(occupancyBars[i]);
+			add(rateLabels[i]);
+		}
+	}
+
+	/**
+	 * Updates every row from the current state of its stage.
+	 */
+	public void refresh() {
+		long now = System.nanoTime();
+		boolean updateRates = now - lastRateUpdate >= RATE_INTERVAL_NANOS;
+		for (int i = 0; i < stages.size(); i++) {
+			Stage stage = stages.get(i);
+			occupancyBars[i].setMaximum(stage.getCapacity());
+			occupancyBars[i].setValue(stage.getCurrentSize());
+			if (updateRates) {
+				long processed = stage.getItemsProcessed();
+				double rate = lastRateUpdate == 0 ? 0 : (processed - lastProcessed[i]) * 1e9 / (now - lastRateUpdate);
+				lastProcessed[i] = processed;
+				rateLabels[i].setText(String.format(Locale.ROOT, "%.0f items/s, %d blocked", rate,
+						stage.getBlockedWorkers()));
+			}
+		}
+		if (updateRates) {
+			lastRateUpdate = now;
+		}
+	}
+}
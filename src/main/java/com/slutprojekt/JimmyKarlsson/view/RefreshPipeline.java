@@ -0,0 +1,274 @@
+package com.slutprojekt.JimmyKarlsson.view;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.awt.event.InvocationEvent;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import javax.swing.Timer;
+
+import com.slutprojekt.JimmyKarlsson.model.metrics.FrameStatistics;
+import com.slutprojekt.JimmyKarlsson.model.metrics.LatencyHistogram;
+
+/**
+ * Refreshes the GUI in frames, driven by a single Swing timer, instead of
+ * posting a task to the event dispatch thread for every change in the model.
+ *
+ * Model threads store their updates in slots that only keep the latest value,
+ * which never blocks or queues anything. Every frame, the slots that have
+ * received a value since the last frame are applied, then the frame tasks run.
+ * However fast the model changes, the GUI sees at most one update per slot
+ * and frame, so the event queue stays short.
+ *
+ * While measuring, the pipeline records how long every frame takes and how
+ * many tasks wait on the event dispatch thread, and reports them once a
+ * second.
+ */
+public class RefreshPipeline {
+
+	/** About 60 frames per second. */
+	public static final int DEFAULT_FRAME_RATE = 60;
+
+	private static final long REPORT_INTERVAL_NANOS = 1_000_000_000L;
+
+	private final Timer timer;
+	private final List<IntSlot> slots = new CopyOnWriteArrayList<>();
+	private final List<Runnable> frameTasks = new CopyOnWriteArrayList<>();
+	private int frameRate;
+
+	// Measurement state, only used on the event dispatch thread.
+	private CountingEventQueue countingQueue; // Installed while measuring.
+	private Consumer<FrameStatistics> reporter;
+	private final LatencyHistogram frameTimes = new LatencyHistogram();
+	private final LatencyHistogram queueDepths = new LatencyHistogram();
+	private long maxFrameInterval;
+	private long lastFrameStart;
+	private long lastReport;
+
+	/**
+	 * Constructs a stopped pipeline refreshing at the default frame rate.
+	 */
+	public RefreshPipeline() {
+		this(DEFAULT_FRAME_RATE);
+	}
+
+	/**
+	 * Constructs a stopped pipeline.
+	 *
+	 * @param frameRate the number of frames per second
+	 */
+	public RefreshPipeline(int frameRate) {
+		this.timer = new Timer(frameDelay(frameRate), e -> runFrame());
+		this.frameRate = frameRate;
+	}
+
+	/**
+	 * Creates a slot holding the latest value of an int, applied once per frame
+	 * on the event dispatch thread.
+	 *
+	 * @param applier shows a value in the GUI; called on the event dispatch
+	 *                thread with the latest value set since the frame before
+	 * @return the slot, which may be set from any thread
+	 */
+	public IntSlot newIntSlot(IntConsumer applier) {
+		IntSlot slot = new IntSlot(applier);
+		slots.add(slot);
+		return slot;
+	}
+
+	/**
+	 * Adds a task run on the event dispatch thread every frame, after the slots
+	 * have been applied.
+	 *
+	 * @param task the task
+	 */
+	public void addFrameTask(Runnable task) {
+		frameTasks.add(task);
+	}
+
+	public void start() {
+		timer.start();
+	}
+
+	public void stop() {
+		timer.stop();
+	}
+
+	public int getFrameRate() {
+		return frameRate;
+	}
+
+	/**
+	 * Changes the number of frames per second.
+	 *
+	 * @param frameRate the new frame rate
+	 */
+	public void setFrameRate(int frameRate) {
+		timer.setDelay(frameDelay(frameRate));
+		this.frameRate = frameRate;
+	}
+
+	/**
+	 * Starts measuring frame times and the depth of the event queue. Must be
+	 * called on the event dispatch thread.
+	 *
+	 * @param reporter sent the statistics of the last second, once a second, on
+	 *                 the event dispatch thread
+	 */
+	public void startMeasuring(Consumer<FrameStatistics> reporter) {
+		if (countingQueue == null) {
+			countingQueue = new CountingEventQueue();
+			Toolkit.getDefaultToolkit().getSystemEventQueue().push(countingQueue);
+		}
+		this.reporter = reporter;
+		resetStatistics();
+		lastReport = System.nanoTime();
+	}
+
+	/**
+	 * Stops measuring and removes the counting event queue. Must be called on
+	 * the event dispatch thread.
+	 */
+	public void stopMeasuring() {
+		if (countingQueue != null) {
+			countingQueue.uninstall();
+			countingQueue = null;
+		}
+		reporter = null;
+	}
+
+	public boolean isMeasuring() {
+		return countingQueue != null;
+	}
+
+	/**
+	 * Gets the frame statistics measured since measuring started or the last
+	 * report.
+	 *
+	 * @return the statistics
+	 */
+	public FrameStatistics getStatistics() {
+		return new FrameStatistics(frameTimes.getCount(), frameTimes.getMean(),
+				frameTimes.getValueAtPercentile(99), frameTimes.getMax(), maxFrameInterval, queueDepths.getMean(),
+				queueDepths.getMax());
+	}
+
+	/**
+	 * Runs one frame: applies the slots that have changed and runs the frame
+	 * tasks. Called by the timer; package-private so tests can run frames
+	 * without it.
+	 */
+	void runFrame() {
+		long start = System.nanoTime();
+		if (countingQueue != null) {
+			queueDepths.record(countingQueue.depth());
+			if (lastFrameStart != 0) {
+				maxFrameInterval = Math.max(maxFrameInterval, start - lastFrameStart);
+			}
+			lastFrameStart = start;
+		}
+
+		for (IntSlot slot : slots) {
+			slot.apply();
+		}
+		for (Runnable task : frameTasks) {
+			task.run();
+		}
+
+		if (countingQueue != null) {
+			long end = System.nanoTime();
+			frameTimes.record(end - start);
+			if (reporter != null && end - lastReport >= REPORT_INTERVAL_NANOS) {
+				reporter.accept(getStatistics());
+				resetStatistics();
+				lastReport = end;
+			}
+		}
+	}
+
+	// Private helper methods
+
+	private void resetStatistics() {
+		frameTimes.reset();
+		queueDepths.reset();
+		maxFrameInterval = 0;
+		lastFrameStart = 0;
+	}
+
+	private static int frameDelay(int frameRate) {
+		if (frameRate <= 0) {
+			throw new IllegalArgumentException("Frame rate must be greater than zero.");
+		}
+		return Math.max(1, 1000 / frameRate);
+	}
+
+	/**
+	 * The latest value of an int, waiting to be shown on the next frame.
+	 */
+	public static final class IntSlot {
+		private static final long EMPTY = -1L; // No value since the last frame; never a stored int.
+
+		private final IntConsumer applier;
+		private final AtomicLong latest = new AtomicLong(EMPTY);
+
+		private IntSlot(IntConsumer applier) {
+			this.applier = applier;
+		}
+
+		/**
+		 * Replaces the value to be shown on the next frame. Safe to call from any
+		 * thread, and never blocks or allocates.
+		 *
+		 * @param value the new value
+		 */
+		public void set(int value) {
+			latest.set(value & 0xFFFF_FFFFL);
+		}
+
+		private void apply() {
+			long value = latest.getAndSet(EMPTY);
+			if (value != EMPTY) {
+				applier.accept((int) value);
+			}
+		}
+	}
+
+	// Counts the tasks posted to the event dispatch thread that have not yet
+	// run. Only invocation events are counted, as other events may be merged
+	// with ones already queued and never be dispatched on their own.
+	private static final class CountingEventQueue extends EventQueue {
+		private final AtomicInteger depth = new AtomicInteger();
+
+		@Override
+		public void postEvent(AWTEvent event) {
+			if (event instanceof InvocationEvent) {
+				depth.incrementAndGet();
+			}
+			super.postEvent(event);
+		}
+
+		@Override
+		protected void dispatchEvent(AWTEvent event) {
+			if (event instanceof InvocationEvent) {
+				depth.updateAndGet(count -> Math.max(0, count - 1));
+			}
+			super.dispatchEvent(event);
+		}
+
+		// Tasks queued before this queue was installed are moved over uncounted,
+		// which is why the count never goes below zero.
+		private int depth() {
+			return depth.get();
+		}
+
+		private void uninstall() {
+			pop();
+		}
+	}
+}
@@ -2,29 +2,41 @@ package com.slutprojekt.JimmyKarlsson.view;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.FlowLayout;
 import java.awt.event.ActionEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.io.File;
-import java.util.Deque;
-import java.util.concurrent.ConcurrentLinkedDeque;
+import java.time.Duration;
+import java.util.Locale;
 
 import javax.swing.AbstractAction;
+import javax.swing.DefaultListCellRenderer;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JList;
 import javax.swing.JPanel;
 import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
-import javax.swing.JTextArea;
+import javax.swing.JSplitPane;
+import javax.swing.JTextField;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
+import com.slutprojekt.JimmyKarlsson.controller.ChartSampler;
 import com.slutprojekt.JimmyKarlsson.controller.Facade;
+import com.slutprojekt.JimmyKarlsson.controller.RegulatorMode;
+import com.slutprojekt.JimmyKarlsson.model.Pipeline;
+import com.slutprojekt.JimmyKarlsson.model.metrics.FrameStatistics;
 
 /**
  * The SwingGUI class provides a graphical user interface for interacting with
@@ -35,13 +47,26 @@ public class SwingGUI implements PropertyChangeListener {
 	// Member variables for the components and data used in the GUI
 	private JFrame frame;
 	private JProgressBar progressBar;
-	private JTextArea textArea;
+	private JList<String> logList;
+	private JTextField filterField, findField;
 	private JButton plusButton, minusButton, loadButton, saveButton;
+	private JCheckBox autoCheckBox, measureCheckBox;
 	private JLabel numberLabel;
 	private Facade facade;
 	private int numberOfProducers;
-	private Deque<String> logStack = new ConcurrentLinkedDeque<>();
-	private static final int MAX_LOG_COUNT = 100;
+	// Log messages, newest first. Messages from any thread are queued and shown
+	// in one batch per frame.
+	private final LogListModel logModel = new LogListModel();
+	// Applies model updates, flushes the log and repaints the chart once per frame.
+	private final RefreshPipeline refreshPipeline = new RefreshPipeline();
+	private TimeSeriesChart chart;
+	private PipelinePanel pipelinePanel; // Null unless the facade runs a pipeline.
+	private JComboBox<String> chartWindowBox;
+	// The time windows the chart can show, matching the labels in the box.
+	private static final String[] CHART_WINDOW_LABELS = { "10 s", "1 min", "10 min", "1 h", "2 h" };
+	private static final Duration[] CHART_WINDOWS = { Duration.ofSeconds(10), Duration.ofMinutes(1),
+			Duration.ofMinutes(10), Duration.ofHours(1), Duration.ofHours(2) };
+	private static final Color FIND_HIGHLIGHT = new Color(255, 240, 150);
 
 	/**
 	 * Constructor for SwingGUI.
@@ -65,7 +90,7 @@ public class SwingGUI implements PropertyChangeListener {
 	private void initFrame() {
 		frame = new JFrame("Production regulator");
 		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-		frame.setSize(600, 500);
+		frame.setSize(600, 700);
 		frame.setLocationRelativeTo(null); // Center the window
 	}
 
@@ -78,7 +103,13 @@ public class SwingGUI implements PropertyChangeListener {
 		initButtons();
 		initLabels();
 		initProgressBar();
-		initTextArea();
+		initChart();
+		initLogList();
+		initPipelinePanel();
+
+		refreshPipeline.addFrameTask(logModel::flush);
+		refreshPipeline.addFrameTask(chart::repaint);
+		refreshPipeline.start();
 	}
 
 	/**
@@ -117,6 +148,29 @@ public class SwingGUI implements PropertyChangeListener {
 			}
 		});
 
+		// Initializes the auto check box that hands producer control to the
+		// regulator. The manual buttons are disabled while it is selected.
+		autoCheckBox = new JCheckBox("Auto");
+		autoCheckBox.setToolTipText("Automatically add and remove producers to hold the buffer at 50%");
+		autoCheckBox.addActionListener(e -> {
+			boolean automatic = autoCheckBox.isSelected();
+			facade.setRegulatorMode(automatic ? RegulatorMode.AUTOMATIC : RegulatorMode.MANUAL);
+			plusButton.setEnabled(!automatic);
+			minusButton.setEnabled(!automatic);
+		});
+
+		// Initializes the measure check box, which logs frame times and the depth
+		// of the event queue once a second while it is selected.
+		measureCheckBox = new JCheckBox("Measure");
+		measureCheckBox.setToolTipText("Log GUI frame times and event queue depth every second");
+		measureCheckBox.addActionListener(e -> {
+			if (measureCheckBox.isSelected()) {
+				refreshPipeline.startMeasuring(this::logFrameStatistics);
+			} else {
+				refreshPipeline.stopMeasuring();
+			}
+		});
+
 		// Setup for the file chooser used in load/save actions.
 		FileNameExtensionFilter filter = new FileNameExtensionFilter("DAT files", "dat");
 		File desktop = new File(System.getProperty("user.home"), "Desktop");
@@ -186,11 +240,98 @@ public class SwingGUI implements PropertyChangeListener {
 	}
 
 	/**
-	 * Initializes the JTextArea which serves as a log display where messages and
-	 * system events will be shown.
+	 * Initializes the log list, where messages and system events are shown, with
+	 * its filter and find fields. The list only renders the visible rows, so it
+	 * stays fast however long the log grows.
 	 */
-	private void initTextArea() {
-		textArea = new JTextArea(); // Create a new text area that will hold the logs.
+	private void initLogList() {
+		logList = new JList<>(logModel);
+		logList.setPrototypeCellValue("Total producers: 10, Added: 1, Removed: 0"); // Fixed row height.
+		logList.setCellRenderer(new DefaultListCellRenderer() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected,
+					boolean cellHasFocus) {
+				super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+				String find = findField.getText();
+				if (!isSelected && !find.isEmpty() && LogListModel.containsIgnoreCase((String) value, find)) {
+					setBackground(FIND_HIGHLIGHT); // Only the visible rows are checked.
+				}
+				return this;
+			}
+		});
+
+		// Filtering narrows the rows shown as the text is typed.
+		filterField = new JTextField(12);
+		filterField.setToolTipText("Show only messages containing this text");
+		filterField.getDocument().addDocumentListener(new DocumentListener() {
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				logModel.setFilter(filterField.getText());
+			}
+
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				logModel.setFilter(filterField.getText());
+			}
+
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+				logModel.setFilter(filterField.getText());
+			}
+		});
+
+		// Finding highlights matching rows; Enter selects the next one.
+		findField = new JTextField(12);
+		findField.setToolTipText("Highlight messages containing this text, Enter jumps to the next");
+		findField.getDocument().addDocumentListener(new DocumentListener() {
+			@Override
+			public void insertUpdate(DocumentEvent e) {
+				logList.repaint();
+			}
+
+			@Override
+			public void removeUpdate(DocumentEvent e) {
+				logList.repaint();
+			}
+
+			@Override
+			public void changedUpdate(DocumentEvent e) {
+				logList.repaint();
+			}
+		});
+		findField.addActionListener(e -> {
+			int row = logModel.indexOf(findField.getText(), logList.getSelectedIndex());
+			if (row >= 0) {
+				logList.setSelectedIndex(row);
+				logList.ensureIndexIsVisible(row);
+			}
+		});
+	}
+
+	/**
+	 * Initializes the live chart of occupancy, producers and throughput, and the
+	 * box choosing how much history it shows.
+	 */
+	private void initChart() {
+		chart = new TimeSeriesChart(facade.getChartSampler().getSeries(), ChartSampler.SERIES_NAMES,
+				CHART_WINDOWS[1]);
+		chartWindowBox = new JComboBox<>(CHART_WINDOW_LABELS);
+		chartWindowBox.setSelectedIndex(1);
+		chartWindowBox.addActionListener(e -> chart.setWindow(CHART_WINDOWS[chartWindowBox.getSelectedIndex()]));
+	}
+
+	/**
+	 * Initializes the panel showing every stage of the pipeline, if the facade
+	 * runs one, refreshed with the rest of the GUI once per frame.
+	 */
+	private void initPipelinePanel() {
+		Pipeline pipeline = facade.getPipeline();
+		if (pipeline != null) {
+			pipelinePanel = new PipelinePanel(pipeline);
+			refreshPipeline.addFrameTask(pipelinePanel::refresh);
+		}
 	}
 
 	/**
@@ -211,6 +352,7 @@ public class SwingGUI implements PropertyChangeListener {
 		buttonPanel.add(plusButton);
 		buttonPanel.add(numberLabel);
 		buttonPanel.add(minusButton);
+		buttonPanel.add(autoCheckBox);
 		// Add the buttonPanel to the top (NORTH) of panel1 and the progressBar to the
 		// bottom (SOUTH)
 		panel1.add(buttonPanel, BorderLayout.NORTH);
@@ -218,16 +360,32 @@ public class SwingGUI implements PropertyChangeListener {
 		// Set the preferred size of panel1 based on frame width and predefined height
 		panel1.setPreferredSize(new Dimension(frame.getWidth(), panel1Height));
 
-		// Panel 2: Contains a scrollable text area
+		// Panel 2: Contains the live chart above the search fields and the scrollable log
 		JPanel panel2 = new JPanel(new BorderLayout());
-		JScrollPane scroll = new JScrollPane(textArea, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
+		JPanel searchPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+		searchPanel.add(new JLabel("Filter:"));
+		searchPanel.add(filterField);
+		searchPanel.add(new JLabel("Find:"));
+		searchPanel.add(findField);
+		searchPanel.add(new JLabel("Chart:"));
+		searchPanel.add(chartWindowBox);
+		JScrollPane scroll = new JScrollPane(logList, JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED,
 				JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
-		// Add the scroll pane to the center of panel2
-		panel2.add(scroll, BorderLayout.CENTER);
+		// The chart above the log, with the search fields in between
+		JPanel logPanel = new JPanel(new BorderLayout());
+		logPanel.add(searchPanel, BorderLayout.NORTH);
+		logPanel.add(scroll, BorderLayout.CENTER);
+		JSplitPane split = new JSplitPane(JSplitPane.VERTICAL_SPLIT, chart, logPanel);
+		split.setResizeWeight(0.5);
+		panel2.add(split, BorderLayout.CENTER);
+		if (pipelinePanel != null) {
+			panel2.add(pipelinePanel, BorderLayout.NORTH); // The stages above the chart
+		}
 
 		// Panel 3: Contains load and save buttons
 		JPanel panel3 = new JPanel(new FlowLayout(FlowLayout.RIGHT));
 		// Add buttons to panel3
+		panel3.add(measureCheckBox);
 		panel3.add(loadButton);
 		panel3.add(saveButton);
 		// Set the preferred size of panel3 based on frame width and predefined height
@@ -272,44 +430,75 @@ public class SwingGUI implements PropertyChangeListener {
 	}
 
 	/**
-	 * Updates the progress bar with the current value and maximum.
+	 * Updates the progress bar with the current value and maximum. A value
+	 * above the maximum, such as the size of a buffer just shrunk below its
+	 * contents, shows as a full bar.
 	 *
 	 * @param value   the current value of the progress
 	 * @param maximum the maximum value of the progress
 	 */
 	public void updateProgressBar(int value, int maximum) {
 		progressBar.setMaximum(maximum);
-		progressBar.setValue(value);
+		progressBar.setValue(Math.max(0, Math.min(value, maximum)));
 		// Additionally, update the color of the progress bar based on the current value
 		updateProgressBarColor();
 	}
 
 	/**
-	 * Appends a new log message to the text area.
+	 * Shows the progress of a save or load on its button. Both the Load and Save
+	 * buttons stay disabled until {@link #clearStateProgress()} is called.
 	 *
-	 * @param message the message to be appended to the log
+	 * @param saving  true for a save, false for a load
+	 * @param percent how much of the file has been written or read
 	 */
-	public void appendToLog(String message) {
-		int caretPosition = textArea.getCaretPosition();
-
-		// Ensure the log does not exceed MAX_LOG_COUNT messages
-		if (logStack.size() >= MAX_LOG_COUNT) {
-			logStack.pollLast();
+	public void showStateProgress(boolean saving, int percent) {
+		loadButton.setEnabled(false);
+		saveButton.setEnabled(false);
+		if (saving) {
+			saveButton.setText("Saving " + percent + "%");
+		} else {
+			loadButton.setText("Loading " + percent + "%");
 		}
+	}
 
-		logStack.offerFirst(message);
+	/**
+	 * Restores the Load and Save buttons after a save or load has finished.
+	 */
+	public void clearStateProgress() {
+		loadButton.setText("Load");
+		saveButton.setText("Save");
+		loadButton.setEnabled(true);
+		saveButton.setEnabled(true);
+	}
 
-		// Rebuild the text to display from the log stack
-		StringBuilder logs = new StringBuilder();
-		for (String log : logStack) {
-			logs.append(log).append("\n");
-		}
+	/**
+	 * Adds a new log message to the top of the log. Safe to call from any
+	 * thread; the message is shown with the others that arrive in the same
+	 * frame.
+	 *
+	 * @param message the message to be appended to the log
+	 */
+	public void appendToLog(String message) {
+		logModel.add(message);
+	}
 
-		// Update the text area with the new log messages
-		textArea.setText(logs.toString());
+	/**
+	 * Gets the pipeline refreshing the GUI once per frame. Model updates that
+	 * may arrive faster than the GUI can show them should go through its slots.
+	 *
+	 * @return the refresh pipeline
+	 */
+	public RefreshPipeline getRefreshPipeline() {
+		return refreshPipeline;
+	}
 
-		// Try to maintain the caret position to avoid jumping in the text area
-		textArea.setCaretPosition(caretPosition);
+	// Logs the frame statistics of the last second while measuring.
+	private void logFrameStatistics(FrameStatistics statistics) {
+		appendToLog(String.format(Locale.ROOT,
+				"Frames: %d, frame time mean %.2f ms, p99 %.2f ms, max %.2f ms, longest gap %.1f ms, EDT queue mean %.1f, max %d",
+				statistics.frames(), statistics.meanFrameNanos() / 1e6, statistics.p99FrameNanos() / 1e6,
+				statistics.maxFrameNanos() / 1e6, statistics.maxFrameIntervalNanos() / 1e6,
+				statistics.meanQueueDepth(), statistics.maxQueueDepth()));
 	}
 
 	/**
@@ -324,7 +513,7 @@ public class SwingGUI implements PropertyChangeListener {
 		// Handle log updates
 		if ("log".equals(propertyName)) {
 			String newLogMessage = (String) evt.getNewValue();
-			appendToLog(newLogMessage);
+			appendToLog(newLogMessage); // Queued, so fine from the log writer thread too.
 		}
 		// Handle updates to the buffer size
 		else if ("bufferSize".equals(propertyName)) {
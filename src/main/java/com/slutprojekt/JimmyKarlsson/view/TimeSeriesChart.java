@@ -0,0 +1,108 @@
+package com.slutprojekt.JimmyKarlsson.view;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.time.Duration;
+
+import javax.swing.JPanel;
+
+import com.slutprojekt.JimmyKarlsson.model.metrics.TimeSeries;
+
+/**
+ * Live chart of a TimeSeries, drawing every series in a strip of its own over
+ * the same time window, which ends at the latest sample. Each pixel column is
+ * drawn as a bar from the minimum to the maximum of the samples it covers, so
+ * spikes stay visible however many samples share a pixel, and as the minimums
+ * and maximums come from the series' block aggregates, a repaint costs time in
+ * proportion to the width of the chart rather than the samples shown.
+ */
+public class TimeSeriesChart extends JPanel {
+
+	private static final long serialVersionUID = 1L;
+	private static final Color[] COLORS = { new Color(0, 120, 200), new Color(0, 153, 0), new Color(200, 100, 0) };
+	private static final Color GRID = new Color(225, 225, 225);
+	private static final int LABEL_HEIGHT = 14;
+
+	private final TimeSeries series;
+	private final String[] names;
+	private Duration window;
+
+	// Reused between repaints, resized with the chart.
+	private int[] minimums = new int[0];
+	private int[] maximums = new int[0];
+
+	/**
+	 * Constructs a chart of the given series.
+	 *
+	 * @param series the series to draw
+	 * @param names  the name of every series, in index order
+	 * @param window the length of time shown
+	 */
+	public TimeSeriesChart(TimeSeries series, String[] names, Duration window) {
+		this.series = series;
+		this.names = names.clone();
+		this.window = window;
+		setBackground(Color.WHITE);
+		setPreferredSize(new Dimension(560, 60 * names.length));
+	}
+
+	public Duration getWindow() {
+		return window;
+	}
+
+	/**
+	 * Changes the length of time shown.
+	 *
+	 * @param window the new window
+	 */
+	public void setWindow(Duration window) {
+		this.window = window;
+		repaint();
+	}
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		super.paintComponent(g);
+		int width = getWidth();
+		if (width != minimums.length) {
+			minimums = new int[width];
+			maximums = new int[width];
+		}
+		long to = series.getSampleCount();
+		long from = to - Math.max(1, window.toNanos() / series.getSampleInterval().toNanos());
+		int stripHeight = getHeight() / names.length;
+		FontMetrics metrics = g.getFontMetrics();
+
+		for (int index = 0; index < names.length; index++) {
+			int top = index * stripHeight;
+			int plotTop = top + LABEL_HEIGHT;
+			int plotHeight = stripHeight - LABEL_HEIGHT - 2;
+			g.setColor(GRID);
+			g.drawLine(0, top + stripHeight - 1, width, top + stripHeight - 1);
+			if (plotHeight <= 0 || series.downsample(index, from, to, minimums, maximums) == 0) {
+				g.setColor(Color.GRAY);
+				g.drawString(names[index], 4, top + metrics.getAscent());
+				continue;
+			}
+
+			// Scale every strip to the largest value in view.
+			int max = 1;
+			for (int x = 0; x < width; x++) {
+				max = Math.max(max, maximums[x]);
+			}
+			g.setColor(COLORS[index % COLORS.length]);
+			for (int x = 0; x < width; x++) {
+				if (minimums[x] > maximums[x]) {
+					continue; // No samples in this column.
+				}
+				int y1 = plotTop + plotHeight - (int) ((long) maximums[x] * plotHeight / max);
+				int y2 = plotTop + plotHeight - (int) ((long) minimums[x] * plotHeight / max);
+				g.drawLine(x, y1, x, y2);
+			}
+			g.setColor(Color.DARK_GRAY);
+			g.drawString(names[index] + " (max " + max + ")", 4, top + metrics.getAscent());
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package com.slutprojekt.JimmyKarlsson.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+import com.slutprojekt.JimmyKarlsson.model.LoadBalancer;
+
+/**
+ * Unit tests for the control law of the ProductionRegulator.
+ */
+public class ProductionRegulatorTest {
+
+	private static final long SECOND = 1_000_000_000L;
+
+	private final RegulatorSettings settings = new RegulatorSettings(0.5, 20.0, 2.0, 0.0, Duration.ofSeconds(1), 2,
+			Duration.ofSeconds(2), 0, 5);
+
+	private ProductionRegulator newRegulator(int producers) {
+		ProductionRegulator regulator = new ProductionRegulator(new LoadBalancer(100), settings, () -> 1);
+		regulator.reset(producers);
+		return regulator;
+	}
+
+	@Test
+	public void holdsStillAtTheSetpoint() {
+		ProductionRegulator regulator = newRegulator(3);
+		assertEquals(0, regulator.computeAdjustment(50, 100, 3, 0));
+	}
+
+	@Test
+	public void scalingActionsAreLimitedInSizeAndFrequency() {
+		ProductionRegulator regulator = newRegulator(0);
+
+		assertEquals(2, regulator.computeAdjustment(0, 100, 0, 0)); // Wants 5, limited to 2.
+		assertEquals(0, regulator.computeAdjustment(0, 100, 2, SECOND)); // Too soon after the last action.
+		assertEquals(2, regulator.computeAdjustment(0, 100, 2, 2 * SECOND));
+	}
+
+	@Test
+	public void integralDoesNotWindUpWhileSaturated() {
+		ProductionRegulator regulator = newRegulator(5);
+		long now = 0;
+		// A long starvation with the producer count pinned at the maximum.
+		for (int i = 0; i < 1_000; i++) {
+			regulator.computeAdjustment(0, 100, 5, now += 3 * SECOND);
+		}
+
+		// Once the buffer overflows, producers must be removed right away instead
+		// of waiting for a wound-up integral to unwind.
+		assertTrue(regulator.computeAdjustment(100, 100, 5, now += 3 * SECOND) < 0);
+	}
+}
@@ -0,0 +1,63 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Checks that a put/take round trip through a Buffer allocates nothing, by
+ * counting the bytes the test thread allocates over many round trips. The
+ * BufferAllocationBenchmark in the benchmarks module measures the same path
+ * under the JMH gc profiler.
+ */
+public class BufferAllocationTest {
+
+	private static final int WARMUP_ROUND_TRIPS = 20_000; // Lets lazy initialization happen before measuring.
+	private static final int ROUND_TRIPS = 100_000;
+	// Anything below one byte per round trip means nothing is allocated on the
+	// hot path; the odd byte comes from the JVM, not the buffer.
+	private static final long MAX_BYTES = ROUND_TRIPS;
+
+	@Test
+	public void putAndTakeDoNotAllocate() throws InterruptedException {
+		assertRoundTripsDoNotAllocate("BLOCKING_QUEUE", new Buffer(100));
+	}
+
+	@Test
+	public void ringBufferPutAndTakeDoNotAllocate() throws InterruptedException {
+		assertRoundTripsDoNotAllocate("RING_BUFFER",
+				new Buffer(100, capacity -> new RingBufferStrategy(capacity, WaitStrategyType.PARK.create())));
+	}
+
+	// Private helper methods
+
+	private static void assertRoundTripsDoNotAllocate(String strategy, Buffer buffer) throws InterruptedException {
+		ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assertTrue("The JVM does not count allocated bytes", threads.isThreadAllocatedMemoryEnabled());
+		buffer.addPropertyChangeListener(evt -> {
+			// Listener on, so the notification path is part of what is measured.
+		});
+		Item item = new Item();
+		try {
+			roundTrips(buffer, item, WARMUP_ROUND_TRIPS);
+			long before = threads.getCurrentThreadAllocatedBytes();
+			roundTrips(buffer, item, ROUND_TRIPS);
+			long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+			assertTrue(strategy + " allocates " + allocated + " B over " + ROUND_TRIPS + " round trips",
+					allocated < MAX_BYTES);
+		} finally {
+			buffer.getOccupancyGauge().shutdown();
+		}
+	}
+
+	private static void roundTrips(Buffer buffer, Item item, int count) throws InterruptedException {
+		for (int i = 0; i < count; i++) {
+			buffer.put(item);
+			buffer.take();
+		}
+	}
+}
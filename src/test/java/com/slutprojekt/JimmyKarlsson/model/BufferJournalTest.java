@@ -0,0 +1,276 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.slutprojekt.JimmyKarlsson.simulation.RealTimeSimulation;
+import com.slutprojekt.JimmyKarlsson.simulation.SimulationConfig;
+import com.slutprojekt.JimmyKarlsson.simulation.SimulationReport;
+
+/**
+ * Unit tests for journaling buffer contents and recovering them.
+ */
+public class BufferJournalTest {
+
+	private Path directory;
+
+	@Before
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("buffer-journal-test");
+	}
+
+	@After
+	public void deleteDirectory() throws IOException {
+		try (var files = Files.walk(directory)) {
+			for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(file);
+			}
+		}
+	}
+
+	private static List<Long> payloads(List<Item> items) {
+		List<Long> payloads = new ArrayList<>();
+		for (Item item : items) {
+			payloads.add(item.getPayload());
+		}
+		return payloads;
+	}
+
+	private static List<Long> range(long from, long to) {
+		List<Long> values = new ArrayList<>();
+		for (long i = from; i < to; i++) {
+			values.add(i);
+		}
+		return values;
+	}
+
+	private List<Path> files(String prefix) throws IOException {
+		try (var files = Files.list(directory)) {
+			return files.filter(file -> file.getFileName().toString().startsWith(prefix)).sorted().toList();
+		}
+	}
+
+	@Test
+	public void itemsNotTakenAreRecoveredInOrder() throws Exception {
+		try (BufferJournal journal = new BufferJournal(directory, Durability.FSYNC)) {
+			Buffer buffer = new Buffer(10);
+			buffer.attachJournal(journal);
+			for (int i = 0; i < 6; i++) {
+				buffer.put(new Item(i - 2, i % 2)); // Negative payloads too.
+			}
+			buffer.take();
+			buffer.poll();
+			buffer.drainTo(1, Duration.ZERO);
+		}
+
+		try (BufferJournal journal = new BufferJournal(directory, Durability.FSYNC)) {
+			List<Item> recovered = journal.getRecoveredItems();
+			assertEquals(List.of(1L, 2L, 3L), payloads(recovered));
+			assertEquals(1, recovered.get(0).getPriorityClass());
+			assertEquals(0, recovered.get(1).getPriorityClass());
+
+			// Put back into a buffer, they are taken and journaled as usual.
+			Buffer buffer = new Buffer(2);
+			buffer.attachJournal(journal);
+			assertEquals(3, buffer.getCurrentSize());
+			assertEquals(3, buffer.getCapacity());
+			assertEquals(1, buffer.take().getPayload());
+		}
+
+		try (BufferJournal journal = new BufferJournal(directory, Durability.ASYNC)) {
+			assertEquals(List.of(2L, 3L), payloads(journal.getRecoveredItems()));
+		}
+	}
+
+	@Test
+	public void aTornTailIsIgnored() throws Exception {
+		try (BufferJournal journal = new BufferJournal(directory, Durability.WRITE)) {
+			Buffer buffer = new Buffer(10);
+			buffer.attachJournal(journal);
+			buffer.put(new Item(7));
+			buffer.put(new Item(8));
+		}
+		// A frame whose length runs past the end of the file, as a crash mid-write leaves it.
+		List<Path> segments = files("segment-");
+		Files.write(segments.get(segments.size() - 1), new byte[] { 0, 0, 0, 100, 1, 2, 3, 4, 1, 9 },
+				StandardOpenOption.APPEND);
+
+		try (BufferJournal journal = new BufferJournal(directory, Durability.WRITE)) {
+			assertEquals(List.of(7L, 8L), payloads(journal.getRecoveredItems()));
+		}
+	}
+
+	@Test
+	public void aDamagedFrameEndsTheReplay() throws Exception {
+		try (BufferJournal journal = new BufferJournal(directory, Durability.FSYNC)) {
+			Buffer buffer = new Buffer(10);
+			buffer.attachJournal(journal);
+			buffer.put(new Item(1));
+			buffer.put(new Item(2)); // Each put is a frame of its own, as the previous one was forced.
+		}
+		Path segment = files("segment-").get(0);
+		byte[] bytes = Files.readAllBytes(segment);
+		bytes[bytes.length - 1] ^= 1;
+		Files.write(segment, bytes);
+
+		try (BufferJournal journal = new BufferJournal(directory, Durability.FSYNC)) {
+			assertEquals(List.of(1L), payloads(journal.getRecoveredItems()));
+		}
+	}
+
+	@Test
+	public void fullSegmentsAreReplacedByACheckpoint() throws Exception {
+		try (BufferJournal journal = new BufferJournal(directory, Durability.FSYNC, 64)) {
+			Buffer buffer = new Buffer(200);
+			buffer.attachJournal(journal);
+			for (int i = 0; i < 100; i++) {
+				buffer.put(new Item(i));
+			}
+			for (int i = 0; i < 50; i++) {
+				buffer.take();
+			}
+		}
+		// Takes are written in the background, so the files only settle once the
+		// journal is closed.
+		assertTrue(files("segment-").size() <= 2);
+		assertEquals(1, files("checkpoint-").size());
+
+		try (BufferJournal journal = new BufferJournal(directory, Durability.FSYNC, 64)) {
+			assertEquals(range(50, 100), payloads(journal.getRecoveredItems()));
+			assertEquals(1, files("segment-").size());
+			assertEquals(1, files("checkpoint-").size());
+		}
+	}
+
+	@Test(timeout = 20_000)
+	public void concurrentPutsAreAllJournaled() throws Exception {
+		try (BufferJournal journal = new BufferJournal(directory, Durability.FSYNC)) {
+			Buffer buffer = new Buffer(4000);
+			buffer.attachJournal(journal);
+			List<Thread> threads = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				long first = t * 1000L;
+				threads.add(Thread.ofPlatform().start(() -> {
+					try {
+						for (long i = first; i < first + 1000; i++) {
+							buffer.put(new Item(i));
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}));
+			}
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		}
+
+		try (BufferJournal journal = new BufferJournal(directory, Durability.FSYNC)) {
+			List<Long> recovered = new ArrayList<>(payloads(journal.getRecoveredItems()));
+			recovered.sort(null);
+			assertEquals(range(0, 4000), recovered);
+		}
+	}
+
+	@Test
+	public void failedOffersAndClearsAreJournaled() throws Exception {
+		try (BufferJournal journal = new BufferJournal(directory, Durability.WRITE)) {
+			Buffer buffer = new Buffer(1);
+			buffer.attachJournal(journal);
+			assertTrue(buffer.offer(new Item(1)));
+			assertFalse(buffer.offer(new Item(2)));
+		}
+		try (BufferJournal journal = new BufferJournal(directory, Durability.WRITE)) {
+			assertEquals(List.of(1L), payloads(journal.getRecoveredItems()));
+			Buffer buffer = new Buffer(1);
+			buffer.attachJournal(journal);
+			buffer.clear();
+			buffer.setCapacityAndFill(3, 2);
+		}
+		try (BufferJournal journal = new BufferJournal(directory, Durability.WRITE)) {
+			assertEquals(List.of(0L, 0L), payloads(journal.getRecoveredItems()));
+		}
+	}
+
+	@Test
+	public void writtenPutsSurviveACrash() throws Exception {
+		BufferJournal journal = new BufferJournal(directory, Durability.WRITE);
+		Buffer buffer = new Buffer(10);
+		buffer.attachJournal(journal);
+		for (int i = 0; i < 5; i++) {
+			buffer.put(new Item(i));
+		}
+
+		// Copy the files as they are, without closing the journal first.
+		Path copy = Files.createDirectory(directory.resolve("copy"));
+		for (Path file : files("")) {
+			if (Files.isRegularFile(file)) {
+				Files.copy(file, copy.resolve(file.getFileName()));
+			}
+		}
+		try (BufferJournal recovered = new BufferJournal(copy, Durability.WRITE)) {
+			assertEquals(range(0, 5), payloads(recovered.getRecoveredItems()));
+		}
+		journal.close();
+	}
+
+	@Test(timeout = 10_000)
+	public void putsInterruptedByShutdownAreNotRecovered() throws Exception {
+		LoadBalancer loadBalancer = new LoadBalancer(2);
+		loadBalancer.enableJournal(directory, Durability.WRITE);
+		for (int i = 0; i < 3; i++) {
+			loadBalancer.addProducer(Rate.perSecond(1000), new Item());
+		}
+		while (loadBalancer.getCurrentSize() < 2) {
+			Thread.sleep(5);
+		}
+		Thread.sleep(50); // The producers are now waiting for room.
+		loadBalancer.shutdown();
+
+		LoadBalancer restarted = new LoadBalancer(2);
+		restarted.enableJournal(directory, Durability.WRITE);
+		assertEquals(2, restarted.getCurrentSize());
+		assertEquals(2, restarted.getCapacity());
+		restarted.shutdown();
+	}
+
+	@Test
+	public void realTimeRunsResumeFromTheJournal() throws Exception {
+		RealTimeSimulation engine = new RealTimeSimulation(ExecutionMode.PLATFORM_THREADS, directory,
+				Durability.WRITE);
+		engine.run(new SimulationConfig(List.of(), List.of(), 10, 3, Duration.ofMillis(200), Duration.ofMillis(50)));
+
+		SimulationReport resumed = engine
+				.run(new SimulationConfig(List.of(), List.of(), 10, 0, Duration.ofMillis(200), Duration.ofMillis(50)));
+		assertEquals(3, resumed.minOccupancy());
+		assertEquals(3, resumed.maxOccupancy());
+	}
+
+	@Test
+	public void loadBalancerPutsRecoveredItemsBack() throws Exception {
+		LoadBalancer loadBalancer = new LoadBalancer(10);
+		loadBalancer.enableJournal(directory, Durability.FSYNC);
+		loadBalancer.getBuffer().put(new Item(42));
+		loadBalancer.shutdown();
+
+		LoadBalancer restarted = new LoadBalancer(10);
+		restarted.enableJournal(directory, Durability.FSYNC);
+		assertEquals(1, restarted.getCurrentSize());
+		assertEquals(42, restarted.getBuffer().take().getPayload());
+		restarted.shutdown();
+	}
+}
@@ -0,0 +1,193 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+import org.junit.Test;
+
+import com.slutprojekt.JimmyKarlsson.model.interfaces.BufferStrategy;
+
+/**
+ * Unit tests for resizing a Buffer while producers and consumers are running.
+ */
+public class BufferResizeTest {
+
+	private static final IntFunction<BufferStrategy> RING = capacity -> new RingBufferStrategy(capacity,
+			WaitStrategyType.BLOCKING.create());
+
+	@Test(timeout = 10_000)
+	public void growingTakesEffectWhileProducersAreBlocked() throws Exception {
+		Buffer buffer = new Buffer(2);
+		Item first = new Item(), second = new Item(), third = new Item();
+		buffer.put(first);
+		buffer.put(second);
+		Thread producer = new Thread(() -> {
+			try {
+				buffer.put(third);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		producer.start();
+		awaitBlocked(producer);
+
+		buffer.resize(4);
+		Item fourth = new Item();
+		assertTrue(buffer.offer(fourth)); // Room in the new capacity right away.
+		assertSame(first, buffer.take()); // Frees the slot the blocked producer waits for.
+		producer.join();
+
+		assertEquals(4, buffer.getCapacity());
+		assertSame(second, buffer.take());
+		assertSame(third, buffer.take()); // Blocked before the resize, so ahead of fourth.
+		assertSame(fourth, buffer.take());
+	}
+
+	@Test(timeout = 10_000)
+	public void resizingWakesBlockedConsumers() throws Exception {
+		Buffer buffer = new Buffer(2);
+		AtomicReference<Item> taken = new AtomicReference<>();
+		Thread consumer = new Thread(() -> {
+			try {
+				taken.set(buffer.take());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		consumer.start();
+		awaitBlocked(consumer);
+
+		buffer.resize(8);
+		Item item = new Item();
+		buffer.put(item);
+		consumer.join();
+
+		assertSame(item, taken.get());
+	}
+
+	@Test(timeout = 10_000)
+	public void shrinkingKeepsEveryItemInOrder() throws Exception {
+		Buffer buffer = new Buffer(8);
+		Item[] items = new Item[8];
+		for (int i = 0; i < items.length; i++) {
+			items[i] = new Item(i);
+			buffer.put(items[i]);
+		}
+
+		buffer.resize(2);
+
+		assertEquals(2, buffer.getCapacity());
+		assertEquals(8, buffer.getOccupancyGauge().get()); // Not clamped to the new capacity.
+		Item newer = new Item(8), newest = new Item(9);
+		assertTrue(buffer.offer(newer)); // New puts are held to the new capacity.
+		assertTrue(buffer.offer(newest));
+		assertFalse(buffer.offer(new Item()));
+		for (Item item : items) {
+			assertSame(item, buffer.take());
+		}
+		assertSame(newer, buffer.take());
+		assertSame(newest, buffer.take());
+		assertEquals(0, buffer.getCurrentSize());
+	}
+
+	@Test(timeout = 60_000)
+	public void continuousResizingLosesAndReordersNothing() throws Exception {
+		assertFifoUnderResizing(new Buffer(16));
+		assertFifoUnderResizing(new Buffer(16, RING));
+	}
+
+	@Test(timeout = 60_000)
+	public void continuousResizingWithManyProducersAndConsumersLosesNothing() throws Exception {
+		Buffer buffer = new Buffer(16);
+		int producers = 4, consumers = 4, itemsPerProducer = 20_000;
+		Set<Item> received = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+		Thread[] threads = new Thread[producers + consumers];
+		for (int p = 0; p < producers; p++) {
+			threads[p] = new Thread(() -> {
+				try {
+					for (int i = 0; i < itemsPerProducer; i++) {
+						buffer.put(new Item(i));
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+		for (int c = 0; c < consumers; c++) {
+			threads[producers + c] = new Thread(() -> {
+				try {
+					for (int i = 0; i < itemsPerProducer; i++) {
+						received.add(buffer.take());
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		resizeUntilDone(buffer, threads);
+
+		assertEquals(producers * itemsPerProducer, received.size());
+		assertEquals(0, buffer.getCurrentSize());
+	}
+
+	// One producer and one consumer, so the consumer must see the exact order of puts.
+	private void assertFifoUnderResizing(Buffer buffer) throws Exception {
+		int count = 50_000;
+		long[] mismatches = new long[1];
+		Thread producer = new Thread(() -> {
+			try {
+				for (int i = 0; i < count; i++) {
+					buffer.put(new Item(i));
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		Thread consumer = new Thread(() -> {
+			try {
+				for (int i = 0; i < count; i++) {
+					if (buffer.take().getPayload() != i) {
+						mismatches[0]++;
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		producer.start();
+		consumer.start();
+		resizeUntilDone(buffer, producer, consumer);
+
+		assertEquals(0, mismatches[0]);
+		assertEquals(0, buffer.getCurrentSize());
+	}
+
+	private static void resizeUntilDone(Buffer buffer, Thread... threads) throws InterruptedException {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		for (Thread thread : threads) {
+			while (thread.isAlive()) {
+				buffer.resize(random.nextInt(1, 64));
+				thread.join(0, random.nextInt(1, 100_000));
+			}
+		}
+	}
+
+	private static void awaitBlocked(Thread thread) throws InterruptedException {
+		while (thread.getState() != Thread.State.WAITING) {
+			TimeUnit.MILLISECONDS.sleep(1);
+		}
+	}
+}
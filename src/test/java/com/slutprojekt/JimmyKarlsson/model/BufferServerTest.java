@@ -0,0 +1,235 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for serving a buffer to remote consumers over the network.
+ */
+public class BufferServerTest {
+
+	private Buffer buffer;
+	private BufferServer server;
+
+	@Before
+	public void setUp() throws IOException {
+		buffer = new Buffer(10_000);
+		server = new BufferServer(buffer, new InetSocketAddress("127.0.0.1", 0));
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		server.close();
+	}
+
+	// Waits until the condition holds, failing after ten seconds.
+	private static void awaitTrue(String message, BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.getAsBoolean()) {
+			assertTrue(message, System.nanoTime() < deadline);
+			Thread.sleep(5);
+		}
+	}
+
+	@Test(timeout = 20_000)
+	public void itemsArriveInOrderWithTheirFields() throws Exception {
+		for (int i = 0; i < 1000; i++) {
+			buffer.put(new Item().initialize(i, 1_700_000_000_000L + i, i % 2 == 0 ? i : -i, i % 3));
+		}
+		try (RemoteConsumer consumer = new RemoteConsumer(server.getAddress())) {
+			for (int i = 0; i < 1000; i++) {
+				Item item = consumer.take();
+				assertEquals(i, item.getId());
+				assertEquals(1_700_000_000_000L + i, item.getTimestamp());
+				assertEquals(i % 2 == 0 ? i : -i, item.getPayload());
+				assertEquals(i % 3, item.getPriorityClass());
+			}
+			assertEquals(1000, consumer.getItemsConsumed());
+		}
+		awaitTrue("Every item acknowledged", () -> server.getItemsAcknowledged() == 1000);
+		assertEquals(0, buffer.getCurrentSize());
+	}
+
+	@Test(timeout = 20_000)
+	public void acknowledgedItemsGoBackToThePool() throws Exception {
+		ItemPool pool = new ItemPool(100);
+		Buffer pooledBuffer = new Buffer(100);
+		try (BufferServer pooledServer = new BufferServer(pooledBuffer, new InetSocketAddress("127.0.0.1", 0), pool)) {
+			for (int i = 0; i < 50; i++) {
+				pooledBuffer.put(pool.acquire(i));
+			}
+			try (RemoteConsumer consumer = new RemoteConsumer(pooledServer.getAddress())) {
+				for (int i = 0; i < 50; i++) {
+					consumer.take();
+				}
+			}
+			awaitTrue("Every item released", () -> pool.getSharedCount() == 50);
+		}
+		for (int i = 0; i < 50; i++) {
+			pool.acquire(i);
+		}
+		assertEquals(50, pool.getAllocationCount());
+	}
+
+	@Test(timeout = 20_000)
+	public void itemsAreAcknowledgedOnlyWhenTheNextIsTaken() throws Exception {
+		buffer.put(new Item(0));
+		buffer.put(new Item(1));
+		try (RemoteConsumer consumer = new RemoteConsumer(server.getAddress(), 1, null)) {
+			assertEquals(0, consumer.take().getPayload());
+			Thread.sleep(100);
+			assertEquals(0, server.getItemsAcknowledged()); // Still being processed.
+			assertEquals(1, consumer.take().getPayload());
+			awaitTrue("The first item acknowledged", () -> server.getItemsAcknowledged() == 1);
+			Thread.sleep(100);
+			assertEquals(1, server.getItemsAcknowledged());
+		}
+	}
+
+	@Test(timeout = 20_000)
+	public void itemsInFlightStayJournaledUntilAcknowledged() throws Exception {
+		Path directory = Files.createTempDirectory("buffer-server-test");
+		try {
+			BufferJournal journal = new BufferJournal(directory, Durability.FSYNC);
+			Buffer journaled = new Buffer(10);
+			journaled.attachJournal(journal);
+			try (BufferServer journaledServer = new BufferServer(journaled, new InetSocketAddress("127.0.0.1", 0))) {
+				for (int i = 0; i < 3; i++) {
+					journaled.put(new Item(i));
+				}
+				RemoteConsumer consumer = new RemoteConsumer(journaledServer.getAddress(), 4, null);
+				for (int i = 0; i < 3; i++) {
+					consumer.take(); // The third take acknowledges the first two.
+				}
+				awaitTrue("Two items acknowledged", () -> journaledServer.getItemsAcknowledged() == 2);
+
+				journal.close(); // As if the process crashed with the third item in flight.
+				try (BufferJournal recovered = new BufferJournal(directory, Durability.FSYNC)) {
+					assertEquals(1, recovered.getRecoveredItems().size());
+					assertEquals(2, recovered.getRecoveredItems().get(0).getPayload());
+				}
+				consumer.shutdown();
+			}
+		} finally {
+			try (var files = Files.walk(directory)) {
+				files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+			}
+		}
+	}
+
+	@Test(timeout = 20_000)
+	public void neverSendsMoreThanTheWindow() throws Exception {
+		for (int i = 0; i < 100; i++) {
+			buffer.put(new Item(i));
+		}
+		try (RemoteConsumer consumer = new RemoteConsumer(server.getAddress(), 4, null)) {
+			awaitTrue("A window sent", () -> server.getItemsSent() == 4);
+			Thread.sleep(50);
+			assertEquals(4, server.getItemsSent());
+			assertEquals(96, buffer.getCurrentSize());
+
+			for (int i = 0; i < 5; i++) {
+				consumer.take(); // Half the window acknowledges, so more are sent.
+			}
+			awaitTrue("Credit returned", () -> server.getItemsSent() >= 6);
+		}
+	}
+
+	@Test(timeout = 20_000)
+	public void itemsInFlightReturnWhenAConsumerDisconnects() throws Exception {
+		for (int i = 0; i < 20; i++) {
+			buffer.put(new Item(i));
+		}
+		RemoteConsumer consumer = new RemoteConsumer(server.getAddress(), 10, null);
+		awaitTrue("A window sent", () -> server.getItemsSent() == 10);
+		for (int i = 0; i < 3; i++) {
+			consumer.take(); // Taken but not acknowledged.
+		}
+		consumer.shutdown();
+
+		awaitTrue("Items returned", () -> server.getItemsReturned() == 10);
+		assertEquals(0, server.getItemsAcknowledged());
+		awaitTrue("Items back in the buffer", () -> buffer.getCurrentSize() == 20);
+	}
+
+	@Test(timeout = 20_000)
+	public void dropsConnectionsThatBreakTheProtocol() throws Exception {
+		try (SocketChannel channel = SocketChannel.open(server.getAddress())) {
+			ByteBuffer hello = ByteBuffer.allocate(14).putInt(10).put(RemoteProtocol.HELLO).putInt(0xBAD)
+					.put(RemoteProtocol.VERSION).putInt(16).flip();
+			channel.write(hello);
+			assertEquals(-1, channel.read(ByteBuffer.allocate(16)));
+		}
+		awaitTrue("Connection dropped", () -> server.getConnectionCount() == 0);
+	}
+
+	@Test(timeout = 20_000)
+	public void dropsConnectionsAnnouncingFramesNoConsumerSends() throws Exception {
+		try (SocketChannel channel = SocketChannel.open(server.getAddress())) {
+			// Rejected on the length alone, rather than waiting for a body that would not fit.
+			channel.write(ByteBuffer.allocate(5).putInt(RemoteProtocol.MAX_FRAME_BYTES).put(RemoteProtocol.CREDIT)
+					.flip());
+			assertEquals(-1, channel.read(ByteBuffer.allocate(16)));
+		}
+		awaitTrue("Connection dropped", () -> server.getConnectionCount() == 0);
+	}
+
+	@Test(timeout = 60_000)
+	public void consumersInOtherJvmsShareTheItems() throws Exception {
+		int port = server.getAddress().getPort();
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		List<Process> processes = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+					RemoteConsumer.class.getName(), "127.0.0.1", Integer.toString(port), "8", "64")
+					.redirectErrorStream(true).start());
+		}
+		awaitTrue("Both consumers connected", () -> server.getConnectionCount() == 2);
+
+		for (int i = 0; i < 5000; i++) {
+			buffer.put(new Item(i));
+		}
+		awaitTrue("Every item acknowledged", () -> server.getItemsAcknowledged() == 5000);
+
+		Pattern consumed = Pattern.compile("consumed (\\d+) items");
+		long total = 0;
+		for (Process process : processes) {
+			try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+				String line;
+				long count = -1;
+				while ((line = output.readLine()) != null) {
+					Matcher matcher = consumed.matcher(line);
+					if (matcher.find()) {
+						count = Long.parseLong(matcher.group(1));
+					}
+				}
+				assertTrue(process.waitFor(30, TimeUnit.SECONDS));
+				assertTrue("Every consumer took part", count > 0);
+				total += count;
+			}
+		}
+		assertEquals(5000, total);
+		assertEquals(0, server.getItemsReturned());
+	}
+}
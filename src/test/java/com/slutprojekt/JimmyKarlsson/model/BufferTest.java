@@ -0,0 +1,140 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the Buffer batch operations and size notifications.
+ */
+public class BufferTest {
+
+	@Test
+	public void batchOperationsUpdateTheGaugeOncePerBatch() throws Exception {
+		Buffer buffer = new Buffer(10);
+
+		buffer.putAll(Arrays.asList(new Item(), new Item(), new Item(), new Item()));
+		assertEquals(4, buffer.getOccupancyGauge().get());
+
+		List<Item> drained = buffer.drainTo(3, Duration.ofSeconds(1));
+		assertEquals(3, drained.size());
+		assertEquals(1, buffer.getOccupancyGauge().get());
+		assertEquals(1, buffer.getCurrentSize());
+	}
+
+	@Test(timeout = 10_000)
+	public void putAllWaitsForRoomAndKeepsTheOrder() throws Exception {
+		for (IntFunction<Buffer> kind : List.<IntFunction<Buffer>>of(capacity -> new Buffer(capacity),
+				capacity -> new Buffer(capacity, c -> new RingBufferStrategy(c, WaitStrategyType.PARK.create())),
+				capacity -> new Buffer(capacity,
+						c -> new StripedBufferStrategy(c, 1, WaitStrategyType.PARK.create())),
+				capacity -> new Buffer(List.of(new PriorityClass("only", 1, capacity))))) {
+			Buffer buffer = kind.apply(3);
+			List<Item> batch = new ArrayList<>();
+			for (int i = 0; i < 10; i++) {
+				batch.add(new Item(i));
+			}
+			Thread producer = new Thread(() -> {
+				try {
+					buffer.putAll(batch);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			});
+			producer.start();
+			for (int i = 0; i < 10; i++) {
+				assertEquals(i, buffer.take().getPayload());
+			}
+			producer.join();
+			assertEquals(10, buffer.getTotalPut());
+			assertEquals(0, buffer.getOccupancyGauge().get());
+		}
+	}
+
+	@Test(timeout = 10_000)
+	public void interruptedBatchesReportWhatWasAlreadyMoved() throws Exception {
+		Buffer buffer = new Buffer(2);
+		AtomicReference<Integer> added = new AtomicReference<>();
+		AtomicReference<Boolean> interrupted = new AtomicReference<>();
+		Thread producer = new Thread(() -> {
+			try {
+				added.set(buffer.putAll(List.of(new Item(0), new Item(1), new Item(2), new Item(3))));
+				interrupted.set(Thread.currentThread().isInterrupted());
+			} catch (InterruptedException e) {
+				interrupted.set(false);
+			}
+		});
+		producer.start();
+		while (buffer.getCurrentSize() < 2) {
+			Thread.sleep(5);
+		}
+		producer.interrupt();
+		producer.join();
+		assertEquals(2, (int) added.get());
+		assertTrue(interrupted.get());
+		assertEquals(2, buffer.getOccupancyGauge().get());
+
+		AtomicReference<List<Item>> drained = new AtomicReference<>();
+		Thread consumer = new Thread(() -> {
+			try {
+				drained.set(buffer.drainTo(5, Duration.ofSeconds(30)));
+				interrupted.set(Thread.currentThread().isInterrupted());
+			} catch (InterruptedException e) {
+				interrupted.set(false);
+			}
+		});
+		consumer.start();
+		while (buffer.getCurrentSize() > 0) {
+			Thread.sleep(5);
+		}
+		consumer.interrupt();
+		consumer.join();
+		assertEquals(2, drained.get().size());
+		assertEquals(1, drained.get().get(1).getPayload());
+		assertTrue(interrupted.get());
+	}
+
+	@Test
+	public void sizeChangesAreFiredFromThePublisherThread() throws Exception {
+		Buffer buffer = new Buffer(10);
+		CountDownLatch fired = new CountDownLatch(1);
+		AtomicReference<Thread> firingThread = new AtomicReference<>();
+		buffer.addPropertyChangeListener(evt -> {
+			if ((Integer) evt.getNewValue() == 2) {
+				firingThread.set(Thread.currentThread());
+				fired.countDown();
+			}
+		});
+
+		buffer.put(new Item());
+		buffer.put(new Item());
+
+		assertTrue(fired.await(5, TimeUnit.SECONDS));
+		assertNotSame(Thread.currentThread(), firingThread.get());
+	}
+
+	@Test
+	public void drainToReturnsWhatArrivedWhenTheLingerTimeRunsOut() throws Exception {
+		Buffer buffer = new Buffer(10, capacity -> new RingBufferStrategy(capacity, WaitStrategyType.PARK.create()));
+		buffer.put(new Item());
+
+		long started = System.nanoTime();
+		List<Item> drained = buffer.drainTo(5, Duration.ofMillis(50));
+		long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+
+		assertEquals(1, drained.size());
+		assertTrue(elapsedMillis >= 50);
+		assertEquals(0, buffer.drainTo(5, Duration.ZERO).size());
+	}
+}
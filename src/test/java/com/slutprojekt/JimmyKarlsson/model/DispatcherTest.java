@@ -0,0 +1,218 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.slutprojekt.JimmyKarlsson.model.interfaces.DispatchPolicy;
+import com.slutprojekt.JimmyKarlsson.model.metrics.LatencyHistogram;
+
+/**
+ * Unit tests for the dispatcher and its policies.
+ */
+public class DispatcherTest {
+
+	private static Consumer consumer(Duration interval, int queued) {
+		Buffer queue = Buffer.dispatchQueue(10, new LatencyHistogram());
+		for (int i = 0; i < queued; i++) {
+			queue.offer(new Item());
+		}
+		return new Consumer(Rate.every(interval), queue, BatchSettings.NONE, ItemPool.unpooled());
+	}
+
+	@Test
+	public void roundRobinVisitsEveryConsumerInTurn() {
+		List<Consumer> consumers = List.of(consumer(Duration.ofMillis(1), 5), consumer(Duration.ofMillis(1), 0),
+				consumer(Duration.ofMillis(1), 0));
+		DispatchPolicy policy = DispatchPolicyType.ROUND_ROBIN.create();
+		int first = policy.select(consumers);
+		assertEquals((first + 1) % 3, policy.select(consumers));
+		assertEquals((first + 2) % 3, policy.select(consumers));
+		assertEquals(first, policy.select(consumers));
+	}
+
+	@Test
+	public void leastLoadedPicksTheShortestQueue() {
+		List<Consumer> consumers = List.of(consumer(Duration.ofMillis(1), 3), consumer(Duration.ofMillis(1), 1),
+				consumer(Duration.ofMillis(1), 2));
+		DispatchPolicy policy = DispatchPolicyType.LEAST_LOADED.create();
+		for (int i = 0; i < 5; i++) {
+			assertEquals(1, policy.select(consumers));
+		}
+	}
+
+	@Test
+	public void powerOfTwoChoicesPicksTheShorterOfTwo() {
+		// With two consumers both are always sampled.
+		List<Consumer> consumers = List.of(consumer(Duration.ofMillis(1), 4), consumer(Duration.ofMillis(1), 1));
+		DispatchPolicy policy = DispatchPolicyType.POWER_OF_TWO_CHOICES.create();
+		for (int i = 0; i < 20; i++) {
+			assertEquals(1, policy.select(consumers));
+		}
+	}
+
+	@Test
+	public void delayWeightedPrefersFastConsumersUntilTheirBacklogOutweighsIt() {
+		DispatchPolicy policy = DispatchPolicyType.DELAY_WEIGHTED.create();
+		// Equal depths: the consumer ten times as fast is chosen.
+		assertEquals(1, policy.select(List.of(consumer(Duration.ofMillis(10), 0), consumer(Duration.ofMillis(1), 0))));
+		// Nine queued at 1 ms is as slow as nothing queued at 10 ms; ten is slower.
+		assertEquals(0, policy.select(List.of(consumer(Duration.ofMillis(10), 0), consumer(Duration.ofMillis(1), 10))));
+	}
+
+	@Test(timeout = 10_000)
+	public void itemsReachConsumersThroughTheirOwnQueues() throws Exception {
+		LoadBalancer loadBalancer = new LoadBalancer(100);
+		loadBalancer.enableDispatch(DispatchPolicyType.LEAST_LOADED, 4);
+		Dispatcher dispatcher = loadBalancer.getDispatcher();
+		assertNotNull(dispatcher);
+		loadBalancer.addConsumer(Rate.every(Duration.ofMillis(1)));
+		loadBalancer.addConsumer(Rate.every(Duration.ofMillis(5)));
+		for (int i = 0; i < 50; i++) {
+			loadBalancer.getBuffer().put(new Item());
+		}
+
+		while (dispatcher.getLatencyHistogram().getCount() < 50) {
+			Thread.sleep(10);
+		}
+		assertEquals(50, dispatcher.getItemsDispatched());
+		assertEquals(0, loadBalancer.getCurrentSize());
+		loadBalancer.shutdown();
+	}
+
+	@Test(timeout = 10_000)
+	public void fullQueuesHoldItemsBackInTheSharedBuffer() throws Exception {
+		LoadBalancer loadBalancer = new LoadBalancer(100);
+		loadBalancer.enableDispatch(DispatchPolicyType.ROUND_ROBIN, 2);
+		loadBalancer.addConsumer(Rate.every(Duration.ofHours(1))); // Takes one item, then processes it for an hour.
+		for (int i = 0; i < 10; i++) {
+			loadBalancer.getBuffer().put(new Item());
+		}
+
+		// One item being processed, two queued, and the dispatcher holding one.
+		while (loadBalancer.getDispatcher().getItemsDispatched() < 3) {
+			Thread.sleep(10);
+		}
+		Thread.sleep(50);
+		assertEquals(3, loadBalancer.getDispatcher().getItemsDispatched());
+		assertEquals(6, loadBalancer.getCurrentSize());
+		loadBalancer.shutdown();
+	}
+
+	@Test(timeout = 10_000)
+	public void shutDownConsumersAreReleasedAndGetNoMoreItems() throws Exception {
+		Buffer buffer = new Buffer(100);
+		Dispatcher dispatcher = new Dispatcher(buffer, DispatchPolicyType.ROUND_ROBIN.create(), 2);
+		Consumer consumer = new Consumer(Rate.every(Duration.ofMillis(1)), dispatcher.createQueue(),
+				BatchSettings.NONE, ItemPool.unpooled());
+		dispatcher.register(consumer);
+		Thread thread = new Thread(consumer);
+		thread.start();
+		consumer.shutdown();
+
+		// The consumer may be waiting on its empty queue, and is woken to notice the shutdown.
+		thread.join();
+		buffer.put(new Item());
+		Thread.sleep(50);
+		assertEquals(0, dispatcher.getItemsDispatched());
+
+		// The item is kept for the next consumer.
+		Buffer queue = dispatcher.createQueue();
+		dispatcher.register(new Consumer(Rate.every(Duration.ofHours(1)), queue, BatchSettings.NONE,
+				ItemPool.unpooled()));
+		while (dispatcher.getItemsDispatched() == 0) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, queue.getCurrentSize());
+		dispatcher.shutdown();
+	}
+
+	@Test(timeout = 10_000)
+	public void itemsQueuedForAShutDownConsumerGoToTheOthers() throws Exception {
+		Buffer buffer = new Buffer(100);
+		Dispatcher dispatcher = new Dispatcher(buffer, DispatchPolicyType.ROUND_ROBIN.create(), 5);
+		Consumer slow = new Consumer(Rate.every(Duration.ofHours(1)), dispatcher.createQueue(), BatchSettings.NONE,
+				ItemPool.unpooled());
+		dispatcher.register(slow);
+		Thread thread = new Thread(slow);
+		thread.start();
+		for (int i = 0; i < 6; i++) {
+			buffer.put(new Item(i));
+		}
+		// One item being processed and five queued.
+		while (dispatcher.getItemsDispatched() < 6) {
+			Thread.sleep(10);
+		}
+
+		Buffer queue = dispatcher.createQueue();
+		dispatcher.register(new Consumer(Rate.every(Duration.ofHours(1)), queue, BatchSettings.NONE,
+				ItemPool.unpooled()));
+		slow.shutdown();
+		thread.join(); // Woken from processing its item.
+
+		while (queue.getCurrentSize() < 5) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, slow.getItemsConsumed());
+		assertEquals(1, dispatcher.getLatencyHistogram().getCount());
+		for (int i = 1; i < 6; i++) {
+			assertEquals(i, queue.poll().getPayload()); // Still in order.
+		}
+		dispatcher.shutdown();
+	}
+
+	@Test(timeout = 10_000)
+	public void shutdownPutsQueuedAndHeldItemsBack() throws Exception {
+		Buffer buffer = new Buffer(10);
+		Dispatcher dispatcher = new Dispatcher(buffer, DispatchPolicyType.ROUND_ROBIN.create(), 2);
+		Buffer queue = dispatcher.createQueue();
+		dispatcher.register(new Consumer(Rate.every(Duration.ofHours(1)), queue, BatchSettings.NONE,
+				ItemPool.unpooled())); // Never started, so its queue fills up.
+		for (int i = 0; i < 4; i++) {
+			buffer.put(new Item(i));
+		}
+		// Two items queued, one held by the dispatcher and one still shared.
+		while (dispatcher.getItemsDispatched() < 2 || buffer.getCurrentSize() > 1) {
+			Thread.sleep(10);
+		}
+
+		dispatcher.shutdown();
+		dispatcher.awaitTermination(5, TimeUnit.SECONDS);
+		assertEquals(0, queue.getCurrentSize());
+		assertEquals(4, buffer.getCurrentSize());
+		List<Long> payloads = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			payloads.add(buffer.poll().getPayload());
+		}
+		assertEquals(List.of(3L, 0L, 1L, 2L), payloads); // The shared item first, then the rest oldest first.
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void dispatchIsNotSupportedInTimingWheelMode() {
+		LoadBalancer loadBalancer = new LoadBalancer(10, ExecutionMode.TIMING_WHEEL);
+		try {
+			loadBalancer.enableDispatch(DispatchPolicyType.ROUND_ROBIN, 2);
+		} finally {
+			loadBalancer.shutdown();
+		}
+	}
+
+	@Test
+	public void sharedBufferConsumersAreUnaffected() {
+		LoadBalancer loadBalancer = new LoadBalancer(10);
+		loadBalancer.addConsumer(Rate.every(Duration.ofHours(1)));
+		assertNull(loadBalancer.getDispatcher());
+		loadBalancer.enableDispatch(DispatchPolicyType.ROUND_ROBIN, 2);
+		loadBalancer.addConsumer(Rate.every(Duration.ofHours(1)));
+		assertNotNull(loadBalancer.getDispatcher());
+		assertEquals(2, loadBalancer.getConsumerCount());
+		loadBalancer.shutdown();
+	}
+}
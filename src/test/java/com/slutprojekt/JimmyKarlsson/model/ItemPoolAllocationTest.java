@@ -0,0 +1,98 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Unit tests for the item pool, including a check that producing and
+ * consuming pooled items allocates nothing, made by counting the bytes the
+ * test thread allocates. The ItemPoolAllocationBenchmark in the benchmarks
+ * module measures the same cycle under the JMH gc profiler.
+ */
+public class ItemPoolAllocationTest {
+
+	private static final int WARMUP_CYCLES = 20_000; // Lets lazy initialization happen before measuring.
+	private static final int CYCLES = 100_000;
+	private static final long MAX_BYTES = CYCLES; // Below one byte per cycle.
+
+	@Test
+	public void pooledProductionDoesNotAllocate() throws InterruptedException {
+		ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assertTrue("The JVM does not count allocated bytes", threads.isThreadAllocatedMemoryEnabled());
+		Buffer buffer = new Buffer(100);
+		ItemPool itemPool = new ItemPool(100);
+		try {
+			produceThenConsume(buffer, itemPool, WARMUP_CYCLES);
+			long before = threads.getCurrentThreadAllocatedBytes();
+			produceThenConsume(buffer, itemPool, CYCLES);
+			long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+			assertTrue("pooled production allocates " + allocated + " B over " + CYCLES + " cycles",
+					allocated < MAX_BYTES);
+		} finally {
+			buffer.getOccupancyGauge().shutdown();
+		}
+	}
+
+	@Test
+	public void releasedItemsAreReusedWithNewIds() {
+		ItemPool pool = new ItemPool(4);
+		Item first = pool.acquire(7);
+		long firstId = first.getId();
+		pool.release(first);
+
+		Item second = pool.acquire(8);
+
+		assertTrue(first == second);
+		assertTrue(second.getId() > firstId);
+		assertEquals(8, second.getPayload());
+		assertEquals(1, pool.getAllocationCount());
+	}
+
+	@Test
+	public void itemsReleasedOnOneThreadAreReusedOnAnother() throws Exception {
+		ItemPool pool = new ItemPool(64);
+		Item[] produced = new Item[40];
+		for (int i = 0; i < produced.length; i++) {
+			produced[i] = pool.acquire(i); // The producer side.
+		}
+		Thread consumer = new Thread(() -> {
+			for (Item item : produced) {
+				pool.release(item);
+			}
+		});
+		consumer.start();
+		consumer.join();
+
+		assertEquals(produced.length, pool.getSharedCount());
+		for (int i = 0; i < produced.length; i++) {
+			pool.acquire(i);
+		}
+		assertEquals(produced.length, pool.getAllocationCount());
+	}
+
+	@Test
+	public void unpooledAlwaysAllocates() {
+		ItemPool pool = ItemPool.unpooled();
+		Item first = pool.acquire(1);
+		pool.release(first);
+
+		assertFalse(first == pool.acquire(1));
+		assertEquals(2, pool.getAllocationCount());
+	}
+
+	// Private helper methods
+
+	private static void produceThenConsume(Buffer buffer, ItemPool itemPool, int cycles) throws InterruptedException {
+		for (int i = 0; i < cycles; i++) {
+			buffer.put(itemPool.acquire(42));
+			itemPool.release(buffer.take());
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Scaling tests for the virtual-thread and timing-wheel execution modes.
+ * Surefire limits the virtual thread scheduler to a single carrier thread, so
+ * a producer that pinned its carrier while blocked in a full buffer would
+ * stall every other producer and consumer and make these tests time out.
+ */
+public class LoadBalancerScalingTest {
+
+	private static final int PRODUCERS = 100_000;
+	private static final int BUFFER_CAPACITY = 1_000; // Far smaller than PRODUCERS, so most of them block.
+	private static final int PRODUCER_DELAY_SECONDS = 600; // Each producer puts exactly once during the test.
+
+	@Test(timeout = 120_000)
+	public void hundredThousandProducersOnBlockingQueueBuffer() throws Exception {
+		assertEveryProducerDelivers(new LoadBalancer(BUFFER_CAPACITY, ExecutionMode.VIRTUAL_THREADS));
+	}
+
+	@Test(timeout = 120_000)
+	public void hundredThousandProducersOnRingBuffer() throws Exception {
+		assertEveryProducerDelivers(
+				new LoadBalancer(BUFFER_CAPACITY, WaitStrategyType.BLOCKING, ExecutionMode.VIRTUAL_THREADS));
+	}
+
+	@Test(timeout = 120_000)
+	public void hundredThousandProducersOnTimingWheel() throws Exception {
+		int threadsBefore = Thread.activeCount();
+		LoadBalancer loadBalancer = new LoadBalancer(BUFFER_CAPACITY, ExecutionMode.TIMING_WHEEL);
+		assertEveryProducerDelivers(loadBalancer);
+
+		// The worker pool plus the ticker thread, however many producers there are.
+		int maxThreads = threadsBefore + Runtime.getRuntime().availableProcessors() + 1;
+		assertTrue(Thread.activeCount() + " threads", Thread.activeCount() <= maxThreads);
+	}
+
+	private void assertEveryProducerDelivers(LoadBalancer loadBalancer) throws Exception {
+		try {
+			for (int i = 0; i < PRODUCERS; i++) {
+				loadBalancer.addProducer(PRODUCER_DELAY_SECONDS, new Item());
+			}
+			assertEquals(PRODUCERS, loadBalancer.getProducerCount());
+
+			// Every producer puts exactly one new item during the test, so as many
+			// distinct items as producers means every producer got to run.
+			Set<Item> delivered = Collections.newSetFromMap(new IdentityHashMap<>());
+			while (delivered.size() < PRODUCERS) {
+				delivered.addAll(loadBalancer.getBuffer().drainTo(BUFFER_CAPACITY, Duration.ofMillis(100)));
+			}
+			assertEquals(PRODUCERS, delivered.size());
+		} finally {
+			loadBalancer.shutdown();
+		}
+	}
+}
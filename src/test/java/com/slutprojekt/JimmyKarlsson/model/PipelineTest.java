@@ -0,0 +1,258 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Test;
+
+import com.slutprojekt.JimmyKarlsson.model.interfaces.ItemProcessor;
+import com.slutprojekt.JimmyKarlsson.model.metrics.StageMetrics;
+
+/**
+ * Unit tests for the multi-stage pipeline.
+ */
+public class PipelineTest {
+
+	// Waits until the condition holds, failing after five seconds.
+	private static void awaitTrue(String message, BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		while (!condition.getAsBoolean()) {
+			assertTrue(message, System.nanoTime() < deadline);
+			Thread.sleep(5);
+		}
+	}
+
+	@Test
+	public void testItemsPassEveryStage() throws InterruptedException {
+		Set<Long> persisted = ConcurrentHashMap.newKeySet();
+		ItemProcessor transform = item -> item.initialize(item.getId(), item.getTimestamp(), item.getPayload() * 10);
+		ItemProcessor persist = item -> {
+			persisted.add(item.getPayload());
+			return item;
+		};
+		Pipeline pipeline = new Pipeline(List.of(new StageSettings("ingest", 4, 2, ItemProcessor.IDENTITY),
+				new StageSettings("transform", 4, 2, transform), new StageSettings("persist", 4, 1, persist)));
+		pipeline.start();
+		try {
+			for (long i = 1; i <= 100; i++) {
+				pipeline.getInput().put(new Item(i));
+			}
+			awaitTrue("All items persisted", () -> persisted.size() == 100);
+			for (long i = 1; i <= 100; i++) {
+				assertTrue(persisted.contains(i * 10));
+			}
+			List<StageMetrics> metrics = pipeline.getMetrics();
+			assertEquals("ingest", metrics.get(0).name());
+			for (StageMetrics stage : metrics) {
+				assertEquals(100, stage.itemsReceived());
+				assertEquals(100, stage.itemsProcessed());
+			}
+		} finally {
+			pipeline.shutdown();
+		}
+	}
+
+	@Test
+	public void testSlowStageThrottlesTheInput() throws InterruptedException {
+		CountDownLatch release = new CountDownLatch(1);
+		ItemProcessor stalled = item -> {
+			release.await();
+			return item;
+		};
+		Pipeline pipeline = new Pipeline(List.of(new StageSettings("ingest", 3, 1, ItemProcessor.IDENTITY),
+				new StageSettings("persist", 3, 1, stalled)));
+		pipeline.start();
+		try {
+			// One item held by each worker, plus a full buffer in front of each stage.
+			int inFlight = 1 + 3 + 1 + 3;
+			for (int i = 0; i < inFlight; i++) {
+				pipeline.getInput().put(new Item(i));
+			}
+			awaitTrue("The ingest worker waits for the persist stage",
+					() -> pipeline.getStages().get(0).getBlockedWorkers() == 1);
+			assertEquals(3, pipeline.getStages().get(1).getCurrentSize());
+			assertEquals(3, pipeline.getInput().getCurrentSize());
+			assertFalse(pipeline.getInput().offer(new Item(-1)));
+
+			release.countDown();
+			awaitTrue("Everything drains once the slow stage resumes",
+					() -> pipeline.getStages().get(1).getItemsProcessed() == inFlight);
+			StageMetrics ingest = pipeline.getStages().get(0).getMetrics();
+			assertEquals(0, ingest.blockedWorkers());
+			assertTrue(ingest.blockedNanos() > 0);
+		} finally {
+			pipeline.shutdown();
+		}
+	}
+
+	@Test
+	public void testDroppedItemsAreCounted() throws InterruptedException {
+		ItemProcessor evensOnly = item -> item.getPayload() % 2 == 0 ? item : null;
+		Pipeline pipeline = new Pipeline(List.of(new StageSettings("filter", 8, 1, evensOnly),
+				new StageSettings("persist", 8, 1, ItemProcessor.IDENTITY)));
+		pipeline.start();
+		try {
+			for (long i = 0; i < 10; i++) {
+				pipeline.getInput().put(new Item(i));
+			}
+			Stage first = pipeline.getStages().get(0);
+			awaitTrue("Every item filtered", () -> first.getItemsProcessed() + first.getMetrics().itemsDropped() == 10);
+			awaitTrue("Even items persisted", () -> pipeline.getStages().get(1).getItemsProcessed() == 5);
+			StageMetrics filter = first.getMetrics();
+			assertEquals(5, filter.itemsProcessed());
+			assertEquals(5, filter.itemsDropped());
+		} finally {
+			pipeline.shutdown();
+		}
+	}
+
+	@Test
+	public void testProcessorFailuresAreCountedAndTheWorkerCarriesOn() throws InterruptedException {
+		ItemPool pool = new ItemPool(10);
+		ItemProcessor evensOnly = item -> {
+			if (item.getPayload() % 2 != 0) {
+				throw new IllegalStateException("Odd payload " + item.getPayload());
+			}
+			return item;
+		};
+		Pipeline pipeline = new Pipeline(List.of(new StageSettings("validate", 8, 1, evensOnly),
+				new StageSettings("persist", 8, 1, ItemProcessor.IDENTITY)), ExecutionMode.PLATFORM_THREADS, pool);
+		pipeline.start();
+		try {
+			for (long i = 0; i < 10; i++) {
+				pipeline.getInput().put(new Item(i));
+			}
+			Stage first = pipeline.getStages().get(0);
+			awaitTrue("Every item validated or failed",
+					() -> first.getItemsProcessed() + first.getMetrics().itemsFailed() == 10);
+			awaitTrue("Every item released", () -> pool.getSharedCount() == 10);
+			StageMetrics validate = first.getMetrics();
+			assertEquals(5, validate.itemsProcessed());
+			assertEquals(5, validate.itemsFailed());
+			assertEquals(10, pool.getSharedCount());
+		} finally {
+			pipeline.shutdown();
+		}
+	}
+
+	@Test
+	public void testProcessorFailuresAreNotReportedOneByOne() throws InterruptedException {
+		ItemProcessor failing = item -> {
+			throw new IllegalStateException("Rejected payload " + item.getPayload());
+		};
+		Pipeline pipeline = new Pipeline(List.of(new StageSettings("validate", 8, 1, failing)));
+		ByteArrayOutputStream errors = new ByteArrayOutputStream();
+		PrintStream originalErr = System.err;
+		System.setErr(new PrintStream(errors, true));
+		pipeline.start();
+		try {
+			for (long i = 0; i < 100; i++) {
+				pipeline.getInput().put(new Item(i));
+			}
+			Stage stage = pipeline.getStages().get(0);
+			awaitTrue("Every item failed", () -> stage.getMetrics().itemsFailed() == 100);
+		} finally {
+			pipeline.shutdown();
+			System.setErr(originalErr);
+		}
+		String reported = errors.toString();
+		int reports = reported.split("Rejected payload", -1).length - 1;
+		assertTrue("At least one failure reported", reports >= 1);
+		assertTrue("Failures reported at most once a second, but got " + reports, reports < 10);
+	}
+
+	@Test
+	public void testInterruptedWorkersLoseNoItems() throws InterruptedException {
+		ItemPool pool = new ItemPool(10);
+		CountDownLatch never = new CountDownLatch(1);
+		ItemProcessor stalled = item -> {
+			never.await();
+			return item;
+		};
+		// The item being processed goes back to its stage's buffer, which has room.
+		Pipeline single = new Pipeline(List.of(new StageSettings("persist", 2, 1, stalled)),
+				ExecutionMode.PLATFORM_THREADS, pool);
+		single.start();
+		single.getInput().put(new Item(0));
+		single.getInput().put(new Item(1));
+		awaitTrue("The worker holds an item", () -> single.getInput().getTotalTaken() == 1);
+		single.shutdown();
+		awaitTrue("The item is back", () -> single.getInput().getCurrentSize() == 2);
+		assertEquals(0, pool.getSharedCount());
+
+		// Items that no longer fit anywhere are released rather than lost.
+		Pipeline chained = new Pipeline(List.of(new StageSettings("ingest", 2, 1, ItemProcessor.IDENTITY),
+				new StageSettings("persist", 1, 1, stalled)), ExecutionMode.PLATFORM_THREADS, pool);
+		chained.start();
+		for (int i = 0; i < 4; i++) {
+			chained.getInput().put(new Item(i));
+		}
+		awaitTrue("The persist worker holds an item",
+				() -> chained.getStages().get(1).getBuffer().getTotalTaken() == 1);
+		awaitTrue("The ingest worker holds the third item",
+				() -> chained.getStages().get(0).getBuffer().getTotalTaken() == 3);
+		awaitTrue("The ingest worker waits for the persist stage",
+				() -> chained.getStages().get(0).getBlockedWorkers() == 1);
+		chained.shutdown();
+		awaitTrue("Both held items released", () -> pool.getSharedCount() == 2);
+		assertEquals(1, chained.getStages().get(0).getCurrentSize());
+		assertEquals(1, chained.getStages().get(1).getCurrentSize());
+	}
+
+	@Test
+	public void testIngestLoadBalancerFeedsTheFirstStage() {
+		Pipeline pipeline = new Pipeline(List.of(new StageSettings("ingest", 5, 1, ItemProcessor.IDENTITY)));
+		LoadBalancer ingest = pipeline.createIngest();
+		try {
+			assertTrue(ingest.getBuffer() == pipeline.getInput());
+			assertEquals(5, ingest.getCapacity());
+			assertEquals(5, pipeline.getStages().get(0).getCapacity());
+		} finally {
+			ingest.shutdown();
+		}
+	}
+
+	@Test
+	public void testIngestLoadBalancerSharesThePipelinesItemPool() {
+		ItemPool pool = new ItemPool(16);
+		Pipeline pipeline = new Pipeline(List.of(new StageSettings("ingest", 5, 1, ItemProcessor.IDENTITY)),
+				ExecutionMode.PLATFORM_THREADS, pool);
+		LoadBalancer ingest = pipeline.createIngest();
+		try {
+			assertTrue(ingest.getItemPool() == pool);
+		} finally {
+			ingest.shutdown();
+		}
+	}
+
+	@Test
+	public void testLoadedStatesLeaveTheFirstStageToTakeItems() {
+		Pipeline pipeline = new Pipeline(List.of(new StageSettings("ingest", 5, 1, ItemProcessor.IDENTITY)));
+		LoadBalancer ingest = pipeline.createIngest();
+		try {
+			LoadBalancerState saved = new LoadBalancerState(List.of(3600, 3600), List.of(1, 1, 1), 8, 2);
+			ingest.applyState(saved.withoutConsumers());
+			assertEquals(2, ingest.getProducerCount());
+			assertEquals(0, ingest.getConsumerCount());
+			assertEquals(8, pipeline.getStages().get(0).getCapacity());
+		} finally {
+			ingest.shutdown();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsTimingWheel() {
+		new Pipeline(List.of(new StageSettings("ingest", 5, 1, ItemProcessor.IDENTITY)), ExecutionMode.TIMING_WHEEL,
+				ItemPool.unpooled());
+	}
+}
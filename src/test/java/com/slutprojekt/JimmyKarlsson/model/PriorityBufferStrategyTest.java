@@ -0,0 +1,148 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.slutprojekt.JimmyKarlsson.model.metrics.PriorityClassMetrics;
+
+/**
+ * Unit tests for the priority buffer strategy and priority buffers.
+ */
+public class PriorityBufferStrategyTest {
+
+	private static final List<PriorityClass> CLASSES = List.of(new PriorityClass("interactive", 3, 10),
+			new PriorityClass("bulk", 1, 30));
+
+	@Test
+	public void backloggedClassesAreServedInProportionToTheirWeights() throws Exception {
+		PriorityBufferStrategy strategy = new PriorityBufferStrategy(CLASSES);
+		for (int i = 0; i < 10; i++) {
+			strategy.put(new Item(i, 0));
+		}
+		for (int i = 0; i < 30; i++) {
+			strategy.put(new Item(i, 1));
+		}
+
+		// While both classes have items, every four takes are three interactive
+		// and one bulk.
+		int[] taken = new int[2];
+		for (int i = 0; i < 12; i++) {
+			taken[strategy.take().getPriorityClass()]++;
+		}
+		assertEquals(9, taken[0]);
+		assertEquals(3, taken[1]);
+	}
+
+	@Test
+	public void itemsKeepTheirOrderWithinAClass() throws Exception {
+		PriorityBufferStrategy strategy = new PriorityBufferStrategy(CLASSES);
+		for (int i = 0; i < 5; i++) {
+			strategy.put(new Item(i, 1));
+		}
+		for (int i = 0; i < 5; i++) {
+			assertEquals(i, strategy.take().getPayload());
+		}
+		assertNull(strategy.poll());
+	}
+
+	@Test
+	public void aFullClassDoesNotBlockOtherClasses() {
+		PriorityBufferStrategy strategy = new PriorityBufferStrategy(CLASSES);
+		for (int i = 0; i < 30; i++) {
+			assertTrue(strategy.offer(new Item(i, 1)));
+		}
+		assertFalse(strategy.offer(new Item(30, 1)));
+		assertTrue(strategy.offer(new Item(0, 0)));
+		assertEquals(30, strategy.size(1));
+		assertEquals(1, strategy.size(0));
+		assertEquals(40, strategy.capacity());
+	}
+
+	@Test
+	public void unknownClassesFallIntoTheLastClass() {
+		PriorityBufferStrategy strategy = new PriorityBufferStrategy(CLASSES);
+		assertTrue(strategy.offer(new Item(0, 7)));
+		assertEquals(1, strategy.size(1));
+	}
+
+	@Test
+	public void classCapacitiesFollowAResize() throws Exception {
+		Buffer buffer = new Buffer(CLASSES);
+		assertEquals(40, buffer.getCapacity());
+		buffer.resize(80);
+		assertEquals(80, buffer.getCapacity());
+		assertEquals(20, buffer.getCapacity(0));
+		assertEquals(60, buffer.getCapacity(1));
+	}
+
+	@Test
+	public void smallClassesKeepASlotWithoutExceedingTheTotal() {
+		Buffer buffer = new Buffer(List.of(new PriorityClass("bulk", 1, 100), new PriorityClass("interactive", 3, 1),
+				new PriorityClass("control", 5, 1)));
+		buffer.resize(3);
+		assertEquals(3, buffer.getCapacity());
+		for (int i = 0; i < 3; i++) {
+			assertEquals(1, buffer.getCapacity(i));
+		}
+		buffer.resize(4);
+		assertEquals(2, buffer.getCapacity(0));
+		assertEquals(4, buffer.getCapacity(0) + buffer.getCapacity(1) + buffer.getCapacity(2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void resizingBelowTheNumberOfClassesIsRejected() {
+		Buffer buffer = new Buffer(List.of(new PriorityClass("a", 1, 1), new PriorityClass("b", 1, 1),
+				new PriorityClass("c", 1, 1)));
+		buffer.resize(2);
+	}
+
+	@Test
+	public void bufferReportsOccupancyAndDwellPerClass() throws Exception {
+		LoadBalancer loadBalancer = new LoadBalancer(CLASSES, ExecutionMode.PLATFORM_THREADS);
+		Buffer buffer = loadBalancer.getBuffer();
+		buffer.put(new Item(0, 0));
+		buffer.put(new Item(0, 1));
+		buffer.put(new Item(1, 1));
+		buffer.take();
+
+		List<PriorityClassMetrics> metrics = loadBalancer.getPriorityClassMetrics();
+		assertEquals(2, metrics.size());
+		assertEquals("interactive", metrics.get(0).name());
+		assertEquals(0, metrics.get(0).occupancy());
+		assertEquals(1, metrics.get(0).dwellCount());
+		assertEquals(2, metrics.get(1).occupancy());
+		assertEquals(30, metrics.get(1).capacity());
+		assertEquals(0, metrics.get(1).dwellCount());
+		loadBalancer.shutdown();
+	}
+
+	@Test
+	public void interactiveItemsOvertakeABulkBacklog() throws Exception {
+		Buffer buffer = new Buffer(CLASSES);
+		for (int i = 0; i < 30; i++) {
+			buffer.put(new Item(i, 1));
+		}
+		buffer.put(new Item(0, 0));
+
+		// The interactive item is among the first few taken, not behind all 30.
+		boolean found = false;
+		for (int i = 0; i < 4 && !found; i++) {
+			found = buffer.take().getPriorityClass() == 0;
+		}
+		assertTrue(found);
+	}
+
+	@Test
+	public void otherBuffersHaveNoPriorityClasses() {
+		LoadBalancer loadBalancer = new LoadBalancer(10);
+		assertTrue(loadBalancer.getPriorityClassMetrics().isEmpty());
+		assertEquals(0, loadBalancer.getBuffer().getCurrentSize(0));
+		loadBalancer.shutdown();
+	}
+}
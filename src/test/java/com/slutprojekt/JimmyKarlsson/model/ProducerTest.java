@@ -0,0 +1,51 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for batch-mode producers.
+ */
+public class ProducerTest {
+
+	@Test(timeout = 10_000)
+	public void lingeringBatchesAreHandedOverBeforeTheNextItemIsDue() throws Exception {
+		Buffer buffer = new Buffer(10);
+		Producer producer = new Producer(Rate.every(Duration.ofHours(1)), buffer, new Item(),
+				new BatchSettings(10, Duration.ofMillis(50)), ItemPool.unpooled());
+		Thread thread = new Thread(producer);
+		thread.start();
+
+		long started = System.nanoTime();
+		buffer.take();
+		assertTrue(System.nanoTime() - started < Duration.ofSeconds(5).toNanos());
+		while (producer.getItemsProduced() == 0) {
+			Thread.sleep(5); // Counted just after the hand-over.
+		}
+		assertEquals(1, producer.getItemsProduced());
+		producer.shutdown();
+		thread.interrupt();
+		thread.join();
+	}
+
+	@Test(timeout = 10_000)
+	public void pendingItemsAreNotLostOnShutdown() throws Exception {
+		Buffer buffer = new Buffer(10);
+		Producer producer = new Producer(Rate.every(Duration.ofMillis(1)), buffer, new Item(),
+				new BatchSettings(1000, Duration.ofHours(1)), ItemPool.unpooled());
+		Thread thread = new Thread(producer);
+		thread.start();
+		Thread.sleep(20); // Some items produced, none handed over yet.
+		assertEquals(0, buffer.getCurrentSize());
+
+		producer.shutdown();
+		thread.interrupt();
+		thread.join();
+		assertEquals(Math.min(10, producer.getItemsProduced()), buffer.getCurrentSize());
+		assertTrue(producer.getItemsProduced() > 0);
+	}
+}
@@ -0,0 +1,92 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for rates, deadline-based pacing and their persistence in
+ * LoadBalancerState.
+ */
+public class RateTest {
+
+	@Test
+	public void convertsBetweenRatesAndIntervals() {
+		assertEquals(200_000, Rate.perSecond(5000).intervalNanos());
+		assertEquals(Duration.ofMillis(250), Rate.every(Duration.ofMillis(250)).interval());
+		assertEquals(4.0, Rate.every(Duration.ofMillis(250)).itemsPerSecond(), 1e-9);
+		assertEquals(3, Rate.everySeconds(3).toWholeSeconds());
+		assertEquals(1, Rate.perSecond(5000).toWholeSeconds()); // Never rounded down to unthrottled.
+	}
+
+	@Test
+	public void pacerDoesNotDriftWhenWorkTakesPartOfTheInterval() throws InterruptedException {
+		Pacer pacer = new Pacer(Rate.every(Duration.ofMillis(10)));
+		long started = System.nanoTime();
+		pacer.start();
+		for (int i = 0; i < 50; i++) {
+			TimeUnit.MILLISECONDS.sleep(3); // Simulated time blocked in the buffer.
+			pacer.awaitNext(1);
+		}
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+		// A sleep-after-work loop would take 50 * 13 ms = 650 ms.
+		assertTrue("took " + elapsedMillis + " ms", elapsedMillis >= 500 && elapsedMillis < 600);
+	}
+
+	@Test
+	public void producerSustainsThousandsOfItemsPerSecond() throws InterruptedException {
+		Buffer buffer = new Buffer(100_000);
+		Producer producer = new Producer(Rate.perSecond(5000), buffer, new Item(), BatchSettings.NONE,
+				ItemPool.unpooled());
+		Thread thread = new Thread(producer);
+		thread.start();
+		TimeUnit.SECONDS.sleep(1);
+		producer.shutdown();
+		thread.join();
+
+		long produced = producer.getItemsProduced();
+		assertTrue("produced " + produced, produced > 4000 && produced < 6000);
+		buffer.getOccupancyGauge().shutdown();
+	}
+
+	@Test
+	public void statesKeepExactRatesAndWholeSecondDelays() throws Exception {
+		LoadBalancerState state = LoadBalancerState.ofRates(List.of(Rate.perSecond(5000), Rate.everySeconds(3)),
+				List.of(Rate.every(Duration.ofMillis(1500))), 10, 2);
+
+		LoadBalancerState copy = roundTrip(state);
+
+		assertEquals(List.of(1, 3), copy.producerDelays());
+		assertEquals(List.of(2), copy.consumerDelays());
+		assertEquals(List.of(Rate.perSecond(5000), Rate.everySeconds(3)), copy.producerRates());
+		assertEquals(List.of(Rate.every(Duration.ofMillis(1500))), copy.consumerRates());
+	}
+
+	@Test
+	public void statesWithoutIntervalsUseTheirDelays() throws Exception {
+		LoadBalancerState copy = roundTrip(new LoadBalancerState(List.of(4), List.of(7, 8), 10, 0));
+
+		assertEquals(List.of(Rate.everySeconds(4)), copy.producerRates());
+		assertEquals(List.of(Rate.everySeconds(7), Rate.everySeconds(8)), copy.consumerRates());
+	}
+
+	private static LoadBalancerState roundTrip(LoadBalancerState state) throws Exception {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+			oos.writeObject(state);
+		}
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			return (LoadBalancerState) ois.readObject();
+		}
+	}
+}
@@ -0,0 +1,128 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the lock-free ring buffer strategy.
+ */
+public class RingBufferStrategyTest {
+
+	@Test
+	public void offerAndPollFollowFifoOrderAndRespectCapacity() {
+		RingBufferStrategy ring = new RingBufferStrategy(3, WaitStrategyType.PARK.create());
+		Item first = new Item(), second = new Item(), third = new Item();
+
+		assertTrue(ring.offer(first));
+		assertTrue(ring.offer(second));
+		assertTrue(ring.offer(third));
+		assertFalse(ring.offer(new Item()));
+		assertEquals(3, ring.size());
+
+		assertSame(first, ring.poll());
+		assertSame(second, ring.poll());
+		assertSame(third, ring.poll());
+		assertNull(ring.poll());
+		assertEquals(0, ring.size());
+	}
+
+	@Test
+	public void offerAllClaimsOnlyTheFreeSlotsInOrder() {
+		RingBufferStrategy ring = new RingBufferStrategy(4, WaitStrategyType.PARK.create());
+		List<Item> batch = List.of(new Item(), new Item(), new Item(), new Item(), new Item(), new Item());
+
+		assertEquals(4, ring.offerAll(batch, 0));
+		assertEquals(0, ring.offerAll(batch, 4));
+		assertSame(batch.get(0), ring.poll());
+		assertSame(batch.get(1), ring.poll());
+		assertEquals(2, ring.offerAll(batch, 4));
+		for (int i = 2; i < batch.size(); i++) {
+			assertSame(batch.get(i), ring.poll());
+		}
+		assertNull(ring.poll());
+	}
+
+	@Test
+	public void batchedPutsLoseNothingUnderContention() throws Exception {
+		assertNoLossOrDuplication(new RingBufferStrategy(7, WaitStrategyType.YIELD.create()), 5);
+	}
+
+	@Test
+	public void everyItemIsTakenExactlyOnceUnderContention() throws Exception {
+		for (WaitStrategyType type : new WaitStrategyType[] { WaitStrategyType.YIELD, WaitStrategyType.PARK,
+				WaitStrategyType.BLOCKING }) {
+			assertNoLossOrDuplication(new RingBufferStrategy(7, type.create()), 1);
+		}
+	}
+
+	@Test
+	public void singleSlotRingLosesNothingUnderContention() throws Exception {
+		// With one slot, "published for position p" and "free for position p + 1"
+		// must still be told apart.
+		assertNoLossOrDuplication(new RingBufferStrategy(1, WaitStrategyType.YIELD.create()), 1);
+	}
+
+	// Producers put items one at a time, or through offerAll in batches.
+	private void assertNoLossOrDuplication(RingBufferStrategy ring, int batchSize) throws Exception {
+		int producers = 4, consumers = 4, itemsPerProducer = 5_000;
+		Set<Item> taken = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+		CountDownLatch done = new CountDownLatch(producers + consumers);
+		ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+
+		for (int p = 0; p < producers; p++) {
+			executor.execute(() -> {
+				try {
+					for (int i = 0; i < itemsPerProducer; i += batchSize) {
+						if (batchSize == 1) {
+							ring.put(new Item());
+							continue;
+						}
+						List<Item> batch = new ArrayList<>();
+						for (int j = 0; j < batchSize; j++) {
+							batch.add(new Item());
+						}
+						for (int added = 0; added < batchSize;) {
+							added += ring.offerAll(batch, added);
+							Thread.yield();
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				done.countDown();
+			});
+		}
+		for (int c = 0; c < consumers; c++) {
+			executor.execute(() -> {
+				try {
+					for (int i = 0; i < itemsPerProducer; i++) {
+						assertTrue(taken.add(ring.take()));
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				done.countDown();
+			});
+		}
+
+		assertTrue(done.await(60, TimeUnit.SECONDS));
+		executor.shutdown();
+		assertEquals(producers * itemsPerProducer, taken.size());
+		assertEquals(0, ring.size());
+	}
+}
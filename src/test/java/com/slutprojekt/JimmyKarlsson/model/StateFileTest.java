@@ -0,0 +1,143 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.slutprojekt.JimmyKarlsson.model.interfaces.ProgressListener;
+
+/**
+ * Unit tests for reading and writing state files.
+ */
+public class StateFileTest {
+
+	private Path directory;
+
+	@Before
+	public void createDirectory() throws IOException {
+		directory = Files.createTempDirectory("state-file-test");
+	}
+
+	@After
+	public void deleteDirectory() throws IOException {
+		try (var files = Files.list(directory)) {
+			for (Path file : files.toList()) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+
+	@Test
+	public void roundTripKeepsExactRates() throws IOException {
+		LoadBalancerState state = LoadBalancerState.ofRates(
+				List.of(Rate.everySeconds(3), Rate.every(Duration.ofNanos(1_234_567))),
+				List.of(Rate.perSecond(5000), Rate.everySeconds(10), Rate.every(Duration.ZERO)), 250, 42);
+		Path file = directory.resolve("state.dat");
+		StateFile.write(state, file, ProgressListener.NONE);
+
+		assertEquals(state, StateFile.read(file, ProgressListener.NONE));
+		assertTrue(Files.notExists(directory.resolve("state.dat.tmp")));
+	}
+
+	@Test
+	public void legacySerializedStatesAreStillRead() throws IOException {
+		LoadBalancerState legacy = new LoadBalancerState(List.of(1, 2, 3), List.of(4, 5), 100, 7);
+		Path file = directory.resolve("legacy.dat");
+		try (OutputStream out = Files.newOutputStream(file); ObjectOutputStream oos = new ObjectOutputStream(out)) {
+			oos.writeObject(legacy);
+		}
+
+		LoadBalancerState state = StateFile.read(file, ProgressListener.NONE);
+		assertEquals(legacy.producerRates(), state.producerRates());
+		assertEquals(legacy.consumerRates(), state.consumerRates());
+		assertEquals(100, state.bufferCapacity());
+		assertEquals(7, state.currentBufferSize());
+	}
+
+	@Test
+	public void largeTopologiesAreFarSmallerThanSerialized() throws IOException {
+		List<Rate> rates = Collections.nCopies(100_000, Rate.everySeconds(5));
+		LoadBalancerState state = LoadBalancerState.ofRates(rates, rates, 100, 0);
+		Path binary = directory.resolve("binary.dat");
+		Path serialized = directory.resolve("serialized.dat");
+		StateFile.write(state, binary, ProgressListener.NONE);
+		try (OutputStream out = Files.newOutputStream(serialized);
+				ObjectOutputStream oos = new ObjectOutputStream(out)) {
+			oos.writeObject(state);
+		}
+
+		// Five bytes per interval, against a boxed Integer and Long each.
+		assertTrue(Files.size(binary) < 5 * 200_000 + 32);
+		assertTrue(Files.size(binary) * 2 < Files.size(serialized));
+	}
+
+	@Test
+	public void progressIsReportedUpToTheFileSize() throws IOException {
+		List<Rate> rates = Collections.nCopies(50_000, Rate.everySeconds(1));
+		LoadBalancerState state = LoadBalancerState.ofRates(rates, rates, 100, 0);
+		Path file = directory.resolve("state.dat");
+		List<long[]> written = new ArrayList<>();
+		StateFile.write(state, file, (done, total) -> written.add(new long[] { done, total }));
+		List<long[]> read = new ArrayList<>();
+		StateFile.read(file, (done, total) -> read.add(new long[] { done, total }));
+
+		long size = Files.size(file);
+		for (List<long[]> updates : List.of(written, read)) {
+			assertTrue(updates.size() > 1);
+			for (int i = 1; i < updates.size(); i++) {
+				assertTrue(updates.get(i)[0] >= updates.get(i - 1)[0]);
+			}
+			assertEquals(size, updates.get(updates.size() - 1)[0]);
+			assertEquals(size, updates.get(updates.size() - 1)[1]);
+		}
+	}
+
+	@Test
+	public void corruptFilesAreRejected() throws IOException {
+		LoadBalancerState state = LoadBalancerState.ofRates(List.of(Rate.everySeconds(2)),
+				List.of(Rate.everySeconds(3)), 100, 1);
+		Path file = directory.resolve("state.dat");
+		StateFile.write(state, file, ProgressListener.NONE);
+		byte[] bytes = Files.readAllBytes(file);
+
+		byte[] flipped = bytes.clone();
+		flipped[7] ^= 1;
+		assertUnreadable(flipped);
+
+		byte[] truncated = new byte[bytes.length - 2];
+		System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+		assertUnreadable(truncated);
+
+		byte[] newerVersion = bytes.clone();
+		newerVersion[4] = (byte) (StateFile.VERSION + 1);
+		assertUnreadable(newerVersion);
+
+		assertUnreadable("not a state".getBytes());
+	}
+
+	private void assertUnreadable(byte[] bytes) throws IOException {
+		Path file = directory.resolve("corrupt.dat");
+		Files.write(file, bytes);
+		try {
+			StateFile.read(file, ProgressListener.NONE);
+			fail("Expected an IOException");
+		} catch (IOException e) {
+			// Expected.
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the striped buffer strategy.
+ */
+public class StripedBufferStrategyTest {
+
+	@Test
+	public void sizeAndCapacityAreTotalsOverAllStripes() {
+		StripedBufferStrategy striped = new StripedBufferStrategy(10, 4, WaitStrategyType.PARK.create());
+		assertEquals(4, striped.getStripeCount());
+		assertEquals(10, striped.capacity());
+
+		for (int i = 0; i < 10; i++) {
+			assertTrue(striped.offer(new Item())); // Spills over into other stripes once home is full.
+		}
+		assertFalse(striped.offer(new Item()));
+		assertEquals(10, striped.size());
+
+		for (int i = 0; i < 10; i++) {
+			assertTrue(striped.poll() != null);
+		}
+		assertNull(striped.poll());
+		assertEquals(0, striped.size());
+	}
+
+	@Test
+	public void neverHasMoreStripesThanSlots() {
+		StripedBufferStrategy striped = new StripedBufferStrategy(3, 8, WaitStrategyType.PARK.create());
+		assertEquals(3, striped.getStripeCount());
+		assertEquals(3, striped.capacity());
+	}
+
+	@Test(timeout = 10_000)
+	public void consumersStealFromOtherStripes() throws Exception {
+		StripedBufferStrategy striped = new StripedBufferStrategy(64, 8, WaitStrategyType.BLOCKING.create());
+		Item item = new Item();
+		Thread producer = new Thread(() -> striped.offer(item));
+		producer.start();
+		producer.join();
+
+		// Whatever this thread's home stripe is, the item is found.
+		AtomicReference<Item> taken = new AtomicReference<>();
+		Thread consumer = new Thread(() -> {
+			try {
+				taken.set(striped.take());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		consumer.start();
+		consumer.join();
+		assertSame(item, taken.get());
+	}
+
+	@Test
+	public void bufferKeepsGlobalSizeAndCapacity() throws Exception {
+		Buffer buffer = new Buffer(20,
+				capacity -> new StripedBufferStrategy(capacity, 4, WaitStrategyType.YIELD.create()));
+		for (int i = 0; i < 15; i++) {
+			buffer.put(new Item());
+		}
+		assertEquals(20, buffer.getCapacity());
+		assertEquals(15, buffer.getCurrentSize());
+
+		buffer.resize(40);
+		assertEquals(40, buffer.getCapacity());
+		assertEquals(15, buffer.getCurrentSize());
+	}
+
+	@Test
+	public void everyItemIsTakenExactlyOnceUnderContention() throws Exception {
+		for (WaitStrategyType type : new WaitStrategyType[] { WaitStrategyType.YIELD, WaitStrategyType.PARK,
+				WaitStrategyType.BLOCKING }) {
+			assertNoLossOrDuplication(new StripedBufferStrategy(32, 4, type.create()));
+		}
+	}
+
+	private void assertNoLossOrDuplication(StripedBufferStrategy striped) throws Exception {
+		// More producers than consumers, so some stripes only empty through stealing.
+		int producers = 6, consumers = 3, itemsPerProducer = 5_000;
+		Set<Item> taken = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+		CountDownLatch done = new CountDownLatch(producers + consumers);
+		ExecutorService executor = Executors.newFixedThreadPool(producers + consumers);
+
+		for (int p = 0; p < producers; p++) {
+			executor.execute(() -> {
+				try {
+					for (int i = 0; i < itemsPerProducer; i++) {
+						striped.put(new Item());
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				done.countDown();
+			});
+		}
+		for (int c = 0; c < consumers; c++) {
+			executor.execute(() -> {
+				try {
+					for (int i = 0; i < producers * itemsPerProducer / consumers; i++) {
+						assertTrue(taken.add(striped.take()));
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				done.countDown();
+			});
+		}
+
+		assertTrue(done.await(60, TimeUnit.SECONDS));
+		executor.shutdown();
+		assertEquals(producers * itemsPerProducer, taken.size());
+		assertEquals(0, striped.size());
+	}
+}
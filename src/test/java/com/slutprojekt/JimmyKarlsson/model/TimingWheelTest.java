@@ -0,0 +1,81 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the hierarchical timing wheel.
+ */
+public class TimingWheelTest {
+
+	@Test
+	public void timersFireOnTheirDeadlineTickOnEveryLevel() {
+		TimingWheel wheel = new TimingWheel(0);
+		List<long[]> fired = new ArrayList<>();
+		long[] deadlines = { 0, 1, 63, 64, 65, 4095, 4096, 4097, 300_000, 17_000_000, 20_000_000 };
+		for (long deadline : deadlines) {
+			wheel.add(new RecordingTimer(fired, wheel), deadline);
+		}
+
+		for (long tick = 0; tick <= 20_000_000; tick += 997) { // Advance in uneven steps.
+			wheel.advanceTo(tick, Runnable::run);
+		}
+		wheel.advanceTo(20_000_000, Runnable::run);
+
+		assertEquals(deadlines.length, fired.size());
+		for (long[] firing : fired) {
+			assertEquals(firing[0], firing[1]); // Fired on exactly the deadline tick.
+		}
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	public void overdueTimersFireOnTheNextTick() {
+		TimingWheel wheel = new TimingWheel(100);
+		List<long[]> fired = new ArrayList<>();
+		wheel.add(new RecordingTimer(fired, wheel), 5);
+
+		wheel.advanceTo(100, Runnable::run);
+
+		assertEquals(1, fired.size());
+		assertEquals(100, fired.get(0)[1]);
+	}
+
+	@Test
+	public void timersCanBeRescheduledFromTheirOwnRun() {
+		TimingWheel wheel = new TimingWheel(0);
+		int[] runs = new int[1];
+		wheel.add(new TimingWheel.Timer() {
+			@Override
+			public void run() {
+				if (++runs[0] < 10) {
+					wheel.add(this, wheel.getCurrentTick() + 100);
+				}
+			}
+		}, 0);
+
+		wheel.advanceTo(10_000, Runnable::run);
+
+		assertEquals(10, runs[0]);
+	}
+
+	// Records its deadline and the tick it actually fired on.
+	private static final class RecordingTimer extends TimingWheel.Timer {
+		private final List<long[]> fired;
+		private final TimingWheel wheel;
+
+		private RecordingTimer(List<long[]> fired, TimingWheel wheel) {
+			this.fired = fired;
+			this.wheel = wheel;
+		}
+
+		@Override
+		public void run() {
+			fired.add(new long[] { getDeadlineTick(), wheel.getCurrentTick() });
+		}
+	}
+}
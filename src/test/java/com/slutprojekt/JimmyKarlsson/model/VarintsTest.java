@@ -0,0 +1,64 @@
+package com.slutprojekt.JimmyKarlsson.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the varint and zig-zag encoding.
+ */
+public class VarintsTest {
+
+	@Test
+	public void valuesSurviveARoundTrip() {
+		long[] values = { 0, 1, 127, 128, 16_383, 16_384, Integer.MAX_VALUE, Long.MAX_VALUE, -1, Long.MIN_VALUE };
+		ByteBuffer data = ByteBuffer.allocate(values.length * Varints.MAX_LONG_BYTES);
+		for (long value : values) {
+			Varints.put(data, value);
+		}
+		data.flip();
+		for (long value : values) {
+			assertEquals(value, Varints.get(data));
+		}
+		assertFalse(data.hasRemaining());
+	}
+
+	@Test
+	public void smallValuesTakeOneByteAndLongsAtMostTen() {
+		assertEquals(1, encodedLength(127));
+		assertEquals(2, encodedLength(128));
+		assertEquals(Varints.MAX_INT_BYTES, encodedLength(0xFFFF_FFFFL));
+		assertEquals(Varints.MAX_LONG_BYTES, encodedLength(-1));
+	}
+
+	@Test
+	public void zigZagKeepsSmallNegativeValuesSmall() {
+		assertEquals(0, Varints.zigZag(0));
+		assertEquals(1, Varints.zigZag(-1));
+		assertEquals(2, Varints.zigZag(1));
+		assertEquals(3, Varints.zigZag(-2));
+		for (long value : new long[] { 0, 1, -1, 42, -42, Long.MAX_VALUE, Long.MIN_VALUE }) {
+			assertEquals(value, Varints.unZigZag(Varints.zigZag(value)));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void overlongVarintsAreRejected() {
+		ByteBuffer data = ByteBuffer.allocate(11);
+		for (int i = 0; i < 11; i++) {
+			data.put((byte) 0x80);
+		}
+		Varints.get(data.flip());
+	}
+
+	// Private helper methods
+
+	private static int encodedLength(long value) {
+		ByteBuffer data = ByteBuffer.allocate(Varints.MAX_LONG_BYTES);
+		Varints.put(data, value);
+		return data.position();
+	}
+}
@@ -0,0 +1,67 @@
+package com.slutprojekt.JimmyKarlsson.model.metrics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the log-bucketed latency histogram.
+ */
+public class LatencyHistogramTest {
+
+	@Test
+	public void bucketsAreContiguousAndCoverEveryValue() {
+		long[] values = { 0, 1, 127, 128, 129, 255, 256, 1_000, 1_000_000, 123_456_789, Long.MAX_VALUE };
+		for (long value : values) {
+			int index = LatencyHistogram.indexOf(value);
+			assertTrue(value + " above its bucket", LatencyHistogram.highestValueIn(index) >= value);
+			assertTrue(value + " below its bucket", index == 0 || LatencyHistogram.highestValueIn(index - 1) < value);
+		}
+	}
+
+	@Test
+	public void percentilesAreWithinOnePercent() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 100_000; value++) {
+			histogram.record(value * 1_000); // 1 µs to 100 ms.
+		}
+
+		assertEquals(100_000, histogram.getCount());
+		assertEquals(100_000_000, histogram.getMax());
+		assertEquals(50_000_000, histogram.getValueAtPercentile(50), 500_000);
+		assertEquals(99_000_000, histogram.getValueAtPercentile(99), 990_000);
+		assertEquals(99_900_000, histogram.getValueAtPercentile(99.9), 999_000);
+		assertEquals(50_000_500, histogram.getMean(), 1e-6);
+	}
+
+	@Test
+	public void emptyHistogramReportsZero() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		assertEquals(0, histogram.getValueAtPercentile(99));
+		assertArrayEquals(new long[] { 0, 0 }, histogram.getValuesAtPercentiles(50, 99));
+		assertEquals(0.0, histogram.getMean(), 0.0);
+	}
+
+	@Test
+	public void percentilesReadTogetherMatchThoseReadOneByOne() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long value = 1; value <= 10_000; value++) {
+			histogram.record(value * value);
+		}
+		double[] percentiles = { 0, 25, 50, 50, 99, 99.9, 100 };
+
+		long[] values = histogram.getValuesAtPercentiles(percentiles);
+
+		for (int i = 0; i < percentiles.length; i++) {
+			assertEquals("p" + percentiles[i], histogram.getValueAtPercentile(percentiles[i]), values[i]);
+		}
+		assertEquals(histogram.getMax(), values[values.length - 1]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void percentilesOutOfOrderAreRejected() {
+		new LatencyHistogram().getValuesAtPercentiles(99, 50);
+	}
+}
@@ -0,0 +1,98 @@
+package com.slutprojekt.JimmyKarlsson.model.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for rolling window statistics.
+ */
+public class RollingStatisticsTest {
+
+	private static final Duration MILLISECOND = Duration.ofMillis(1);
+
+	@Test
+	public void aFillingWindowCoversTheSamplesSoFar() {
+		RollingStatistics statistics = new RollingStatistics(MILLISECOND, List.of(Duration.ofMillis(10)));
+		assertEquals(0, statistics.snapshot(0).count());
+		for (int value : new int[] { 4, 2, 9 }) {
+			statistics.record(value);
+		}
+
+		WindowStatistics window = statistics.snapshot(0);
+		assertEquals(Duration.ofMillis(10), window.window());
+		assertEquals(3, window.count());
+		assertEquals(5.0, window.mean(), 1e-9);
+		assertEquals(2, window.min());
+		assertEquals(9, window.max());
+		assertEquals(4, window.p50());
+		assertEquals(9, window.p99());
+	}
+
+	@Test
+	public void everyWindowMatchesABruteForceComputation() {
+		List<Duration> windows = List.of(Duration.ofMillis(1), Duration.ofMillis(7), Duration.ofMillis(50),
+				Duration.ofMillis(400));
+		RollingStatistics statistics = new RollingStatistics(MILLISECOND, windows);
+		Random random = new Random(42);
+		List<Integer> history = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			int value = i % 300 < 150 ? random.nextInt(100) : random.nextInt(3000); // Grows the value range.
+			statistics.record(value);
+			history.add(value);
+			if (i % 97 != 0) {
+				continue;
+			}
+			for (int w = 0; w < windows.size(); w++) {
+				int length = (int) windows.get(w).toMillis();
+				List<Integer> window = new ArrayList<>(history.subList(Math.max(0, history.size() - length),
+						history.size()));
+				Collections.sort(window);
+				WindowStatistics snapshot = statistics.snapshot(w);
+				assertEquals(window.size(), snapshot.count());
+				assertEquals(window.stream().mapToInt(Integer::intValue).average().orElse(0), snapshot.mean(), 1e-9);
+				assertEquals((int) window.get(0), snapshot.min());
+				assertEquals((int) window.get(window.size() - 1), snapshot.max());
+				assertEquals((int) window.get((int) Math.ceil(0.50 * window.size()) - 1), snapshot.p50());
+				assertEquals((int) window.get((int) Math.ceil(0.95 * window.size()) - 1), snapshot.p95());
+				assertEquals((int) window.get((int) Math.ceil(0.99 * window.size()) - 1), snapshot.p99());
+			}
+		}
+	}
+
+	@Test
+	public void ewmaConvergesWithTheWindowAsTimeConstant() {
+		RollingStatistics statistics = new RollingStatistics(MILLISECOND,
+				List.of(Duration.ofMillis(10), Duration.ofMillis(100)));
+		statistics.record(0);
+		for (int i = 0; i < 10; i++) {
+			statistics.record(100);
+		}
+
+		// After one time constant a step has covered 1 - 1/e of the way.
+		assertEquals(100 * (1 - Math.exp(-1)), statistics.snapshot(0).ewma(), 0.01);
+		assertEquals(100 * (1 - Math.exp(-0.1)), statistics.snapshot(1).ewma(), 0.01);
+	}
+
+	@Test
+	public void negativeSamplesAreRecordedAsZero() {
+		RollingStatistics statistics = new RollingStatistics(MILLISECOND, List.of(Duration.ofMillis(5)));
+		statistics.record(-3);
+		assertEquals(0, statistics.snapshot(0).min());
+		assertEquals(1, statistics.getSampleCount());
+	}
+
+	@Test
+	public void defaultWindowsRunFromOneSecondToFifteenMinutes() {
+		List<WindowStatistics> snapshots = new RollingStatistics(MILLISECOND).snapshot();
+		assertEquals(4, snapshots.size());
+		assertEquals(Duration.ofSeconds(1), snapshots.get(0).window());
+		assertEquals(Duration.ofMinutes(15), snapshots.get(3).window());
+	}
+}
@@ -0,0 +1,105 @@
+package com.slutprojekt.JimmyKarlsson.model.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for time series storage and downsampling.
+ */
+public class TimeSeriesTest {
+
+	private static final Duration MILLISECOND = Duration.ofMillis(1);
+
+	private static void assertColumnsMatchBruteForce(TimeSeries series, int index, long from, long to, int columns) {
+		int[] minimums = new int[columns];
+		int[] maximums = new int[columns];
+		series.downsample(index, from, to, minimums, maximums);
+		double span = (double) (to - from) / columns;
+		for (int column = 0; column < columns; column++) {
+			long start = Math.max(from + (long) Math.ceil(column * span), series.getFirstSample());
+			long end = Math.min(from + (long) Math.ceil((column + 1) * span), series.getSampleCount());
+			if (start >= end) {
+				continue;
+			}
+			int min = Integer.MAX_VALUE;
+			int max = Integer.MIN_VALUE;
+			for (long i = start; i < end; i++) {
+				min = Math.min(min, series.get(index, i));
+				max = Math.max(max, series.get(index, i));
+			}
+			assertEquals("minimum of column " + column, min, minimums[column]);
+			assertEquals("maximum of column " + column, max, maximums[column]);
+		}
+	}
+
+	@Test
+	public void columnsHoldTheExactMinimumAndMaximum() {
+		TimeSeries series = new TimeSeries(2, MILLISECOND, Duration.ofMinutes(10));
+		Random random = new Random(7);
+		int[] values = new int[2];
+		for (int i = 0; i < 500_000; i++) {
+			values[0] = random.nextInt(1000);
+			values[1] = i % 10_000 == 0 ? 1_000_000 : i / 1000; // Rare spikes on a ramp.
+			series.record(values);
+		}
+
+		assertColumnsMatchBruteForce(series, 0, 0, 500_000, 600);
+		assertColumnsMatchBruteForce(series, 1, 0, 500_000, 600);
+		assertColumnsMatchBruteForce(series, 1, 12_345, 345_678, 333);
+		assertColumnsMatchBruteForce(series, 0, 499_000, 500_000, 700); // More columns than samples.
+	}
+
+	@Test
+	public void spikesSurviveDownsampling() {
+		TimeSeries series = new TimeSeries(1, MILLISECOND, Duration.ofMinutes(5));
+		int[] values = new int[1];
+		for (int i = 0; i < 300_000; i++) {
+			values[0] = i == 123_457 ? 99 : 1;
+			series.record(values);
+		}
+		int[] minimums = new int[100];
+		int[] maximums = new int[100];
+		assertEquals(100, series.downsample(0, 0, 300_000, minimums, maximums));
+		int spikes = 0;
+		for (int max : maximums) {
+			spikes += max == 99 ? 1 : 0;
+		}
+		assertEquals(1, spikes);
+	}
+
+	@Test
+	public void oldSamplesAreOverwrittenOnceTheHistoryIsFull() {
+		TimeSeries series = new TimeSeries(1, MILLISECOND, Duration.ofMillis(1));
+		int capacity = series.getCapacity();
+		int[] values = new int[1];
+		for (int i = 0; i < capacity * 2 + 1000; i++) {
+			values[0] = i;
+			series.record(values);
+		}
+		assertEquals(capacity + 1000, series.getFirstSample());
+		assertEquals(capacity * 2 + 999, series.get(0, series.getSampleCount() - 1));
+		assertColumnsMatchBruteForce(series, 0, series.getFirstSample() + 5000, series.getSampleCount(), 500);
+	}
+
+	@Test
+	public void columnsBeforeTheFirstSampleAreEmpty() {
+		TimeSeries series = new TimeSeries(1, MILLISECOND, Duration.ofMinutes(1));
+		int[] values = { 5 };
+		for (int i = 0; i < 100; i++) {
+			series.record(values);
+		}
+		int[] minimums = new int[10];
+		int[] maximums = new int[10];
+
+		// A window of 1000 samples ending now, of which only the last 100 exist.
+		assertEquals(1, series.downsample(0, -900, 100, minimums, maximums));
+		assertTrue(minimums[0] > maximums[0]);
+		assertEquals(5, minimums[9]);
+		assertEquals(5, maximums[9]);
+	}
+}
@@ -0,0 +1,89 @@
+package com.slutprojekt.JimmyKarlsson.simulation;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.slutprojekt.JimmyKarlsson.model.Rate;
+
+/**
+ * Unit tests for the discrete-event simulation engine.
+ */
+public class DiscreteEventSimulationTest {
+
+	@Test
+	public void bufferFillsAtTheNetRateAndThenBlocksProducers() {
+		// Two producers and one consumer, all at one item per second: +1 per second.
+		SimulationConfig config = new SimulationConfig(seconds(1, 1), seconds(1), 5, 0, Duration.ofSeconds(8),
+				Duration.ofSeconds(1));
+
+		SimulationReport report = new DiscreteEventSimulation().run(config);
+
+		assertArrayEquals(new int[] { 1, 2, 3, 4, 5, 5, 5, 5 }, report.occupancySamples());
+		assertEquals(8, report.itemsConsumed());
+		assertEquals(13, report.itemsProduced()); // 2 per second until full, then 1 per freed slot.
+		assertEquals(Duration.ofSeconds(8), report.elapsed());
+	}
+
+	@Test
+	public void consumersBlockOnAnEmptyBufferAndLogStyleAveragesMatchSamples() {
+		SimulationConfig config = new SimulationConfig(seconds(2), seconds(1, 1), 10, 4, Duration.ofSeconds(20),
+				Duration.ofSeconds(1));
+
+		SimulationReport report = new DiscreteEventSimulation().run(config);
+
+		assertEquals(0, report.minOccupancy());
+		assertEquals(2, report.windowAveragePercentages().length);
+		double firstWindow = 0;
+		for (int i = 0; i < 10; i++) {
+			firstWindow += report.occupancySamples()[i];
+		}
+		assertEquals(firstWindow / 10 / 10 * 100, report.windowAveragePercentages()[0], 1e-9);
+	}
+
+	@Test(expected = IllegalArgumentException.class, timeout = 5_000)
+	public void zeroDelaysAreRejectedInsteadOfStallingVirtualTime() {
+		SimulationConfig config = new SimulationConfig(seconds(0), seconds(0), 10, 0, Duration.ofSeconds(10),
+				Duration.ofSeconds(1));
+		new DiscreteEventSimulation().run(config);
+	}
+
+	@Test
+	public void simulatesADayOfTrafficInSeconds() {
+		List<Rate> producers = Collections.nCopies(100, Rate.everySeconds(1));
+		List<Rate> consumers = Collections.nCopies(100, Rate.everySeconds(1));
+		SimulationConfig config = new SimulationConfig(producers, consumers, 100, 0, Duration.ofDays(1),
+				Duration.ofSeconds(1));
+
+		long started = System.nanoTime();
+		SimulationReport report = new DiscreteEventSimulation().run(config);
+		long elapsedSeconds = (System.nanoTime() - started) / 1_000_000_000L;
+
+		assertEquals(86_400, report.occupancySamples().length);
+		assertEquals(100L * 86_400, report.itemsProduced());
+		assertEquals(100L * 86_400, report.itemsConsumed());
+		assertTrue("took " + elapsedSeconds + " s", elapsedSeconds < 60);
+	}
+
+	@Test
+	public void subSecondRatesAreSimulatedExactly() {
+		SimulationConfig config = new SimulationConfig(List.of(Rate.perSecond(5000)), List.of(Rate.perSecond(5000)),
+				100, 0, Duration.ofSeconds(10), Duration.ofSeconds(1));
+
+		SimulationReport report = new DiscreteEventSimulation().run(config);
+
+		assertEquals(50_000, report.itemsProduced());
+		assertEquals(50_000, report.itemsConsumed());
+	}
+
+	private static List<Rate> seconds(int... delays) {
+		return Arrays.stream(delays).mapToObj(Rate::everySeconds).toList();
+	}
+}
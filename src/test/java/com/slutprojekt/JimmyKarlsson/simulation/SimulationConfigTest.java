@@ -0,0 +1,44 @@
+package com.slutprojekt.JimmyKarlsson.simulation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.slutprojekt.JimmyKarlsson.model.Rate;
+
+/**
+ * Unit tests for the validation of simulation configs.
+ */
+public class SimulationConfigTest {
+
+	@Test
+	public void sampleCountIsTheNumberOfWholeIntervals() {
+		SimulationConfig config = new SimulationConfig(List.of(Rate.everySeconds(1)), List.of(Rate.everySeconds(1)),
+				10, 0, Duration.ofMillis(2500), Duration.ofSeconds(1));
+
+		assertEquals(2, config.sampleCount());
+	}
+
+	@Test
+	public void theLargestSampleCountIsAccepted() {
+		SimulationConfig config = new SimulationConfig(List.of(), List.of(), 10, 0,
+				Duration.ofMillis(SimulationConfig.MAX_SAMPLES), Duration.ofMillis(1));
+
+		assertEquals(SimulationConfig.MAX_SAMPLES, config.sampleCount());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void sampleIntervalsLongerThanTheRunAreRejected() {
+		new SimulationConfig(List.of(Rate.everySeconds(1)), List.of(Rate.everySeconds(1)), 10, 0,
+				Duration.ofSeconds(1), Duration.ofSeconds(2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void runsWithTooManySamplesAreRejected() {
+		// 30 days sampled every millisecond would not fit in an int array.
+		new SimulationConfig(List.of(), List.of(), 10, 0, Duration.ofDays(30), Duration.ofMillis(1));
+	}
+}
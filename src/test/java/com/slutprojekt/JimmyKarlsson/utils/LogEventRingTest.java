@@ -0,0 +1,121 @@
+package com.slutprojekt.JimmyKarlsson.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Unit tests for the log event ring, including a check that publishing and
+ * draining events allocates nothing, made by counting the bytes the test
+ * thread allocates. The LogEventRingAllocationBenchmark in the benchmarks
+ * module measures the same path under the JMH gc profiler.
+ */
+public class LogEventRingTest {
+
+	private static final int WARMUP_ROUNDS = 20_000; // Lets lazy initialization happen before measuring.
+	private static final int ROUNDS = 100_000;
+	private static final long MAX_BYTES = ROUNDS; // Below one byte per round.
+
+	@Test
+	public void loggingDoesNotAllocate() {
+		ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assertTrue("The JVM does not count allocated bytes", threads.isThreadAllocatedMemoryEnabled());
+		LogEventRing ring = new LogEventRing(1024);
+		long[] sum = new long[1];
+		LogEventRing.Handler handler = (type, first, second, third, value) -> sum[0] += type + first + second
+				+ third;
+
+		publishThenDrain(ring, handler, WARMUP_ROUNDS);
+		long before = threads.getCurrentThreadAllocatedBytes();
+		publishThenDrain(ring, handler, ROUNDS);
+		long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+		assertTrue("logging allocates " + allocated + " B over " + ROUNDS + " rounds", allocated < MAX_BYTES);
+		assertEquals("Both events of every round drained", 15L * (WARMUP_ROUNDS + ROUNDS), sum[0]);
+	}
+
+	@Test
+	public void eventsAreDrainedInOrderWithTheirFields() {
+		LogEventRing ring = new LogEventRing(4);
+		assertTrue(ring.publish(0, 1, 2, 3, 0));
+		assertTrue(ring.publish(2, 0, 0, 0, 12.5));
+		List<String> drained = new ArrayList<>();
+
+		assertEquals(2, ring.drain((type, first, second, third, value) -> drained
+				.add(type + ":" + first + "," + second + "," + third + "," + value)));
+		assertEquals(List.of("0:1,2,3,0.0", "2:0,0,0,12.5"), drained);
+		assertTrue(ring.isEmpty());
+		assertEquals(0, ring.drain((type, first, second, third, value) -> drained.add("unexpected")));
+	}
+
+	@Test
+	public void aFullRingDropsEventsInsteadOfBlocking() {
+		LogEventRing ring = new LogEventRing(4);
+		for (int i = 0; i < 4; i++) {
+			assertTrue(ring.publish(0, i, 0, 0, 0));
+		}
+		assertFalse(ring.publish(0, 4, 0, 0, 0));
+		assertEquals(1, ring.getDroppedCount());
+
+		// Draining frees the slots again.
+		List<Long> drained = new ArrayList<>();
+		ring.drain((type, first, second, third, value) -> drained.add(first));
+		assertEquals(List.of(0L, 1L, 2L, 3L), drained);
+		assertTrue(ring.publish(0, 5, 0, 0, 0));
+	}
+
+	@Test(timeout = 10_000)
+	public void concurrentPublishersLoseNoEvents() throws Exception {
+		LogEventRing ring = new LogEventRing(64);
+		int threads = 4;
+		int perThread = 10_000;
+		List<Thread> publishers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			long thread = t;
+			publishers.add(Thread.ofPlatform().start(() -> {
+				for (int i = 0; i < perThread;) {
+					if (ring.publish(1, thread, i, 0, 0)) {
+						i++;
+					} else {
+						Thread.yield(); // The test drains as it goes, so retry rather than drop.
+					}
+				}
+			}));
+		}
+
+		// Per publisher, events must arrive complete and in order.
+		long[] next = new long[threads];
+		int[] received = new int[1];
+		while (received[0] < threads * perThread) {
+			ring.drain((type, first, second, third, value) -> {
+				assertEquals(next[(int) first]++, second);
+				received[0]++;
+			});
+		}
+		for (Thread publisher : publishers) {
+			publisher.join();
+		}
+		for (long count : next) {
+			assertEquals(perThread, count);
+		}
+		assertTrue(ring.isEmpty());
+	}
+
+	// Private helper methods
+
+	private static void publishThenDrain(LogEventRing ring, LogEventRing.Handler handler, int rounds) {
+		for (int i = 0; i < rounds; i++) {
+			ring.publish(0, 12, 1, 0, 0);
+			ring.publish(2, 0, 0, 0, 42.5);
+			ring.drain(handler);
+		}
+	}
+}
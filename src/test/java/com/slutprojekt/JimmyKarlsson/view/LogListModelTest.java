@@ -0,0 +1,178 @@
+package com.slutprojekt.JimmyKarlsson.view;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.event.ListDataEvent;
+import javax.swing.event.ListDataListener;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the log list model.
+ */
+public class LogListModelTest {
+
+	private static List<String> rows(LogListModel model) {
+		List<String> rows = new ArrayList<>();
+		for (int i = 0; i < model.getSize(); i++) {
+			rows.add(model.getElementAt(i));
+		}
+		return rows;
+	}
+
+	// Replays the model's events on a copy of its rows, as a JList would see them.
+	private static final class Mirror implements ListDataListener {
+		private final LogListModel model;
+		private final List<String> rows = new ArrayList<>();
+		private int events;
+
+		private Mirror(LogListModel model) {
+			this.model = model;
+			rows.addAll(rows(model));
+			model.addListDataListener(this);
+		}
+
+		@Override
+		public void intervalAdded(ListDataEvent e) {
+			for (int i = e.getIndex0(); i <= e.getIndex1(); i++) {
+				rows.add(i, model.getElementAt(i));
+			}
+			events++;
+		}
+
+		@Override
+		public void intervalRemoved(ListDataEvent e) {
+			rows.subList(e.getIndex0(), e.getIndex1() + 1).clear();
+			events++;
+		}
+
+		@Override
+		public void contentsChanged(ListDataEvent e) {
+			throw new AssertionError("Unexpected change event");
+		}
+	}
+
+	@Test
+	public void messagesAppearNewestFirstOnlyWhenFlushed() {
+		LogListModel model = new LogListModel(10);
+		Mirror mirror = new Mirror(model);
+		model.add("first");
+		model.add("second");
+		assertEquals(0, model.getSize());
+
+		assertEquals(2, model.flush());
+		assertEquals(List.of("second", "first"), rows(model));
+		assertEquals(rows(model), mirror.rows);
+		assertEquals(1, mirror.events); // One notification for the whole batch.
+		assertEquals(0, model.flush());
+	}
+
+	@Test
+	public void theOldestMessagesAreDroppedBeyondTheCapacity() {
+		LogListModel model = new LogListModel(3);
+		Mirror mirror = new Mirror(model);
+		for (int i = 0; i < 2; i++) {
+			model.add("m" + i);
+		}
+		model.flush();
+		for (int i = 2; i < 9; i++) {
+			model.add("m" + i);
+		}
+		model.flush();
+
+		assertEquals(List.of("m8", "m7", "m6"), rows(model));
+		assertEquals(rows(model), mirror.rows);
+	}
+
+	@Test
+	public void filtersNarrowAndWidenWhileMessagesArrive() {
+		LogListModel model = new LogListModel(5);
+		Mirror mirror = new Mirror(model);
+		for (String message : new String[] { "High buffer warning!", "Low buffer warning!", "Avg Buffer: 50.00%",
+				"High buffer warning!" }) {
+			model.add(message);
+		}
+		model.flush();
+
+		model.setFilter("W");
+		assertEquals(3, model.getSize());
+		model.setFilter("WARNING");
+		model.setFilter("high");
+		assertEquals(List.of("High buffer warning!", "High buffer warning!"), rows(model));
+		assertEquals(rows(model), mirror.rows);
+
+		// New messages are matched as they arrive, and the oldest drop out.
+		model.add("Avg Buffer: 95.00%");
+		model.add("High buffer warning!");
+		model.add("Total producers: 3, Added: 1, Removed: 0");
+		model.flush();
+		assertEquals(2, model.getSize()); // The first warning was dropped, a new one arrived.
+		assertEquals(rows(model), mirror.rows);
+
+		// Going back to a shorter filter uses the matches kept for it.
+		model.setFilter("");
+		model.setFilter("warning");
+		assertEquals(List.of("High buffer warning!", "High buffer warning!"), rows(model));
+		model.setFilter("");
+		assertEquals(5, model.getSize());
+		assertEquals("Total producers: 3, Added: 1, Removed: 0", model.getElementAt(0));
+		assertEquals(rows(model), mirror.rows);
+	}
+
+	@Test
+	public void shorterFiltersCatchUpWithMessagesAddedMeanwhile() {
+		LogListModel model = new LogListModel(100);
+		model.add("alpha one");
+		model.flush();
+		model.setFilter("a");
+		model.setFilter("alpha");
+		model.add("beta two");
+		model.add("alpha three");
+		model.flush();
+		assertEquals(List.of("alpha three", "alpha one"), rows(model));
+
+		model.setFilter("a");
+		assertEquals(List.of("alpha three", "beta two", "alpha one"), rows(model));
+	}
+
+	@Test
+	public void findSearchesDownwardsAndWraps() {
+		LogListModel model = new LogListModel(10);
+		for (String message : new String[] { "match a", "other", "MATCH b", "other" }) {
+			model.add(message);
+		}
+		model.flush(); // Rows: other, MATCH b, other, match a.
+
+		assertEquals(1, model.indexOf("match", -1));
+		assertEquals(3, model.indexOf("match", 1));
+		assertEquals(1, model.indexOf("match", 3));
+		assertEquals(-1, model.indexOf("missing", 0));
+	}
+
+	@Test
+	public void aHundredThousandMessagesAreKept() {
+		LogListModel model = new LogListModel();
+		for (int i = 0; i < 150_000; i++) {
+			model.add(Integer.toString(i));
+		}
+		model.flush();
+		assertEquals(LogListModel.DEFAULT_CAPACITY, model.getSize());
+		assertEquals("149999", model.getElementAt(0));
+		assertEquals("50000", model.getElementAt(model.getSize() - 1));
+	}
+
+	@Test
+	public void flushCountsMessagesTakenRatherThanRowsShown() {
+		LogListModel model = new LogListModel(2);
+		model.setFilter("match");
+		model.add("match one");
+		model.add("other");
+		model.add("match two");
+
+		assertEquals(3, model.flush());
+		assertEquals(List.of("match two"), rows(model)); // "match one" no longer fits in the log.
+	}
+}
@@ -0,0 +1,84 @@
+package com.slutprojekt.JimmyKarlsson.view;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Test;
+
+import com.slutprojekt.JimmyKarlsson.model.metrics.FrameStatistics;
+
+/**
+ * Unit tests for the GUI refresh pipeline.
+ */
+public class RefreshPipelineTest {
+
+	@Test
+	public void testSlotAppliesOnlyLatestValuePerFrame() {
+		RefreshPipeline pipeline = new RefreshPipeline();
+		List<Integer> applied = new ArrayList<>();
+		RefreshPipeline.IntSlot slot = pipeline.newIntSlot(applied::add);
+
+		for (int i = 0; i < 10_000; i++) {
+			slot.set(i);
+		}
+		pipeline.runFrame();
+		assertEquals(List.of(9_999), applied);
+
+		pipeline.runFrame(); // Nothing new, so nothing applied.
+		assertEquals(List.of(9_999), applied);
+
+		slot.set(-1); // Negative values are kept too.
+		pipeline.runFrame();
+		assertEquals(List.of(9_999, -1), applied);
+	}
+
+	@Test
+	public void testFrameTasksRunAfterSlots() {
+		RefreshPipeline pipeline = new RefreshPipeline();
+		List<String> order = new ArrayList<>();
+		pipeline.addFrameTask(() -> order.add("task"));
+		RefreshPipeline.IntSlot slot = pipeline.newIntSlot(value -> order.add("slot " + value));
+
+		slot.set(5);
+		pipeline.runFrame();
+		pipeline.runFrame();
+		assertEquals(List.of("slot 5", "task", "task"), order);
+	}
+
+	@Test
+	public void testMeasuringCountsQueuedTasks() throws Exception {
+		RefreshPipeline pipeline = new RefreshPipeline();
+		List<FrameStatistics> reports = new ArrayList<>();
+		FrameStatistics[] statistics = new FrameStatistics[1];
+		SwingUtilities.invokeAndWait(() -> {
+			pipeline.startMeasuring(reports::add);
+			for (int i = 0; i < 10; i++) {
+				SwingUtilities.invokeLater(() -> {
+				});
+			}
+			pipeline.runFrame(); // The ten tasks are still waiting behind this one.
+			statistics[0] = pipeline.getStatistics();
+			assertTrue(pipeline.isMeasuring());
+		});
+		SwingUtilities.invokeAndWait(() -> {
+			pipeline.stopMeasuring();
+			assertFalse(pipeline.isMeasuring());
+		});
+
+		assertEquals(1, statistics[0].frames());
+		assertEquals(10, statistics[0].maxQueueDepth());
+		assertTrue(statistics[0].maxFrameNanos() > 0);
+		assertTrue(reports.isEmpty()); // Reports come once a second.
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsNonPositiveFrameRate() {
+		new RefreshPipeline(0);
+	}
+}